@@ -8,9 +8,15 @@ package org.eclipse.emf.emfstore.client.test;
 
 import org.eclipse.emf.emfstore.client.test.caching.AllCachingTests;
 import org.eclipse.emf.emfstore.client.test.changeTracking.AllChangeTrackingTests;
+import org.eclipse.emf.emfstore.client.test.common.ModelElementIdIndexTest;
+import org.eclipse.emf.emfstore.client.test.common.PackedModelElementIdTest;
 import org.eclipse.emf.emfstore.client.test.common.observerbus.AllObserverBusTests;
 import org.eclipse.emf.emfstore.client.test.conflictDetection.AllConflictDetectionTests;
 import org.eclipse.emf.emfstore.client.test.integration.AllIntegrationTests;
+import org.eclipse.emf.emfstore.client.test.persistence.OperationJournalTest;
+import org.eclipse.emf.emfstore.client.test.persistence.ProjectSpaceUnloadTest;
+import org.eclipse.emf.emfstore.client.test.persistence.ResourceFragmenterTest;
+import org.eclipse.emf.emfstore.client.test.persistence.ResourceWriterTest;
 import org.eclipse.emf.emfstore.client.test.server.AllServerTests;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -22,7 +28,9 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ AllChangeTrackingTests.class, AllConflictDetectionTests.class, AllCachingTests.class,
-	AllServerTests.class, AllIntegrationTests.class, AllObserverBusTests.class })
+	AllServerTests.class, AllIntegrationTests.class, AllObserverBusTests.class, ResourceWriterTest.class,
+	ResourceFragmenterTest.class, OperationJournalTest.class, ProjectSpaceUnloadTest.class,
+	PackedModelElementIdTest.class, ModelElementIdIndexTest.class })
 public class AllTests {
 
 }
@@ -0,0 +1,63 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.changeTracking.canonization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.util.OperationsCanonizer;
+import org.junit.Test;
+
+/**
+ * Measures the {@link OperationsCanonizer} and the {@link ReferenceCanonizer} on large generated operation streams and
+ * logs the times. Not part of the test suites, since the reference canonizer takes quadratic time.
+ */
+public class CanonizationPerformanceTest {
+
+	private static final int OPERATIONS = 20000;
+	private static final int MODEL_ELEMENTS = 500;
+	private static final long SEED = 1234567800;
+
+	/**
+	 * Measures both canonizers on a stream of attribute changes with occasional creates, deletes and composites.
+	 */
+	@Test
+	public void attributeStream() {
+		compare("attributeStream", 1);
+	}
+
+	/**
+	 * Measures both canonizers on a stream where all kinds of operations are equally frequent.
+	 */
+	@Test
+	public void mixedStream() {
+		compare("mixedStream", 4);
+	}
+
+	private void compare(String name, int mix) {
+		List<AbstractOperation> expected = new OperationStreams(SEED + mix, MODEL_ELEMENTS, mix).createOperations(
+			OPERATIONS, true);
+		List<AbstractOperation> actual = new OperationStreams(SEED + mix, MODEL_ELEMENTS, mix).createOperations(
+			OPERATIONS, true);
+
+		long time = System.currentTimeMillis();
+		ReferenceCanonizer.canonize(expected);
+		long referenceTime = System.currentTimeMillis() - time;
+
+		time = System.currentTimeMillis();
+		OperationsCanonizer.canonize(actual);
+		long canonizerTime = System.currentTimeMillis() - time;
+
+		ModelUtil.logInfo(name + " " + OPERATIONS + ": reference=" + referenceTime + "ms, canonizer=" + canonizerTime
+			+ "ms, remaining=" + expected.size());
+		assertEquals(expected.size(), actual.size());
+		assertTrue(OperationStreams.haveEqualOperations(expected, actual));
+	}
+}
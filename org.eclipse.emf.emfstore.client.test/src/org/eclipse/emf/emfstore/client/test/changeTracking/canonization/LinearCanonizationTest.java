@@ -0,0 +1,85 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.changeTracking.canonization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.util.OperationsCanonizer;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link OperationsCanonizer} delivers the same operations as the {@link ReferenceCanonizer} on small
+ * generated operation streams. See {@link CanonizationPerformanceTest} for the times on large ones.
+ */
+public class LinearCanonizationTest {
+
+	private static final int OPERATIONS = 1000;
+	private static final int MODEL_ELEMENTS = 50;
+	private static final int SHORT_STREAMS = 500;
+	private static final int SHORT_STREAM_OPERATIONS = 12;
+	private static final int SHORT_STREAM_MODEL_ELEMENTS = 2;
+	private static final long SEED = 1234567800;
+
+	/**
+	 * Compares both canonizers on a stream of attribute changes with occasional creates, deletes and composites.
+	 */
+	@Test
+	public void attributeStream() {
+		compare(1, true);
+	}
+
+	/**
+	 * Compares both canonizers on a stream where all kinds of operations are equally frequent.
+	 */
+	@Test
+	public void mixedStream() {
+		compare(4, true);
+	}
+
+	/**
+	 * Compares both canonizers on a plain list instead of the operation list of a change package.
+	 */
+	@Test
+	public void plainList() {
+		compare(2, false);
+	}
+
+	/**
+	 * Compares both canonizers on many short streams on few model elements, where nearly every operation is folded.
+	 */
+	@Test
+	public void shortStreams() {
+		for (int i = 0; i < SHORT_STREAMS; i++) {
+			int mix = 1 + i % 4;
+			int size = 1 + i % SHORT_STREAM_OPERATIONS;
+			List<AbstractOperation> expected = new OperationStreams(SEED + i, SHORT_STREAM_MODEL_ELEMENTS, mix)
+				.createOperations(size, true);
+			List<AbstractOperation> actual = new OperationStreams(SEED + i, SHORT_STREAM_MODEL_ELEMENTS, mix)
+				.createOperations(size, true);
+			ReferenceCanonizer.canonize(expected);
+			OperationsCanonizer.canonize(actual);
+			assertTrue("stream " + i, OperationStreams.haveEqualOperations(expected, actual));
+		}
+	}
+
+	private void compare(int mix, boolean changePackage) {
+		List<AbstractOperation> expected = new OperationStreams(SEED + mix, MODEL_ELEMENTS, mix).createOperations(
+			OPERATIONS, changePackage);
+		List<AbstractOperation> actual = new OperationStreams(SEED + mix, MODEL_ELEMENTS, mix).createOperations(
+			OPERATIONS, changePackage);
+		assertTrue(OperationStreams.haveEqualOperations(expected, actual));
+
+		ReferenceCanonizer.canonize(expected);
+		OperationsCanonizer.canonize(actual);
+		assertTrue(expected.size() < OPERATIONS);
+		assertEquals(expected.size(), actual.size());
+		assertTrue(OperationStreams.haveEqualOperations(expected, actual));
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.changeTracking.canonization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil.EqualityHelper;
+import org.eclipse.emf.emfstore.client.test.model.requirement.RequirementFactory;
+import org.eclipse.emf.emfstore.client.test.model.requirement.UseCase;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
+import org.eclipse.emf.emfstore.server.model.versioning.VersioningFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AttributeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.ContainmentType;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CreateDeleteOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
+
+/**
+ * Creates a stream of operations for comparing the canonizers. Streams created with the same arguments contain equal
+ * operations.
+ */
+final class OperationStreams {
+
+	private static final String[] FEATURES = { "name", "description", "precondition" };
+	private static final String[] VALUES = { null, "a", "b", "c" };
+
+	private final Random random;
+	private final int modelElements;
+	private final int mix;
+	private int operationCount;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param seed the seed of the random numbers
+	 * @param modelElements the number of model elements changed by the operations
+	 * @param mix the higher the mix, the less attribute operations are created
+	 */
+	OperationStreams(long seed, int modelElements, int mix) {
+		this.random = new Random(seed);
+		this.modelElements = modelElements;
+		this.mix = mix;
+	}
+
+	/**
+	 * Creates the operations.
+	 * 
+	 * @param size the number of operations
+	 * @param changePackage true if the operations should be contained in a change package, false for a plain list
+	 * @return the operations
+	 */
+	List<AbstractOperation> createOperations(int size, boolean changePackage) {
+		List<AbstractOperation> result;
+		if (changePackage) {
+			ChangePackage container = VersioningFactory.eINSTANCE.createChangePackage();
+			result = container.getOperations();
+		} else {
+			result = new ArrayList<AbstractOperation>(size);
+		}
+		int created = 0;
+		while (result.size() < size) {
+			int kind = random.nextInt(4 + 16 / mix);
+			if (kind == 0) {
+				String id = "created" + created++;
+				result.add(createCreateDeleteOperation(id, false));
+				if (random.nextInt(4) == 0) {
+					result.add(createCreateDeleteOperation(id, true));
+				}
+			} else if (kind == 1) {
+				String id = created > 0 && random.nextBoolean() ? "created" + random.nextInt(created) : randomId();
+				result.add(createCreateDeleteOperation(id, true));
+			} else if (kind == 2) {
+				CompositeOperation composite = OperationsFactory.eINSTANCE.createCompositeOperation();
+				setIdentifier(composite);
+				composite.setCompositeName("composite");
+				int subOperations = random.nextInt(4);
+				for (int i = 0; i < subOperations; i++) {
+					composite.getSubOperations().add(createAttributeOperation(randomId()));
+				}
+				if (subOperations > 0 && random.nextBoolean()) {
+					composite.setMainOperation(composite.getSubOperations().get(random.nextInt(subOperations)));
+				}
+				result.add(composite);
+			} else if (kind == 3) {
+				MultiReferenceOperation operation = OperationsFactory.eINSTANCE.createMultiReferenceOperation();
+				setIdentifier(operation);
+				operation.setModelElementId(createId(randomId()));
+				operation.setFeatureName("children");
+				operation.setContainmentType(ContainmentType.CONTAINMENT);
+				operation.setAdd(true);
+				operation.getReferencedModelElements().add(createId(randomId()));
+				result.add(operation);
+			} else {
+				String id = created > 0 && random.nextInt(3) == 0 ? "created" + random.nextInt(created) : randomId();
+				result.add(createAttributeOperation(id));
+			}
+		}
+		return result;
+	}
+
+	private void setIdentifier(AbstractOperation operation) {
+		// generated identifiers would differ between the otherwise equal operations
+		operation.setIdentifier("operation" + operationCount++);
+	}
+
+	private String randomId() {
+		return "element" + random.nextInt(modelElements);
+	}
+
+	private static ModelElementId createId(String id) {
+		ModelElementId modelElementId = ModelFactory.eINSTANCE.createModelElementId();
+		modelElementId.setId(id);
+		return modelElementId;
+	}
+
+	private CreateDeleteOperation createCreateDeleteOperation(String id, boolean delete) {
+		CreateDeleteOperation operation = OperationsFactory.eINSTANCE.createCreateDeleteOperation();
+		setIdentifier(operation);
+		operation.setModelElementId(createId(id));
+		operation.setDelete(delete);
+		UseCase useCase = RequirementFactory.eINSTANCE.createUseCase();
+		useCase.setName(VALUES[random.nextInt(VALUES.length)]);
+		operation.setModelElement(useCase);
+		return operation;
+	}
+
+	private AttributeOperation createAttributeOperation(String id) {
+		AttributeOperation operation = OperationsFactory.eINSTANCE.createAttributeOperation();
+		setIdentifier(operation);
+		operation.setModelElementId(createId(id));
+		operation.setFeatureName(FEATURES[random.nextInt(FEATURES.length)]);
+		operation.setOldValue(VALUES[random.nextInt(VALUES.length)]);
+		operation.setNewValue(VALUES[random.nextInt(VALUES.length)]);
+		return operation;
+	}
+
+	/**
+	 * Compares operations by their content.
+	 * 
+	 * @param expected the expected operations
+	 * @param actual the actual operations
+	 * @return true if both lists contain equal operations in the same order
+	 */
+	static boolean haveEqualOperations(List<AbstractOperation> expected, List<AbstractOperation> actual) {
+		return new OperationsEqualityHelper().equals(new ArrayList<EObject>(expected), new ArrayList<EObject>(actual));
+	}
+
+	/**
+	 * Equality helper comparing model element ids by their value.
+	 */
+	private static final class OperationsEqualityHelper extends EqualityHelper {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean equals(EObject eObject1, EObject eObject2) {
+			// model element ids are equal if their ids are, this would confuse the mapping of the helper
+			if (eObject1 instanceof ModelElementId && eObject2 instanceof ModelElementId) {
+				return eObject1.equals(eObject2);
+			}
+			return super.equals(eObject1, eObject2);
+		}
+	}
+}
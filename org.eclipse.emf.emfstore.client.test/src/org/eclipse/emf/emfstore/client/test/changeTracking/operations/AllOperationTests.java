@@ -17,7 +17,8 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({ AttributeOperationTest.class, SingleReferenceOperationTest.class,
 	MultiReferenceOperationTest.class, CreateDeleteOperationTest.class, MultiReferenceMoveOperationTest.class,
 	CompositeOperationTest.class, MultiAttributeMoveOperationTest.class, MultiAttributeSetTest.class,
-	MultiAttributeTest.class, MultiReferenceSetOperationTest.class })
+	MultiAttributeTest.class, MultiReferenceSetOperationTest.class, OperationTransformerTest.class,
+	CreateOperationApplyTest.class, InvolvedModelElementsTest.class })
 public class AllOperationTests {
 
 }
@@ -0,0 +1,103 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.changeTracking.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CreateDeleteOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests applying create operations by copying or by moving the created model elements into the project.
+ */
+public class CreateOperationApplyTest {
+
+	private CreateDeleteOperation operation;
+	private ModelElementId elementId;
+	private ModelElementId childId;
+
+	/**
+	 * Creates an operation that creates an element with a child.
+	 */
+	@Before
+	public void setUp() {
+		TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+		TestElement child = TestmodelFactory.eINSTANCE.createTestElement();
+		element.getContainedElements().add(child);
+		elementId = ModelUtil.createModelElementId(EcoreUtil.generateUUID());
+		childId = ModelUtil.createModelElementId(EcoreUtil.generateUUID());
+
+		operation = OperationsFactory.eINSTANCE.createCreateDeleteOperation();
+		operation.setModelElement(element);
+		operation.setModelElementId(ModelUtil.clone(elementId));
+		operation.getEObjectToIdMap().put(element, ModelUtil.clone(elementId));
+		operation.getEObjectToIdMap().put(child, ModelUtil.clone(childId));
+	}
+
+	/**
+	 * Apply copies the created elements and keeps the operation.
+	 */
+	@Test
+	public void apply() {
+		Project project = ModelFactory.eINSTANCE.createProject();
+		operation.apply(project);
+
+		TestElement element = (TestElement) project.getModelElements().get(0);
+		assertNotSame(operation.getModelElement(), element);
+		assertIds(project, element);
+		assertEquals(2, operation.getEObjectToIdMap().size());
+	}
+
+	/**
+	 * Apply and discard moves the created elements of a copy into the project.
+	 */
+	@Test
+	public void applyAndDiscard() {
+		CreateDeleteOperation copy = ModelUtil.clone(operation);
+		TestElement copiedElement = (TestElement) copy.getModelElement();
+		Project project = ModelFactory.eINSTANCE.createProject();
+		copy.applyAndDiscard(project);
+
+		assertSame(copiedElement, project.getModelElements().get(0));
+		assertNull(copy.getModelElement());
+		assertIds(project, copiedElement);
+	}
+
+	/**
+	 * Apply and discard of a composite moves the created elements of its sub operations.
+	 */
+	@Test
+	public void applyAndDiscardComposite() {
+		CompositeOperation composite = OperationsFactory.eINSTANCE.createCompositeOperation();
+		composite.getSubOperations().add(ModelUtil.clone(operation));
+		TestElement copiedElement = (TestElement) ((CreateDeleteOperation) composite.getSubOperations().get(0))
+			.getModelElement();
+		Project project = ModelFactory.eINSTANCE.createProject();
+		composite.applyAndDiscard(project);
+
+		assertSame(copiedElement, project.getModelElements().get(0));
+		assertIds(project, copiedElement);
+	}
+
+	private void assertIds(Project project, TestElement element) {
+		assertEquals(elementId, project.getModelElementId(element));
+		assertEquals(childId, project.getModelElementId(element.getContainedElements().get(0)));
+		assertSame(element, project.getModelElement(elementId));
+	}
+}
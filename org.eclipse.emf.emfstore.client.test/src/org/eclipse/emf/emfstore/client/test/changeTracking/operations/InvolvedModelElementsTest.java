@@ -0,0 +1,100 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.changeTracking.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.util.ModelElementIdSet;
+import org.junit.Test;
+
+/**
+ * Tests the cached sets of the model elements involved in operations.
+ */
+public class InvolvedModelElementsTest {
+
+	/**
+	 * The sets are cached until the operation changes.
+	 */
+	@Test
+	public void cachedUntilChanged() {
+		ModelElementId elementId = createId();
+		ModelElementId referencedId = createId();
+		MultiReferenceOperation operation = OperationsFactory.eINSTANCE.createMultiReferenceOperation();
+		operation.setModelElementId(elementId);
+		operation.getReferencedModelElements().add(referencedId);
+
+		Set<ModelElementId> allInvolved = operation.getAllInvolvedModelElements();
+		assertEquals(2, allInvolved.size());
+		assertTrue(allInvolved.contains(ModelUtil.clone(elementId)));
+		assertTrue(operation.getOtherInvolvedModelElements().contains(referencedId));
+		assertSame(allInvolved, operation.getAllInvolvedModelElements());
+
+		ModelElementId addedId = createId();
+		operation.getReferencedModelElements().add(addedId);
+		assertFalse(allInvolved.contains(addedId));
+		assertTrue(operation.getAllInvolvedModelElements().contains(addedId));
+		assertTrue(operation.getOtherInvolvedModelElements().contains(addedId));
+	}
+
+	/**
+	 * A change of a sub operation clears the sets of the composite operation.
+	 */
+	@Test
+	public void subOperationChanged() {
+		MultiReferenceOperation operation = OperationsFactory.eINSTANCE.createMultiReferenceOperation();
+		operation.setModelElementId(createId());
+		CompositeOperation composite = OperationsFactory.eINSTANCE.createCompositeOperation();
+		composite.getSubOperations().add(operation);
+		assertEquals(1, composite.getAllInvolvedModelElements().size());
+
+		ModelElementId referencedId = createId();
+		operation.getReferencedModelElements().add(referencedId);
+		assertTrue(composite.getAllInvolvedModelElements().contains(referencedId));
+		assertTrue(composite.getOtherInvolvedModelElements().contains(referencedId));
+	}
+
+	/**
+	 * The sets are read-only.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void readOnly() {
+		MultiReferenceOperation operation = OperationsFactory.eINSTANCE.createMultiReferenceOperation();
+		operation.setModelElementId(createId());
+		operation.getAllInvolvedModelElements().add(createId());
+	}
+
+	/**
+	 * Duplicates and null are handled like in a hash set.
+	 */
+	@Test
+	public void idSet() {
+		ModelElementId id = createId();
+		ModelElementIdSet set = ModelElementIdSet.valueOf(Arrays.asList(id, null, createId(), ModelUtil.clone(id),
+			null));
+		assertEquals(3, set.size());
+		assertTrue(set.contains(id));
+		assertTrue(set.contains(null));
+		assertFalse(set.contains(createId()));
+		assertFalse(set.contains("id"));
+		assertSame(ModelElementIdSet.EMPTY, ModelElementIdSet.valueOf(Arrays.<ModelElementId> asList()));
+	}
+
+	private static ModelElementId createId() {
+		return ModelUtil.createModelElementId(EcoreUtil.generateUUID());
+	}
+}
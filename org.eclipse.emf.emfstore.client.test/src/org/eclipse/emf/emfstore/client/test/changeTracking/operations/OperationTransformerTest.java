@@ -0,0 +1,293 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.changeTracking.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.impl.ProjectImpl;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AttributeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.FeatureOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiAttributeMoveOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiAttributeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiAttributeSetOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceMoveOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.util.OperationTransformer;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the transformation of incoming operations onto local operations. Applying the transformed operations after
+ * the local ones has to give the same result as reverting the local operations, applying the original ones and
+ * applying the local operations again.
+ */
+public class OperationTransformerTest {
+
+	private static final int RUNS = 2000;
+	private static final String STRINGS = "strings";
+	private static final String REFERENCES = "references";
+
+	private Project base;
+	private ModelElementId elementId;
+	private List<ModelElementId> targetIds;
+	private Random random;
+	private int values;
+
+	/**
+	 * Creates an element with some strings and references to other elements.
+	 */
+	@Before
+	public void setUp() {
+		base = ModelFactory.eINSTANCE.createProject();
+		((ProjectImpl) base).initCaches();
+		TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+		base.addModelElement(element);
+		elementId = base.getModelElementId(element);
+		targetIds = new ArrayList<ModelElementId>();
+		for (int i = 0; i < 12; i++) {
+			TestElement target = TestmodelFactory.eINSTANCE.createTestElement();
+			base.addModelElement(target);
+			targetIds.add(base.getModelElementId(target));
+			if (i % 2 == 0) {
+				element.getReferences().add(target);
+			}
+			element.getStrings().add("initial" + i);
+		}
+		random = new Random(42);
+	}
+
+	/**
+	 * Random concurrent changes of the same lists.
+	 */
+	@Test
+	public void concurrentListChanges() {
+		int transformed = 0;
+		for (int run = 0; run < RUNS; run++) {
+			Project local = copyBase();
+			List<AbstractOperation> localOperations = createOperations(local);
+			List<AbstractOperation> operations = createOperations(copyBase());
+
+			// revert and replay as done by the update without transformation
+			Project replayed = ((ProjectImpl) local).copy();
+			apply(replayed, reverse(localOperations));
+			apply(replayed, operations);
+			apply(replayed, localOperations);
+
+			List<AbstractOperation> transformedOperations = copy(operations);
+			if (OperationTransformer.transform(local, localOperations, transformedOperations)) {
+				apply(local, transformedOperations);
+				assertEquals(getStrings(replayed), getStrings(local));
+				assertEquals(getReferences(replayed), getReferences(local));
+				transformed++;
+			} else {
+				// rejected operations are left unchanged and are applied after the revert
+				Project reverted = ((ProjectImpl) local).copy();
+				apply(reverted, reverse(localOperations));
+				apply(reverted, transformedOperations);
+				apply(reverted, localOperations);
+				assertEquals(getStrings(replayed), getStrings(reverted));
+				assertEquals(getReferences(replayed), getReferences(reverted));
+			}
+		}
+		// the other changes interfere, they are applied by reverting the local changes
+		assertTrue(transformed > RUNS / 3);
+	}
+
+	/**
+	 * Insertions into the same list are shifted by the local insertions.
+	 */
+	@Test
+	public void concurrentInsertions() {
+		Project local = copyBase();
+		List<AbstractOperation> localOperations = new ArrayList<AbstractOperation>();
+		localOperations.add(addString(0, "local"));
+		apply(local, localOperations);
+
+		List<AbstractOperation> operations = new ArrayList<AbstractOperation>();
+		operations.add(addString(3, "incoming"));
+		assertTrue(OperationTransformer.transform(local, localOperations, operations));
+		assertEquals(4, ((MultiAttributeOperation) operations.get(0)).getIndexes().get(0).intValue());
+		apply(local, operations);
+
+		List<String> strings = getStrings(local);
+		assertEquals("local", strings.get(0));
+		assertEquals("incoming", strings.get(4));
+	}
+
+	/**
+	 * Changes of the same single valued feature can't be transformed.
+	 */
+	@Test
+	public void sameFeatureRejected() {
+		Project local = copyBase();
+		List<AbstractOperation> localOperations = new ArrayList<AbstractOperation>();
+		localOperations.add(setName("local"));
+		apply(local, localOperations);
+
+		List<AbstractOperation> operations = new ArrayList<AbstractOperation>();
+		operations.add(setName("incoming"));
+		assertFalse(OperationTransformer.transform(local, localOperations, operations));
+
+		operations.clear();
+		operations.add(addString(1, "incoming"));
+		assertTrue(OperationTransformer.transform(local, localOperations, operations));
+	}
+
+	private List<AbstractOperation> createOperations(Project project) {
+		List<AbstractOperation> operations = new ArrayList<AbstractOperation>();
+		int count = 1 + random.nextInt(4);
+		for (int i = 0; i < count; i++) {
+			AbstractOperation operation = createOperation(project);
+			operations.add(operation);
+			apply(project, operations.subList(i, i + 1));
+		}
+		return operations;
+	}
+
+	// creates an operation as recorded for a change of the lists
+	private AbstractOperation createOperation(Project project) {
+		List<String> strings = getStrings(project);
+		List<String> references = getReferences(project);
+		List<ModelElementId> unreferenced = new ArrayList<ModelElementId>();
+		for (ModelElementId targetId : targetIds) {
+			if (!references.contains(targetId.getId())) {
+				unreferenced.add(targetId);
+			}
+		}
+		int kind = random.nextInt(7);
+		if (kind == 0 || strings.isEmpty() && kind < 4) {
+			return addString(random.nextInt(strings.size() + 1), "value" + values++);
+		} else if (kind == 1) {
+			int index = random.nextInt(strings.size());
+			MultiAttributeOperation operation = addString(index, strings.get(index));
+			operation.setAdd(false);
+			return operation;
+		} else if (kind == 2) {
+			MultiAttributeMoveOperation operation = OperationsFactory.eINSTANCE.createMultiAttributeMoveOperation();
+			init(operation, STRINGS);
+			operation.setOldIndex(random.nextInt(strings.size()));
+			operation.setNewIndex(random.nextInt(strings.size()));
+			operation.setReferencedValue(strings.get(operation.getOldIndex()));
+			return operation;
+		} else if (kind == 3) {
+			MultiAttributeSetOperation operation = OperationsFactory.eINSTANCE.createMultiAttributeSetOperation();
+			init(operation, STRINGS);
+			operation.setIndex(random.nextInt(strings.size()));
+			operation.setOldValue(strings.get(operation.getIndex()));
+			operation.setNewValue("value" + values++);
+			return operation;
+		} else if (kind == 4 && !unreferenced.isEmpty() || references.isEmpty()) {
+			return addReference(random.nextInt(references.size() + 1),
+				unreferenced.get(random.nextInt(unreferenced.size())), true);
+		} else if (kind == 5 || kind == 4) {
+			int index = random.nextInt(references.size());
+			return addReference(index, targetIds.get(index(references.get(index))), false);
+		}
+		MultiReferenceMoveOperation operation = OperationsFactory.eINSTANCE.createMultiReferenceMoveOperation();
+		init(operation, REFERENCES);
+		operation.setOldIndex(random.nextInt(references.size()));
+		operation.setNewIndex(random.nextInt(references.size()));
+		operation.setReferencedModelElementId(ModelUtil.clone(targetIds.get(index(references.get(operation
+			.getOldIndex())))));
+		return operation;
+	}
+
+	private MultiAttributeOperation addString(int index, String value) {
+		MultiAttributeOperation operation = OperationsFactory.eINSTANCE.createMultiAttributeOperation();
+		init(operation, STRINGS);
+		operation.setAdd(true);
+		operation.getIndexes().add(index);
+		operation.getReferencedValues().add(value);
+		return operation;
+	}
+
+	private MultiReferenceOperation addReference(int index, ModelElementId referencedId, boolean add) {
+		MultiReferenceOperation operation = OperationsFactory.eINSTANCE.createMultiReferenceOperation();
+		init(operation, REFERENCES);
+		operation.setAdd(add);
+		operation.setIndex(index);
+		operation.getReferencedModelElements().add(ModelUtil.clone(referencedId));
+		return operation;
+	}
+
+	private AttributeOperation setName(String name) {
+		AttributeOperation operation = OperationsFactory.eINSTANCE.createAttributeOperation();
+		init(operation, "name");
+		operation.setNewValue(name);
+		return operation;
+	}
+
+	private void init(FeatureOperation operation, String featureName) {
+		operation.setModelElementId(ModelUtil.clone(elementId));
+		operation.setFeatureName(featureName);
+	}
+
+	private Project copyBase() {
+		return ((ProjectImpl) base).copy();
+	}
+
+	private int index(String targetId) {
+		for (int i = 0; i < targetIds.size(); i++) {
+			if (targetIds.get(i).getId().equals(targetId)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(targetId);
+	}
+
+	private static List<AbstractOperation> copy(List<AbstractOperation> operations) {
+		List<AbstractOperation> copies = new ArrayList<AbstractOperation>();
+		for (AbstractOperation operation : operations) {
+			copies.add(ModelUtil.clone(operation));
+		}
+		return copies;
+	}
+
+	private static List<AbstractOperation> reverse(List<AbstractOperation> operations) {
+		List<AbstractOperation> reversed = new ArrayList<AbstractOperation>();
+		for (AbstractOperation operation : operations) {
+			reversed.add(0, operation.reverse());
+		}
+		return reversed;
+	}
+
+	private static void apply(Project project, List<AbstractOperation> operations) {
+		for (AbstractOperation operation : copy(operations)) {
+			try {
+				operation.apply(project);
+			} catch (IllegalArgumentException e) {
+				// violates the uniqueness of a list, ignored like by the project space
+			}
+		}
+	}
+
+	private List<String> getStrings(Project project) {
+		return new ArrayList<String>(((TestElement) project.getModelElement(elementId)).getStrings());
+	}
+
+	private List<String> getReferences(Project project) {
+		List<String> references = new ArrayList<String>();
+		for (EObject reference : ((TestElement) project.getModelElement(elementId)).getReferences()) {
+			references.add(project.getModelElementId(reference).getId());
+		}
+		return references;
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.EMFStoreResource;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
+import org.eclipse.emf.emfstore.server.model.versioning.VersioningFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AttributeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
+import org.junit.Test;
+
+/**
+ * Compares the XMI and the binary format of the {@link EMFStoreResource} on a synthetic project of the test model and
+ * on a change package. Both formats have to deliver the same contents and IDs, the times and sizes are printed.
+ */
+public class EMFStoreResourcePerformanceTest {
+
+	private static final int MODEL_ELEMENTS = 20000;
+	private static final int OPERATIONS = 20000;
+	private static final int REFERENCES = 3;
+	private static final int DEEP_REFERENCES = 100000;
+	private static final long SEED = 1234567800;
+
+	private final Random random = new Random(SEED);
+
+	/**
+	 * Compares saving and loading a project in both formats.
+	 * 
+	 * @throws IOException if saving or loading fails
+	 */
+	@Test
+	public void project() throws IOException {
+		Project project = createProject();
+		EMFStoreResource resource = new EMFStoreResource(URI.createURI("project.ups"));
+		resource.getContents().add(project);
+		for (EObject modelElement : project.getAllModelElements()) {
+			resource.setID(modelElement, project.getModelElementId(modelElement).getId());
+		}
+		compare("project", resource);
+	}
+
+	/**
+	 * Compares saving and loading a change package in both formats.
+	 * 
+	 * @throws IOException if saving or loading fails
+	 */
+	@Test
+	public void changePackage() throws IOException {
+		ChangePackage changePackage = VersioningFactory.eINSTANCE.createChangePackage();
+		for (int i = 0; i < OPERATIONS; i++) {
+			AttributeOperation operation = OperationsFactory.eINSTANCE.createAttributeOperation();
+			operation.setModelElementId(ModelFactory.eINSTANCE.createModelElementId());
+			operation.setFeatureName("name");
+			operation.setOldValue("old" + i);
+			operation.setNewValue("new" + random.nextInt());
+			changePackage.getOperations().add(operation);
+		}
+		EMFStoreResource resource = new EMFStoreResource(URI.createURI("changepackage.ucp"));
+		resource.getContents().add(changePackage);
+		compare("changePackage", resource);
+	}
+
+	/**
+	 * Saves and loads a project with a reference chain too deep for the stack of the calling thread in the binary
+	 * format.
+	 * 
+	 * @throws IOException if saving or loading fails
+	 */
+	@Test
+	public void deepReferences() throws IOException {
+		Project project = ModelFactory.eINSTANCE.createProject();
+		TestElement previous = null;
+		for (int i = 0; i < DEEP_REFERENCES; i++) {
+			TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+			element.setName("element" + i);
+			if (previous != null) {
+				previous.getReferences().add(element);
+			}
+			project.addModelElement(element);
+			previous = element;
+		}
+		EMFStoreResource resource = new EMFStoreResource(URI.createURI("project.ups"));
+		resource.getContents().add(project);
+		for (EObject modelElement : project.getAllModelElements()) {
+			resource.setID(modelElement, project.getModelElementId(modelElement).getId());
+		}
+		Map<Object, Object> binaryOptions = new HashMap<Object, Object>();
+		binaryOptions.put(EMFStoreResource.OPTION_BINARY, Boolean.TRUE);
+
+		byte[] xmi = save(resource, ModelUtil.getResourceSaveOptions());
+		byte[] binary = save(resource, binaryOptions);
+		assertEqualContents(load(resource.getURI(), xmi), load(resource.getURI(), binary));
+	}
+
+	private Project createProject() {
+		Project project = ModelFactory.eINSTANCE.createProject();
+		List<TestElement> elements = new ArrayList<TestElement>(MODEL_ELEMENTS);
+		for (int i = 0; i < MODEL_ELEMENTS; i++) {
+			TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+			element.setName("element" + i);
+			element.getStrings().add("string" + random.nextInt());
+			for (int j = 0; j < REFERENCES && i > 0; j++) {
+				element.getReferences().add(elements.get(random.nextInt(i)));
+			}
+			if (i > 0 && random.nextBoolean()) {
+				elements.get(random.nextInt(i)).getContainedElements().add(element);
+			} else {
+				project.addModelElement(element);
+			}
+			elements.add(element);
+		}
+		return project;
+	}
+
+	private void compare(String name, EMFStoreResource resource) throws IOException {
+		Map<Object, Object> binaryOptions = new HashMap<Object, Object>();
+		binaryOptions.put(EMFStoreResource.OPTION_BINARY, Boolean.TRUE);
+
+		long time = System.currentTimeMillis();
+		byte[] xmi = save(resource, ModelUtil.getResourceSaveOptions());
+		long xmiSaveTime = System.currentTimeMillis() - time;
+		time = System.currentTimeMillis();
+		EMFStoreResource xmiResource = load(resource.getURI(), xmi);
+		long xmiLoadTime = System.currentTimeMillis() - time;
+
+		time = System.currentTimeMillis();
+		byte[] binary = save(resource, binaryOptions);
+		long binarySaveTime = System.currentTimeMillis() - time;
+		time = System.currentTimeMillis();
+		EMFStoreResource binaryResource = load(resource.getURI(), binary);
+		long binaryLoadTime = System.currentTimeMillis() - time;
+
+		System.out.println(name + ": xmi save=" + xmiSaveTime + "ms, load=" + xmiLoadTime + "ms, size=" + xmi.length
+			+ "; binary save=" + binarySaveTime + "ms, load=" + binaryLoadTime + "ms, size=" + binary.length);
+		assertTrue(binary.length < xmi.length);
+		assertEqualContents(xmiResource, binaryResource);
+	}
+
+	private byte[] save(EMFStoreResource resource, Map<?, ?> options) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		resource.save(outputStream, options);
+		return outputStream.toByteArray();
+	}
+
+	private EMFStoreResource load(URI uri, byte[] content) throws IOException {
+		EMFStoreResource resource = new EMFStoreResource(uri);
+		new ResourceSetImpl().getResources().add(resource);
+		resource.load(new ByteArrayInputStream(content), ModelUtil.getResourceLoadOptions());
+		return resource;
+	}
+
+	private void assertEqualContents(EMFStoreResource expected, EMFStoreResource actual) {
+		int count = 0;
+		TreeIterator<EObject> actualContents = actual.getAllContents();
+		for (Iterator<EObject> iterator = expected.getAllContents(); iterator.hasNext(); count++) {
+			EObject expectedObject = iterator.next();
+			EObject actualObject = actualContents.next();
+			assertEquals(expectedObject.eClass(), actualObject.eClass());
+			assertEquals(expected.getID(expectedObject), actual.getID(actualObject));
+			if (expectedObject instanceof TestElement) {
+				TestElement expectedElement = (TestElement) expectedObject;
+				TestElement actualElement = (TestElement) actualObject;
+				assertNotNull(actual.getID(actualElement));
+				assertEquals(expectedElement.getName(), actualElement.getName());
+				assertEquals(expectedElement.getStrings(), actualElement.getStrings());
+				assertEquals(expectedElement.getReferences().size(), actualElement.getReferences().size());
+				for (int i = 0; i < expectedElement.getReferences().size(); i++) {
+					assertEquals(expected.getID(expectedElement.getReferences().get(i)), actual.getID(actualElement
+						.getReferences().get(i)));
+				}
+			} else if (expectedObject instanceof ModelElementId) {
+				assertEquals(((ModelElementId) expectedObject).getId(), ((ModelElementId) actualObject).getId());
+			} else if (expectedObject instanceof AttributeOperation) {
+				assertEquals(((AttributeOperation) expectedObject).getNewValue(), ((AttributeOperation) actualObject)
+					.getNewValue());
+			}
+		}
+		assertTrue(count > 0);
+		assertTrue(!actualContents.hasNext());
+	}
+}
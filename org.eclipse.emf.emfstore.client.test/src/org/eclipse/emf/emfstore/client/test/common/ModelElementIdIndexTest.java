@@ -0,0 +1,116 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.model.impl.ModelElementIdIndex;
+import org.eclipse.emf.emfstore.common.model.util.PackedModelElementId;
+import org.junit.Test;
+
+/**
+ * Tests the index of the model elements of a collection and their ids.
+ */
+public class ModelElementIdIndexTest {
+
+	private static final int ELEMENTS = 2000;
+	private static final int OPERATIONS = 20000;
+	private static final long SEED = 1234567800;
+
+	/**
+	 * Random puts and removes give the same mappings as a map.
+	 */
+	@Test
+	public void putAndRemove() {
+		Random random = new Random(SEED);
+		List<EObject> elements = new ArrayList<EObject>();
+		List<PackedModelElementId> ids = new ArrayList<PackedModelElementId>();
+		for (int i = 0; i < ELEMENTS; i++) {
+			elements.add(TestmodelFactory.eINSTANCE.createTestElement());
+			// some ids are kept as strings
+			ids.add(PackedModelElementId.valueOf(i % 10 == 0 ? "id" + i : EcoreUtil.generateUUID()));
+		}
+		ModelElementIdIndex index = new ModelElementIdIndex();
+		Map<EObject, PackedModelElementId> expected = new IdentityHashMap<EObject, PackedModelElementId>();
+		for (int operation = 0; operation < OPERATIONS; operation++) {
+			int i = random.nextInt(ELEMENTS);
+			EObject element = elements.get(i);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(element) != null, index.removeElement(element));
+			} else {
+				index.put(element, ids.get(i));
+				expected.put(element, ids.get(i));
+			}
+		}
+		assertIndex(expected, elements, ids, index);
+
+		// removed by the view
+		for (Iterator<EObject> iterator = index.elements().iterator(); iterator.hasNext();) {
+			EObject element = iterator.next();
+			if (random.nextBoolean()) {
+				iterator.remove();
+				expected.remove(element);
+			}
+		}
+		assertIndex(expected, elements, ids, index);
+	}
+
+	/**
+	 * An id shared by several elements is mapped to the element put last.
+	 */
+	@Test
+	public void sharedId() {
+		EObject original = TestmodelFactory.eINSTANCE.createTestElement();
+		EObject copy = TestmodelFactory.eINSTANCE.createTestElement();
+		PackedModelElementId id = PackedModelElementId.create();
+		ModelElementIdIndex index = new ModelElementIdIndex();
+		index.put(original, id);
+		index.put(copy, id);
+		assertSame(copy, index.getElement(id));
+		assertEquals(2, index.size());
+
+		index.removeElement(original);
+		assertSame(copy, index.getElement(id));
+		index.removeElement(copy);
+		assertFalse(index.containsId(id));
+		assertEquals(0, index.size());
+	}
+
+	private static void assertIndex(Map<EObject, PackedModelElementId> expected, List<EObject> elements,
+		List<PackedModelElementId> ids, ModelElementIdIndex index) {
+		assertEquals(expected.size(), index.size());
+		assertEquals(expected.size(), new HashSet<EObject>(index.elements()).size());
+		for (int i = 0; i < elements.size(); i++) {
+			EObject element = elements.get(i);
+			PackedModelElementId id = ids.get(i);
+			if (expected.containsKey(element)) {
+				assertEquals(id, index.getId(element));
+				assertEquals(id.getId(), index.getIdString(element));
+				assertSame(element, index.getElement(id));
+				assertTrue(index.elements().contains(element));
+			} else {
+				assertNull(index.getId(element));
+				assertNull(index.getElement(id));
+				assertFalse(index.containsElement(element));
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.junit.Test;
+
+/**
+ * Measures the id lookups of a large project and logs the times. Not part of the test suites.
+ */
+public class PackedModelElementIdPerformanceTest {
+
+	private static final int MODEL_ELEMENTS = 500000;
+
+	/**
+	 * Looks up the ids and elements of a large project.
+	 */
+	@Test
+	public void lookups() {
+		Project project = ModelFactory.eINSTANCE.createProject();
+		List<TestElement> elements = new ArrayList<TestElement>(MODEL_ELEMENTS);
+		for (int i = 0; i < MODEL_ELEMENTS; i++) {
+			TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+			elements.add(element);
+		}
+		project.getModelElements().addAll(elements);
+		project.initCaches();
+
+		long time = System.currentTimeMillis();
+		List<ModelElementId> ids = new ArrayList<ModelElementId>(MODEL_ELEMENTS);
+		for (EObject element : elements) {
+			ids.add(project.getModelElementId(element));
+		}
+		long idTime = System.currentTimeMillis() - time;
+
+		time = System.currentTimeMillis();
+		for (int i = 0; i < MODEL_ELEMENTS; i++) {
+			assertEquals(ids.get(i).getId(), project.getModelElementIdString(elements.get(i)));
+		}
+		long idStringTime = System.currentTimeMillis() - time;
+
+		time = System.currentTimeMillis();
+		for (int i = 0; i < MODEL_ELEMENTS; i++) {
+			assertSame(elements.get(i), project.getModelElement(ids.get(i)));
+		}
+		long elementTime = System.currentTimeMillis() - time;
+		assertTrue(project.contains(ids.get(0)));
+
+		ModelUtil.logInfo("ID lookups of " + MODEL_ELEMENTS + " elements: ModelElementId " + idTime + "ms, string "
+			+ idStringTime + "ms, element " + elementTime + "ms");
+	}
+}
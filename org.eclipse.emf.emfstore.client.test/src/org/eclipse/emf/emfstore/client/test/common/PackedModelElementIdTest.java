@@ -0,0 +1,82 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.ModelPackage;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.common.model.util.PackedModelElementId;
+import org.junit.Test;
+
+/**
+ * Tests the packed representation of model element ids.
+ */
+public class PackedModelElementIdTest {
+
+	private static final int IDS = 10000;
+
+	/**
+	 * Generated ids are packed and give the same string again.
+	 */
+	@Test
+	public void generatedIds() {
+		for (int i = 0; i < IDS; i++) {
+			String id = EcoreUtil.generateUUID();
+			PackedModelElementId packedId = PackedModelElementId.valueOf(id);
+			assertEquals(PackedModelElementId.BASE64, packedId.getFormat());
+			assertEquals(id, packedId.getId());
+			assertEquals(packedId, PackedModelElementId.valueOf(id));
+			assertEquals(packedId.hashCode(), PackedModelElementId.valueOf(id).hashCode());
+			assertEquals(packedId, PackedModelElementId.valueOf(packedId.getFormat(), packedId.getHigh(),
+				packedId.getLow()));
+		}
+	}
+
+	/**
+	 * Lower case UUIDs are packed, other ids are kept as strings.
+	 */
+	@Test
+	public void otherIds() {
+		for (int i = 0; i < IDS; i++) {
+			String id = UUID.randomUUID().toString();
+			PackedModelElementId packedId = PackedModelElementId.valueOf(id);
+			assertEquals(PackedModelElementId.HEX, packedId.getFormat());
+			assertEquals(id, packedId.getId());
+		}
+		String[] ids = { "id", "_short", UUID.randomUUID().toString().toUpperCase(), "_AAAAAAAAAAAAAAAAAAAAAB",
+			"_AAAAAAAAAAAAAAAAAAAA.A" };
+		for (String id : ids) {
+			PackedModelElementId packedId = PackedModelElementId.valueOf(id);
+			assertFalse(packedId.isPacked());
+			assertEquals(id, packedId.getId());
+			assertEquals(packedId, PackedModelElementId.valueOf(id));
+		}
+		assertFalse(PackedModelElementId.valueOf("_AAAAAAAAAAAAAAAAAAAAAA").equals(
+			PackedModelElementId.valueOf("00000000-0000-0000-0000-000000000000")));
+	}
+
+	/**
+	 * A fresh id generates its id on the first access, also when it is copied before.
+	 */
+	@Test
+	public void copiedIds() {
+		ModelElementId modelElementId = ModelFactory.eINSTANCE.createModelElementId();
+		assertTrue(modelElementId.eIsSet(ModelPackage.Literals.UNIQUE_IDENTIFIER__ID));
+		ModelElementId copy = ModelUtil.clone(ModelFactory.eINSTANCE.createModelElementId());
+		assertNotNull(copy.getId());
+		assertEquals(copy.getId(), ModelUtil.clone(copy).getId());
+		assertEquals(modelElementId.getId(), EcoreUtil.copy(modelElementId).getId());
+	}
+}
@@ -2,9 +2,14 @@ package org.eclipse.emf.emfstore.client.test.common.observerbus;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.emf.emfstore.client.test.common.observerbus.assets.A;
 import org.eclipse.emf.emfstore.client.test.common.observerbus.assets.AImpl;
@@ -13,6 +18,7 @@ import org.eclipse.emf.emfstore.client.test.common.observerbus.assets.BImpl;
 import org.eclipse.emf.emfstore.client.test.common.observerbus.assets.C;
 import org.eclipse.emf.emfstore.client.test.common.observerbus.assets.CImpl;
 import org.eclipse.emf.emfstore.client.test.common.observerbus.assets.DImpl;
+import org.eclipse.emf.emfstore.common.observer.IAsyncObserver;
 import org.eclipse.emf.emfstore.common.observer.ObserverBus;
 import org.eclipse.emf.emfstore.common.observer.ObserverCall;
 import org.eclipse.emf.emfstore.common.observer.ObserverCall.Result;
@@ -170,6 +176,80 @@ public class ObserverBusTest {
 		assertTrue(((ObserverCall) b).getObserverCallResults().size() == 1);
 	}
 
+	@Test
+	public void proxyIsCached() {
+		assertSame(getObserverBus().notify(A.class), getObserverBus().notify(A.class));
+	}
+
+	@Test
+	public void nestedCallResults() {
+		getObserverBus().register(new AImpl());
+		getObserverBus().register(new C() {
+			public String fourtyTwo() {
+				getObserverBus().notify(A.class).returnTwo();
+				return "42";
+			}
+		});
+		C proxy = getObserverBus().notify(C.class);
+		assertEquals("42", proxy.fourtyTwo());
+		List<Result> results = ((ObserverCall) proxy).getObserverCallResults();
+		assertEquals(1, results.size());
+		assertEquals("42", results.get(0).getResult());
+		assertEquals(2, ((ObserverCall) getObserverBus().notify(A.class)).getObserverCallResults().get(0).getResult());
+	}
+
+	@Test
+	public void asyncObserver() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		getObserverBus().register(new AsyncC() {
+			public String fourtyTwo() {
+				latch.countDown();
+				return "42";
+			}
+		});
+		C proxy = getObserverBus().notify(C.class);
+		assertNull(proxy.fourtyTwo());
+		assertEquals(0, ((ObserverCall) proxy).getObserverCallResults().size());
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void concurrentRegisterAndNotify() throws InterruptedException {
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 100; j++) {
+							getObserverBus().register(new AImpl());
+							assertEquals(2, getObserverBus().notify(A.class).returnTwo());
+						}
+						// BEGIN SUPRESS CATCH EXCEPTION
+					} catch (Throwable e) {
+						// END SUPRESS CATCH EXCEPTION
+						synchronized (failures) {
+							failures.add(e);
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(failures.isEmpty());
+		A proxy = getObserverBus().notify(A.class);
+		proxy.returnTwo();
+		assertEquals(400, ((ObserverCall) proxy).getObserverCallResults().size());
+	}
+
+	private interface AsyncC extends C, IAsyncObserver {
+	}
+
 	public String fourtyTwo() {
 		return "42";
 	}
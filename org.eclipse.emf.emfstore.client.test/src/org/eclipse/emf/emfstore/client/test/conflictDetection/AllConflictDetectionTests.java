@@ -17,7 +17,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({ AttributeConflictTest.class, ConflictDetectionAttributeTest.class,
 	ConflictDetectionReferenceTest.class, ConflictDetectionDeleteTest.class, ConflictDetectionMultiReferenceTest.class,
 	ConflictDetectionRequiredRelationTest.class, ConflictDetectionMultiAttributeTest.class,
-	ConflictDetectionSelectiveCommitSpecialCases.class
+	ConflictDetectionSelectiveCommitSpecialCases.class, IndexedConflictDetectionTest.class
 
 })
 public class AllConflictDetectionTests {
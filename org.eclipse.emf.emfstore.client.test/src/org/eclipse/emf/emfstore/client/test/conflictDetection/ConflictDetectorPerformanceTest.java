@@ -0,0 +1,103 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.conflictDetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.conflictDetection.ConflictDetector;
+import org.eclipse.emf.emfstore.server.conflictDetection.IndexSensitiveConflictDetectionStrategy;
+import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.junit.Test;
+
+/**
+ * Measures the indexed and the plain mode of the {@link ConflictDetector} on large synthetic change packages and logs
+ * the times. Not part of the test suites, since the plain mode compares all pairs of operations.
+ */
+public class ConflictDetectorPerformanceTest {
+
+	private static final int THEIR_OPERATIONS = 4000;
+	private static final int MY_OPERATIONS = 1000;
+	private static final int MODEL_ELEMENTS = 20000;
+	private static final int DEPENDENT_OPERATIONS = 2000;
+	private static final int DEPENDENT_MODEL_ELEMENTS = 1000;
+	private static final long SEED = 1234567800;
+
+	private final RandomOperations operations = new RandomOperations(SEED, MODEL_ELEMENTS, DEPENDENT_MODEL_ELEMENTS);
+	private final ConflictDetector plain = new ConflictDetector(new IndexSensitiveConflictDetectionStrategy(), false);
+	private final ConflictDetector indexed = new ConflictDetector(new IndexSensitiveConflictDetectionStrategy(), true);
+
+	/**
+	 * Measures getConflicting in both modes.
+	 */
+	@Test
+	public void getConflicting() {
+		List<AbstractOperation> theirs = operations.createOperations(THEIR_OPERATIONS);
+		List<AbstractOperation> mine = operations.createOperations(MY_OPERATIONS);
+
+		long time = System.currentTimeMillis();
+		Set<AbstractOperation> expected = plain.getConflicting(mine, theirs);
+		long plainTime = System.currentTimeMillis() - time;
+
+		time = System.currentTimeMillis();
+		Set<AbstractOperation> actual = indexed.getConflicting(mine, theirs);
+		long indexedTime = System.currentTimeMillis() - time;
+
+		ModelUtil.logInfo("getConflicting " + MY_OPERATIONS + " x " + THEIR_OPERATIONS + ": plain=" + plainTime
+			+ "ms, indexed=" + indexedTime + "ms, conflicting=" + expected.size());
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Measures doConflict on change packages without conflicts, which have to compare all operations, in both modes.
+	 */
+	@Test
+	public void doConflict() {
+		ChangePackage theirs = operations.createChangePackage(THEIR_OPERATIONS);
+		ChangePackage unrelated = operations.createUnrelatedChangePackage(MY_OPERATIONS);
+
+		long time = System.currentTimeMillis();
+		boolean expected = plain.doConflict(unrelated, theirs);
+		long plainTime = System.currentTimeMillis() - time;
+
+		time = System.currentTimeMillis();
+		boolean actual = indexed.doConflict(unrelated, theirs);
+		long indexedTime = System.currentTimeMillis() - time;
+
+		ModelUtil.logInfo("doConflict " + MY_OPERATIONS + " x " + THEIR_OPERATIONS + ": plain=" + plainTime
+			+ "ms, indexed=" + indexedTime + "ms");
+		assertFalse(expected);
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Measures the operations involved in conflicts in both modes.
+	 */
+	@Test
+	public void getAllConflictInvolvedOperations() {
+		List<AbstractOperation> mine = operations.createDependentOperations(DEPENDENT_OPERATIONS);
+		List<AbstractOperation> theirs = operations.createDependentOperations(DEPENDENT_OPERATIONS);
+
+		long time = System.currentTimeMillis();
+		Set<AbstractOperation> expected = plain.getAllConflictInvolvedOperations(mine, theirs);
+		long plainTime = System.currentTimeMillis() - time;
+
+		time = System.currentTimeMillis();
+		Set<AbstractOperation> actual = indexed.getAllConflictInvolvedOperations(mine, theirs);
+		long indexedTime = System.currentTimeMillis() - time;
+
+		ModelUtil.logInfo("getAllConflictInvolvedOperations " + DEPENDENT_OPERATIONS + " x " + DEPENDENT_OPERATIONS
+			+ ": plain=" + plainTime + "ms, indexed=" + indexedTime + "ms, involved=" + expected.size());
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, actual);
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.conflictDetection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.emfstore.server.conflictDetection.ConflictDetectionStrategy;
+import org.eclipse.emf.emfstore.server.conflictDetection.ConflictDetector;
+import org.eclipse.emf.emfstore.server.conflictDetection.IndexSensitiveConflictDetectionStrategy;
+import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.junit.Test;
+
+/**
+ * Tests that the indexed mode of the {@link ConflictDetector} delivers the same results as the plain mode on small
+ * synthetic change packages. See {@link ConflictDetectorPerformanceTest} for the times on large ones.
+ */
+public class IndexedConflictDetectionTest {
+
+	private static final int THEIR_OPERATIONS = 400;
+	private static final int MY_OPERATIONS = 100;
+	private static final int MODEL_ELEMENTS = 1000;
+	private static final int DEPENDENT_OPERATIONS = 400;
+	private static final int DEPENDENT_MODEL_ELEMENTS = 100;
+	private static final long SEED = 1234567800;
+
+	private final RandomOperations operations = new RandomOperations(SEED, MODEL_ELEMENTS, DEPENDENT_MODEL_ELEMENTS);
+	private final ConflictDetector plain = new ConflictDetector(new IndexSensitiveConflictDetectionStrategy(), false);
+	private final ConflictDetector indexed = new ConflictDetector(new IndexSensitiveConflictDetectionStrategy(), true);
+
+	/**
+	 * Compares getConflicting in both modes.
+	 */
+	@Test
+	public void getConflicting() {
+		List<AbstractOperation> theirs = operations.createOperations(THEIR_OPERATIONS);
+		List<AbstractOperation> mine = operations.createOperations(MY_OPERATIONS);
+
+		Set<AbstractOperation> expected = plain.getConflicting(mine, theirs);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, indexed.getConflicting(mine, theirs));
+	}
+
+	/**
+	 * Compares doConflict on change packages in both modes.
+	 */
+	@Test
+	public void doConflict() {
+		ChangePackage theirs = operations.createChangePackage(THEIR_OPERATIONS);
+		ChangePackage mine = operations.createChangePackage(MY_OPERATIONS);
+		ChangePackage unrelated = operations.createUnrelatedChangePackage(MY_OPERATIONS);
+
+		assertFalse(plain.doConflict(unrelated, theirs));
+		assertFalse(indexed.doConflict(unrelated, theirs));
+		assertTrue(plain.doConflict(mine, theirs));
+		assertTrue(indexed.doConflict(mine, theirs));
+	}
+
+	/**
+	 * Compares doConflict of incoming change packages with the local changes in indexed mode to the check of each
+	 * incoming package in plain mode. The incoming operations have to be passed to the strategy first in both modes.
+	 */
+	@Test
+	public void doConflictList() {
+		List<ChangePackage> incoming = new ArrayList<ChangePackage>();
+		final Set<AbstractOperation> incomingOperations = new HashSet<AbstractOperation>();
+		for (int i = 0; i < 4; i++) {
+			ChangePackage changePackage = operations.createChangePackage(THEIR_OPERATIONS / 4);
+			incoming.add(changePackage);
+			incomingOperations.addAll(changePackage.getOperations());
+		}
+		ChangePackage local = operations.createChangePackage(MY_OPERATIONS);
+		ChangePackage unrelated = operations.createUnrelatedChangePackage(MY_OPERATIONS);
+
+		// fails if the operands are swapped, the index sensitive strategy is not symmetric
+		ConflictDetectionStrategy strategy = new IndexSensitiveConflictDetectionStrategy() {
+			@Override
+			public boolean doConflict(AbstractOperation operationA, AbstractOperation operationB) {
+				assertTrue(incomingOperations.contains(operationA));
+				return super.doConflict(operationA, operationB);
+			}
+		};
+		ConflictDetector checkingPlain = new ConflictDetector(strategy, false);
+		ConflictDetector checkingIndexed = new ConflictDetector(strategy, true);
+
+		for (ChangePackage changes : Arrays.asList(local, unrelated)) {
+			boolean expected = false;
+			for (ChangePackage change : incoming) {
+				if (checkingPlain.doConflict(change, changes)) {
+					expected = true;
+					break;
+				}
+			}
+			assertEquals(expected, checkingIndexed.doConflict(incoming, changes));
+			assertEquals(expected, checkingPlain.doConflict(incoming, changes));
+		}
+		assertTrue(checkingIndexed.doConflict(incoming, local));
+	}
+
+	/**
+	 * Compares the required and requiring operations in both modes.
+	 */
+	@Test
+	public void getRequiring() {
+		List<AbstractOperation> mine = operations.createDependentOperations(DEPENDENT_OPERATIONS);
+		List<AbstractOperation> theirs = operations.createDependentOperations(DEPENDENT_OPERATIONS);
+
+		int dependencies = 0;
+		for (int i = 0; i < DEPENDENT_OPERATIONS; i += 10) {
+			AbstractOperation operation = mine.get(i);
+			List<AbstractOperation> requiring = plain.getRequiring(mine, operation);
+			assertEquals(requiring, indexed.getRequiring(mine, operation));
+			assertEquals(plain.getRequired(mine, operation), indexed.getRequired(mine, operation));
+			dependencies += requiring.size();
+		}
+		assertTrue(dependencies > 0);
+
+		Set<AbstractOperation> expected = plain.getAllConflictInvolvedOperations(mine, theirs);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, indexed.getAllConflictInvolvedOperations(mine, theirs));
+	}
+}
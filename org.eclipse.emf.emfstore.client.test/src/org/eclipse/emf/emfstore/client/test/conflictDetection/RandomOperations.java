@@ -0,0 +1,183 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.conflictDetection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
+import org.eclipse.emf.emfstore.server.model.versioning.VersioningFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AttributeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.ContainmentType;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CreateDeleteOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceMoveOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.SingleReferenceOperation;
+
+/**
+ * Creates synthetic operations on a fixed number of model elements for comparing the modes of the conflict detector.
+ * The same seed always gives the same operations.
+ */
+final class RandomOperations {
+
+	private final Random random;
+	private final int modelElements;
+	private final int dependentModelElements;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param seed the seed of the random numbers
+	 * @param modelElements the number of model elements changed by {@link #createOperations(int)}
+	 * @param dependentModelElements the number of model elements referring to others in
+	 *            {@link #createDependentOperations(int)}
+	 */
+	RandomOperations(long seed, int modelElements, int dependentModelElements) {
+		this.random = new Random(seed);
+		this.modelElements = modelElements;
+		this.dependentModelElements = dependentModelElements;
+	}
+
+	/**
+	 * Creates a change package of attribute, single and multi reference operations.
+	 * 
+	 * @param size the number of operations
+	 * @return the change package
+	 */
+	ChangePackage createChangePackage(int size) {
+		ChangePackage changePackage = VersioningFactory.eINSTANCE.createChangePackage();
+		changePackage.getOperations().addAll(createOperations(size));
+		return changePackage;
+	}
+
+	/**
+	 * Creates a change package of attribute operations on model elements not changed by any other operation.
+	 * 
+	 * @param size the number of operations
+	 * @return the change package
+	 */
+	ChangePackage createUnrelatedChangePackage(int size) {
+		ChangePackage changePackage = VersioningFactory.eINSTANCE.createChangePackage();
+		for (int i = 0; i < size; i++) {
+			changePackage.getOperations().add(createAttributeOperation(createId("unrelated" + i)));
+		}
+		return changePackage;
+	}
+
+	/**
+	 * Creates attribute, single and multi reference operations.
+	 * 
+	 * @param size the number of operations
+	 * @return the operations
+	 */
+	List<AbstractOperation> createOperations(int size) {
+		List<AbstractOperation> result = new ArrayList<AbstractOperation>(size);
+		for (int i = 0; i < size; i++) {
+			switch (random.nextInt(3)) {
+			case 0:
+				result.add(createAttributeOperation(randomId()));
+				break;
+			case 1:
+				result.add(createSingleReferenceOperation());
+				break;
+			default:
+				result.add(createMultiReferenceOperation());
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates operations on created model elements, which require the creation and the moves of their elements.
+	 * 
+	 * @param size the number of operations
+	 * @return the operations
+	 */
+	List<AbstractOperation> createDependentOperations(int size) {
+		List<AbstractOperation> result = new ArrayList<AbstractOperation>(size);
+		int created = 0;
+		for (int i = 0; i < size; i++) {
+			if (created == 0 || random.nextInt(4) == 0) {
+				CreateDeleteOperation operation = OperationsFactory.eINSTANCE.createCreateDeleteOperation();
+				operation.setModelElementId(createId("dependent" + created++));
+				result.add(operation);
+				continue;
+			}
+			ModelElementId element = createId("dependent" + random.nextInt(created));
+			ModelElementId other = createId("dependent" + random.nextInt(Math.min(created, dependentModelElements)));
+			switch (random.nextInt(3)) {
+			case 0:
+				result.add(createAttributeOperation(element));
+				break;
+			case 1:
+				MultiReferenceOperation multiReferenceOperation = OperationsFactory.eINSTANCE
+					.createMultiReferenceOperation();
+				multiReferenceOperation.setModelElementId(other);
+				multiReferenceOperation.setFeatureName("children");
+				multiReferenceOperation.setAdd(true);
+				multiReferenceOperation.getReferencedModelElements().add(element);
+				result.add(multiReferenceOperation);
+				break;
+			default:
+				MultiReferenceMoveOperation moveOperation = OperationsFactory.eINSTANCE
+					.createMultiReferenceMoveOperation();
+				moveOperation.setModelElementId(other);
+				moveOperation.setFeatureName("children");
+				moveOperation.setReferencedModelElementId(element);
+				moveOperation.setNewIndex(random.nextInt(10));
+				result.add(moveOperation);
+				break;
+			}
+		}
+		return result;
+	}
+
+	private ModelElementId createId(String id) {
+		ModelElementId modelElementId = ModelFactory.eINSTANCE.createModelElementId();
+		modelElementId.setId(id);
+		return modelElementId;
+	}
+
+	private ModelElementId randomId() {
+		return createId("element" + random.nextInt(modelElements));
+	}
+
+	private AttributeOperation createAttributeOperation(ModelElementId modelElementId) {
+		AttributeOperation operation = OperationsFactory.eINSTANCE.createAttributeOperation();
+		operation.setModelElementId(modelElementId);
+		operation.setFeatureName("feature" + random.nextInt(3));
+		operation.setOldValue("old");
+		operation.setNewValue("new" + random.nextInt());
+		return operation;
+	}
+
+	private SingleReferenceOperation createSingleReferenceOperation() {
+		SingleReferenceOperation operation = OperationsFactory.eINSTANCE.createSingleReferenceOperation();
+		operation.setModelElementId(randomId());
+		operation.setFeatureName("container");
+		operation.setContainmentType(ContainmentType.CONTAINMENT);
+		operation.setOldValue(randomId());
+		operation.setNewValue(randomId());
+		return operation;
+	}
+
+	private MultiReferenceOperation createMultiReferenceOperation() {
+		MultiReferenceOperation operation = OperationsFactory.eINSTANCE.createMultiReferenceOperation();
+		operation.setModelElementId(randomId());
+		operation.setFeatureName("children");
+		operation.setContainmentType(ContainmentType.CONTAINMENT);
+		operation.setAdd(random.nextBoolean());
+		operation.setIndex(random.nextInt(10));
+		operation.getReferencedModelElements().add(randomId());
+		return operation;
+	}
+}
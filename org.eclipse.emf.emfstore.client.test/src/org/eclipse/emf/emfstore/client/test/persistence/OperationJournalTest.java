@@ -0,0 +1,268 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.emfstore.client.model.Configuration;
+import org.eclipse.emf.emfstore.client.model.impl.OperationJournal;
+import org.eclipse.emf.emfstore.common.ResourceFactoryRegistry;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
+import org.eclipse.emf.emfstore.server.model.versioning.VersioningFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AttributeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the journal of the local operations.
+ */
+public class OperationJournalTest {
+
+	private File folder;
+	private File snapshotFile;
+	private File journalFile;
+	private ChangePackage changePackage;
+	private OperationJournal journal;
+
+	/**
+	 * Creates a saved empty change package and its journal.
+	 * 
+	 * @throws IOException if the change package can't be saved
+	 */
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("operationjournal", "");
+		folder.delete();
+		folder.mkdirs();
+		snapshotFile = new File(folder, "local" + Configuration.getLocalChangePackageFileExtension());
+		journalFile = new File(folder, "local" + Configuration.getOperationJournalFileExtension());
+		changePackage = VersioningFactory.eINSTANCE.createChangePackage();
+		Resource resource = createResourceSet().createResource(URI.createFileURI(snapshotFile.getAbsolutePath()));
+		resource.getContents().add(changePackage);
+		resource.save(Configuration.getResourceSaveOptions());
+		journal = new OperationJournal(changePackage, journalFile);
+		journal.replay();
+	}
+
+	/**
+	 * Deletes the folder.
+	 * 
+	 * @throws IOException if the folder can't be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		FileUtil.deleteFolder(folder);
+	}
+
+	/**
+	 * Added and undone operations are appended to the journal, the snapshot is only written once.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	@Test
+	public void appendAndReplay() throws IOException {
+		// the first operation replaces all operations, the snapshot is written
+		changePackage.getOperations().add(createOperation("a0"));
+		journal.save(null);
+		assertFalse(journalFile.exists());
+		long snapshotLength = snapshotFile.length();
+
+		for (int i = 1; i < 5; i++) {
+			changePackage.getOperations().add(createOperation("a" + i));
+			journal.save(null);
+		}
+		long journalLength = journalFile.length();
+		changePackage.getOperations().add(createOperation("a5"));
+		journal.save(null);
+		// the cost of a save doesn't depend on the operations saved before
+		assertTrue(journalFile.length() - journalLength < journalLength);
+		assertEquals(snapshotLength, snapshotFile.length());
+
+		changePackage.getOperations().remove(5);
+		changePackage.getOperations().remove(4);
+		journal.save(null);
+		changePackage.getOperations().add(createOperation("b4"));
+		journal.save(null);
+		assertEquals(snapshotLength, snapshotFile.length());
+
+		assertNames(load(), "a0", "a1", "a2", "a3", "b4");
+	}
+
+	/**
+	 * A composite operation is saved again while it records.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	@Test
+	public void openComposite() throws IOException {
+		changePackage.getOperations().add(createOperation("a0"));
+		journal.save(null);
+		CompositeOperation composite = OperationsFactory.eINSTANCE.createCompositeOperation();
+		changePackage.getOperations().add(composite);
+		journal.save(composite);
+		composite.getSubOperations().add(createOperation("c0"));
+		journal.save(composite);
+		composite.getSubOperations().add(createOperation("c1"));
+		composite.setCompositeName("composite");
+		// saved after it has been completed
+		journal.save(null);
+
+		List<AbstractOperation> operations = load();
+		assertEquals(2, operations.size());
+		CompositeOperation loaded = (CompositeOperation) operations.get(1);
+		assertEquals("composite", loaded.getCompositeName());
+		assertEquals(2, loaded.getSubOperations().size());
+		assertEquals("c1", ((AttributeOperation) loaded.getSubOperations().get(1)).getNewValue());
+	}
+
+	/**
+	 * An incomplete record at the end of the journal is dropped.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	@Test
+	public void incompleteRecord() throws IOException {
+		changePackage.getOperations().add(createOperation("a0"));
+		journal.save(null);
+		changePackage.getOperations().add(createOperation("a1"));
+		journal.save(null);
+		long length = journalFile.length();
+		changePackage.getOperations().add(createOperation("a2"));
+		journal.save(null);
+
+		RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+		try {
+			file.setLength(file.length() - 3);
+		} finally {
+			file.close();
+		}
+		assertNames(load(), "a0", "a1");
+		assertEquals(length, journalFile.length());
+	}
+
+	/**
+	 * Removing all operations, e.g. by a commit, compacts the journal.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	@Test
+	public void compactOnCommit() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			changePackage.getOperations().add(createOperation("a" + i));
+			journal.save(null);
+		}
+		assertTrue(journalFile.exists());
+		changePackage.getOperations().clear();
+		journal.save(null);
+		assertFalse(journalFile.exists());
+		assertNames(load());
+	}
+
+	/**
+	 * The operations of the journal are exported to files and imported again, e.g. for a migration.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	@Test
+	public void exportAndImport() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			changePackage.getOperations().add(createOperation("a" + i));
+			journal.save(null);
+		}
+		changePackage.getOperations().remove(2);
+		journal.save(null);
+
+		// the first operation is in the snapshot, the last record only drops an operation
+		List<File> operationFiles = OperationJournal.exportOperations(journalFile);
+		assertEquals(3, operationFiles.size());
+		assertTrue(operationFiles.get(0).exists());
+		assertNull(operationFiles.get(2));
+		OperationJournal.importOperations(journalFile, operationFiles);
+		assertFalse(operationFiles.get(0).exists());
+		assertNames(load(), "a0", "a1");
+	}
+
+	/**
+	 * A complete record whose operation can't be read doesn't truncate the journal, it is kept as a copy.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	@Test
+	public void unreadableOperation() throws IOException {
+		for (int i = 0; i < 4; i++) {
+			changePackage.getOperations().add(createOperation("a" + i));
+			journal.save(null);
+		}
+		// e.g. an operation of an older model version
+		List<File> operationFiles = OperationJournal.exportOperations(journalFile);
+		FileWriter writer = new FileWriter(operationFiles.get(1));
+		try {
+			writer.write("<unknown/>");
+		} finally {
+			writer.close();
+		}
+		OperationJournal.importOperations(journalFile, operationFiles);
+		long length = journalFile.length();
+
+		assertNames(load(), "a0", "a1");
+		assertEquals(length, journalFile.length());
+		File[] copies = folder.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.getName().endsWith(".broken");
+			}
+		});
+		assertEquals(1, copies.length);
+		assertEquals(length, copies[0].length());
+	}
+
+	private List<AbstractOperation> load() {
+		Resource resource = createResourceSet().getResource(URI.createFileURI(snapshotFile.getAbsolutePath()), true);
+		ChangePackage loaded = (ChangePackage) resource.getContents().get(0);
+		new OperationJournal(loaded, journalFile).replay();
+		return loaded.getOperations();
+	}
+
+	private static void assertNames(List<AbstractOperation> operations, String... names) {
+		assertEquals(names.length, operations.size());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], ((AttributeOperation) operations.get(i)).getNewValue());
+		}
+	}
+
+	private static AttributeOperation createOperation(String name) {
+		AttributeOperation operation = OperationsFactory.eINSTANCE.createAttributeOperation();
+		operation.setModelElementId(ModelFactory.eINSTANCE.createModelElementId());
+		operation.setFeatureName("name");
+		operation.setNewValue(name);
+		return operation;
+	}
+
+	private static ResourceSet createResourceSet() {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.setResourceFactoryRegistry(new ResourceFactoryRegistry());
+		return resourceSet;
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.emf.emfstore.client.model.Configuration;
+import org.eclipse.emf.emfstore.client.model.WorkspaceManager;
+import org.eclipse.emf.emfstore.client.model.exceptions.UnkownProjectException;
+import org.eclipse.emf.emfstore.client.model.impl.ProjectSpaceBase;
+import org.eclipse.emf.emfstore.client.model.util.EMFStoreCommand;
+import org.eclipse.emf.emfstore.client.test.WorkspaceTest;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.junit.Test;
+
+/**
+ * Tests the unloading of project spaces and their initialization on the next access.
+ */
+public class ProjectSpaceUnloadTest extends WorkspaceTest {
+
+	/**
+	 * An unloaded project space is loaded and initialized again by the access of its project.
+	 * 
+	 * @throws UnkownProjectException if the reloaded project isn't registered
+	 */
+	@Test
+	public void unloadAndInitOnAccess() throws UnkownProjectException {
+		addElement("first");
+		addElement("second");
+		ProjectSpaceBase projectSpace = (ProjectSpaceBase) getProjectSpace();
+		int operations = projectSpace.getOperations().size();
+
+		assertTrue(projectSpace.unload());
+		assertFalse(projectSpace.isInitialized());
+		assertTrue(getProject().eIsProxy());
+
+		Project reloaded = projectSpace.getProject();
+		assertTrue(projectSpace.isInitialized());
+		assertNotSame(getProject(), reloaded);
+		assertEquals(2, reloaded.getModelElements().size());
+		assertEquals(operations, projectSpace.getOperations().size());
+		assertSame(projectSpace, WorkspaceManager.getInstance().getCurrentWorkspace().getProjectSpace(reloaded));
+
+		// changes are recorded again
+		setProject(reloaded);
+		addElement("third");
+		assertEquals(operations + 1, projectSpace.getOperations().size());
+	}
+
+	/**
+	 * Files saved in the background are written before the project space is unloaded, so the next access doesn't
+	 * read outdated files.
+	 * 
+	 * @throws UnkownProjectException if the reloaded project isn't registered
+	 */
+	@Test
+	public void unloadWithWriteBehind() throws UnkownProjectException {
+		boolean writeBehind = Configuration.isResourceWriteBehindEnabled();
+		int delay = Configuration.getResourceWriteDelay();
+		Configuration.setResourceWriteBehind(true);
+		Configuration.setResourceWriteDelay(Integer.MAX_VALUE);
+		try {
+			addElement("first");
+			ProjectSpaceBase projectSpace = (ProjectSpaceBase) getProjectSpace();
+			projectSpace.save();
+			addElement("second");
+			int operations = projectSpace.getOperations().size();
+
+			assertTrue(projectSpace.unload());
+			Project reloaded = projectSpace.getProject();
+			assertEquals(2, reloaded.getModelElements().size());
+			assertEquals(operations, projectSpace.getOperations().size());
+		} finally {
+			Configuration.setResourceWriteBehind(writeBehind);
+			Configuration.setResourceWriteDelay(delay);
+		}
+	}
+
+	private void addElement(final String name) {
+		new EMFStoreCommand() {
+			@Override
+			protected void doRun() {
+				TestElement element = getTestElement(name);
+				getProject().getModelElements().add(element);
+			}
+		}.run(false);
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.emfstore.client.model.Configuration;
+import org.eclipse.emf.emfstore.client.model.ModelFactory;
+import org.eclipse.emf.emfstore.client.model.impl.ProjectSpaceBase;
+import org.eclipse.emf.emfstore.client.model.impl.ResourceFragmenter;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.ResourceFactoryRegistry;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.impl.ProjectImpl;
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the distribution of a project over several resources.
+ */
+public class ResourceFragmenterTest {
+
+	private static final int MAX = 10;
+
+	private ProjectSpaceBase projectSpace;
+	private Project project;
+	private ResourceSet resourceSet;
+	private Resource firstFragment;
+
+	/**
+	 * Creates a project space with a project of nested elements.
+	 */
+	@Before
+	public void setUp() {
+		Configuration.setMaxMECountPerResource(MAX);
+		projectSpace = (ProjectSpaceBase) ModelFactory.eINSTANCE.createProjectSpace();
+		project = org.eclipse.emf.emfstore.common.model.ModelFactory.eINSTANCE.createProject();
+		((ProjectImpl) project).initCaches();
+		for (int i = 0; i < 6; i++) {
+			project.addModelElement(createTree("root" + i, 2));
+		}
+		projectSpace.setProject(project);
+
+		resourceSet = new ResourceSetImpl();
+		resourceSet.setResourceFactoryRegistry(new ResourceFactoryRegistry());
+		firstFragment = resourceSet.createResource(projectSpace.getProjectFragmentURI(0));
+		firstFragment.getContents().add(project);
+		projectSpace.setResourceCount(1);
+	}
+
+	/**
+	 * Deletes the fragments and restores the maximum size.
+	 * 
+	 * @throws IOException if the fragments can't be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		Configuration.setMaxMECountPerResource(1000);
+		FileUtil.deleteFolder(new File(projectSpace.getProjectFragmentURI(0).toFileString()).getParentFile()
+			.getParentFile());
+	}
+
+	/**
+	 * The project is split into fragments of at most the maximum size, which are loaded as one project.
+	 * 
+	 * @throws IOException if the fragments can't be saved or loaded
+	 */
+	@Test
+	public void splitAndLoad() throws IOException {
+		List<Resource> fragments = new ResourceFragmenter(projectSpace).split(firstFragment);
+		fragments.add(0, firstFragment);
+
+		// the project and 6 trees of 5 elements, the trees can't be split since their containment doesn't resolve
+		// proxies
+		assertEquals(3, fragments.size());
+		assertEquals(11, ResourceFragmenter.count(firstFragment));
+		assertEquals(10, ResourceFragmenter.count(fragments.get(1)));
+		assertEquals(10, ResourceFragmenter.count(fragments.get(2)));
+		assertSame(firstFragment, project.eResource());
+		assertEquals(30, project.getAllModelElements().size());
+		save(fragments);
+
+		ResourceSet loadSet = new ResourceSetImpl();
+		loadSet.setResourceFactoryRegistry(new ResourceFactoryRegistry());
+		Project loaded = (Project) loadSet.getResource(firstFragment.getURI(), true).getContents().get(0);
+		((ProjectImpl) loaded).initCaches();
+		assertEquals(30, loaded.getAllModelElements().size());
+		assertEquals(3, loadSet.getResources().size());
+		for (EObject element : project.getAllModelElements()) {
+			EObject loadedElement = loaded.getModelElement(project.getModelElementId(element));
+			assertEquals(((TestElement) element).getName(), ((TestElement) loadedElement).getName());
+			assertEquals(element.eResource().getURI(), loadedElement.eResource().getURI());
+		}
+	}
+
+	/**
+	 * Elements added to a full fragment are moved to fragments with room left, the other fragments aren't changed.
+	 */
+	@Test
+	public void placeAddedElements() {
+		ResourceFragmenter fragmenter = new ResourceFragmenter(projectSpace);
+		List<Resource> fragments = fragmenter.split(firstFragment);
+		Set<Resource> dirty = new HashSet<Resource>();
+		dirty.add(firstFragment);
+		for (int i = 0; i < 4; i++) {
+			TestElement element = createTree("added" + i, 1);
+			project.addModelElement(element);
+			fragmenter.addElement(element);
+		}
+		assertEquals(23, ResourceFragmenter.count(firstFragment));
+
+		// the trees of 3 elements are moved to new fragments, 3 trees fit into one
+		Set<Resource> changed = fragmenter.placeAddedElements(dirty);
+		assertEquals(3, changed.size());
+		assertTrue(changed.contains(firstFragment));
+		changed.remove(firstFragment);
+		Iterator<Resource> created = changed.iterator();
+		Resource first = created.next();
+		Resource second = created.next();
+		assertFalse(fragments.contains(first));
+		assertFalse(fragments.contains(second));
+		assertEquals(11, ResourceFragmenter.count(firstFragment));
+		assertEquals(9, ResourceFragmenter.count(first));
+		assertEquals(3, ResourceFragmenter.count(second));
+		for (EObject element : project.getModelElements()) {
+			assertSame(project, element.eContainer());
+		}
+
+		// the room freed by removing a tree is reused
+		Resource fragment = fragments.get(0);
+		EObject removed = fragment.getContents().get(0);
+		project.getModelElements().remove(removed);
+		fragment.getContents().remove(removed);
+		dirty.clear();
+		dirty.add(fragment);
+		TestElement element = createTree("reused", 1);
+		project.addModelElement(element);
+		fragmenter.addElement(element);
+		changed = fragmenter.placeAddedElements(dirty);
+		assertSame(fragment, element.eResource());
+		assertEquals(8, ResourceFragmenter.count(fragment));
+	}
+
+	private TestElement createTree(String name, int children) {
+		TestElement element = createElement(name);
+		for (int i = 0; i < children; i++) {
+			TestElement child = createElement(name + i);
+			child.getContainedElements().add(createElement(name + i + "0"));
+			element.getContainedElements().add(child);
+		}
+		return element;
+	}
+
+	private TestElement createElement(String name) {
+		TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+		element.setName(name);
+		return element;
+	}
+
+	private void save(List<Resource> fragments) throws IOException {
+		for (EObject element : project.getAllModelElements()) {
+			((XMIResource) element.eResource()).setID(element, project.getModelElementId(element).getId());
+		}
+		for (Resource fragment : fragments) {
+			fragment.save(Configuration.getResourceSaveOptions());
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.eclipse.emf.emfstore.client.model.Configuration;
+import org.eclipse.emf.emfstore.client.model.impl.ResourceWriter;
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the background writing of resources.
+ */
+public class ResourceWriterTest {
+
+	private File folder;
+
+	/**
+	 * Creates an empty folder and delays the writes, so they are only done on a flush.
+	 * 
+	 * @throws IOException if the folder can't be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("resourcewriter", "");
+		folder.delete();
+		folder.mkdirs();
+		Configuration.setResourceWriteDelay(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Deletes the folder and restores the delay.
+	 * 
+	 * @throws IOException if the folder can't be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		ResourceWriter.getInstance().flush();
+		Configuration.setResourceWriteDelay(1000);
+		FileUtil.deleteFolder(folder);
+	}
+
+	/**
+	 * Only the last content written to a file is kept.
+	 * 
+	 * @throws IOException if a file can't be read
+	 */
+	@Test
+	public void coalesceWrites() throws IOException {
+		File file = new File(new File(folder, "project"), "project.upf");
+		ResourceWriter.getInstance().write(file, "first".getBytes());
+		ResourceWriter.getInstance().write(file, "second".getBytes());
+		assertFalse(file.exists());
+
+		ResourceWriter.getInstance().flush();
+		assertEquals("second", read(file));
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+
+		ResourceWriter.getInstance().write(file, "third".getBytes());
+		ResourceWriter.getInstance().flush();
+		assertEquals("third", read(file));
+	}
+
+	/**
+	 * Pending files of a deleted folder aren't written.
+	 * 
+	 * @throws IOException if a file can't be written
+	 */
+	@Test
+	public void discardDeletedFolder() throws IOException {
+		File deleted = new File(new File(folder, "deleted"), "project.upf");
+		File kept = new File(new File(folder, "kept"), "project.upf");
+		ResourceWriter.getInstance().write(deleted, "deleted".getBytes());
+		ResourceWriter.getInstance().write(kept, "kept".getBytes());
+
+		ResourceWriter.getInstance().discard(deleted.getParentFile());
+		ResourceWriter.getInstance().flush();
+		assertFalse(deleted.exists());
+		assertTrue(kept.exists());
+	}
+
+	/**
+	 * The pending files are written without a flush once the threshold is reached.
+	 * 
+	 * @throws Exception if the file can't be read or waiting is interrupted
+	 */
+	@Test
+	public void writeOnThreshold() throws Exception {
+		Configuration.setResourceWriteThreshold(4);
+		try {
+			File file = new File(folder, "large.upf");
+			ResourceWriter.getInstance().write(file, "large".getBytes());
+			for (int i = 0; i < 100 && !file.exists(); i++) {
+				Thread.sleep(50);
+			}
+			assertEquals("large", read(file));
+		} finally {
+			Configuration.setResourceWriteThreshold(16777216);
+		}
+	}
+
+	/**
+	 * A file which couldn't be written in the background is reported by the next flush.
+	 * 
+	 * @throws IOException if a file can't be written
+	 */
+	@Test
+	public void reportFailure() throws IOException {
+		File blocking = new File(folder, "blocking");
+		write(blocking, "not a folder");
+		ResourceWriter.getInstance().write(new File(blocking, "project.upf"), "lost".getBytes());
+		try {
+			ResourceWriter.getInstance().flush();
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		// reported once
+		ResourceWriter.getInstance().flush();
+	}
+
+	/**
+	 * A resource whose file couldn't be written in the background is remembered until it is saved again.
+	 * 
+	 * @throws IOException if a file can't be written
+	 */
+	@Test
+	public void rememberFailedResource() throws IOException {
+		File blocking = new File(folder, "blocking");
+		write(blocking, "not a folder");
+		Resource resource = new XMIResourceImpl(URI.createFileURI(new File(blocking, "project.upf").getPath()));
+		boolean writeBehind = Configuration.isResourceWriteBehindEnabled();
+		Configuration.setResourceWriteBehind(true);
+		try {
+			ResourceWriter.save(resource, null);
+			assertTrue(ResourceWriter.isPending(resource));
+			try {
+				ResourceWriter.getInstance().flush();
+				fail();
+			} catch (IOException e) {
+				// expected
+			}
+			assertFalse(ResourceWriter.isPending(resource));
+			assertTrue(ResourceWriter.hasFailed(resource));
+
+			blocking.delete();
+			ResourceWriter.save(resource, null);
+			assertFalse(ResourceWriter.hasFailed(resource));
+			ResourceWriter.getInstance().flush();
+			assertFalse(ResourceWriter.hasFailed(resource));
+			assertTrue(new File(blocking, "project.upf").exists());
+		} finally {
+			Configuration.setResourceWriteBehind(writeBehind);
+		}
+	}
+
+	/**
+	 * The backup left by a crash while replacing a file is restored, an outdated backup is deleted.
+	 * 
+	 * @throws IOException if a file can't be written
+	 */
+	@Test
+	public void restoreBackup() throws IOException {
+		File file = new File(new File(folder, "project"), "project.upf");
+		file.getParentFile().mkdirs();
+		write(new File(file.getPath() + FileUtil.BACKUP_SUFFIX), "previous");
+		File replaced = new File(folder, "replaced.upf");
+		write(replaced, "current");
+		write(new File(replaced.getPath() + FileUtil.BACKUP_SUFFIX), "outdated");
+
+		FileUtil.restoreBackups(folder);
+		assertEquals("previous", read(file));
+		assertEquals("current", read(replaced));
+		assertFalse(new File(replaced.getPath() + FileUtil.BACKUP_SUFFIX).exists());
+
+		File next = new File(folder, "next.upf");
+		write(next, "next");
+		FileUtil.replaceFile(next, file);
+		assertEquals("next", read(file));
+		assertFalse(next.exists());
+		assertFalse(new File(file.getPath() + FileUtil.BACKUP_SUFFIX).exists());
+	}
+
+	private static void write(File file, String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String read(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			return reader.readLine();
+		} finally {
+			reader.close();
+		}
+	}
+}
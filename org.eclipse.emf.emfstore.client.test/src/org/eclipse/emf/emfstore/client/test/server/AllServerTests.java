@@ -15,7 +15,9 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ ServerInterfaceTest.class, InvalidArgumentsTest.class, InvalidAuthenticationTest.class,
-	PropertiesTest.class, FileManagerTest.class })
+	PropertiesTest.class, FileManagerTest.class, ProjectStateCacheTest.class, SegmentedLogTest.class,
+	HistoryIndexTest.class, PermissionIndexTest.class, FilePartitionerTest.class,
+	AttachmentStoreTest.class, ProjectDigestTest.class, XmlRpcCompressionTest.class })
 public class AllServerTests {
 
 }
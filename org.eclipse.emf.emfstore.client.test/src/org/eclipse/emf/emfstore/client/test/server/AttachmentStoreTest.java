@@ -0,0 +1,170 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.eclipse.emf.emfstore.server.core.helper.AttachmentStore;
+import org.eclipse.emf.emfstore.server.exceptions.FileTransferException;
+import org.eclipse.emf.emfstore.server.filetransfer.FilePartitionerUtil;
+import org.eclipse.emf.emfstore.server.model.ModelFactory;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the deduplicating store of attachment contents.
+ */
+public class AttachmentStoreTest {
+
+	private static final String UNKNOWN_HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+	private File serverHome;
+	private ProjectId project1;
+	private ProjectId project2;
+	private ProjectId project3;
+
+	/**
+	 * Creates a server home with empty project folders.
+	 * 
+	 * @throws IOException if the folder can't be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		serverHome = File.createTempFile("serverHome", "");
+		serverHome.delete();
+		serverHome.mkdirs();
+		project1 = ModelFactory.eINSTANCE.createProjectId();
+		project2 = ModelFactory.eINSTANCE.createProjectId();
+		project3 = ModelFactory.eINSTANCE.createProjectId();
+		for (ProjectId projectId : new ProjectId[] { project1, project2, project3 }) {
+			getProjectFolder(projectId).mkdirs();
+		}
+	}
+
+	/**
+	 * Deletes the server home.
+	 * 
+	 * @throws IOException if the folder can't be deleted
+	 */
+	@After
+	public void tearDown() throws IOException {
+		FileUtil.deleteFolder(serverHome);
+	}
+
+	/**
+	 * A content stored for several attachments exists once and is deleted with its last reference.
+	 * 
+	 * @throws IOException if a file can't be written
+	 * @throws FileTransferException if a hash can't be computed
+	 */
+	@Test
+	public void deduplicateAndCollect() throws IOException, FileTransferException {
+		AttachmentStore store = new AttachmentStore(serverHome);
+		File upload = createUpload(store, project1, "a", "content");
+		String hash = FilePartitionerUtil.computeHash(upload);
+		store.store(project1, "a", upload, hash);
+		assertFalse(upload.exists());
+		File content = store.getFile(project1, "a");
+		assertTrue(content.exists());
+
+		// the same content uploaded again isn't stored a second time
+		upload = createUpload(store, project2, "b", "content");
+		store.store(project2, "b", upload, hash);
+		assertFalse(upload.exists());
+		assertEquals(content, store.getFile(project2, "b"));
+		assertTrue(store.addReference(project2, "c", hash));
+		assertFalse(store.addReference(project2, "d", UNKNOWN_HASH));
+		assertFalse(store.addReference(project2, "e", "../" + hash));
+		// the hash doesn't give access to the content of another project
+		assertFalse(store.addReference(project3, "f", hash));
+		assertNull(store.getFile(project3, "f"));
+		assertEquals(3, store.getReferenceCount(hash));
+
+		// counts are restored from the references
+		store = new AttachmentStore(serverHome);
+		assertEquals(3, store.getReferenceCount(hash));
+		assertTrue(store.addReference(project1, "g", hash));
+		assertFalse(store.addReference(project3, "f", hash));
+
+		store.removeProject(project2);
+		assertNull(store.getFile(project2, "b"));
+		assertFalse(getProjectFolder(project2).exists());
+		assertTrue(content.exists());
+		store.removeProject(project1);
+		assertFalse(content.exists());
+		assertEquals(0, store.getReferenceCount(hash));
+	}
+
+	/**
+	 * An upload finished after its project has been removed isn't stored.
+	 * 
+	 * @throws IOException if a file can't be written
+	 * @throws FileTransferException if a hash can't be computed
+	 */
+	@Test
+	public void storeAfterRemove() throws IOException, FileTransferException {
+		AttachmentStore store = new AttachmentStore(serverHome);
+		File upload = createUpload(store, project1, "a", "content");
+		String hash = FilePartitionerUtil.computeHash(upload);
+		store.removeProject(project1);
+		try {
+			store.store(project1, "a", upload, hash);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(upload.exists());
+		assertFalse(getProjectFolder(project1).exists());
+		assertEquals(0, store.getReferenceCount(hash));
+	}
+
+	/**
+	 * Attachments stored in the project folder before the store existed are found.
+	 * 
+	 * @throws IOException if a file can't be written
+	 */
+	@Test
+	public void legacyAttachment() throws IOException {
+		File attachmentFolder = new File(getProjectFolder(project1), "attachment");
+		attachmentFolder.mkdirs();
+		File legacyFile = new File(attachmentFolder, "old");
+		write(legacyFile, "old content");
+		AttachmentStore store = new AttachmentStore(serverHome);
+		assertEquals(legacyFile, store.getFile(project1, "old"));
+		assertNull(store.getFile(project1, "unknown"));
+	}
+
+	private File getProjectFolder(ProjectId projectId) {
+		return new File(serverHome, "project-" + projectId.getId());
+	}
+
+	private static File createUpload(AttachmentStore store, ProjectId projectId, String fileIdentifier,
+		String content) throws IOException {
+		File file = store.getTempFile(projectId, fileIdentifier);
+		write(file, content);
+		return file;
+	}
+
+	private static void write(File file, String content) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.emf.emfstore.server.exceptions.FileTransferException;
+import org.eclipse.emf.emfstore.server.filetransfer.FileChunk;
+import org.eclipse.emf.emfstore.server.filetransfer.FilePartitionerUtil;
+import org.eclipse.emf.emfstore.server.filetransfer.FileTransferInformation;
+import org.eclipse.emf.emfstore.server.model.FileIdentifier;
+import org.eclipse.emf.emfstore.server.model.ModelFactory;
+import org.junit.Test;
+
+/**
+ * Tests the positional reading and writing of file chunks.
+ */
+public class FilePartitionerTest {
+
+	private static final int CHUNK_SIZE = 1000;
+
+	/**
+	 * A file copied chunk by chunk in reverse order has the same content and hash.
+	 * 
+	 * @throws IOException if a file can't be created
+	 * @throws FileTransferException if a chunk can't be read or written
+	 */
+	@Test
+	public void copyChunksInReverseOrder() throws IOException, FileTransferException {
+		byte[] content = new byte[CHUNK_SIZE * 4 + 17];
+		new Random(1).nextBytes(content);
+		File source = createFile(content);
+		File target = File.createTempFile("target", ".tmp");
+		try {
+			FileTransferInformation information = createInformation(content.length);
+			int chunks = FilePartitionerUtil.getNumberOfChunks(content.length, CHUNK_SIZE);
+			assertEquals(5, chunks);
+			for (int chunk = chunks - 1; chunk >= 0; chunk--) {
+				FileTransferInformation chunkInformation = new FileTransferInformation(information);
+				chunkInformation.setChunkNumber(chunk);
+				FileChunk fileChunk = FilePartitionerUtil.readChunk(source, chunkInformation);
+				assertEquals(chunk == chunks - 1, fileChunk.isLast());
+				assertEquals(chunk == chunks - 1 ? 17 : CHUNK_SIZE, fileChunk.getData().length);
+				FilePartitionerUtil.writeChunk(target, fileChunk);
+			}
+			assertEquals(content.length, target.length());
+			assertEquals(FilePartitionerUtil.computeHash(source), FilePartitionerUtil.computeHash(target));
+		} finally {
+			source.delete();
+			target.delete();
+		}
+	}
+
+	/**
+	 * The last chunk of a file whose size is a multiple of the chunk size is full, an empty file has one empty chunk.
+	 * 
+	 * @throws IOException if a file can't be created
+	 * @throws FileTransferException if a chunk can't be read
+	 */
+	@Test
+	public void lastChunk() throws IOException, FileTransferException {
+		File file = createFile(new byte[CHUNK_SIZE * 2]);
+		File emptyFile = createFile(new byte[0]);
+		try {
+			assertEquals(2, FilePartitionerUtil.getNumberOfChunks(file.length(), CHUNK_SIZE));
+			FileTransferInformation information = createInformation((int) file.length());
+			information.setChunkNumber(1);
+			FileChunk fileChunk = FilePartitionerUtil.readChunk(file, information);
+			assertTrue(fileChunk.isLast());
+			assertEquals(CHUNK_SIZE, fileChunk.getData().length);
+
+			assertEquals(1, FilePartitionerUtil.getNumberOfChunks(0, CHUNK_SIZE));
+			fileChunk = FilePartitionerUtil.readChunk(emptyFile, createInformation(0));
+			assertTrue(fileChunk.isLast());
+			assertArrayEquals(new byte[0], fileChunk.getData());
+		} finally {
+			file.delete();
+			emptyFile.delete();
+		}
+	}
+
+	/**
+	 * Transfer information without a chunk size uses the size of older versions, copies are independent.
+	 */
+	@Test
+	public void transferInformation() {
+		FileTransferInformation information = new FileTransferInformation(createIdentifier(), 10);
+		assertEquals(FilePartitionerUtil.getChunkSize(), information.getChunkSize());
+		information.getTransferredChunks().set(3);
+		FileTransferInformation copy = new FileTransferInformation(information);
+		copy.getTransferredChunks().set(4);
+		assertFalse(information.getTransferredChunks().get(4));
+		assertTrue(copy.getTransferredChunks().get(3));
+		assertEquals(information.getFileIdentifier().getIdentifier(), copy.getFileIdentifier().getIdentifier());
+	}
+
+	private static FileTransferInformation createInformation(int fileSize) {
+		FileTransferInformation information = new FileTransferInformation(createIdentifier(), fileSize);
+		information.setChunkSize(CHUNK_SIZE);
+		return information;
+	}
+
+	private static FileIdentifier createIdentifier() {
+		FileIdentifier identifier = ModelFactory.eINSTANCE.createFileIdentifier();
+		identifier.setIdentifier("file");
+		return identifier;
+	}
+
+	private static File createFile(byte[] content) throws IOException {
+		File file = File.createTempFile("source", ".tmp");
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.emf.emfstore.server.core.helper.HistoryIndex;
+import org.junit.Test;
+
+/**
+ * Tests the index of the history cache.
+ */
+public class HistoryIndexTest {
+
+	/**
+	 * Versions are returned newest first, each version only once.
+	 */
+	@Test
+	public void versionsNewestFirst() {
+		HistoryIndex index = new HistoryIndex();
+		index.addVersion(0, Arrays.asList("a", "b"));
+		index.addVersion(1, Arrays.asList("a"));
+		index.addVersion(1, Arrays.asList("a", "c"));
+		index.addVersion(3, Arrays.asList("b", "a"));
+		assertArrayEquals(new int[] { 3, 1, 0 }, index.getVersions("a"));
+		assertArrayEquals(new int[] { 3, 0 }, index.getVersions("b"));
+		assertArrayEquals(new int[] { 1 }, index.getVersions("c"));
+		assertArrayEquals(new int[0], index.getVersions("unknown"));
+		assertEquals(3, index.getLastVersion());
+	}
+
+	/**
+	 * A written index is read with the same content.
+	 * 
+	 * @throws IOException if the index can't be written or read
+	 */
+	@Test
+	public void writeAndRead() throws IOException {
+		HistoryIndex index = new HistoryIndex();
+		for (int version = 0; version < 1000; version++) {
+			index.addVersion(version, Arrays.asList("element" + (version % 7), "element" + (version % 300)));
+		}
+		assertTrue(index.isDirty());
+		File file = File.createTempFile("historyIndex", ".idx");
+		try {
+			index.write(file);
+			assertFalse(index.isDirty());
+			HistoryIndex readIndex = HistoryIndex.read(file);
+			assertEquals(999, readIndex.getLastVersion());
+			assertFalse(readIndex.isDirty());
+			for (int i = 0; i < 300; i++) {
+				assertArrayEquals(index.getVersions("element" + i), readIndex.getVersions("element" + i));
+			}
+			readIndex.addVersion(1000, Arrays.asList("element0"));
+			assertEquals(1000, readIndex.getVersions("element0")[0]);
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.emf.emfstore.server.accesscontrol.PermissionIndex;
+import org.eclipse.emf.emfstore.server.model.ModelFactory;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+import org.eclipse.emf.emfstore.server.model.ServerSpace;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.ACGroup;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.ACUser;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.AccesscontrolFactory;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.ReaderRole;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.RolesFactory;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.WriterRole;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the index of effective permissions used by the access control.
+ */
+public class PermissionIndexTest {
+
+	private ServerSpace serverSpace;
+	private ACUser user;
+	private ACGroup group;
+	private ACGroup parentGroup;
+	private ProjectId project;
+	private PermissionIndex index;
+
+	/**
+	 * Creates a user, which is member of a group, which is member of another group.
+	 */
+	@Before
+	public void setUp() {
+		serverSpace = ModelFactory.eINSTANCE.createServerSpace();
+		user = AccesscontrolFactory.eINSTANCE.createACUser();
+		group = AccesscontrolFactory.eINSTANCE.createACGroup();
+		parentGroup = AccesscontrolFactory.eINSTANCE.createACGroup();
+		serverSpace.getUsers().add(user);
+		serverSpace.getGroups().add(group);
+		serverSpace.getGroups().add(parentGroup);
+		group.getMembers().add(user);
+		parentGroup.getMembers().add(group);
+		project = ModelFactory.eINSTANCE.createProjectId();
+		index = new PermissionIndex(serverSpace);
+	}
+
+	/**
+	 * Roles of nested groups apply to the user.
+	 */
+	@Test
+	public void rolesOfNestedGroups() {
+		assertFalse(index.hasPermissions(user, project, PermissionIndex.READ));
+
+		ReaderRole reader = RolesFactory.eINSTANCE.createReaderRole();
+		reader.getProjects().add(project);
+		parentGroup.getRoles().add(reader);
+		// still cached
+		assertFalse(index.hasPermissions(user, project, PermissionIndex.READ));
+		index.invalidate();
+		assertTrue(index.hasPermissions(user, project, PermissionIndex.READ));
+		assertFalse(index.hasPermissions(user, project, PermissionIndex.WRITE));
+		assertEquals(2, index.getGroups(user).size());
+		assertEquals(1, index.getRolesFromGroups(user).size());
+
+		WriterRole writer = RolesFactory.eINSTANCE.createWriterRole();
+		writer.getProjects().add(project);
+		user.getRoles().add(writer);
+		index.invalidate();
+		assertTrue(index.hasPermissions(user, project, PermissionIndex.READ | PermissionIndex.WRITE));
+		assertFalse(index.hasPermissions(user, project, PermissionIndex.ADMINISTRATE));
+		assertFalse(index.hasPermissions(user, ModelFactory.eINSTANCE.createProjectId(), PermissionIndex.READ));
+		assertFalse(index.isServerAdmin(user));
+	}
+
+	/**
+	 * A server admin role of a group grants all permissions.
+	 */
+	@Test
+	public void serverAdminOfGroup() {
+		group.getRoles().add(RolesFactory.eINSTANCE.createServerAdmin());
+		assertTrue(index.isServerAdmin(user));
+		assertTrue(index.hasPermissions(user, project, PermissionIndex.READ | PermissionIndex.WRITE
+			| PermissionIndex.ADMINISTRATE));
+	}
+
+	/**
+	 * Cyclic group memberships are resolved.
+	 */
+	@Test
+	public void cyclicGroups() {
+		group.getMembers().add(parentGroup);
+		assertEquals(2, index.getGroups(user).size());
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.common.model.util.SerializationException;
+import org.eclipse.emf.emfstore.server.startup.ProjectDigest;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the comparison of project states by the digests of their model elements.
+ */
+public class ProjectDigestTest {
+
+	private Project project;
+	private TestElement first;
+	private TestElement child;
+
+	/**
+	 * Creates a project with contained and referenced elements.
+	 */
+	@Before
+	public void setUp() {
+		project = ModelFactory.eINSTANCE.createProject();
+		first = createElement("first");
+		child = createElement("child");
+		child.getStrings().add("a");
+		child.getStrings().add("b");
+		first.getContainedElements().add(child);
+		TestElement second = createElement("second");
+		second.getReferences().add(child);
+		second.getReferences().add(first);
+		project.getModelElements().add(first);
+		project.getModelElements().add(second);
+		project.initCaches();
+	}
+
+	/**
+	 * Copies and serialized projects are equal.
+	 * 
+	 * @throws SerializationException if the project can't be serialized
+	 */
+	@Test
+	public void equalProjects() throws SerializationException {
+		assertNull(ProjectDigest.compare(project, project));
+		assertNull(ProjectDigest.compare(project, ModelUtil.clone(project)));
+		XMIResource resource = new XMIResourceImpl(URI.createURI("project.xmi"));
+		resource.getContents().add(project);
+		ModelUtil.setXmiIdsOnResource(project, resource);
+		Project loaded = (Project) ModelUtil.stringToEObject(ModelUtil.eObjectToString(project));
+		assertNull(ProjectDigest.compare(loaded, project));
+	}
+
+	/**
+	 * Changed, moved and removed elements are found.
+	 */
+	@Test
+	public void differentProjects() {
+		String childId = project.getModelElementIdString(child);
+		Project copy = ModelUtil.clone(project);
+		((TestElement) copy.getModelElement(project.getModelElementId(child))).getStrings().move(0, 1);
+		assertEquals("model element " + childId + " differs", ProjectDigest.compare(project, copy));
+
+		copy = ModelUtil.clone(project);
+		copy.getModelElements().move(0, 1);
+		assertEquals("root elements differ", ProjectDigest.compare(project, copy));
+
+		copy = ModelUtil.clone(project);
+		TestElement copiedChild = (TestElement) copy.getModelElement(project.getModelElementId(child));
+		copiedChild.getReferences().add(copiedChild);
+		assertEquals("model element " + childId + " differs", ProjectDigest.compare(project, copy));
+
+		copy = ModelUtil.clone(project);
+		copy.deleteModelElement(copy.getModelElement(project.getModelElementId(child)));
+		assertNotNull(ProjectDigest.compare(project, copy));
+		assertNotNull(ProjectDigest.compare(copy, project));
+	}
+
+	private static TestElement createElement(String name) {
+		TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+		element.setName(name);
+		return element;
+	}
+}
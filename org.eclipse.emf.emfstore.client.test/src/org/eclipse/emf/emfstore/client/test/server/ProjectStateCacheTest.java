@@ -0,0 +1,87 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.emf.emfstore.common.model.ModelFactory;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.server.core.helper.ProjectStateCache;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+import org.junit.Test;
+
+/**
+ * Tests the cache of recalculated project states.
+ */
+public class ProjectStateCacheTest {
+
+	private ProjectId createProjectId(String id) {
+		ProjectId projectId = org.eclipse.emf.emfstore.server.model.ModelFactory.eINSTANCE.createProjectId();
+		projectId.setId(id);
+		return projectId;
+	}
+
+	/**
+	 * Least recently used states are evicted first.
+	 */
+	@Test
+	public void evictLeastRecentlyUsed() {
+		ProjectStateCache cache = new ProjectStateCache(2, 0);
+		ProjectId projectId = createProjectId("p");
+		Project state1 = ModelFactory.eINSTANCE.createProject();
+		Project state2 = ModelFactory.eINSTANCE.createProject();
+		Project state3 = ModelFactory.eINSTANCE.createProject();
+
+		cache.addProjectState(projectId, 1, state1);
+		cache.addProjectState(projectId, 2, state2);
+		assertSame(state1, cache.getProjectState(projectId, 1));
+		cache.addProjectState(projectId, 3, state3);
+
+		assertSame(state1, cache.getProjectState(projectId, 1));
+		assertNull(cache.getProjectState(projectId, 2));
+		assertSame(state3, cache.getProjectState(projectId, 3));
+		assertNull(cache.getProjectState(createProjectId("other"), 3));
+	}
+
+	/**
+	 * A checkpoint is requested after the configured number of recalculations.
+	 */
+	@Test
+	public void countRecalculations() {
+		ProjectStateCache cache = new ProjectStateCache(2, 2);
+		ProjectId projectId = createProjectId("p");
+
+		assertFalse(cache.countRecalculation(projectId, 5));
+		assertFalse(cache.countRecalculation(projectId, 6));
+		assertTrue(cache.countRecalculation(projectId, 5));
+
+		cache.removeProjectState(projectId, 5);
+		assertFalse(cache.countRecalculation(projectId, 5));
+
+		assertFalse(new ProjectStateCache(2, 0).countRecalculation(projectId, 5));
+	}
+
+	/**
+	 * Removing a project removes all of its states.
+	 */
+	@Test
+	public void removeProject() {
+		ProjectStateCache cache = new ProjectStateCache(10, 0);
+		ProjectId projectId = createProjectId("p");
+		ProjectId otherId = createProjectId("p2");
+		Project state = ModelFactory.eINSTANCE.createProject();
+		cache.addProjectState(projectId, 1, state);
+		cache.addProjectState(otherId, 1, state);
+
+		cache.removeProject(projectId);
+
+		assertNull(cache.getProjectState(projectId, 1));
+		assertSame(state, cache.getProjectState(otherId, 1));
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
+import org.eclipse.emf.emfstore.server.storage.LogURIHandler;
+import org.eclipse.emf.emfstore.server.storage.SegmentedLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the segmented log of the log storage.
+ */
+public class SegmentedLogTest {
+
+	private File directory;
+
+	/**
+	 * Creates an empty directory for the log.
+	 * 
+	 * @throws IOException if the directory can't be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile(ServerConfiguration.FILE_PREFIX_PROJECTFOLDER, "");
+		directory.delete();
+	}
+
+	/**
+	 * Deletes the log.
+	 */
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	/**
+	 * The latest record of a name wins, also after reopening.
+	 * 
+	 * @throws IOException if the log fails
+	 */
+	@Test
+	public void appendAndReopen() throws IOException {
+		SegmentedLog log = new SegmentedLog(directory, 1024);
+		log.append("a", new byte[] { 1 });
+		log.append("b", new byte[] { 2 });
+		log.append("a", new byte[] { 3 });
+		log.delete("b");
+		assertArrayEquals(new byte[] { 3 }, log.read("a"));
+		assertNull(log.read("b"));
+		log.close();
+
+		log = new SegmentedLog(directory, 1024);
+		assertArrayEquals(new byte[] { 3 }, log.read("a"));
+		assertFalse(log.contains("b"));
+		log.close();
+	}
+
+	/**
+	 * Records appended after the index was written are found by scanning, a torn record is cut off.
+	 * 
+	 * @throws IOException if the log fails
+	 */
+	@Test
+	public void recoverTornRecord() throws IOException {
+		SegmentedLog log = new SegmentedLog(directory, 1024);
+		log.append("a", new byte[] { 1 });
+		log.flush();
+		log.append("b", new byte[] { 2 });
+		log.append("c", new byte[] { 3, 4, 5 });
+		// simulate a crash while writing the last record
+		RandomAccessFile segment = new RandomAccessFile(new File(directory, "segment-0.log"), "rw");
+		segment.setLength(segment.length() - 2);
+		segment.close();
+
+		log = new SegmentedLog(directory, 1024);
+		assertArrayEquals(new byte[] { 1 }, log.read("a"));
+		assertArrayEquals(new byte[] { 2 }, log.read("b"));
+		assertFalse(log.contains("c"));
+		log.append("c", new byte[] { 6 });
+		log.close();
+
+		log = new SegmentedLog(directory, 1024);
+		assertArrayEquals(new byte[] { 6 }, log.read("c"));
+		log.close();
+	}
+
+	/**
+	 * Outdated segments are compacted and deleted.
+	 * 
+	 * @throws IOException if the log fails
+	 */
+	@Test
+	public void compactOldSegments() throws IOException {
+		SegmentedLog log = new SegmentedLog(directory, 1024);
+		log.append("keep", new byte[] { 42 });
+		for (int i = 0; i < 200; i++) {
+			log.append("overwritten", new byte[100]);
+		}
+		assertArrayEquals(new byte[] { 42 }, log.read("keep"));
+		assertFalse(new File(directory, "segment-0.log").exists());
+		assertTrue(directory.list().length < 10);
+		log.close();
+
+		log = new SegmentedLog(directory, 1024);
+		assertArrayEquals(new byte[] { 42 }, log.read("keep"));
+		assertEquals(100, log.read("overwritten").length);
+		log.close();
+	}
+
+	/**
+	 * Only the changes of the project history are appended, the latest content is read, also after reopening.
+	 * 
+	 * @throws IOException if the log fails
+	 */
+	@Test
+	public void projectHistoryChanges() throws IOException {
+		URI uri = URI.createFileURI(new File(directory, "projectHistory"
+			+ ServerConfiguration.FILE_EXTENSION_PROJECTHISTORY).getAbsolutePath());
+		LogURIHandler handler = new LogURIHandler(1024 * 1024);
+		StringBuilder versions = new StringBuilder();
+		long written = 0;
+		String content = null;
+		for (int i = 0; i < 200; i++) {
+			versions.append("<versions href=\"version-" + i + ".upv#_id\"/>");
+			// the project name at the start changes as well from time to time
+			content = "<history name=\"" + (i / 50) + "\">" + versions + "</history>";
+			write(handler, uri, content);
+			written += content.length();
+			assertEquals(content, read(handler, uri));
+		}
+		assertTrue(handler.exists(uri, null));
+		handler.close();
+		assertTrue(new File(directory, "segment-0.log").length() < written / 10);
+
+		handler = new LogURIHandler(1024 * 1024);
+		assertEquals(content, read(handler, uri));
+		write(handler, uri, "<history/>");
+		assertEquals("<history/>", read(handler, uri));
+		handler.delete(uri, null);
+		assertFalse(handler.exists(uri, null));
+		handler.close();
+	}
+
+	private static void write(LogURIHandler handler, URI uri, String content) throws IOException {
+		OutputStream output = handler.createOutputStream(uri, null);
+		output.write(content.getBytes("UTF-8"));
+		output.close();
+	}
+
+	private static String read(LogURIHandler handler, URI uri) throws IOException {
+		InputStream input = handler.createInputStream(uri, null);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		for (int read = input.read(); read >= 0; read = input.read()) {
+			output.write(read);
+		}
+		input.close();
+		return output.toString("UTF-8");
+	}
+}
@@ -0,0 +1,336 @@
+/**
+ * <copyright> Copyright (c) 2008-2009 Jonas Helming, Maximilian Koegel. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse Public License v1.0 which accompanies this
+ * distribution, and is available at http://www.eclipse.org/legal/epl-v10.html </copyright>
+ */
+package org.eclipse.emf.emfstore.client.test.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ws.commons.util.NamespaceContextImpl;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
+import org.apache.xmlrpc.client.XmlRpcLocalStreamTransportFactory;
+import org.apache.xmlrpc.common.XmlRpcController;
+import org.apache.xmlrpc.common.XmlRpcStreamConfig;
+import org.apache.xmlrpc.parser.TypeParser;
+import org.apache.xmlrpc.server.PropertyHandlerMapping;
+import org.apache.xmlrpc.server.XmlRpcLocalStreamServer;
+import org.apache.xmlrpc.server.XmlRpcServer;
+import org.apache.xmlrpc.server.XmlRpcServerConfigImpl;
+import org.apache.xmlrpc.serializer.TypeSerializer;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.eclipse.emf.emfstore.client.model.connectionmanager.xmlrpc.XmlRpcClientManager;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestElement;
+import org.eclipse.emf.emfstore.client.test.testmodel.TestmodelFactory;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.impl.ProjectImpl;
+import org.eclipse.emf.emfstore.server.connection.xmlrpc.util.EObjectSerializer;
+import org.eclipse.emf.emfstore.server.connection.xmlrpc.util.EObjectTypeConverterFactory;
+import org.eclipse.emf.emfstore.server.connection.xmlrpc.util.EObjectTypeFactory;
+import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
+import org.eclipse.emf.emfstore.server.model.ModelFactory;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests the compression of EObjects transferred by XML RPC and its negotiation between client and server. The client
+ * and the server run in the same VM, but exchange their requests and answers as XML streams.
+ */
+public class XmlRpcCompressionTest {
+
+	private static final String HANDLER = "Test";
+	private static final String NEGOTIATION = "isCompressionSupported";
+	private static final int MODEL_ELEMENTS = 100;
+	private static final int GC_RUNS = 10;
+
+	// parses the requests and writes the answers
+	private XmlRpcLocalStreamServer streamServer;
+	// executes the parsed requests
+	private XmlRpcServer server;
+	private RecordingTypeFactory serverTypeFactory;
+
+	/**
+	 * EObjects are deflated in both directions once compression is negotiated, and arrive unchanged.
+	 * 
+	 * @throws Exception if a call fails
+	 */
+	@Test
+	public void compressedRoundTrip() throws Exception {
+		startServer(CompressingHandler.class);
+		XmlRpcClientManager clientManager = connect();
+		assertTrue(clientManager.negotiateCompression(NEGOTIATION));
+
+		ProjectId projectId = createProjectId();
+		assertTrue(EcoreUtil.equals(projectId, echo(clientManager, projectId)));
+		Project project = createProject();
+		Project echoed = (Project) echo(clientManager, project);
+		assertEquals(MODEL_ELEMENTS, echoed.getModelElements().size());
+		for (int i = 0; i < MODEL_ELEMENTS; i++) {
+			assertEquals(((TestElement) project.getModelElements().get(i)).getName(), ((TestElement) echoed
+				.getModelElements().get(i)).getName());
+		}
+
+		assertEquals(Arrays.asList(EObjectSerializer.COMPRESSED_EOBJECT_TAG, EObjectSerializer.COMPRESSED_EOBJECT_TAG),
+			serverTypeFactory.parsedTags);
+		assertEquals(Arrays.asList(true, true), serverTypeFactory.compressedAnswers);
+	}
+
+	/**
+	 * A compressing client doesn't compress for a server which doesn't know the negotiation.
+	 * 
+	 * @throws Exception if a call fails
+	 */
+	@Test
+	public void compressingClientOldServer() throws Exception {
+		startServer(OldHandler.class);
+		assertPlain(connect(), true);
+	}
+
+	/**
+	 * A compressing client doesn't compress for a server which has compression disabled.
+	 * 
+	 * @throws Exception if a call fails
+	 */
+	@Test
+	public void compressingClientPlainServer() throws Exception {
+		startServer(PlainHandler.class);
+		assertPlain(connect(), true);
+	}
+
+	/**
+	 * A compressing server answers a client which doesn't negotiate compression uncompressed.
+	 * 
+	 * @throws Exception if a call fails
+	 */
+	@Test
+	public void plainClientCompressingServer() throws Exception {
+		startServer(CompressingHandler.class);
+		assertPlain(connect(), false);
+	}
+
+	/**
+	 * The server decides per client config whether to answer compressed, so compressing and plain clients can use it
+	 * at the same time.
+	 * 
+	 * @throws Exception if a call fails
+	 */
+	@Test
+	public void answersPerConfig() throws Exception {
+		startServer(CompressingHandler.class);
+		XmlRpcClientManager compressingClient = connect();
+		assertTrue(compressingClient.negotiateCompression(NEGOTIATION));
+		XmlRpcClientManager plainClient = connect();
+		ProjectId projectId = createProjectId();
+		for (int i = 0; i < 2; i++) {
+			echo(compressingClient, projectId);
+			echo(plainClient, projectId);
+		}
+		assertEquals(Arrays.asList(EObjectSerializer.COMPRESSED_EOBJECT_TAG, EObjectSerializer.EOBJECT_TAG,
+			EObjectSerializer.COMPRESSED_EOBJECT_TAG, EObjectSerializer.EOBJECT_TAG), serverTypeFactory.parsedTags);
+		assertEquals(Arrays.asList(true, false, true, false), serverTypeFactory.compressedAnswers);
+	}
+
+	/**
+	 * The server only keeps the configs of compressing clients weakly, so they don't accumulate.
+	 * 
+	 * @throws Exception if a call fails
+	 */
+	@Test
+	public void releasesConfigs() throws Exception {
+		startServer(CompressingHandler.class);
+		WeakReference<XmlRpcClientConfigImpl> config = callCompressed();
+		for (int i = 0; i < GC_RUNS && config.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(config.get());
+		assertEquals(Arrays.asList(true), serverTypeFactory.compressedAnswers);
+	}
+
+	private WeakReference<XmlRpcClientConfigImpl> callCompressed() throws EmfStoreException, XmlRpcException {
+		XmlRpcClient client = createClient();
+		XmlRpcClientManager clientManager = new XmlRpcClientManager(HANDLER);
+		clientManager.initConnection(client);
+		assertTrue(clientManager.negotiateCompression(NEGOTIATION));
+		echo(clientManager, createProjectId());
+		return new WeakReference<XmlRpcClientConfigImpl>((XmlRpcClientConfigImpl) client.getClientConfig());
+	}
+
+	private void assertPlain(XmlRpcClientManager clientManager, boolean negotiate) throws Exception {
+		if (negotiate) {
+			assertFalse(clientManager.negotiateCompression(NEGOTIATION));
+		}
+		ProjectId projectId = createProjectId();
+		assertTrue(EcoreUtil.equals(projectId, echo(clientManager, projectId)));
+		assertEquals(MODEL_ELEMENTS, ((Project) echo(clientManager, createProject())).getModelElements().size());
+		assertEquals(Arrays.asList(EObjectSerializer.EOBJECT_TAG, EObjectSerializer.EOBJECT_TAG),
+			serverTypeFactory.parsedTags);
+		assertEquals(Arrays.asList(false, false), serverTypeFactory.compressedAnswers);
+	}
+
+	private void startServer(Class<?> handler) throws XmlRpcException {
+		streamServer = new XmlRpcLocalStreamServer();
+		serverTypeFactory = new RecordingTypeFactory(streamServer);
+		streamServer.setTypeFactory(serverTypeFactory);
+		EObjectTypeConverterFactory converterFactory = new EObjectTypeConverterFactory();
+		streamServer.setTypeConverterFactory(converterFactory);
+
+		server = new XmlRpcServer();
+		server.setTypeConverterFactory(converterFactory);
+		PropertyHandlerMapping mapping = new PropertyHandlerMapping();
+		mapping.setVoidMethodEnabled(true);
+		mapping.setTypeConverterFactory(converterFactory);
+		mapping.addHandler(HANDLER, handler);
+		server.setHandlerMapping(mapping);
+
+		for (XmlRpcServer configured : new XmlRpcServer[] { streamServer, server }) {
+			XmlRpcServerConfigImpl serverConfig = (XmlRpcServerConfigImpl) configured.getConfig();
+			serverConfig.setEnabledForExtensions(true);
+			serverConfig.setEnabledForExceptions(true);
+		}
+	}
+
+	private XmlRpcClientManager connect() {
+		XmlRpcClientManager clientManager = new XmlRpcClientManager(HANDLER);
+		clientManager.initConnection(createClient());
+		return clientManager;
+	}
+
+	private XmlRpcClient createClient() {
+		XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
+		config.setEnabledForExtensions(true);
+		config.setEnabledForExceptions(true);
+		config.setXmlRpcServer(server);
+		XmlRpcClient client = new XmlRpcClient();
+		client.setTransportFactory(new XmlRpcLocalStreamTransportFactory(client, streamServer));
+		client.setConfig(config);
+		return client;
+	}
+
+	private static EObject echo(XmlRpcClientManager clientManager, EObject eObject) throws EmfStoreException {
+		return clientManager.callWithResult("echo", EObject.class, eObject);
+	}
+
+	private static ProjectId createProjectId() {
+		ProjectId projectId = ModelFactory.eINSTANCE.createProjectId();
+		projectId.setId(EcoreUtil.generateUUID());
+		return projectId;
+	}
+
+	private static Project createProject() {
+		Project project = org.eclipse.emf.emfstore.common.model.ModelFactory.eINSTANCE.createProject();
+		((ProjectImpl) project).initCaches();
+		for (int i = 0; i < MODEL_ELEMENTS; i++) {
+			TestElement element = TestmodelFactory.eINSTANCE.createTestElement();
+			element.setName("element" + i);
+			project.addModelElement(element);
+		}
+		return putIntoResource(project);
+	}
+
+	// projects are sent from a resource holding the ids of their elements
+	private static Project putIntoResource(Project project) {
+		XMIResource resource = new XMIResourceImpl();
+		resource.getContents().add(project);
+		for (EObject modelElement : project.getAllModelElements()) {
+			resource.setID(modelElement, project.getModelElementIdString(modelElement));
+		}
+		return project;
+	}
+
+	/**
+	 * Handler of a server supporting compression.
+	 */
+	public static class CompressingHandler extends OldHandler {
+
+		/**
+		 * Answers the negotiation.
+		 * 
+		 * @return true
+		 */
+		public boolean isCompressionSupported() {
+			return true;
+		}
+	}
+
+	/**
+	 * Handler of a server with compression disabled.
+	 */
+	public static class PlainHandler extends OldHandler {
+
+		/**
+		 * Answers the negotiation.
+		 * 
+		 * @return false
+		 */
+		public boolean isCompressionSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * Handler of a server not knowing the negotiation.
+	 */
+	public static class OldHandler {
+
+		/**
+		 * Returns the EObject.
+		 * 
+		 * @param eObject the EObject
+		 * @return the same EObject
+		 */
+		public EObject echo(EObject eObject) {
+			if (eObject instanceof Project) {
+				return putIntoResource((Project) eObject);
+			}
+			return eObject;
+		}
+	}
+
+	/**
+	 * Records the tags of the EObjects parsed and whether the EObjects written are compressed.
+	 */
+	private static final class RecordingTypeFactory extends EObjectTypeFactory {
+
+		private final List<String> parsedTags = Collections.synchronizedList(new ArrayList<String>());
+		private final List<Boolean> compressedAnswers = Collections.synchronizedList(new ArrayList<Boolean>());
+
+		private RecordingTypeFactory(XmlRpcController pController) {
+			super(pController);
+		}
+
+		@Override
+		public TypeParser getParser(XmlRpcStreamConfig pConfig, NamespaceContextImpl pContext, String pURI,
+			String pLocalName) {
+			if (EObjectSerializer.EOBJECT_TAG.equals(pLocalName)
+				|| EObjectSerializer.COMPRESSED_EOBJECT_TAG.equals(pLocalName)) {
+				parsedTags.add(pLocalName);
+			}
+			return super.getParser(pConfig, pContext, pURI, pLocalName);
+		}
+
+		@Override
+		public TypeSerializer getSerializer(XmlRpcStreamConfig pConfig, Object pObject) throws SAXException {
+			TypeSerializer serializer = super.getSerializer(pConfig, pObject);
+			if (serializer instanceof EObjectSerializer) {
+				compressedAnswers.add(((EObjectSerializer) serializer).isCompressing());
+			}
+			return serializer;
+		}
+	}
+}
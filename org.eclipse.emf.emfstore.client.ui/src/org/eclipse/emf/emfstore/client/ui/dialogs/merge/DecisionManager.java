@@ -54,6 +54,8 @@ import org.eclipse.emf.emfstore.common.model.ModelElementId;
 import org.eclipse.emf.emfstore.common.model.Project;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
 import org.eclipse.emf.emfstore.server.conflictDetection.ConflictDetector;
+import org.eclipse.emf.emfstore.server.conflictDetection.IndexSensitiveConflictDetectionStrategy;
+import org.eclipse.emf.emfstore.server.conflictDetection.OperationIndex;
 import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
 import org.eclipse.emf.emfstore.server.model.versioning.LogMessage;
 import org.eclipse.emf.emfstore.server.model.versioning.PrimaryVersionSpec;
@@ -107,7 +109,8 @@ public class DecisionManager {
 		this.theirChangePackages = theirChangePackages;
 		this.baseVersion = baseVersion;
 		this.targetVersion = targetVersion;
-		conflictDetector = new ConflictDetector();
+		conflictDetector = new ConflictDetector(
+				new IndexSensitiveConflictDetectionStrategy(), true);
 		init();
 	}
 
@@ -126,14 +129,24 @@ public class DecisionManager {
 		conflicts = new ArrayList<Conflict>();
 		ArrayList<Conflicting> conflicting = new ArrayList<Conflicting>();
 
+		// only their operations touching the same model elements can conflict
+		OperationIndex theirIndex = null;
+		if (conflictDetector.isIndexed()) {
+			theirIndex = new OperationIndex(theirOperations);
+		}
+
 		// Collect all conflicting
 		ListIterator<AbstractOperation> myIterator = myOperations
 				.listIterator(myOperations.size());
 		while (myIterator.hasPrevious()) {
 			AbstractOperation myOperation = myIterator.previous();
 			boolean involved = false;
-			ListIterator<AbstractOperation> theirIterator = theirOperations
-					.listIterator(theirOperations.size());
+			List<AbstractOperation> theirCandidates = theirOperations;
+			if (theirIndex != null) {
+				theirCandidates = theirIndex.getCandidates(myOperation);
+			}
+			ListIterator<AbstractOperation> theirIterator = theirCandidates
+					.listIterator(theirCandidates.size());
 			while (theirIterator.hasPrevious()) {
 				AbstractOperation theirOperation = theirIterator.previous();
 				if (conflictDetector.doConflict(myOperation, theirOperation)) {
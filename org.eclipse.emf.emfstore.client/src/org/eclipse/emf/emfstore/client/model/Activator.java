@@ -11,6 +11,7 @@
 package org.eclipse.emf.emfstore.client.model;
 
 import org.eclipse.core.runtime.Plugin;
+import org.eclipse.emf.emfstore.client.model.impl.ResourceWriter;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -38,6 +39,7 @@ public class Activator extends Plugin {
 	@Override
 	public void stop(BundleContext context) throws Exception {
 		plugin = null;
+		ResourceWriter.getInstance().flush();
 		super.stop(context);
 	}
 
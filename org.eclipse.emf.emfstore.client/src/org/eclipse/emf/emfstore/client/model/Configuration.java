@@ -12,6 +12,7 @@ package org.eclipse.emf.emfstore.client.model;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +22,7 @@ import org.eclipse.emf.emfstore.client.common.IClientVersionProvider;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.KeyStoreManager;
 import org.eclipse.emf.emfstore.client.model.util.ConfigurationProvider;
 import org.eclipse.emf.emfstore.client.model.util.DefaultWorkspaceLocationProvider;
+import org.eclipse.emf.emfstore.common.EMFStoreResource;
 import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionElement;
 import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionPoint;
 import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionPointException;
@@ -47,10 +49,36 @@ public final class Configuration {
 	 */
 	private static final int XML_RPC_REPLY_TIMEOUT = 600000;
 
+	/**
+	 * Default size of the chunks requested for file transfers.
+	 */
+	private static final int FILE_TRANSFER_CHUNK_SIZE = 1048576;
+
+	/**
+	 * Default number of chunks of a file transfer sent or requested at once.
+	 */
+	private static final int FILE_TRANSFER_PARALLEL_CHUNKS = 4;
+
+	/**
+	 * Default time in milliseconds changed resources are kept in memory before they are written in the background.
+	 */
+	private static final int RESOURCE_WRITE_DELAY = 1000;
+
+	/**
+	 * Default size in bytes of the pending resource contents from which on they are written without delay.
+	 */
+	private static final int RESOURCE_WRITE_THRESHOLD = 16777216;
+
+	/**
+	 * Default maximum number of model elements per project fragment.
+	 */
+	private static final int MAX_ME_COUNT_PER_RESOURCE = 1000;
+
 	private static final String CLIENT_NAME = "emfstore eclipse client";
 	private static final String MODEL_VERSION_FILENAME = "modelReleaseNumber";
 	private static final String UPS = ".ups";
 	private static final String UOC = ".uoc";
+	private static final String UOJ = ".uoj";
 	private static final String PROJECT_FOLDER = "project";
 	private static final String PS = "ps-";
 	private static final String UPF = ".upf";
@@ -58,12 +86,26 @@ public final class Configuration {
 
 	private static boolean autoSave;
 	private static boolean testing;
+	private static boolean binaryPersistence;
+	private static Map<Object, Object> binarySaveOptions;
+	private static boolean xmlRPCCompression;
+	private static boolean incrementalUpdate = true;
+	private static boolean resourceWriteBehind;
+	private static boolean resourceSync = true;
+	private static boolean resourceSplitting = true;
+	private static boolean projectSpaceInitOnDemand = true;
 
 	private static LocationProvider locationProvider;
 	private static EditingDomain editingDomain;
 
 	private static int xmlRPCConnectionTimeout = XML_RPC_CONNECTION_TIMEOUT;
 	private static int xmlRPCReplyTimeout = XML_RPC_REPLY_TIMEOUT;
+	private static int fileTransferChunkSize = FILE_TRANSFER_CHUNK_SIZE;
+	private static int fileTransferParallelChunks = FILE_TRANSFER_PARALLEL_CHUNKS;
+	private static int resourceWriteDelay = RESOURCE_WRITE_DELAY;
+	private static int resourceWriteThreshold = RESOURCE_WRITE_THRESHOLD;
+	private static int maxMECountPerResource = MAX_ME_COUNT_PER_RESOURCE;
+	private static int projectSpaceUnloadIdleTime;
 
 	private Configuration() {
 		// nothing to do
@@ -144,6 +186,9 @@ public final class Configuration {
 	 * @return the resource save options
 	 */
 	public static Map<Object, Object> getResourceSaveOptions() {
+		if (binaryPersistence) {
+			return getBinarySaveOptions();
+		}
 		// MK: the options below should only be used with resourcemodification
 		// tracking enabled
 		// if (resourceSaveOptions == null) {
@@ -154,6 +199,26 @@ public final class Configuration {
 		return null;
 	}
 
+	/**
+	 * Get the save options for the resources containing the model elements of a project.
+	 * 
+	 * @return the resource save options
+	 */
+	public static Map<Object, Object> getModelResourceSaveOptions() {
+		if (binaryPersistence) {
+			return getBinarySaveOptions();
+		}
+		return ModelUtil.getResourceSaveOptions();
+	}
+
+	private static synchronized Map<Object, Object> getBinarySaveOptions() {
+		if (binarySaveOptions == null) {
+			binarySaveOptions = new HashMap<Object, Object>();
+			binarySaveOptions.put(EMFStoreResource.OPTION_BINARY, Boolean.TRUE);
+		}
+		return binarySaveOptions;
+	}
+
 	/**
 	 * Get the default server info.
 	 * 
@@ -197,7 +262,35 @@ public final class Configuration {
 	 * @return the maximum number
 	 */
 	public static int getMaxMECountPerResource() {
-		return 1000;
+		return maxMECountPerResource;
+	}
+
+	/**
+	 * Sets the maximum number of model elements per resource. Applies to resources split afterwards.
+	 * 
+	 * @param count the maximum number
+	 */
+	public static void setMaxMECountPerResource(int count) {
+		Configuration.maxMECountPerResource = count;
+	}
+
+	/**
+	 * Whether to split the project of a project space into several resources of at most
+	 * {@link #getMaxMECountPerResource()} model elements, so only the changed parts are saved. Enabled by default.
+	 * 
+	 * @param enabled whether to split projects
+	 */
+	public static void setResourceSplitting(boolean enabled) {
+		Configuration.resourceSplitting = enabled;
+	}
+
+	/**
+	 * Whether projects are split into several resources.
+	 * 
+	 * @return true, if projects are split, false otherwise
+	 */
+	public static boolean isResourceSplittingEnabled() {
+		return resourceSplitting;
 	}
 
 	/**
@@ -281,6 +374,16 @@ public final class Configuration {
 		return UOC;
 	}
 
+	/**
+	 * Return the file extension for the journals of operations recorded since the last save of the local change
+	 * package.
+	 * 
+	 * @return the file extension
+	 */
+	public static String getOperationJournalFileExtension() {
+		return UOJ;
+	}
+
 	/**
 	 * Return the name of the project folder.
 	 * 
@@ -388,4 +491,211 @@ public final class Configuration {
 	public static boolean isAutoSaveEnabled() {
 		return autoSave;
 	}
+
+	/**
+	 * Whether to save the workspace and the project spaces in a compact binary format instead of XMI.
+	 * Files of both formats can be loaded, only files saved after the change use the new format.
+	 * 
+	 * @param enabled whether to enable the binary format
+	 */
+	public static void setBinaryPersistence(boolean enabled) {
+		Configuration.binaryPersistence = enabled;
+	}
+
+	/**
+	 * Whether the binary format is enabled.
+	 * 
+	 * @return true, if the workspace is saved in the binary format, false otherwise
+	 */
+	public static boolean isBinaryPersistenceEnabled() {
+		return binaryPersistence;
+	}
+
+	/**
+	 * Whether to request compressed transfer of EObjects when connecting to a server via XML RPC. Compression is only
+	 * used if the server supports it.
+	 * 
+	 * @param enabled whether to request compression
+	 */
+	public static void setXMLRPCCompression(boolean enabled) {
+		Configuration.xmlRPCCompression = enabled;
+	}
+
+	/**
+	 * Whether compressed transfer of EObjects is requested.
+	 * 
+	 * @return true, if compression is requested, false otherwise
+	 */
+	public static boolean isXMLRPCCompressionEnabled() {
+		return xmlRPCCompression;
+	}
+
+	/**
+	 * Whether an update applies the incoming changes on top of the local changes if they don't interfere, instead of
+	 * reverting the local changes and applying them again afterwards. Enabled by default.
+	 * 
+	 * @param enabled whether to enable incremental updates
+	 */
+	public static void setIncrementalUpdate(boolean enabled) {
+		Configuration.incrementalUpdate = enabled;
+	}
+
+	/**
+	 * Whether incremental updates are enabled.
+	 * 
+	 * @return true, if local changes are only reverted if necessary, false otherwise
+	 */
+	public static boolean isIncrementalUpdateEnabled() {
+		return incrementalUpdate;
+	}
+
+	/**
+	 * Sets the size of the chunks files are transferred in. The server may reduce the size to its configured maximum.
+	 * 
+	 * @param chunkSize the chunk size in bytes
+	 */
+	public static void setFileTransferChunkSize(int chunkSize) {
+		Configuration.fileTransferChunkSize = chunkSize;
+	}
+
+	/**
+	 * Returns the size of the chunks requested for file transfers.
+	 * 
+	 * @return the chunk size in bytes
+	 */
+	public static int getFileTransferChunkSize() {
+		return fileTransferChunkSize;
+	}
+
+	/**
+	 * Sets the number of chunks of a file transfer which are sent or requested at once.
+	 * 
+	 * @param parallelChunks the number of chunks, 1 transfers the chunks one after the other
+	 */
+	public static void setFileTransferParallelChunks(int parallelChunks) {
+		Configuration.fileTransferParallelChunks = parallelChunks;
+	}
+
+	/**
+	 * Returns the number of chunks of a file transfer which are sent or requested at once.
+	 * 
+	 * @return the number of chunks
+	 */
+	public static int getFileTransferParallelChunks() {
+		return fileTransferParallelChunks;
+	}
+
+	/**
+	 * Whether to write saved resources in a background thread. The resources are still serialized when saved, but
+	 * the files are written later, several saves of the same resource within the {@link #getResourceWriteDelay()
+	 * delay} being written once. Changes may be lost if the application is killed before they are written.
+	 * 
+	 * @param enabled whether to write resources in the background
+	 */
+	public static void setResourceWriteBehind(boolean enabled) {
+		Configuration.resourceWriteBehind = enabled;
+	}
+
+	/**
+	 * Whether resources are written in a background thread.
+	 * 
+	 * @return true, if resources are written in the background, false if they are written when saved
+	 */
+	public static boolean isResourceWriteBehindEnabled() {
+		return resourceWriteBehind;
+	}
+
+	/**
+	 * Sets the time saved resources are kept in memory before they are written in the background.
+	 * 
+	 * @param delay the delay in milliseconds, 0 writes resources as soon as possible
+	 */
+	public static void setResourceWriteDelay(int delay) {
+		Configuration.resourceWriteDelay = delay;
+	}
+
+	/**
+	 * Returns the time saved resources are kept in memory before they are written in the background.
+	 * 
+	 * @return the delay in milliseconds
+	 */
+	public static int getResourceWriteDelay() {
+		return resourceWriteDelay;
+	}
+
+	/**
+	 * Sets the size of the saved resources kept in memory from which on they are written without delay.
+	 * 
+	 * @param threshold the size in bytes
+	 */
+	public static void setResourceWriteThreshold(int threshold) {
+		Configuration.resourceWriteThreshold = threshold;
+	}
+
+	/**
+	 * Returns the size of the saved resources kept in memory from which on they are written without delay.
+	 * 
+	 * @return the size in bytes
+	 */
+	public static int getResourceWriteThreshold() {
+		return resourceWriteThreshold;
+	}
+
+	/**
+	 * Whether to force resources written in the background to the disk before they replace the previous files.
+	 * Enabled by default.
+	 * 
+	 * @param enabled whether to sync written resources
+	 */
+	public static void setResourceSync(boolean enabled) {
+		Configuration.resourceSync = enabled;
+	}
+
+	/**
+	 * Whether resources written in the background are forced to the disk.
+	 * 
+	 * @return true, if written resources are synced, false otherwise
+	 */
+	public static boolean isResourceSyncEnabled() {
+		return resourceSync;
+	}
+
+	/**
+	 * Whether to initialize the project spaces of a loaded workspace on the first access of their projects or
+	 * operations. Until then only the project spaces themselves are loaded, e.g. their names, base versions and dirty
+	 * states. Enabled by default.
+	 * 
+	 * @param enabled whether to initialize project spaces on demand
+	 */
+	public static void setProjectSpaceInitOnDemand(boolean enabled) {
+		Configuration.projectSpaceInitOnDemand = enabled;
+	}
+
+	/**
+	 * Whether the project spaces of a loaded workspace are initialized on demand.
+	 * 
+	 * @return true, if project spaces are initialized on their first access, false if they are initialized on load
+	 */
+	public static boolean isProjectSpaceInitOnDemandEnabled() {
+		return projectSpaceInitOnDemand;
+	}
+
+	/**
+	 * Sets the time a project space has to be unused before it may be unloaded if the heap runs short when another
+	 * project space is initialized. Unloaded project spaces are initialized again on their next access.
+	 * 
+	 * @param idleTime the time in milliseconds, 0 disables unloading, the default
+	 */
+	public static void setProjectSpaceUnloadIdleTime(int idleTime) {
+		Configuration.projectSpaceUnloadIdleTime = idleTime;
+	}
+
+	/**
+	 * Returns the time a project space has to be unused before it may be unloaded.
+	 * 
+	 * @return the time in milliseconds, 0 if project spaces are never unloaded
+	 */
+	public static int getProjectSpaceUnloadIdleTime() {
+		return projectSpaceUnloadIdleTime;
+	}
 }
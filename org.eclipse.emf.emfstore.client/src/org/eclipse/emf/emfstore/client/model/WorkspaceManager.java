@@ -11,8 +11,10 @@
 package org.eclipse.emf.emfstore.client.model;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -33,6 +35,8 @@ import org.eclipse.emf.emfstore.client.model.connectionmanager.KeyStoreManager;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.SessionManager;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.xmlrpc.XmlRpcAdminConnectionManager;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.xmlrpc.XmlRpcConnectionManager;
+import org.eclipse.emf.emfstore.client.model.impl.OperationJournal;
+import org.eclipse.emf.emfstore.client.model.impl.ResourceWriter;
 import org.eclipse.emf.emfstore.client.model.util.EMFStoreCommand;
 import org.eclipse.emf.emfstore.client.model.util.EditingDomainProvider;
 import org.eclipse.emf.emfstore.client.model.util.WorkspaceUtil;
@@ -99,6 +103,11 @@ public final class WorkspaceManager {
 	}
 
 	public static synchronized void destroy() {
+		try {
+			ResourceWriter.getInstance().flush();
+		} catch (IOException e) {
+			WorkspaceUtil.logException("Resources of the workspace couldn't be written!", e);
+		}
 		instance = null;
 	}
 
@@ -193,6 +202,8 @@ public final class WorkspaceManager {
 		Configuration.setAutoSave(true);
 
 		URI fileURI = URI.createFileURI(Configuration.getWorkspacePath());
+		// files whose replacement has been interrupted by a crash
+		FileUtil.restoreBackups(new File(Configuration.getWorkspaceDirectory()));
 		File workspaceFile = new File(Configuration.getWorkspacePath());
 		final Workspace workspace;
 		final Resource resource;
@@ -335,12 +346,17 @@ public final class WorkspaceManager {
 		for (File file : workspaceFile.listFiles()) {
 			if (file.getName().startsWith(Configuration.getProjectSpaceDirectoryPrefix())) {
 				String projectFilePath = file.getAbsolutePath() + File.separatorChar
-					+ Configuration.getProjectFolderName() + File.separatorChar + 0
-					+ Configuration.getProjectFragmentFileExtension();
-				URI projectURI = URI.createFileURI(projectFilePath);
+					+ Configuration.getProjectFolderName();
+				// the project is split into several fragments
+				File[] fragmentFiles = new File(projectFilePath).listFiles(new FileFilter() {
+					public boolean accept(File fragmentFile) {
+						return fragmentFile.getName().endsWith(Configuration.getProjectFragmentFileExtension());
+					}
+				});
 				String operationsFilePath = null;
+				File journalFile = null;
 				File[] listFiles = file.listFiles();
-				if (listFiles == null) {
+				if (listFiles == null || fragmentFiles == null || fragmentFiles.length == 0) {
 					WorkspaceUtil.logException("The migration of the project in projectspace at " + projectFilePath
 						+ " failed!", new IllegalStateException("Broken projectSpace!"));
 					continue;
@@ -348,6 +364,8 @@ public final class WorkspaceManager {
 				for (File subDirFile : listFiles) {
 					if (subDirFile.getName().endsWith(Configuration.getLocalChangePackageFileExtension())) {
 						operationsFilePath = subDirFile.getAbsolutePath();
+					} else if (subDirFile.getName().endsWith(Configuration.getOperationJournalFileExtension())) {
+						journalFile = subDirFile;
 					}
 				}
 				if (operationsFilePath == null) {
@@ -355,13 +373,35 @@ public final class WorkspaceManager {
 						+ " failed!", new IllegalStateException("Broken workspace!"));
 					backupAndRecreateWorkspace(resourceSet);
 				}
-				URI operationsURI = URI.createFileURI(operationsFilePath);
+				List<URI> modelURIs = new ArrayList<URI>();
+				Arrays.sort(fragmentFiles);
+				for (File fragmentFile : fragmentFiles) {
+					modelURIs.add(URI.createFileURI(fragmentFile.getAbsolutePath()));
+				}
+				modelURIs.add(URI.createFileURI(operationsFilePath));
 				try {
-					migrate(projectURI, operationsURI, workspaceModelVersion.getReleaseNumber());
+					// the operations of the journal are migrated as files of their own
+					List<File> journalOperations = new ArrayList<File>();
+					if (journalFile != null) {
+						journalOperations = OperationJournal.exportOperations(journalFile);
+						for (File operationFile : journalOperations) {
+							if (operationFile != null) {
+								modelURIs.add(URI.createFileURI(operationFile.getAbsolutePath()));
+							}
+						}
+					}
+					migrate(modelURIs, workspaceModelVersion.getReleaseNumber());
+					if (journalFile != null) {
+						OperationJournal.importOperations(journalFile, journalOperations);
+					}
 				} catch (EMFStoreMigrationException e) {
 					WorkspaceUtil.logException("The migration of the project in projectspace at " + projectFilePath
 						+ " failed!", e);
 					backupAndRecreateWorkspace(resourceSet);
+				} catch (IOException e) {
+					WorkspaceUtil.logException("The migration of the operation journal in projectspace at "
+						+ projectFilePath + " failed!", e);
+					backupAndRecreateWorkspace(resourceSet);
 				}
 			}
 		}
@@ -460,11 +500,7 @@ public final class WorkspaceManager {
 	 * @param sourceModelReleaseNumber
 	 * @throws EMFStoreMigrationException
 	 */
-	private void migrate(URI projectURI, URI changesURI, int sourceModelReleaseNumber)
-		throws EMFStoreMigrationException {
-		List<URI> modelURIs = new ArrayList<URI>();
-		modelURIs.add(projectURI);
-		modelURIs.add(changesURI);
+	private void migrate(List<URI> modelURIs, int sourceModelReleaseNumber) throws EMFStoreMigrationException {
 		EMFStoreMigratorUtil.getEMFStoreMigrator().migrate(modelURIs, sourceModelReleaseNumber,
 			new NullProgressMonitor());
 	}
@@ -48,6 +48,7 @@ public class XmlRpcClientManager {
 
 	private String serverInterface;
 	private XmlRpcClient client;
+	private EObjectTypeFactory typeFactory;
 
 	/**
 	 * Initializes the connection.
@@ -65,19 +66,18 @@ public class XmlRpcClientManager {
 			config.setReplyTimeout(Configuration.getXMLRPCReplyTimeout());
 			config.setContentLengthOptional(true);
 
-			client = new XmlRpcClient();
-			client.setTypeFactory(new EObjectTypeFactory(client));
-
-			XmlRpcSun15HttpTransportFactory factory = new XmlRpcSun15HttpTransportFactory(client);
+			XmlRpcClient xmlRpcClient = new XmlRpcClient();
+			XmlRpcSun15HttpTransportFactory factory = new XmlRpcSun15HttpTransportFactory(xmlRpcClient);
 
 			try {
 				factory.setSSLSocketFactory(KeyStoreManager.getInstance().getSSLContext().getSocketFactory());
 			} catch (CertificateStoreException e) {
 				throw new ConnectionException("Couldn't load certificate", e);
 			}
-			client.setTransportFactory(factory);
+			xmlRpcClient.setTransportFactory(factory);
 
-			client.setConfig(config);
+			xmlRpcClient.setConfig(config);
+			initConnection(xmlRpcClient);
 
 			// } catch (XmlRpcException e) {
 			// throw new ConnectionException("", e);
@@ -86,6 +86,39 @@ public class XmlRpcClientManager {
 		}
 	}
 
+	/**
+	 * Initializes the connection with a client whose transport and config are set already, e.g. a local one.
+	 * 
+	 * @param xmlRpcClient the client
+	 */
+	public void initConnection(XmlRpcClient xmlRpcClient) {
+		client = xmlRpcClient;
+		typeFactory = new EObjectTypeFactory(client);
+		client.setTypeFactory(typeFactory);
+	}
+
+	/**
+	 * Asks the server whether it supports compressed EObjects and enables compression for this connection if so.
+	 * Servers not knowing the request are treated as not supporting compression.
+	 * 
+	 * @param methodName name of the server method answering the request
+	 * @return true if compression was enabled
+	 * @throws ConnectionException if the connection isn't initialized
+	 */
+	public boolean negotiateCompression(String methodName) throws ConnectionException {
+		if (client == null) {
+			throw new ConnectionException(ConnectionManager.REMOTE);
+		}
+		boolean supported;
+		try {
+			supported = Boolean.TRUE.equals(client.execute(serverInterface + "." + methodName, new Object[0]));
+		} catch (XmlRpcException e) {
+			supported = false;
+		}
+		typeFactory.setCompressing(supported);
+		return supported;
+	}
+
 	private URL createURL(ServerInfo serverInfo) throws MalformedURLException {
 		checkUrl(serverInfo.getUrl());
 		return new URL("https", serverInfo.getUrl(), serverInfo.getPort(), "xmlrpc");
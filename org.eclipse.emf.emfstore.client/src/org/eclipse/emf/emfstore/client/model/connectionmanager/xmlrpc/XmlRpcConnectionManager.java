@@ -12,6 +12,7 @@ package org.eclipse.emf.emfstore.client.model.connectionmanager.xmlrpc;
 
 import java.util.List;
 
+import org.eclipse.emf.emfstore.client.model.Configuration;
 import org.eclipse.emf.emfstore.client.model.ServerInfo;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.AbstractConnectionManager;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.ConnectionManager;
@@ -53,6 +54,9 @@ public class XmlRpcConnectionManager extends AbstractConnectionManager<XmlRpcCli
 		throws EmfStoreException {
 		XmlRpcClientManager clientManager = new XmlRpcClientManager(XmlRpcConnectionHandler.EMFSTORE);
 		clientManager.initConnection(serverInfo);
+		if (Configuration.isXMLRPCCompressionEnabled()) {
+			clientManager.negotiateCompression("isCompressionSupported");
+		}
 		SessionId id = clientManager.callWithResult("logIn", SessionId.class, username, password, clientVersionInfo);
 		addConnectionProxy(id, clientManager);
 		return id;
@@ -110,6 +110,7 @@ public class CommitController extends ServerCall<PrimaryVersionSpec> {
 		getProgressMonitor().subTask("Finalizing commit");
 		getProjectSpace().setBaseVersion(newBaseVersion);
 		getProjectSpace().getOperations().clear();
+		getProjectSpace().saveChangePackage();
 
 		getProjectSpace().saveProjectSpaceOnly();
 
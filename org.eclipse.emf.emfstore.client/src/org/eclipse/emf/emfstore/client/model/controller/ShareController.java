@@ -94,6 +94,7 @@ public class ShareController extends ServerCall<Void> {
 		getProjectSpace().getFileTransferManager().uploadQueuedFiles(new NullProgressMonitor());
 
 		getProjectSpace().getOperations().clear();
+		getProjectSpace().saveChangePackage();
 		getProjectSpace().updateDirtyState();
 
 		getProgressMonitor().done();
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.emf.emfstore.client.model.Configuration;
 import org.eclipse.emf.emfstore.client.model.WorkspaceManager;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.ServerCall;
 import org.eclipse.emf.emfstore.client.model.controller.callbacks.UpdateCallback;
@@ -11,10 +12,13 @@ import org.eclipse.emf.emfstore.client.model.exceptions.ChangeConflictException;
 import org.eclipse.emf.emfstore.client.model.impl.ProjectSpaceBase;
 import org.eclipse.emf.emfstore.client.model.observers.UpdateObserver;
 import org.eclipse.emf.emfstore.server.conflictDetection.ConflictDetector;
+import org.eclipse.emf.emfstore.server.conflictDetection.IndexSensitiveConflictDetectionStrategy;
 import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
 import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
 import org.eclipse.emf.emfstore.server.model.versioning.PrimaryVersionSpec;
 import org.eclipse.emf.emfstore.server.model.versioning.VersionSpec;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.util.OperationTransformer;
 
 public class UpdateController extends ServerCall<PrimaryVersionSpec> {
 
@@ -69,15 +73,13 @@ public class UpdateController extends ServerCall<PrimaryVersionSpec> {
 		}
 
 		getProgressMonitor().subTask("Checking for conflicts");
-		ConflictDetector conflictDetector = new ConflictDetector();
-		for (ChangePackage change : changes) {
-			if (conflictDetector.doConflict(change, localchanges)) {
-				if (callback
-					.conflictOccurred(new ChangeConflictException(changes, getProjectSpace(), conflictDetector))) {
-					return getProjectSpace().getBaseVersion();
-				} else {
-					throw new ChangeConflictException(changes, getProjectSpace(), conflictDetector);
-				}
+		ConflictDetector conflictDetector = new ConflictDetector(new IndexSensitiveConflictDetectionStrategy(), true);
+		// the local changes are indexed once and checked against all incoming change packages
+		if (conflictDetector.doConflict(changes, localchanges)) {
+			if (callback.conflictOccurred(new ChangeConflictException(changes, getProjectSpace(), conflictDetector))) {
+				return getProjectSpace().getBaseVersion();
+			} else {
+				throw new ChangeConflictException(changes, getProjectSpace(), conflictDetector);
 			}
 		}
 		getProgressMonitor().worked(15);
@@ -91,14 +93,23 @@ public class UpdateController extends ServerCall<PrimaryVersionSpec> {
 
 		getProgressMonitor().subTask("Applying changes");
 		final List<ChangePackage> cps = changes;
-		// revert
-		getProjectSpace().revert();
-		// apply changes from repo
+		List<AbstractOperation> incomingOperations = new ArrayList<AbstractOperation>();
 		for (ChangePackage change : cps) {
-			getProjectSpace().applyOperations(change.getCopyOfOperations(), false);
+			incomingOperations.addAll(change.getCopyOfOperations());
+		}
+		if (Configuration.isIncrementalUpdateEnabled()
+			&& OperationTransformer.transform(getProjectSpace().getProject(), localchanges.getOperations(),
+				incomingOperations)) {
+			// apply changes from repo on top of the local changes
+			getProjectSpace().applyCopiedOperations(incomingOperations);
+		} else {
+			// revert
+			getProjectSpace().revert();
+			// apply changes from repo, the rejected transformation left them unchanged
+			getProjectSpace().applyCopiedOperations(incomingOperations);
+			// reapply local changes
+			getProjectSpace().applyOperations(localchanges.getCopyOfOperations(), true);
 		}
-		// reapply local changes
-		getProjectSpace().applyOperations(localchanges.getCopyOfOperations(), true);
 
 		getProjectSpace().setBaseVersion(resolvedVersion);
 		getProjectSpace().saveProjectSpaceOnly();
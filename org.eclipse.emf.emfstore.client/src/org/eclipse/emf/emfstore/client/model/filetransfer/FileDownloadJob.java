@@ -13,10 +13,12 @@ package org.eclipse.emf.emfstore.client.model.filetransfer;
 import java.io.File;
 import java.io.IOException;
 import java.rmi.RemoteException;
+import java.util.BitSet;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.emf.emfstore.client.model.Configuration;
 import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
 import org.eclipse.emf.emfstore.server.filetransfer.FileChunk;
 import org.eclipse.emf.emfstore.server.filetransfer.FilePartitionerUtil;
@@ -87,30 +89,29 @@ public class FileDownloadJob extends FileTransferJob {
 	}
 
 	/**
-	 * . {@inheritDoc}
+	 * Downloads the first chunk to retrieve the file size and the chunk size used by the server, then downloads the
+	 * remaining chunks.
 	 * 
 	 * @throws EmfStoreException
 	 * @throws RemoteException
 	 */
 	private boolean executeTransfer(IProgressMonitor monitor) throws RemoteException, EmfStoreException {
+		FileTransferInformation fileInformation = getFileInformation();
+		fileInformation.setChunkSize(Configuration.getFileTransferChunkSize());
+		FileChunk fileChunk = getConnectionManager().downloadFileChunk(getSessionId(), getProjectId(),
+			new FileTransferInformation(fileInformation));
+		FilePartitionerUtil.writeChunk(getFile(), fileChunk);
 
-		// download file chunk to retrieve filesize (file chunk is discarded)
-		FileChunk fileChunk = null;
-		fileChunk = getConnectionManager().downloadFileChunk(getSessionId(), getProjectId(), getFileInformation());
-
-		getFileInformation().setFileSize(fileChunk.getFileSize());
-		initializeMonitor(monitor);
+		fileInformation.setFileSize(fileChunk.getFileSize());
+		fileInformation.setChunkSize(fileChunk.getFileInformation().getChunkSize());
+		BitSet transferredChunks = new BitSet();
+		transferredChunks.set(0);
+		initializeMonitor(monitor, transferredChunks);
 		status.transferStarted(fileChunk.getFileSize());
-		do {
-			fileChunk = getConnectionManager().downloadFileChunk(getSessionId(), getProjectId(), getFileInformation());
-			FilePartitionerUtil.writeChunk(getFile(), fileChunk);
-			monitor.worked(1);
-			incrementChunkNumber();
-			if (isCanceled()) {
-				status.transferCancelled();
-				return false;
-			}
-		} while (!fileChunk.isLast());
+		if (!fileChunk.isLast() && !transferChunks(monitor, transferredChunks, getParallelChunks())) {
+			status.transferCancelled();
+			return false;
+		}
 
 		// Once the file is downloaded, it can be moved from the tmp folder to the cache
 		File result = getCache().moveTempFileToCache(getFileId());
@@ -118,4 +119,14 @@ public class FileDownloadJob extends FileTransferJob {
 		return true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void transferChunk(FileTransferInformation chunkInformation) throws EmfStoreException {
+		FileChunk fileChunk = getConnectionManager().downloadFileChunk(getSessionId(), getProjectId(),
+			chunkInformation);
+		FilePartitionerUtil.writeChunk(getFile(), fileChunk);
+	}
+
 }
@@ -11,13 +11,22 @@
 package org.eclipse.emf.emfstore.client.model.filetransfer;
 
 import java.io.File;
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.emf.emfstore.client.model.Configuration;
 import org.eclipse.emf.emfstore.client.model.WorkspaceManager;
 import org.eclipse.emf.emfstore.client.model.connectionmanager.ConnectionManager;
 import org.eclipse.emf.emfstore.client.model.impl.ProjectSpaceBase;
 import org.eclipse.emf.emfstore.client.model.util.EMFStoreCommand;
+import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.FileTransferException;
 import org.eclipse.emf.emfstore.server.filetransfer.FilePartitionerUtil;
 import org.eclipse.emf.emfstore.server.filetransfer.FileTransferInformation;
@@ -85,7 +94,94 @@ public abstract class FileTransferJob extends Job {
 	 * @param monitor monitor
 	 */
 	protected void setTotalWork(IProgressMonitor monitor) {
-		monitor.beginTask("Transfering ", (fileInformation.getFileSize() / FilePartitionerUtil.getChunkSize()));
+		monitor.beginTask("Transfering ", getNumberOfChunks());
+	}
+
+	/**
+	 * Returns the number of chunks of the file, based on the file size and the chunk size of the transfer information.
+	 * 
+	 * @return the number of chunks
+	 */
+	protected int getNumberOfChunks() {
+		return FilePartitionerUtil.getNumberOfChunks(fileInformation.getFileSize(), fileInformation.getChunkSize());
+	}
+
+	/**
+	 * Transfers all chunks of the file which haven't been transferred yet. Up to the given number of chunks are
+	 * transferred at once by {@link #transferChunk(FileTransferInformation)}, each with its own copy of the transfer
+	 * information.
+	 * 
+	 * @param monitor progress monitor, worked once per transferred chunk
+	 * @param transferredChunks the chunks which have already been transferred
+	 * @param parallelChunks the maximum number of chunks transferred at once
+	 * @return false if the transfer has been canceled, true otherwise
+	 * @throws EmfStoreException if the transfer of a chunk fails
+	 */
+	protected boolean transferChunks(IProgressMonitor monitor, BitSet transferredChunks, int parallelChunks)
+		throws EmfStoreException {
+		int chunkCount = getNumberOfChunks();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelChunks));
+		CompletionService<Object> completionService = new ExecutorCompletionService<Object>(executor);
+		try {
+			int pending = 0;
+			for (int chunk = transferredChunks.nextClearBit(0); chunk < chunkCount; chunk = transferredChunks
+				.nextClearBit(chunk + 1)) {
+				final FileTransferInformation chunkInformation = new FileTransferInformation(fileInformation);
+				chunkInformation.setChunkNumber(chunk);
+				// chunks are only read when their transfer starts, so at most parallelChunks are held in memory
+				completionService.submit(new Callable<Object>() {
+					public Object call() throws EmfStoreException {
+						transferChunk(chunkInformation);
+						return null;
+					}
+				});
+				pending++;
+			}
+			for (; pending > 0; pending--) {
+				awaitChunk(completionService);
+				monitor.worked(1);
+				if (isCanceled()) {
+					return false;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return true;
+	}
+
+	private void awaitChunk(CompletionService<Object> completionService) throws EmfStoreException {
+		try {
+			completionService.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FileTransferException("The file transfer has been interrupted!", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof EmfStoreException) {
+				throw (EmfStoreException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new FileTransferException("Could not transfer the file!", e.getCause());
+		}
+	}
+
+	/**
+	 * Transfers a single chunk. Called concurrently for different chunks by
+	 * {@link #transferChunks(IProgressMonitor, BitSet, int)}.
+	 * 
+	 * @param chunkInformation the transfer information containing the number of the chunk
+	 * @throws EmfStoreException if the transfer fails
+	 */
+	protected abstract void transferChunk(FileTransferInformation chunkInformation) throws EmfStoreException;
+
+	/**
+	 * Returns the configured number of chunks transferred at once.
+	 * 
+	 * @return the number of chunks
+	 */
+	protected int getParallelChunks() {
+		return Configuration.getFileTransferParallelChunks();
 	}
 
 	/**
@@ -97,21 +193,15 @@ public abstract class FileTransferJob extends Job {
 		super.canceling();
 	}
 
-	/**
-	 * Increments the chunk number by 1.
-	 */
-	protected void incrementChunkNumber() {
-		fileInformation.setChunkNumber(fileInformation.getChunkNumber() + 1);
-	}
-
 	/**
 	 * @param monitor progress monitor
+	 * @param transferredChunks the chunks which have already been transferred
 	 */
-	protected void initializeMonitor(IProgressMonitor monitor) {
+	protected void initializeMonitor(IProgressMonitor monitor, BitSet transferredChunks) {
 		// set monitor total work based on file size previously retrieved
 		setTotalWork(monitor);
 		// set progress based on how many file chunks that have already been sent
-		monitor.worked(fileInformation.getChunkNumber());
+		monitor.worked(transferredChunks.cardinality());
 	}
 
 	/**
@@ -10,9 +10,12 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.client.model.filetransfer;
 
+import java.util.BitSet;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.emf.emfstore.client.model.Configuration;
 import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.FileTransferException;
 import org.eclipse.emf.emfstore.server.filetransfer.FileChunk;
@@ -66,26 +69,37 @@ public class FileUploadJob extends FileTransferJob {
 	}
 
 	/**
-	 * Retrieves and writes the file chunks until the end flag is set in a file chunk.
+	 * Asks the server for the chunk size and the chunks it already has, then uploads the missing chunks.
 	 * 
-	 * @param fileChunk file chunk
 	 * @param monitor showing the progress of the transfer.
 	 * @throws EmfStoreException if any error occurs in the emf store
 	 */
 	private boolean executeTransfer(IProgressMonitor monitor) throws EmfStoreException {
-		FileChunk fileChunk;
-		initializeMonitor(monitor);
-		do {
-			fileChunk = FilePartitionerUtil.readChunk(getFile(), getFileInformation());
-			getConnectionManager().uploadFileChunk(getSessionId(), getProjectId(), fileChunk);
-			monitor.worked(1);
-			incrementChunkNumber();
-			if (isCanceled()) {
+		FileTransferInformation fileInformation = getFileInformation();
+		fileInformation.setChunkSize(Configuration.getFileTransferChunkSize());
+		fileInformation.setContentHash(FilePartitionerUtil.computeHash(getFile()));
+		// a chunk without data requests the state of the upload
+		FileTransferInformation uploadStatus = getConnectionManager().uploadFileChunk(getSessionId(), getProjectId(),
+			new FileChunk(new FileTransferInformation(fileInformation), false, null));
+		if (!uploadStatus.isComplete()) {
+			fileInformation.setChunkSize(uploadStatus.getChunkSize());
+			BitSet transferredChunks = uploadStatus.getTransferredChunks();
+			initializeMonitor(monitor, transferredChunks);
+			if (!transferChunks(monitor, transferredChunks, getParallelChunks())) {
 				return false;
 			}
-		} while (!fileChunk.isLast());
+		}
 		getTransferManager().removeWaitingUpload(getFileId());
 		return true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void transferChunk(FileTransferInformation chunkInformation) throws EmfStoreException {
+		FileChunk fileChunk = FilePartitionerUtil.readChunk(getFile(), chunkInformation);
+		getConnectionManager().uploadFileChunk(getSessionId(), getProjectId(), fileChunk);
+	}
+
 }
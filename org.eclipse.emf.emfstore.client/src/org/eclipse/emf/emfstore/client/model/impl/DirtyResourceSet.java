@@ -11,12 +11,19 @@
 package org.eclipse.emf.emfstore.client.model.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.emfstore.client.model.Configuration;
 import org.eclipse.emf.emfstore.client.model.util.WorkspaceUtil;
 import org.eclipse.emf.emfstore.common.EMFStoreResource;
 import org.eclipse.emf.emfstore.common.model.IdEObjectCollection;
@@ -32,6 +39,8 @@ import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
 public class DirtyResourceSet {
 
 	private Set<Resource> resources;
+	// saved resources whose files may not have been written by the resource writer yet
+	private final Set<Resource> writtenResources;
 	private final IdEObjectCollectionImpl collection;
 	private boolean resourcesPending;
 
@@ -45,6 +54,7 @@ public class DirtyResourceSet {
 	public DirtyResourceSet(IdEObjectCollectionImpl collection) {
 		this.collection = collection;
 		resources = new HashSet<Resource>();
+		writtenResources = new HashSet<Resource>();
 	}
 
 	/**
@@ -57,12 +67,35 @@ public class DirtyResourceSet {
 		resources.add(resource);
 	}
 
+	/**
+	 * Returns the dirty resources.
+	 * 
+	 * @return the resources, not to be modified
+	 */
+	public Set<Resource> getDirtyResources() {
+		return Collections.unmodifiableSet(resources);
+	}
+
 	/**
 	 * Save all dirty resources in this set.
 	 */
 	public void save() {
+		// resources whose files couldn't be written in the background are dirty again
+		for (Iterator<Resource> iterator = writtenResources.iterator(); iterator.hasNext();) {
+			Resource resource = iterator.next();
+			if (ResourceWriter.hasFailed(resource)) {
+				resources.add(resource);
+				iterator.remove();
+			} else if (!ResourceWriter.isPending(resource)) {
+				iterator.remove();
+			}
+		}
+
 		Set<Resource> resourcesToRemove = new HashSet<Resource>();
+		List<Resource> resourcesToSave = new ArrayList<Resource>();
 
+		// the ids of all dirty resources have to be set before any of them is saved, since a resource refers to the
+		// elements of other resources by their ids
 		for (Resource resource : resources) {
 
 			if (resource.getURI() == null || resource.getURI().toString().equals("")) {
@@ -70,8 +103,7 @@ public class DirtyResourceSet {
 			}
 
 			if (resource instanceof EMFStoreResource) {
-				((EMFStoreResource) resource).setIdToEObjectMap(collection.getIdToEObjectMap(),
-					collection.getEObjectToIdMap());
+				setIdMaps((EMFStoreResource) resource);
 			} else {
 				Set<EObject> modelElements = ModelUtil.getAllContainedModelElements(resource, false, false);
 
@@ -79,12 +111,19 @@ public class DirtyResourceSet {
 					setModelElementIdOnResource((XMIResource) resource, modelElement);
 				}
 			}
+			resourcesToSave.add(resource);
+		}
 
+		for (Resource resource : resourcesToSave) {
 			try {
-				resource.save(ModelUtil.getResourceSaveOptions());
+				ResourceWriter.save(resource, Configuration.getModelResourceSaveOptions());
 				resourcesToRemove.add(resource);
+				if (Configuration.isResourceWriteBehindEnabled()) {
+					writtenResources.add(resource);
+				}
 			} catch (IOException e) {
-				// ignore exception
+				// the resource stays dirty and is saved again with the next save
+				WorkspaceUtil.logException("Resource " + resource.getURI() + " couldn't be saved!", e);
 			}
 		}
 
@@ -99,27 +138,47 @@ public class DirtyResourceSet {
 		}
 	}
 
+	// the other resources keep the ids of their own elements, so only the elements of this resource need ids
+	private void setIdMaps(EMFStoreResource resource) {
+		Map<String, EObject> idToEObjectMap = new HashMap<String, EObject>();
+		Map<EObject, String> eObjectToIdMap = new HashMap<EObject, String>();
+		for (Iterator<EObject> iterator = resource.getAllContents(); iterator.hasNext();) {
+			EObject modelElement = iterator.next();
+			String modelElementId = getIDForEObject(modelElement);
+			if (modelElementId != null) {
+				idToEObjectMap.put(modelElementId, modelElement);
+				eObjectToIdMap.put(modelElement, modelElementId);
+			}
+		}
+		resource.setIdToEObjectMap(idToEObjectMap, eObjectToIdMap);
+	}
+
 	private void setModelElementIdOnResource(XMIResource resource, EObject modelElement) {
 
 		if (modelElement instanceof IdEObjectCollection) {
 			return;
 		}
 
-		ModelElementId modelElementId = getIDForEObject(modelElement);
+		String modelElementIdString = getIDForEObject(modelElement);
+		if (modelElementIdString == null) {
+			WorkspaceUtil.handleException(new IllegalStateException("No ID for model element" + modelElement));
+			return;
+		}
 
-		String modelElementIdString = modelElementId.getId();
-		resource.setID(modelElement, modelElementIdString);
+		// ids only change for new elements, setting an unchanged id would update the id maps of the resource
+		if (!modelElementIdString.equals(resource.getID(modelElement))) {
+			resource.setID(modelElement, modelElementIdString);
+		}
 	}
 
-	private ModelElementId getIDForEObject(EObject modelElement) {
-		ModelElementId modelElementId = collection.getModelElementId(modelElement);
+	private String getIDForEObject(EObject modelElement) {
+		String modelElementId = collection.getModelElementIdString(modelElement);
 
 		if (modelElementId == null) {
-			modelElementId = collection.getDeletedModelElementId(modelElement);
-		}
-
-		if (modelElementId == null) {
-			WorkspaceUtil.handleException(new IllegalStateException("No ID for model element" + modelElement));
+			ModelElementId deletedModelElementId = collection.getDeletedModelElementId(modelElement);
+			if (deletedModelElementId != null) {
+				modelElementId = deletedModelElementId.getId();
+			}
 		}
 
 		return modelElementId;
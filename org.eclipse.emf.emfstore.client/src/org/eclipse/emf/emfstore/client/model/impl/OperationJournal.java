@@ -0,0 +1,450 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.client.model.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.emfstore.client.model.Configuration;
+import org.eclipse.emf.emfstore.client.model.util.WorkspaceUtil;
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.common.model.util.SerializationException;
+import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+
+/**
+ * Appends the changes of the operations of a local change package to a journal file instead of saving the whole
+ * change package each time. The resource of the change package is the snapshot the journal starts from, it is only
+ * saved when the journal is compacted. Each record of the journal sets the operation at an index and drops the
+ * operations after it, a record without an operation only drops them. Since operations are only added and removed at
+ * the end of the list, a save appends the new operations only and doesn't depend on the number of operations recorded
+ * before.
+ * 
+ * The journal is compacted if a save would replace all operations anyway, e.g. after a commit, or if the journal
+ * mostly consists of records replaced by later ones. Replaying the records on the snapshot written by the compaction
+ * gives the same operations again, so a crash after writing the snapshot but before emptying the journal doesn't
+ * change them. Incomplete records at the end, e.g. written during a crash, are dropped by the replay. A complete record
+ * whose operation can't be read isn't dropped, the journal is kept as a copy instead and the operations read before
+ * are compacted into the snapshot on the next save.
+ * 
+ * The operations are serialized like the snapshot, so they have to be migrated together with it if the model changes,
+ * see {@link #exportOperations(File)}.
+ */
+public class OperationJournal {
+
+	// a record consists of the index, the length of the operation, the operation and the checksum
+	private static final int RECORD_OVERHEAD = 16;
+
+	// the snapshot isn't rewritten for less, the journal is read on load anyway
+	private static final long MIN_COMPACTION_WASTE = 65536;
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final String BROKEN_SUFFIX = ".broken";
+
+	private final ChangePackage changePackage;
+	private final File file;
+
+	// the operations as of the snapshot and the journal, and the size of their records, 0 if in the snapshot
+	private final List<AbstractOperation> journaledOperations;
+	private final List<Integer> recordSizes;
+	private long journalBytes;
+	private long liveBytes;
+	private long snapshotBytes;
+
+	// the index of the composite operation recording at the last save, it is changed without being replaced
+	private int openIndex;
+
+	// set if a record may have been written partially
+	private boolean broken;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param changePackage
+	 *            the change package, its resource is the snapshot of the journal
+	 * @param file
+	 *            the journal file
+	 */
+	public OperationJournal(ChangePackage changePackage, File file) {
+		this.changePackage = changePackage;
+		this.file = file;
+		journaledOperations = new ArrayList<AbstractOperation>();
+		recordSizes = new ArrayList<Integer>();
+		openIndex = -1;
+	}
+
+	/**
+	 * Applies the records of the journal to the operations of the change package, which have to be the ones of the
+	 * snapshot. An incomplete record is dropped from the journal with all records after it. If the operation of a
+	 * complete record can't be read, the records after it aren't applied either, but the journal is kept as a copy.
+	 */
+	public void replay() {
+		List<AbstractOperation> operations = changePackage.getOperations();
+		for (AbstractOperation operation : operations) {
+			journaledOperations.add(operation);
+			recordSizes.add(0);
+		}
+		snapshotBytes = getSnapshotFile().length();
+		if (!file.exists()) {
+			return;
+		}
+		long length = file.length();
+		try {
+			SerializationException unreadable = null;
+			DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				while (unreadable == null && journalBytes < length) {
+					Record record = readRecord(stream, length - journalBytes - RECORD_OVERHEAD);
+					if (record == null || record.index > journaledOperations.size()) {
+						break;
+					}
+					try {
+						applyRecord(record);
+					} catch (SerializationException e) {
+						unreadable = e;
+					}
+				}
+			} finally {
+				stream.close();
+			}
+			if (unreadable != null) {
+				keepBrokenJournal(unreadable);
+			} else if (journalBytes < length) {
+				WorkspaceUtil.logWarning("Dropped incomplete records of operation journal " + file + ".", null);
+				RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+				try {
+					randomAccessFile.setLength(journalBytes);
+				} finally {
+					randomAccessFile.close();
+				}
+			}
+		} catch (IOException e) {
+			WorkspaceUtil.logException("Operation journal " + file + " couldn't be read!", e);
+			broken = true;
+		}
+	}
+
+	private void keepBrokenJournal(SerializationException cause) throws IOException {
+		File copy = new File(file.getPath() + "." + System.currentTimeMillis() + BROKEN_SUFFIX);
+		FileUtil.copyFile(file, copy);
+		WorkspaceUtil.logException("Operation of journal " + file
+			+ " couldn't be read, the operations recorded after it are missing! The journal has been kept as " + copy
+			+ ".", cause);
+		// the next save compacts the operations read so far
+		broken = true;
+	}
+
+	private void applyRecord(Record record) throws SerializationException {
+		AbstractOperation operation = null;
+		if (record.content.length > 0) {
+			EObject eObject = ModelUtil.stringToEObject(new ByteArrayInputStream(record.content));
+			if (!(eObject instanceof AbstractOperation)) {
+				throw new SerializationException("The record doesn't contain an operation.");
+			}
+			operation = (AbstractOperation) eObject;
+		}
+		List<AbstractOperation> operations = changePackage.getOperations();
+		while (operations.size() > record.index) {
+			operations.remove(operations.size() - 1);
+		}
+		truncate(record.index);
+		if (operation != null) {
+			operations.add(operation);
+			journaledOperations.add(operation);
+			recordSizes.add(RECORD_OVERHEAD + record.content.length);
+			liveBytes += RECORD_OVERHEAD + record.content.length;
+		}
+		journalBytes += RECORD_OVERHEAD + record.content.length;
+	}
+
+	// returns null if the record is incomplete or corrupt
+	private static Record readRecord(DataInputStream stream, long maxContentLength) throws IOException {
+		try {
+			int index = stream.readInt();
+			int contentLength = stream.readInt();
+			if (index < 0 || contentLength < 0 || contentLength > maxContentLength) {
+				return null;
+			}
+			byte[] content = new byte[contentLength];
+			stream.readFully(content);
+			if (stream.readLong() != checksum(index, content)) {
+				return null;
+			}
+			return new Record(index, content);
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	private static List<Record> readRecords(File file) throws IOException {
+		List<Record> records = new ArrayList<Record>();
+		long length = file.length();
+		long read = 0;
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			while (read < length) {
+				Record record = readRecord(stream, length - read - RECORD_OVERHEAD);
+				if (record == null) {
+					break;
+				}
+				records.add(record);
+				read += RECORD_OVERHEAD + record.content.length;
+			}
+		} finally {
+			stream.close();
+		}
+		return records;
+	}
+
+	/**
+	 * Writes the operations of the records of a journal into files of their own, so they can be migrated to a new
+	 * model version together with the snapshot. The operations aren't read, so this works for any model version. The
+	 * files are named after the journal and have the extension of the local change package. Incomplete records at the
+	 * end are left out.
+	 * 
+	 * @param file
+	 *            the journal file
+	 * @return the files of the operations in the order of the records, null for records without operation
+	 * @throws IOException
+	 *             if the journal can't be read or a file can't be written
+	 */
+	public static List<File> exportOperations(File file) throws IOException {
+		List<File> operationFiles = new ArrayList<File>();
+		if (!file.exists()) {
+			return operationFiles;
+		}
+		for (Record record : readRecords(file)) {
+			if (record.content.length == 0) {
+				operationFiles.add(null);
+				continue;
+			}
+			File operationFile = new File(file.getPath() + "." + operationFiles.size()
+				+ Configuration.getLocalChangePackageFileExtension());
+			FileOutputStream stream = new FileOutputStream(operationFile);
+			try {
+				stream.write(record.content);
+			} finally {
+				stream.close();
+			}
+			operationFiles.add(operationFile);
+		}
+		return operationFiles;
+	}
+
+	/**
+	 * Replaces the operations of the records of a journal by the files written by {@link #exportOperations(File)},
+	 * e.g. after they have been migrated, and deletes the files.
+	 * 
+	 * @param file
+	 *            the journal file
+	 * @param operationFiles
+	 *            the files of the operations as returned by {@link #exportOperations(File)}
+	 * @throws IOException
+	 *             if the journal has changed since the export or can't be written
+	 */
+	public static void importOperations(File file, List<File> operationFiles) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		List<Record> records = readRecords(file);
+		if (records.size() != operationFiles.size()) {
+			throw new IOException("The operation journal " + file + " has changed since its operations were exported.");
+		}
+		File tempFile = new File(file.getPath() + ".tmp");
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			for (int i = 0; i < records.size(); i++) {
+				File operationFile = operationFiles.get(i);
+				byte[] content = operationFile == null ? new byte[0] : readFile(operationFile);
+				stream.writeInt(records.get(i).index);
+				stream.writeInt(content.length);
+				stream.write(content);
+				stream.writeLong(checksum(records.get(i).index, content));
+			}
+		} finally {
+			stream.close();
+		}
+		FileUtil.replaceFile(tempFile, file);
+		for (File operationFile : operationFiles) {
+			if (operationFile != null) {
+				operationFile.delete();
+			}
+		}
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		byte[] content = new byte[(int) file.length()];
+		DataInputStream stream = new DataInputStream(new FileInputStream(file));
+		try {
+			stream.readFully(content);
+		} finally {
+			stream.close();
+		}
+		return content;
+	}
+
+	/**
+	 * Appends the changes of the operations since the last save to the journal, or compacts it.
+	 * 
+	 * @param openOperation
+	 *            the composite operation currently recording, which is changed without being replaced, or null
+	 * @throws IOException
+	 *             if the journal or the snapshot can't be written
+	 */
+	public void save(AbstractOperation openOperation) throws IOException {
+		List<AbstractOperation> operations = changePackage.getOperations();
+		int common = 0;
+		int commonMax = Math.min(operations.size(), journaledOperations.size());
+		while (common < commonMax && operations.get(common) == journaledOperations.get(common)) {
+			common++;
+		}
+		if (openIndex >= 0 && openIndex < common) {
+			common = openIndex;
+		}
+		int last = operations.size() - 1;
+		openIndex = openOperation != null && last >= 0 && operations.get(last) == openOperation ? last : -1;
+
+		if (common == operations.size() && common == journaledOperations.size()) {
+			return;
+		}
+		if (common == 0 || broken) {
+			// the journal would replace all operations
+			compact();
+			return;
+		}
+		append(operations, common);
+		if (journalBytes - liveBytes > snapshotBytes + liveBytes + MIN_COMPACTION_WASTE) {
+			compact();
+		}
+	}
+
+	private void append(List<AbstractOperation> operations, int index) throws IOException {
+		truncate(index);
+		FileOutputStream fileStream = new FileOutputStream(file, true);
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(fileStream));
+		broken = true;
+		try {
+			if (index == operations.size()) {
+				writeRecord(stream, index, new byte[0]);
+			}
+			for (int i = index; i < operations.size(); i++) {
+				AbstractOperation operation = operations.get(i);
+				int recordSize = writeRecord(stream, i, serialize(operation));
+				journaledOperations.add(operation);
+				recordSizes.add(recordSize);
+				liveBytes += recordSize;
+			}
+			stream.flush();
+			if (Configuration.isResourceSyncEnabled()) {
+				fileStream.getFD().sync();
+			}
+			broken = false;
+		} finally {
+			stream.close();
+		}
+	}
+
+	private int writeRecord(DataOutputStream stream, int index, byte[] content) throws IOException {
+		stream.writeInt(index);
+		stream.writeInt(content.length);
+		stream.write(content);
+		stream.writeLong(checksum(index, content));
+		journalBytes += RECORD_OVERHEAD + content.length;
+		return RECORD_OVERHEAD + content.length;
+	}
+
+	/**
+	 * Saves the change package as the new snapshot and empties the journal.
+	 * 
+	 * @throws IOException
+	 *             if the snapshot can't be written or the journal can't be emptied
+	 */
+	public void compact() throws IOException {
+		ResourceWriter.save(changePackage.eResource(), Configuration.getResourceSaveOptions());
+		if (Configuration.isResourceWriteBehindEnabled()) {
+			// the journal may only be emptied once the snapshot has been written
+			ResourceWriter.getInstance().flush();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Couldn't delete " + file);
+		}
+		broken = false;
+		journaledOperations.clear();
+		recordSizes.clear();
+		for (AbstractOperation operation : changePackage.getOperations()) {
+			journaledOperations.add(operation);
+			recordSizes.add(0);
+		}
+		journalBytes = 0;
+		liveBytes = 0;
+		snapshotBytes = getSnapshotFile().length();
+	}
+
+	private void truncate(int size) {
+		while (journaledOperations.size() > size) {
+			journaledOperations.remove(journaledOperations.size() - 1);
+			liveBytes -= recordSizes.remove(recordSizes.size() - 1);
+		}
+	}
+
+	private File getSnapshotFile() {
+		return new File(changePackage.eResource().getURI().toFileString());
+	}
+
+	private static byte[] serialize(AbstractOperation operation) throws IOException {
+		try {
+			// the operation is moved into the resource serializing it
+			return ModelUtil.eObjectToString(ModelUtil.clone(operation), true, true, true).getBytes(ENCODING);
+		} catch (SerializationException e) {
+			IOException exception = new IOException("Operation couldn't be serialized!");
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	private static long checksum(int index, byte[] content) {
+		CRC32 crc = new CRC32();
+		crc.update(index >>> 24);
+		crc.update(index >>> 16);
+		crc.update(index >>> 8);
+		crc.update(index);
+		crc.update(content);
+		return crc.getValue();
+	}
+
+	/**
+	 * A record of the journal as read from the file.
+	 */
+	private static final class Record {
+		private final int index;
+		private final byte[] content;
+
+		private Record(int index, byte[] content) {
+			this.index = index;
+			this.content = content;
+		}
+	}
+}
@@ -10,10 +10,10 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.client.model.impl;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -29,7 +29,6 @@ import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature.Setting;
-import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
 import org.eclipse.emf.edit.domain.EditingDomain;
@@ -657,7 +656,7 @@ public class OperationRecorder implements CommandObserver, IdEObjectCollectionCh
 
 		if (compositeOperation != null) {
 			compositeOperation.getSubOperations().add(deleteOperation);
-			saveResource(compositeOperation.eResource());
+			projectSpace.saveChangePackage();
 		} else {
 			if (commandIsRunning) {
 				operations.add(deleteOperation);
@@ -716,7 +715,7 @@ public class OperationRecorder implements CommandObserver, IdEObjectCollectionCh
 		if (operation instanceof ReferenceOperation) {
 			ReferenceOperation referenceOperation = (ReferenceOperation) operation;
 			Set<ModelElementId> allInvolvedModelElements = referenceOperation.getAllInvolvedModelElements();
-			if (allInvolvedModelElements.removeAll(allDeletedElementsIds)) {
+			if (!Collections.disjoint(allInvolvedModelElements, allDeletedElementsIds)) {
 				return isDestructorReferenceOperation(referenceOperation);
 			}
 		}
@@ -867,7 +866,7 @@ public class OperationRecorder implements CommandObserver, IdEObjectCollectionCh
 			if (compositeOperation != null) {
 				compositeOperation.getSubOperations().addAll(ops);
 				// FIXME: ugly hack for recording of create operation cross references
-				saveResource(compositeOperation.eResource());
+				projectSpace.saveChangePackage();
 				return;
 			}
 
@@ -916,25 +915,4 @@ public class OperationRecorder implements CommandObserver, IdEObjectCollectionCh
 	public void emitOperationsWhenCommandCompleted(boolean emitOperationsImmediately) {
 		this.emitOperationsWhenCommandCompleted = emitOperationsImmediately;
 	}
-
-	/**
-	 * Saves the given resource.
-	 * If the passed resource is null, this method has no effect
-	 * 
-	 * @param resource
-	 *            the resource to be saved
-	 */
-	private void saveResource(Resource resource) {
-
-		if (resource == null) {
-			return;
-		}
-
-		try {
-			resource.save(ModelUtil.getResourceSaveOptions());
-		} catch (IOException e) {
-			String message = String.format("Resource %s could not be saved!", resource.getURI());
-			WorkspaceUtil.logWarning(message, null);
-		}
-	}
 }
@@ -98,6 +98,11 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 
 	private boolean initCompleted;
 
+	// set while the initialization is deferred until the first access
+	private boolean initPending;
+
+	private long lastAccessTime;
+
 	private boolean isTransient;
 
 	private ModifiedModelElementsCache modifiedModelElementsCache;
@@ -106,6 +111,8 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 
 	private OperationRecorder operationRecorder;
 
+	private OperationJournal operationJournal;
+
 	private PropertyManager propertyManager;
 
 	private HashMap<String, OrgUnitProperty> propertyMap;
@@ -131,7 +138,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @see org.eclipse.emf.emfstore.client.model.ProjectSpace#addFile(java.io.File)
 	 */
 	public FileIdentifier addFile(File file) throws FileTransferException {
-		return fileTransferManager.addFile(file);
+		return getFileTransferManager().addFile(file);
 	}
 
 	/**
@@ -193,12 +200,34 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @see #applyOperationsWithRecording(List, boolean)
 	 */
 	public void applyOperations(List<AbstractOperation> operations, boolean addOperations) {
+		applyOperations(operations, addOperations, false);
+	}
+
+	/**
+	 * Applies a list of copied operations to the project that are discarded afterwards. The model elements created by
+	 * the operations are moved into the project instead of being copied again. The change tracking will be stopped
+	 * meanwhile.
+	 * 
+	 * @param operations
+	 *            the copied operations, they must not be used after this call
+	 * 
+	 * @see AbstractOperation#applyAndDiscard(org.eclipse.emf.emfstore.common.model.IdEObjectCollection)
+	 */
+	public void applyCopiedOperations(List<AbstractOperation> operations) {
+		applyOperations(operations, false, true);
+	}
+
+	private void applyOperations(List<AbstractOperation> operations, boolean addOperations, boolean discardOperations) {
 		stopChangeRecording();
 
 		try {
 			for (AbstractOperation operation : operations) {
 				try {
-					operation.apply(getProject());
+					if (discardOperations) {
+						operation.applyAndDiscard(getProject());
+					} else {
+						operation.apply(getProject());
+					}
 					// BEGIN SUPRESS CATCH EXCEPTION
 				} catch (RuntimeException e) {
 					WorkspaceUtil.handleException(e);
@@ -264,7 +293,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @see org.eclipse.emf.emfstore.client.model.ProjectSpace#beginCompositeOperation()
 	 */
 	public CompositeOperationHandle beginCompositeOperation() {
-		return this.operationManager.beginCompositeOperation();
+		return getOperationManager().beginCompositeOperation();
 	}
 
 	/**
@@ -363,7 +392,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 *      org.eclipse.core.runtime.IProgressMonitor)
 	 */
 	public FileDownloadStatus getFile(FileIdentifier fileIdentifier) throws FileTransferException {
-		return fileTransferManager.getFile(fileIdentifier);
+		return getFileTransferManager().getFile(fileIdentifier);
 	}
 
 	/**
@@ -372,7 +401,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @see org.eclipse.emf.emfstore.client.model.ProjectSpace#getFileInfo(org.eclipse.emf.emfstore.server.model.FileIdentifier)
 	 */
 	public FileInformation getFileInfo(FileIdentifier fileIdentifier) {
-		return fileTransferManager.getFileInfo(fileIdentifier);
+		return getFileTransferManager().getFileInfo(fileIdentifier);
 	}
 
 	/**
@@ -407,6 +436,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @see org.eclipse.emf.emfstore.client.model.ProjectSpace#getModifiedModelElementsCache()
 	 */
 	public ModifiedModelElementsCache getModifiedModelElementsCache() {
+		initIfPending();
 		return modifiedModelElementsCache;
 	}
 
@@ -416,6 +446,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @return the recorder
 	 */
 	public NotificationRecorder getNotificationRecorder() {
+		initIfPending();
 		return this.operationRecorder.getNotificationRecorder();
 	}
 
@@ -426,6 +457,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @see org.eclipse.emf.emfstore.client.model.ProjectSpace#getOperationManager()
 	 */
 	public OperationManager getOperationManager() {
+		initIfPending();
 		return operationManager;
 	}
 
@@ -534,6 +566,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 */
 	@SuppressWarnings("unchecked")
 	public void init() {
+		initPending = false;
 		boolean useCrossReferenceAdapter = true;
 
 		for (ExtensionElement element : new ExtensionPoint("org.eclipse.emf.emfstore.client.inverseCrossReferenceCache")
@@ -548,6 +581,13 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 
 		EObjectChangeNotifier changeNotifier = getProject().getChangeNotifier();
 
+		// the operations recorded since the change package has been saved are in the journal
+		getOperations();
+		if (getLocalChangePackage().eResource() != null) {
+			operationJournal = new OperationJournal(getLocalChangePackage(), getOperationJournalFile());
+			operationJournal.replay();
+		}
+
 		initCompleted = true;
 		fileTransferManager = new FileTransferManager(this);
 		operationRecorder = new OperationRecorder(this, changeNotifier);
@@ -557,6 +597,8 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 		statePersister = new StatePersister(
 			((EMFStoreCommandStack) Configuration.getEditingDomain().getCommandStack()),
 			(IdEObjectCollectionImpl) this.getProject());
+		statePersister.setResourceFragmenter(new ResourceFragmenter(this));
+		statePersister.setSplitResource(Configuration.isResourceSplittingEnabled());
 		operationPersister = new OperationPersister(this);
 
 		EMFStoreCommandStack commandStack = (EMFStoreCommandStack) Configuration.getEditingDomain().getCommandStack();
@@ -596,9 +638,105 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @return the file transfer manager
 	 */
 	public FileTransferManager getFileTransferManager() {
+		initIfPending();
 		return fileTransferManager;
 	}
 
+	/**
+	 * Defers the initialization of the project space until its project or its operations are accessed for the first
+	 * time. Meanwhile only the project space itself is loaded, the project and the operations stay unresolved.
+	 */
+	public void initOnDemand() {
+		initPending = true;
+	}
+
+	/**
+	 * Initializes the project space if its initialization has been deferred, and notes the access.
+	 */
+	protected void initIfPending() {
+		lastAccessTime = System.currentTimeMillis();
+		if (initPending) {
+			init();
+			if (getWorkspace() instanceof WorkspaceImpl) {
+				((WorkspaceImpl) getWorkspace()).projectSpaceInitialized(this);
+			}
+		}
+	}
+
+	/**
+	 * Whether the project space is initialized, i.e. its project is loaded and its changes are recorded.
+	 * 
+	 * @return true, if the project space is initialized, false if its initialization is deferred
+	 */
+	public boolean isInitialized() {
+		return initCompleted && !initPending;
+	}
+
+	/**
+	 * Returns the time of the last access of the project, the operations or the managers of the project space.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public long getLastAccessTime() {
+		return lastAccessTime;
+	}
+
+	/**
+	 * Saves and unloads the project and the operations of the project space, it is initialized again on the next
+	 * access. Elements of the project still referenced elsewhere become proxies.
+	 * 
+	 * @return true, if the project space has been unloaded, false if it isn't initialized, is transient, is recording
+	 *         a composite operation or if its files couldn't be written
+	 */
+	public boolean unload() {
+		if (!isInitialized() || isTransient || operationRecorder.getCompositeOperation() != null) {
+			return false;
+		}
+		save();
+		try {
+			// the files are read again by the next access, so they must not be written in the background
+			ResourceWriter.getInstance().flush();
+		} catch (IOException e) {
+			WorkspaceUtil.logException("Project space " + getIdentifier() + " isn't unloaded, it couldn't be written!",
+				e);
+			return false;
+		}
+		stopChangeRecording();
+		operationManager.removeOperationListener(modifiedModelElementsCache);
+		operationManager.dispose();
+		WorkspaceManager.getObserverBus().unregister(this, LoginObserver.class);
+		EMFStoreCommandStack commandStack = (EMFStoreCommandStack) Configuration.getEditingDomain().getCommandStack();
+		commandStack.removeCommandStackObserver(operationRecorder);
+		commandStack.removeCommandStackObserver(statePersister);
+		commandStack.removeCommandStackObserver(operationPersister);
+
+		String pathToProject = Configuration.getWorkspaceDirectory() + Configuration.getProjectSpaceDirectoryPrefix()
+			+ getIdentifier();
+		List<Resource> toUnload = new ArrayList<Resource>();
+		for (Resource resource : resourceSet.getResources()) {
+			if (resource != eResource() && resource.getURI().isFile()
+				&& resource.getURI().toFileString().startsWith(pathToProject)) {
+				toUnload.add(resource);
+			}
+		}
+		// the project and the change package become proxies, which are resolved by the next access
+		for (Resource resource : toUnload) {
+			resource.unload();
+			resourceSet.getResources().remove(resource);
+		}
+
+		crossReferenceAdapter = null;
+		fileTransferManager = null;
+		operationRecorder = null;
+		operationManager = null;
+		operationJournal = null;
+		statePersister = null;
+		operationPersister = null;
+		initCompleted = false;
+		initPending = true;
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -615,15 +753,11 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 			+ Configuration.getProjectSpaceFileExtension();
 		String localChangePackageFileName = projectSpaceFileNamePrefix + this.getIdentifier()
 			+ Configuration.getLocalChangePackageFileExtension();
-		String projectFragementsFileNamePrefix = projectSpaceFileNamePrefix + Configuration.getProjectFolderName()
-			+ File.separatorChar;
 		URI projectSpaceURI = URI.createFileURI(projectSpaceFileName);
 		URI localChangePackageURI = URI.createFileURI(localChangePackageFileName);
 
 		setResourceCount(0);
-		String fileName = projectFragementsFileNamePrefix + getResourceCount()
-			+ Configuration.getProjectFragmentFileExtension();
-		URI fileURI = URI.createFileURI(fileName);
+		URI fileURI = getProjectFragmentURI(getResourceCount());
 
 		List<Resource> resources = new ArrayList<Resource>();
 		Resource resource = resourceSet.createResource(fileURI);
@@ -631,11 +765,17 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 		resource.getContents().add(this.getProject());
 		resources.add(resource);
 		setResourceCount(getResourceCount() + 1);
+		if (Configuration.isResourceSplittingEnabled()) {
+			resources.addAll(new ResourceFragmenter(this).split(resource));
+		}
 
 		for (EObject modelElement : getProject().getAllModelElements()) {
-			((XMIResource) resource).setID(modelElement, getProject().getModelElementId(modelElement).getId());
+			((XMIResource) modelElement.eResource()).setID(modelElement, getProject().getModelElementId(modelElement)
+				.getId());
 		}
 
+		// the change package is saved completely, a journal left of a project space with the same identifier is stale
+		getOperationJournalFile().delete();
 		Resource localChangePackageResource = resourceSet.createResource(localChangePackageURI);
 		if (this.getLocalChangePackage() == null) {
 			this.setLocalChangePackage(VersioningFactory.eINSTANCE.createChangePackage());
@@ -659,6 +799,24 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 		init();
 	}
 
+	/**
+	 * Returns the URI of a resource containing a part of the project.
+	 * 
+	 * @param index
+	 *            the number of the resource
+	 * @return the URI
+	 */
+	public URI getProjectFragmentURI(int index) {
+		return URI.createFileURI(Configuration.getWorkspaceDirectory() + Configuration.getProjectSpaceDirectoryPrefix()
+			+ getIdentifier() + File.separatorChar + Configuration.getProjectFolderName() + File.separatorChar + index
+			+ Configuration.getProjectFragmentFileExtension());
+	}
+
+	private File getOperationJournalFile() {
+		return new File(Configuration.getWorkspaceDirectory() + Configuration.getProjectSpaceDirectoryPrefix()
+			+ getIdentifier() + File.separatorChar + getIdentifier() + Configuration.getOperationJournalFileExtension());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -667,6 +825,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 */
 	@SuppressWarnings("unchecked")
 	public void delete() throws IOException {
+		initIfPending();
 		operationManager.removeOperationListener(modifiedModelElementsCache);
 		operationManager.dispose();
 		WorkspaceManager.getObserverBus().unregister(modifiedModelElementsCache);
@@ -677,6 +836,8 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 
 		String pathToProject = Configuration.getWorkspaceDirectory() + Configuration.getProjectSpaceDirectoryPrefix()
 			+ getIdentifier();
+		// files written in the background would reappear
+		ResourceWriter.getInstance().discard(new File(pathToProject));
 		List<Resource> toDelete = new ArrayList<Resource>();
 
 		for (Resource resource : resourceSet.getResources()) {
@@ -876,14 +1037,32 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 */
 	public void save() {
 		saveProjectSpaceOnly();
+		if (initPending) {
+			// neither the project nor the operations have been loaded
+			return;
+		}
 		saveChangePackage();
 		statePersister.saveDirtyResources(true);
 	}
 
-	private void saveChangePackage() {
+	/**
+	 * Saves the operations of the local change package. Only the changes since the last save are appended to the
+	 * journal of the operations once the project space is initialized.
+	 */
+	public void saveChangePackage() {
 		ChangePackage localChangePackage = getLocalChangePackage();
-		if (localChangePackage.eResource() != null) {
+		if (localChangePackage.eResource() == null) {
+			return;
+		}
+		if (operationJournal == null) {
 			saveResource(localChangePackage.eResource());
+			return;
+		}
+		try {
+			operationJournal.save(operationRecorder != null ? operationRecorder.getCompositeOperation() : null);
+		} catch (IOException e) {
+			WorkspaceUtil.logException("An error in the data was detected during save!"
+				+ " The safest way to deal with this problem is to delete this project and checkout again.", e);
 		}
 	}
 
@@ -902,7 +1081,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 				}
 				return;
 			}
-			resource.save(Configuration.getResourceSaveOptions());
+			ResourceWriter.save(resource, Configuration.getResourceSaveOptions());
 		} catch (IOException e) {
 			WorkspaceUtil.logException("An error in the data was detected during save!"
 				+ " The safest way to deal with this problem is to delete this project and checkout again.", e);
@@ -973,6 +1152,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @generated NOT
 	 */
 	public void startChangeRecording() {
+		initIfPending();
 		this.operationRecorder.startChangeRecording();
 		updateDirtyState();
 	}
@@ -984,6 +1164,7 @@ public abstract class ProjectSpaceBase extends IdentifiableElementImpl implement
 	 * @generated NOT
 	 */
 	public void stopChangeRecording() {
+		initIfPending();
 		this.operationRecorder.stopChangeRecording();
 	}
 
@@ -834,9 +834,10 @@ public class ProjectSpaceImpl extends ProjectSpaceBase implements ProjectSpace {
 	/**
 	 * <!-- begin-user-doc --> <!-- end-user-doc -->
 	 * 
-	 * @generated
+	 * @generated NOT
 	 */
 	public Project getProject() {
+		initIfPending();
 		if (project != null && project.eIsProxy()) {
 			InternalEObject oldProject = (InternalEObject) project;
 			project = (Project) eResolveProxy(oldProject);
@@ -1171,9 +1172,10 @@ public class ProjectSpaceImpl extends ProjectSpaceBase implements ProjectSpace {
 	 * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
 	 * 
-	 * @generated
+	 * @generated NOT
 	 */
 	public ChangePackage getLocalChangePackage() {
+		initIfPending();
 		if (localChangePackage != null && localChangePackage.eIsProxy()) {
 			InternalEObject oldLocalChangePackage = (InternalEObject) localChangePackage;
 			localChangePackage = (ChangePackage) eResolveProxy(oldLocalChangePackage);
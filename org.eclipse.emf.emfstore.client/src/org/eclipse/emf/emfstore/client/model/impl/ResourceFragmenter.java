@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.client.model.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.emfstore.client.model.Configuration;
+import org.eclipse.emf.emfstore.common.model.Project;
+
+/**
+ * Distributes the model elements of the project of a project space over several resources, the fragments, of at most
+ * {@link Configuration#getMaxMECountPerResource()} elements each. A fragment contains whole containment subtrees in
+ * depth-first order, so a subtree is only split if it doesn't fit into a fragment. The first fragment contains the
+ * project itself, the subtrees in the other fragments are still contained by their parents, in another fragment.
+ * Therefore only elements contained by a reference resolving proxies can start a fragment, a subtree without such
+ * references is never split and may exceed the maximum size of its fragment.
+ * 
+ * Elements added later are placed into the fragment of their container, if it has room left, otherwise into the
+ * fullest fragment with enough room left or a new one. Room freed by removed elements is reused this way. Since only the
+ * fragments containing changed elements are saved, a save doesn't rewrite the whole project.
+ */
+public class ResourceFragmenter {
+
+	private final ProjectSpaceBase projectSpace;
+
+	// known number of objects in each fragment, the sizes of changed fragments are removed until they are needed
+	private final Map<Resource, Integer> sizes;
+	private final Set<EObject> addedElements;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param projectSpace the project space whose project is split
+	 */
+	public ResourceFragmenter(ProjectSpaceBase projectSpace) {
+		this.projectSpace = projectSpace;
+		sizes = new HashMap<Resource, Integer>();
+		addedElements = new LinkedHashSet<EObject>();
+	}
+
+	/**
+	 * Splits the project, which has to be the only content of the given fragment, into fragments.
+	 * 
+	 * @param firstFragment the resource containing the project
+	 * @return the fragments created
+	 */
+	public List<Resource> split(Resource firstFragment) {
+		sizes.clear();
+		Set<Resource> changed = new LinkedHashSet<Resource>();
+		distribute(firstFragment.getAllContents(), firstFragment, firstFragment, changed);
+		changed.remove(firstFragment);
+		return new ArrayList<Resource>(changed);
+	}
+
+	/**
+	 * Notes an element added to the project, it is placed by the next call of {@link #placeAddedElements(Collection)}.
+	 * 
+	 * @param element the element, the elements contained by it are placed with it
+	 */
+	public void addElement(EObject element) {
+		addedElements.add(element);
+	}
+
+	/**
+	 * Places the elements added since the last call. Elements stay in the fragment of their container unless it
+	 * exceeds the maximum size.
+	 * 
+	 * @param changedResources the resources changed since the last call, their sizes are counted again
+	 * @return the fragments changed by moving elements, including the fragments created
+	 */
+	public Set<Resource> placeAddedElements(Collection<Resource> changedResources) {
+		for (Resource resource : changedResources) {
+			sizes.remove(resource);
+		}
+		if (addedElements.isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<Resource> changed = new LinkedHashSet<Resource>();
+		int max = Configuration.getMaxMECountPerResource();
+		for (EObject element : addedElements) {
+			Resource source = element.eResource();
+			if (source == null || !isFragment(source) || getSize(source) <= max) {
+				// removed again, or there is room left
+				continue;
+			}
+			// the element and its children are kept together if they fit into a fragment
+			int subtreeSize = count(EcoreUtil.<EObject> getAllContents(Collections.singleton(element)), source);
+			Resource target = getFragmentWithRoom(source, Math.min(subtreeSize, max));
+			distribute(EcoreUtil.<EObject> getAllContents(Collections.singleton(element)), source, target, changed);
+			sizes.remove(source);
+			changed.add(source);
+		}
+		addedElements.clear();
+		return changed;
+	}
+
+	/**
+	 * Moves the given elements into fragments, starting with the target. An element which can't be put into the
+	 * fragment of its container becomes a root of its new fragment.
+	 */
+	private void distribute(TreeIterator<EObject> elements, Resource source, Resource firstTarget,
+		Set<Resource> changed) {
+		Project project = projectSpace.getProject();
+		int max = Configuration.getMaxMECountPerResource();
+		Resource target = firstTarget;
+		int size = source == target ? 0 : getSize(target);
+		while (elements.hasNext()) {
+			EObject element = elements.next();
+			if (isInOtherResource(element, source)) {
+				// stored in another fragment before
+				elements.prune();
+				continue;
+			}
+			// elements without an id can't be referenced by a containment proxy, they stay with their container
+			boolean movable = element != project && element.eContainmentFeature().isResolveProxies()
+				&& project.getModelElementId(element) != null;
+			if (movable && size >= max) {
+				sizes.put(target, size);
+				// the source isn't chosen while elements are moved out of it
+				target = getFragmentWithRoom(source, 1);
+				size = getSize(target);
+			}
+			if (movable && element.eResource() != target) {
+				target.getContents().add(element);
+				changed.add(target);
+			}
+			if (element.eResource() == target) {
+				size++;
+			}
+		}
+		sizes.put(target, size);
+	}
+
+	private Resource getFragmentWithRoom(Resource excluded, int room) {
+		for (Resource resource : projectSpace.getProject().eResource().getResourceSet().getResources()) {
+			if (resource != excluded && isFragment(resource)) {
+				getSize(resource);
+			}
+		}
+		// the fullest fragment with enough room, so fragments with little content left are filled up again
+		Resource fullest = null;
+		int fullestSize = -1;
+		int maxSize = Configuration.getMaxMECountPerResource() - room;
+		for (Map.Entry<Resource, Integer> entry : sizes.entrySet()) {
+			int size = entry.getValue();
+			if (entry.getKey() != excluded && size <= maxSize && size > fullestSize) {
+				fullest = entry.getKey();
+				fullestSize = size;
+			}
+		}
+		return fullest != null ? fullest : createFragment();
+	}
+
+	private Resource createFragment() {
+		ResourceSet resourceSet = projectSpace.getProject().eResource().getResourceSet();
+		int index = projectSpace.getResourceCount();
+		URI uri = projectSpace.getProjectFragmentURI(index);
+		// the count isn't saved with the fragments, so fragments may exist beyond it
+		while (resourceSet.getResource(uri, false) != null || new File(uri.toFileString()).exists()) {
+			uri = projectSpace.getProjectFragmentURI(++index);
+		}
+		projectSpace.setResourceCount(index + 1);
+		Resource fragment = resourceSet.createResource(uri);
+		sizes.put(fragment, 0);
+		return fragment;
+	}
+
+	private int getSize(Resource fragment) {
+		Integer size = sizes.get(fragment);
+		if (size == null) {
+			size = count(fragment);
+			sizes.put(fragment, size);
+		}
+		return size;
+	}
+
+	/**
+	 * Counts the objects stored in a resource, without the ones contained by them but stored in other resources.
+	 * 
+	 * @param resource the resource
+	 * @return the number of objects
+	 */
+	public static int count(Resource resource) {
+		return count(resource.getAllContents(), resource);
+	}
+
+	private static int count(TreeIterator<EObject> iterator, Resource resource) {
+		int count = 0;
+		while (iterator.hasNext()) {
+			if (isInOtherResource(iterator.next(), resource)) {
+				iterator.prune();
+			} else {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isInOtherResource(EObject eObject, Resource resource) {
+		Resource directResource = ((InternalEObject) eObject).eDirectResource();
+		return directResource != null && directResource != resource;
+	}
+
+	private boolean isFragment(Resource resource) {
+		URI uri = resource.getURI();
+		URI folder = projectSpace.getProjectFragmentURI(0).trimSegments(1);
+		return uri != null && uri.segmentCount() > 0 && uri.trimSegments(1).equals(folder);
+	}
+}
@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.client.model.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.emfstore.client.model.Configuration;
+import org.eclipse.emf.emfstore.client.model.util.WorkspaceUtil;
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+
+/**
+ * Writes saved resources to their files in a background thread, if enabled by
+ * {@link Configuration#setResourceWriteBehind(boolean)}. A resource is serialized by the thread saving it, so the model
+ * is only accessed by the thread changing it, the file is written later. If a resource is saved again before its file
+ * has been written, only the newer content is written. Files are replaced by writing a temporary file first and
+ * renaming it with {@link FileUtil#replaceFile(File, File)}, so a crash leaves either the previous or the new content.
+ * A file which couldn't be written is reported by the next save or flush, and remembered until it is written again,
+ * so its resource can be saved again, see {@link #hasFailed(Resource)}.
+ */
+public final class ResourceWriter {
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static ResourceWriter instance;
+
+	// guarded by this
+	private final Map<File, byte[]> pendingFiles;
+	private final Set<File> failedFiles;
+	private long pendingBytes;
+	private long firstPendingTime;
+	private boolean writing;
+	private File writingFile;
+	private boolean flushRequested;
+	private IOException failure;
+	private Thread thread;
+
+	private ResourceWriter() {
+		pendingFiles = new LinkedHashMap<File, byte[]>();
+		failedFiles = new HashSet<File>();
+	}
+
+	/**
+	 * Returns the writer.
+	 * 
+	 * @return the writer singleton
+	 */
+	public static synchronized ResourceWriter getInstance() {
+		if (instance == null) {
+			instance = new ResourceWriter();
+		}
+		return instance;
+	}
+
+	/**
+	 * Saves a resource. The resource is written in the background if enabled and if it is stored in a file, otherwise
+	 * it is saved directly.
+	 * 
+	 * @param resource the resource
+	 * @param options the save options
+	 * @throws IOException if the resource can't be serialized or written, or if a file written in the background
+	 *             since the last save couldn't be written
+	 */
+	public static void save(Resource resource, Map<?, ?> options) throws IOException {
+		URI uri = resource.getURI();
+		if (!Configuration.isResourceWriteBehindEnabled() || uri == null || !uri.isFile()) {
+			resource.save(options);
+			return;
+		}
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		resource.save(stream, options);
+		getInstance().write(new File(uri.toFileString()), stream.toByteArray());
+	}
+
+	/**
+	 * Returns whether the file of a resource is waiting to be written in the background.
+	 * 
+	 * @param resource the resource
+	 * @return true if the file is pending or currently being written
+	 */
+	public static boolean isPending(Resource resource) {
+		File file = getFile(resource);
+		if (file == null) {
+			return false;
+		}
+		ResourceWriter writer = getInstance();
+		synchronized (writer) {
+			return writer.pendingFiles.containsKey(file) || writer.writing && file.equals(writer.writingFile);
+		}
+	}
+
+	/**
+	 * Returns whether the file of a resource couldn't be written in the background. The resource has to be saved
+	 * again, its content is lost otherwise.
+	 * 
+	 * @param resource the resource
+	 * @return true if the last background write of the file failed and the file hasn't been saved again since
+	 */
+	public static boolean hasFailed(Resource resource) {
+		File file = getFile(resource);
+		if (file == null) {
+			return false;
+		}
+		ResourceWriter writer = getInstance();
+		synchronized (writer) {
+			return writer.failedFiles.contains(file);
+		}
+	}
+
+	private static File getFile(Resource resource) {
+		URI uri = resource.getURI();
+		if (uri == null || !uri.isFile()) {
+			return null;
+		}
+		return new File(uri.toFileString());
+	}
+
+	/**
+	 * Writes content to a file in the background. Content for the same file not written yet is replaced.
+	 * 
+	 * @param file the file
+	 * @param content the content
+	 * @throws IOException if a file written in the background since the last write or flush couldn't be written, the
+	 *             content is written anyway
+	 */
+	public synchronized void write(File file, byte[] content) throws IOException {
+		if (pendingFiles.isEmpty()) {
+			firstPendingTime = System.currentTimeMillis();
+		}
+		// a replaced file keeps its position, so files are written in the order they have first been saved
+		byte[] replaced = pendingFiles.put(file, content);
+		failedFiles.remove(file);
+		pendingBytes += content.length - (replaced == null ? 0 : replaced.length);
+		if (thread == null) {
+			start();
+		}
+		notifyAll();
+		throwFailure();
+	}
+
+	/**
+	 * Writes all pending files and waits until they have been written.
+	 * 
+	 * @throws IOException if a file written in the background since the last write or flush couldn't be written
+	 */
+	public synchronized void flush() throws IOException {
+		flushRequested = true;
+		notifyAll();
+		boolean interrupted = false;
+		while (!pendingFiles.isEmpty() || writing) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		throwFailure();
+	}
+
+	private void throwFailure() throws IOException {
+		if (failure == null) {
+			return;
+		}
+		IOException exception = new IOException("A resource couldn't be written in the background: "
+			+ failure.getMessage());
+		exception.initCause(failure);
+		failure = null;
+		throw exception;
+	}
+
+	/**
+	 * Discards the pending files in a directory, e.g. because it is deleted. Waits until a file of the directory
+	 * currently being written has been written.
+	 * 
+	 * @param directory the directory
+	 */
+	public synchronized void discard(File directory) {
+		String path = directory.getAbsolutePath() + File.separator;
+		for (Iterator<Map.Entry<File, byte[]>> iterator = pendingFiles.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<File, byte[]> entry = iterator.next();
+			if (entry.getKey().getAbsolutePath().startsWith(path)) {
+				pendingBytes -= entry.getValue().length;
+				iterator.remove();
+			}
+		}
+		for (Iterator<File> iterator = failedFiles.iterator(); iterator.hasNext();) {
+			if (iterator.next().getAbsolutePath().startsWith(path)) {
+				iterator.remove();
+			}
+		}
+		boolean interrupted = false;
+		while (writing) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void start() {
+		thread = new Thread(new Runnable() {
+			public void run() {
+				while (true) {
+					writeNext();
+				}
+			}
+		}, "EMFStore resource writer");
+		thread.setDaemon(true);
+		thread.start();
+		// pending files are written before the VM exits
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				try {
+					flush();
+				} catch (IOException e) {
+					WorkspaceUtil.logException("Resources couldn't be written on shutdown!", e);
+				}
+			}
+		}, "EMFStore resource writer shutdown"));
+	}
+
+	private void writeNext() {
+		File file;
+		byte[] content;
+		synchronized (this) {
+			try {
+				while (pendingFiles.isEmpty()) {
+					flushRequested = false;
+					wait();
+				}
+				// more saves of the pending resources are awaited, unless enough content is pending already
+				long delay = firstPendingTime + Configuration.getResourceWriteDelay() - System.currentTimeMillis();
+				while (!flushRequested && delay > 0 && pendingBytes < Configuration.getResourceWriteThreshold()) {
+					wait(delay);
+					delay = firstPendingTime + Configuration.getResourceWriteDelay() - System.currentTimeMillis();
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+			// once started, all pending files are written, including the ones saved meanwhile
+			flushRequested = true;
+			Iterator<Map.Entry<File, byte[]>> iterator = pendingFiles.entrySet().iterator();
+			Map.Entry<File, byte[]> entry = iterator.next();
+			iterator.remove();
+			file = entry.getKey();
+			content = entry.getValue();
+			pendingBytes -= content.length;
+			writing = true;
+			writingFile = file;
+		}
+		try {
+			writeFile(file, content);
+		} catch (IOException e) {
+			WorkspaceUtil.logException("Resource " + file + " couldn't be written!", e);
+			synchronized (this) {
+				if (failure == null) {
+					failure = e;
+				}
+				// newer content saved meanwhile is written anyway
+				if (!pendingFiles.containsKey(file)) {
+					failedFiles.add(file);
+				}
+			}
+		} finally {
+			synchronized (this) {
+				writing = false;
+				writingFile = null;
+				notifyAll();
+			}
+		}
+	}
+
+	private static void writeFile(File file, byte[] content) throws IOException {
+		file.getParentFile().mkdirs();
+		File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+		FileOutputStream stream = new FileOutputStream(tempFile);
+		try {
+			stream.write(content);
+			if (Configuration.isResourceSyncEnabled()) {
+				stream.getFD().sync();
+			}
+		} finally {
+			stream.close();
+		}
+		FileUtil.replaceFile(tempFile, file);
+	}
+}
@@ -53,6 +53,7 @@ public class StatePersister implements CommandObserver, IdEObjectCollectionChang
 	 * added.
 	 */
 	private boolean splitResource;
+	private ResourceFragmenter resourceFragmenter;
 	private EMFStoreCommandStack commandStack;
 	private FilterStack filterStack;
 
@@ -146,6 +147,11 @@ public class StatePersister implements CommandObserver, IdEObjectCollectionChang
 	 */
 	public void saveDirtyResources(boolean force) {
 		if (force || Configuration.isAutoSaveEnabled()) {
+			if (splitResource && resourceFragmenter != null) {
+				for (Resource resource : resourceFragmenter.placeAddedElements(dirtyResourceSet.getDirtyResources())) {
+					dirtyResourceSet.addDirtyResource(resource);
+				}
+			}
 			dirtyResourceSet.save();
 		}
 	}
@@ -180,6 +186,9 @@ public class StatePersister implements CommandObserver, IdEObjectCollectionChang
 	 */
 	public void modelElementAdded(IdEObjectCollection rootEObject, EObject modelElement) {
 		addToDirtyResources(modelElement);
+		if (splitResource && resourceFragmenter != null) {
+			resourceFragmenter.addElement(modelElement);
+		}
 	}
 
 	/**
@@ -215,6 +224,16 @@ public class StatePersister implements CommandObserver, IdEObjectCollectionChang
 		this.splitResource = splitResource;
 	}
 
+	/**
+	 * Sets the fragmenter placing added model elements if resource splitting is enabled.
+	 * 
+	 * @param resourceFragmenter
+	 *            the fragmenter
+	 */
+	public void setResourceFragmenter(ResourceFragmenter resourceFragmenter) {
+		this.resourceFragmenter = resourceFragmenter;
+	}
+
 	/**
 	 * Determines whether resource splitting is enabled.
 	 * 
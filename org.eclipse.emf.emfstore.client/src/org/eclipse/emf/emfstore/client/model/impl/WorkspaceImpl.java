@@ -110,6 +110,13 @@ public class WorkspaceImpl extends EObjectImpl implements Workspace {
 	 */
 	private Map<Project, ProjectSpace> projectToProjectSpaceMap;
 
+	/**
+	 * The share of the maximum heap size from which on idle project spaces are unloaded.
+	 * 
+	 * @generated NOT
+	 */
+	private static final double UNLOAD_HEAP_USAGE = 0.75;
+
 	/**
 	 * The cached value of the '{@link #getServerInfos() <em>Server Infos</em>}' containment reference list.
 	 * <!-- begin-user-doc --> <!-- end-user-doc -->
@@ -787,8 +794,41 @@ public class WorkspaceImpl extends EObjectImpl implements Workspace {
 		projectToProjectSpaceMap = new HashMap<Project, ProjectSpace>();
 		// initialize all projectSpaces
 		for (ProjectSpace projectSpace : getProjectSpaces()) {
-			projectSpace.init();
-			projectToProjectSpaceMap.put(projectSpace.getProject(), projectSpace);
+			if (Configuration.isProjectSpaceInitOnDemandEnabled() && projectSpace instanceof ProjectSpaceBase) {
+				// registered once initialized by the first access
+				((ProjectSpaceBase) projectSpace).initOnDemand();
+			} else {
+				projectSpace.init();
+				projectToProjectSpaceMap.put(projectSpace.getProject(), projectSpace);
+			}
+		}
+	}
+
+	/**
+	 * Registers a project space initialized on demand. If the heap runs short, the project spaces unused for
+	 * {@link Configuration#getProjectSpaceUnloadIdleTime()} are unloaded.
+	 * 
+	 * @param initialized the project space
+	 */
+	void projectSpaceInitialized(ProjectSpaceBase initialized) {
+		projectToProjectSpaceMap.put(initialized.getProject(), initialized);
+		int idleTime = Configuration.getProjectSpaceUnloadIdleTime();
+		Runtime runtime = Runtime.getRuntime();
+		if (idleTime <= 0 || runtime.totalMemory() - runtime.freeMemory() < runtime.maxMemory() * UNLOAD_HEAP_USAGE) {
+			return;
+		}
+		long idleSince = System.currentTimeMillis() - idleTime;
+		for (ProjectSpace projectSpace : getProjectSpaces()) {
+			if (projectSpace == initialized || !(projectSpace instanceof ProjectSpaceBase)) {
+				continue;
+			}
+			ProjectSpaceBase base = (ProjectSpaceBase) projectSpace;
+			if (base.isInitialized() && base.getLastAccessTime() < idleSince) {
+				Project project = ((ProjectSpaceImpl) base).basicGetProject();
+				if (base.unload()) {
+					projectToProjectSpaceMap.remove(project);
+				}
+			}
 		}
 	}
 
@@ -120,7 +120,7 @@ public final class ResourceHelper {
 		if (resource instanceof XMIResource) {
 			XMIResource xmiResource = (XMIResource) resource;
 			for (EObject modelElement : project.getAllModelElements()) {
-				String modelElementId = project.getModelElementId(modelElement).getId();
+				String modelElementId = project.getModelElementIdString(modelElement);
 				xmiResource.setID(modelElement, modelElementId);
 			}
 		}
@@ -151,7 +151,7 @@ public final class ResourceHelper {
 				TreeIterator<EObject> it = project.eAllContents();
 				while (it.hasNext()) {
 					EObject modelElement = it.next();
-					String modelElementId = project.getModelElementId(modelElement).getId();
+					String modelElementId = project.getModelElementIdString(modelElement);
 					xmiResource.setID(modelElement, modelElementId);
 				}
 			}
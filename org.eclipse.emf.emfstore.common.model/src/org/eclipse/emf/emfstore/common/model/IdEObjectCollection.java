@@ -83,6 +83,15 @@ public interface IdEObjectCollection extends EObject {
 	 */
 	ModelElementId getModelElementId(EObject modelElement);
 
+	/**
+	 * Retrieve the ID of the given model element as string, without creating a {@link ModelElementId}.
+	 * 
+	 * @param modelElement
+	 *            the model element
+	 * @return the ID of the given model element
+	 */
+	String getModelElementIdString(EObject modelElement);
+
 	/**
 	 * Returns the model element with the given {@link ModelElementId}.
 	 * 
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,14 +26,15 @@ import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature.Setting;
 import org.eclipse.emf.ecore.impl.EObjectImpl;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
 import org.eclipse.emf.ecore.util.EcoreUtil.UsageCrossReferencer;
 import org.eclipse.emf.ecore.xmi.XMIResource;
 import org.eclipse.emf.emfstore.common.IDisposable;
 import org.eclipse.emf.emfstore.common.model.IdEObjectCollection;
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
-import org.eclipse.emf.emfstore.common.model.ModelFactory;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.common.model.util.PackedModelElementId;
 
 /**
  * Implementation of an ID based storage mechanism {@link EObject}s.
@@ -41,9 +43,8 @@ import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
  */
 public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdEObjectCollection, IDisposable {
 
-	// Caches
-	private Map<EObject, String> eObjectToIdCache;
-	private Map<String, EObject> idToEObjectCache;
+	// Caches, the ids are packed since ModelElementIds or id strings would take most of the memory of the caches
+	private ModelElementIdIndex idIndex;
 	private boolean cachesInitialized;
 
 	/**
@@ -52,16 +53,15 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 * the deleted elements will be restored, e.g. by means of an undo operation.
 	 */
 	private Map<EObject, ModelElementId> newEObjectToIdMap;
-	private HashMap<ModelElementId, EObject> newIdMapToEObject;
+	private Map<PackedModelElementId, EObject> newIdMapToEObject;
 
 	/**
 	 * Constructor.
 	 */
 	public IdEObjectCollectionImpl() {
-		eObjectToIdCache = new HashMap<EObject, String>();
-		idToEObjectCache = new HashMap<String, EObject>();
-		newEObjectToIdMap = new HashMap<EObject, ModelElementId>();
-		newIdMapToEObject = new HashMap<ModelElementId, EObject>();
+		idIndex = new ModelElementIdIndex();
+		newEObjectToIdMap = new IdentityHashMap<EObject, ModelElementId>();
+		newIdMapToEObject = new HashMap<PackedModelElementId, EObject>();
 	}
 
 	/**
@@ -96,16 +96,15 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			}
 
 			String id = xmiResource.getID(eObject);
-			ModelElementId eObjectId = ModelFactory.eINSTANCE.createModelElementId();
 
 			if (id != null) {
-				eObjectId.setId(id);
 				resourceHasIds = true;
 			} else {
-				xmiResource.setID(eObject, eObjectId.getId());
+				id = EcoreUtil.generateUUID();
+				xmiResource.setID(eObject, id);
 			}
 
-			putIntoCaches(eObject, eObjectId.getId());
+			putIntoCaches(eObject, PackedModelElementId.valueOf(id));
 		}
 
 		if (resourceHasIds) {
@@ -195,7 +194,7 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			return null;
 		}
 
-		EObject eObject = newIdMapToEObject.get(modelElementId);
+		EObject eObject = newIdMapToEObject.get(PackedModelElementId.valueOf(modelElementId));
 		return eObject != null ? eObject : ModelUtil.getSingleton(modelElementId);
 	}
 
@@ -206,41 +205,59 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 * @see org.eclipse.emf.emfstore.common.model.IdEObjectCollection#getModelElementId(org.eclipse.emf.ecore.EObject)
 	 */
 	public ModelElementId getModelElementId(EObject eObject) {
+		PackedModelElementId id = idIndex.getId(eObject);
 
-		if (!eObjectToIdCache.containsKey(eObject) && !isCacheInitialized()) {
+		if (id == null && !isCacheInitialized()) {
+			id = loadModelElementId(eObject);
+			if (id == null) {
+				return null;
+			}
+		}
 
-			// EObject contained in project, load ID from resource
-			try {
-				Resource resource = eObject.eResource();
+		return id != null ? id.toModelElementId() : ModelUtil.getSingletonModelElementId(eObject);
+	}
 
-				// EM: is this a potential error case we have to consider?
-				if (!(resource instanceof XMIResource)) {
-					return null;
-				}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.emfstore.common.model.IdEObjectCollection#getModelElementIdString(org.eclipse.emf.ecore.EObject)
+	 */
+	public String getModelElementIdString(EObject eObject) {
+		String id = idIndex.getIdString(eObject);
 
-				XMIResource xmiResource = (XMIResource) resource;
-				xmiResource.load(null);
-				ModelElementId modelElementId = ModelFactory.eINSTANCE.createModelElementId();
-				String id = xmiResource.getID(eObject);
+		if (id == null && !isCacheInitialized()) {
+			PackedModelElementId loadedId = loadModelElementId(eObject);
+			return loadedId != null ? loadedId.getId() : null;
+		}
 
-				if (id != null) {
-					// change generated ID if one has been found in the resource
-					modelElementId.setId(id);
-				}
+		if (id != null) {
+			return id;
+		}
+		ModelElementId singletonId = ModelUtil.getSingletonModelElementId(eObject);
+		return singletonId != null ? singletonId.getId() : null;
+	}
 
-				eObjectToIdCache.put(eObject, modelElementId.getId());
-				return modelElementId;
+	private PackedModelElementId loadModelElementId(EObject eObject) {
+		// EObject contained in project, load ID from resource
+		try {
+			Resource resource = eObject.eResource();
 
-			} catch (IOException e) {
-				throw new RuntimeException("Couldn't load resource for model element " + eObject);
+			// EM: is this a potential error case we have to consider?
+			if (!(resource instanceof XMIResource)) {
+				return null;
 			}
-		}
 
-		String id = eObjectToIdCache.get(eObject);
-		ModelElementId modelElementId = ModelFactory.eINSTANCE.createModelElementId();
-		modelElementId.setId(id);
+			XMIResource xmiResource = (XMIResource) resource;
+			xmiResource.load(null);
+			String id = xmiResource.getID(eObject);
+
+			PackedModelElementId packedId = PackedModelElementId.valueOf(id != null ? id : EcoreUtil.generateUUID());
+			idIndex.put(eObject, packedId);
+			return packedId;
 
-		return id != null ? modelElementId : ModelUtil.getSingletonModelElementId(eObject);
+		} catch (IOException e) {
+			throw new RuntimeException("Couldn't load resource for model element " + eObject);
+		}
 	}
 
 	/**
@@ -259,7 +276,7 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			initCaches();
 		}
 
-		EObject eObject = getIdToEObjectCache().get(modelElementId.getId());
+		EObject eObject = getIdIndex().getElement(PackedModelElementId.valueOf(modelElementId));
 
 		return eObject != null ? eObject : ModelUtil.getSingleton(modelElementId);
 	}
@@ -346,14 +363,14 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	}
 
 	/**
-	 * Returns the {@link ModelElementId} for the given model element. If no
+	 * Returns the ID for the given model element. If no
 	 * such ID exists, a new one will be created.
 	 * 
 	 * @param modelElement
-	 *            a model element to fetch a {@link ModelElementId} for
-	 * @return the {@link ModelElementId} for the given model element
+	 *            a model element to fetch an ID for
+	 * @return the ID for the given model element
 	 */
-	private ModelElementId getIdForModelElement(EObject modelElement) {
+	private PackedModelElementId getIdForModelElement(EObject modelElement) {
 
 		Resource resource = modelElement.eResource();
 
@@ -368,14 +385,12 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			}
 			String id = xmiResource.getID(modelElement);
 			if (id != null) {
-				ModelElementId objId = ModelFactory.eINSTANCE.createModelElementId();
-				objId.setId(id);
-				return objId;
+				return PackedModelElementId.valueOf(id);
 			}
 		}
 
 		// create new ID
-		return ModelFactory.eINSTANCE.createModelElementId();
+		return PackedModelElementId.create();
 	}
 
 	/**
@@ -389,7 +404,7 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			initCaches();
 		}
 
-		return eObjectToIdCache.keySet();
+		return idIndex.elements();
 	}
 
 	/**
@@ -469,21 +484,20 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 		if (!isCacheInitialized()) {
 			initCaches();
 		}
-		return getIdToEObjectCache().containsKey(id);
+		return getIdIndex().containsId(PackedModelElementId.valueOf(id));
 	}
 
 	/**
-	 * Returns the cache that maps {@link ModelElementId} to model elements.
+	 * Returns the cache that maps model elements to their IDs and back.
 	 * 
-	 * @return a map containing mappings from {@link ModelElementId}s to model
-	 *         element
+	 * @return the index of the model elements and their IDs
 	 */
-	protected Map<String, EObject> getIdToEObjectCache() {
+	protected ModelElementIdIndex getIdIndex() {
 		if (!isCacheInitialized()) {
 			initCaches();
 		}
 
-		return idToEObjectCache;
+		return idIndex;
 	}
 
 	/**
@@ -496,7 +510,7 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			initCaches();
 		}
 
-		return eObjectToIdCache.keySet();
+		return idIndex.elements();
 	}
 
 	/**
@@ -513,15 +527,13 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 
 		for (EObject modelElement : getModelElements()) {
 			// put model element into cache
-			ModelElementId modelElementId = getIdForModelElement(modelElement);
-			putIntoCaches(modelElement, modelElementId.getId());
+			putIntoCaches(modelElement, getIdForModelElement(modelElement));
 
 			// put children of model element into cache
 			TreeIterator<EObject> it = modelElement.eAllContents();
 			while (it.hasNext()) {
 				EObject obj = it.next();
-				ModelElementId id = getIdForModelElement(obj);
-				putIntoCaches(obj, id.getId());
+				putIntoCaches(obj, getIdForModelElement(obj));
 			}
 		}
 
@@ -535,20 +547,19 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 *            the model element, that should get added to the caches
 	 */
 	protected void addModelElementAndChildrenToCache(EObject modelElement) {
-		HashSet<ModelElementId> removableIds = new HashSet<ModelElementId>();
+		HashSet<PackedModelElementId> removableIds = new HashSet<PackedModelElementId>();
 
 		// first check whether ID should be reassigned
 		ModelElementId id = newEObjectToIdMap.get(modelElement);
 
-		if (id == null) {
-			// if not, create a new ID
-			id = ModelFactory.eINSTANCE.createModelElementId();
-		} else {
-			removableIds.add(id);
+		PackedModelElementId packedId = id != null ? PackedModelElementId.valueOf(id) : null;
+		if (packedId != null) {
+			removableIds.add(packedId);
 		}
 
 		if (isCacheInitialized()) {
-			putIntoCaches(modelElement, id.getId());
+			// reassign the ID or create a new one
+			putIntoCaches(modelElement, packedId != null ? packedId : PackedModelElementId.create());
 		}
 
 		for (EObject child : ModelUtil.getAllContainedModelElements(modelElement, false)) {
@@ -556,20 +567,18 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			// first check whether ID should be reassigned, as above
 			ModelElementId childId = newEObjectToIdMap.get(child);
 
-			if (childId == null) {
-				// if not, create a new ID
-				childId = ModelFactory.eINSTANCE.createModelElementId();
-			} else {
-				removableIds.add(childId);
+			PackedModelElementId packedChildId = childId != null ? PackedModelElementId.valueOf(childId) : null;
+			if (packedChildId != null) {
+				removableIds.add(packedChildId);
 			}
 
 			if (isCacheInitialized()) {
-				putIntoCaches(child, childId.getId());
+				putIntoCaches(child, packedChildId != null ? packedChildId : PackedModelElementId.create());
 			}
 		}
 
 		// remove all IDs that are in use now
-		for (ModelElementId modelElementId : removableIds) {
+		for (PackedModelElementId modelElementId : removableIds) {
 			EObject eObject = newIdMapToEObject.get(modelElementId);
 			newEObjectToIdMap.remove(eObject);
 		}
@@ -585,8 +594,11 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 */
 	public void initCaches(Map<EObject, String> eObjectToIdMap, Map<String, EObject> idToEObjectMap) {
 		cachesInitialized = true;
-		eObjectToIdCache = eObjectToIdMap;
-		idToEObjectCache = idToEObjectMap;
+		// sized for all elements, so the index is built without growing
+		idIndex = new ModelElementIdIndex(eObjectToIdMap.size());
+		for (Map.Entry<EObject, String> entry : eObjectToIdMap.entrySet()) {
+			putIntoCaches(entry.getKey(), PackedModelElementId.valueOf(entry.getValue()));
+		}
 	}
 
 	/**
@@ -597,9 +609,8 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 * @param modelElementId
 	 *            a {@link ModelElementId}
 	 */
-	protected void putIntoCaches(EObject modelElement, String modelElementId) {
-		eObjectToIdCache.put(modelElement, modelElementId);
-		idToEObjectCache.put(modelElementId, modelElement);
+	protected void putIntoCaches(EObject modelElement, PackedModelElementId modelElementId) {
+		idIndex.put(modelElement, modelElementId);
 	}
 
 	/**
@@ -624,8 +635,7 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 * @see org.eclipse.emf.emfstore.common.model.IdEObjectCollection#dispose()
 	 */
 	public void dispose() {
-		eObjectToIdCache.clear();
-		idToEObjectCache.clear();
+		idIndex = new ModelElementIdIndex();
 		clearVolatileCaches();
 		cachesInitialized = false;
 	}
@@ -660,10 +670,9 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			ModelElementId id = this.getModelElementId(modelElement);
 
 			newEObjectToIdMap.put(modelElement, id);
-			newIdMapToEObject.put(id, modelElement);
+			newIdMapToEObject.put(PackedModelElementId.valueOf(id), modelElement);
 
-			getEObjectsCache().remove(modelElement);
-			getIdToEObjectCache().remove(id.getId());
+			getIdIndex().removeElement(modelElement);
 		}
 	}
 
@@ -680,15 +689,14 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 			Boolean isAlreadyContained = getModelElement(modelElementId) != null;
 
 			if (isAlreadyContained) {
-				eObjectToIdCache.put(modelElement, modelElementId.getId());
-				idToEObjectCache.put(modelElementId.getId(), modelElement);
+				putIntoCaches(modelElement, PackedModelElementId.valueOf(modelElementId));
 			}
 
 			// do this even if the model element is already contained;
 			// this is the case when a copied instance of the model element gets
 			// added again
 			newEObjectToIdMap.put(modelElement, modelElementId);
-			newIdMapToEObject.put(modelElementId, modelElement);
+			newIdMapToEObject.put(PackedModelElementId.valueOf(modelElementId), modelElement);
 		}
 	}
 
@@ -708,7 +716,11 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 * @return the ID/EObject mapping
 	 */
 	public Map<String, EObject> getIdToEObjectMap() {
-		return new HashMap<String, EObject>(idToEObjectCache);
+		Map<String, EObject> idToEObjectMap = new HashMap<String, EObject>(idIndex.size() * 4 / 3 + 1);
+		for (int i = 0; i < idIndex.size(); i++) {
+			idToEObjectMap.put(idIndex.getIdString(i), idIndex.getElement(i));
+		}
+		return idToEObjectMap;
 	}
 
 	/**
@@ -719,6 +731,10 @@ public abstract class IdEObjectCollectionImpl extends EObjectImpl implements IdE
 	 * @return the EObject/ID mapping
 	 */
 	public Map<EObject, String> getEObjectToIdMap() {
-		return new HashMap<EObject, String>(eObjectToIdCache);
+		Map<EObject, String> eObjectToIdMap = new HashMap<EObject, String>(idIndex.size() * 4 / 3 + 1);
+		for (int i = 0; i < idIndex.size(); i++) {
+			eObjectToIdMap.put(idIndex.getElement(i), idIndex.getIdString(i));
+		}
+		return eObjectToIdMap;
 	}
 }
@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.common.model.impl;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.emfstore.common.model.util.PackedModelElementId;
+
+/**
+ * Maps the model elements of a collection to their ids and back. The entries are kept in parallel arrays, the ids as
+ * packed longs, and are found by two open addressing tables of entry indices, one hashing the elements by identity and
+ * one hashing the ids. An element has one id, if several elements have the same id, the id is mapped to the element
+ * put last.
+ */
+public class ModelElementIdIndex {
+
+	private static final int MIN_CAPACITY = 16;
+
+	// the entries, ids kept as strings are only stored if there are any
+	private EObject[] elements;
+	private byte[] formats;
+	private long[] highs;
+	private long[] lows;
+	private String[] strings;
+	private int size;
+	private int modCount;
+
+	// the index of the entry + 1, 0 for an empty slot
+	private int[] elementTable;
+	private int[] idTable;
+	private int mask;
+	private int threshold;
+
+	private Set<EObject> elementSet;
+
+	/**
+	 * Default constructor.
+	 */
+	public ModelElementIdIndex() {
+		this(0);
+	}
+
+	/**
+	 * Creates an index for the given number of elements, which are added without growing it.
+	 * 
+	 * @param expectedSize the expected number of elements
+	 */
+	public ModelElementIdIndex(int expectedSize) {
+		int capacity = Math.max(expectedSize, MIN_CAPACITY);
+		elements = new EObject[capacity];
+		formats = new byte[capacity];
+		highs = new long[capacity];
+		lows = new long[capacity];
+		initTables(tableCapacity(capacity));
+	}
+
+	private static int tableCapacity(int entries) {
+		// load factor of at most 2/3
+		int capacity = Integer.highestOneBit(Math.max(entries + entries / 2, MIN_CAPACITY));
+		return capacity < entries + entries / 2 ? capacity * 2 : capacity;
+	}
+
+	private void initTables(int capacity) {
+		elementTable = new int[capacity];
+		idTable = new int[capacity];
+		mask = capacity - 1;
+		threshold = capacity / 3 * 2;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 * 
+	 * @return the number of elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Maps the element to the id and the id to the element.
+	 * 
+	 * @param element the element
+	 * @param id the id
+	 */
+	public void put(EObject element, PackedModelElementId id) {
+		int slot = findElement(element);
+		int entry;
+		if (elementTable[slot] != 0) {
+			entry = elementTable[slot] - 1;
+			if (hasId(entry, id)) {
+				setIdPointer(entry);
+				return;
+			}
+			removeIdPointer(entry);
+		} else {
+			if (size >= threshold) {
+				rehash(tableCapacity(size + 1));
+				slot = findElement(element);
+			}
+			if (size == elements.length) {
+				grow();
+			}
+			entry = size++;
+			elements[entry] = element;
+			elementTable[slot] = entry + 1;
+		}
+		formats[entry] = id.getFormat();
+		highs[entry] = id.getHigh();
+		lows[entry] = id.getLow();
+		if (!id.isPacked() || strings != null) {
+			if (strings == null) {
+				strings = new String[elements.length];
+			}
+			strings[entry] = id.isPacked() ? null : id.getId();
+		}
+		setIdPointer(entry);
+		modCount++;
+	}
+
+	/**
+	 * Returns the id of an element.
+	 * 
+	 * @param element the element
+	 * @return the id or null if the element isn't in the index
+	 */
+	public PackedModelElementId getId(EObject element) {
+		int entry = elementTable[findElement(element)] - 1;
+		if (entry < 0) {
+			return null;
+		}
+		if (formats[entry] == PackedModelElementId.STRING) {
+			return PackedModelElementId.valueOf(strings[entry]);
+		}
+		return PackedModelElementId.valueOf(formats[entry], highs[entry], lows[entry]);
+	}
+
+	/**
+	 * Returns the id of an element as string.
+	 * 
+	 * @param element the element
+	 * @return the id or null if the element isn't in the index
+	 */
+	public String getIdString(EObject element) {
+		int entry = elementTable[findElement(element)] - 1;
+		return entry < 0 ? null : getIdString(entry);
+	}
+
+	/**
+	 * Returns the element with the given id.
+	 * 
+	 * @param id the id
+	 * @return the element or null if the id isn't in the index
+	 */
+	public EObject getElement(PackedModelElementId id) {
+		int entry = idTable[findId(id)] - 1;
+		return entry < 0 ? null : elements[entry];
+	}
+
+	/**
+	 * Whether the element is in the index.
+	 * 
+	 * @param element the element
+	 * @return true, if the index has an id for the element
+	 */
+	public boolean containsElement(EObject element) {
+		return elementTable[findElement(element)] != 0;
+	}
+
+	/**
+	 * Whether an element has the given id.
+	 * 
+	 * @param id the id
+	 * @return true, if the index has an element for the id
+	 */
+	public boolean containsId(PackedModelElementId id) {
+		return idTable[findId(id)] != 0;
+	}
+
+	/**
+	 * Removes an element and its id, if it is mapped to the element.
+	 * 
+	 * @param element the element
+	 * @return true, if the element has been in the index
+	 */
+	public boolean removeElement(EObject element) {
+		int slot = findElement(element);
+		if (elementTable[slot] == 0) {
+			return false;
+		}
+		removeEntry(elementTable[slot] - 1);
+		return true;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			elements[i] = null;
+			if (strings != null) {
+				strings[i] = null;
+			}
+		}
+		size = 0;
+		strings = null;
+		initTables(elementTable.length);
+		modCount++;
+	}
+
+	/**
+	 * Returns a view of the elements of the index, elements removed from the view are removed from the index.
+	 * 
+	 * @return the elements
+	 */
+	public Set<EObject> elements() {
+		if (elementSet == null) {
+			elementSet = new ElementSet();
+		}
+		return elementSet;
+	}
+
+	/**
+	 * Returns the element of an entry, for iterating over the index.
+	 * 
+	 * @param entry the index of the entry, less than {@link #size()}
+	 * @return the element
+	 */
+	public EObject getElement(int entry) {
+		return elements[entry];
+	}
+
+	/**
+	 * Returns the id of an entry as string, for iterating over the index.
+	 * 
+	 * @param entry the index of the entry, less than {@link #size()}
+	 * @return the id
+	 */
+	public String getIdString(int entry) {
+		if (formats[entry] == PackedModelElementId.STRING) {
+			return strings[entry];
+		}
+		return PackedModelElementId.valueOf(formats[entry], highs[entry], lows[entry]).getId();
+	}
+
+	private void removeEntry(int entry) {
+		deleteSlot(elementTable, findElement(elements[entry]), false);
+		removeIdPointer(entry);
+		int last = size - 1;
+		if (entry != last) {
+			// the last entry fills the gap
+			int elementSlot = findElement(elements[last]);
+			int idSlot = findIdSlot(last);
+			boolean idPointer = idTable[idSlot] == last + 1;
+			elements[entry] = elements[last];
+			formats[entry] = formats[last];
+			highs[entry] = highs[last];
+			lows[entry] = lows[last];
+			if (strings != null) {
+				strings[entry] = strings[last];
+			}
+			elementTable[elementSlot] = entry + 1;
+			if (idPointer) {
+				idTable[idSlot] = entry + 1;
+			}
+		}
+		elements[last] = null;
+		if (strings != null) {
+			strings[last] = null;
+		}
+		size--;
+		modCount++;
+	}
+
+	private boolean hasId(int entry, PackedModelElementId id) {
+		if (formats[entry] != id.getFormat()) {
+			return false;
+		}
+		if (!id.isPacked()) {
+			return strings[entry].equals(id.getId());
+		}
+		return highs[entry] == id.getHigh() && lows[entry] == id.getLow();
+	}
+
+	private boolean hasSameId(int entry, int otherEntry) {
+		if (formats[entry] != formats[otherEntry]) {
+			return false;
+		}
+		if (formats[entry] == PackedModelElementId.STRING) {
+			return strings[entry].equals(strings[otherEntry]);
+		}
+		return highs[entry] == highs[otherEntry] && lows[entry] == lows[otherEntry];
+	}
+
+	private int findElement(EObject element) {
+		int slot = elementHash(element) & mask;
+		while (elementTable[slot] != 0 && elements[elementTable[slot] - 1] != element) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int findId(PackedModelElementId id) {
+		int hash = id.isPacked() ? PackedModelElementId.hash(id.getHigh(), id.getLow()) : mix(id.getId().hashCode());
+		int slot = hash & mask;
+		while (idTable[slot] != 0 && !hasId(idTable[slot] - 1, id)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of the id table with the id of the entry, which may point to another entry with the same id.
+	 */
+	private int findIdSlot(int entry) {
+		int slot = idHash(entry) & mask;
+		while (idTable[slot] != 0 && !hasSameId(idTable[slot] - 1, entry)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void setIdPointer(int entry) {
+		idTable[findIdSlot(entry)] = entry + 1;
+	}
+
+	private void removeIdPointer(int entry) {
+		int slot = findIdSlot(entry);
+		if (idTable[slot] == entry + 1) {
+			deleteSlot(idTable, slot, true);
+		}
+	}
+
+	/**
+	 * Empties a slot of a table, moving later entries of the probe sequence into the gap.
+	 */
+	private void deleteSlot(int[] table, int slot, boolean ids) {
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (table[next] != 0) {
+			int entry = table[next] - 1;
+			int home = (ids ? idHash(entry) : elementHash(elements[entry])) & mask;
+			// moved if its home slot isn't between the gap and its slot
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				table[gap] = table[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		table[gap] = 0;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldIdTable = idTable;
+		initTables(capacity);
+		for (int entry = 0; entry < size; entry++) {
+			elementTable[findElement(elements[entry])] = entry + 1;
+		}
+		// only the entries the ids are mapped to
+		for (int pointer : oldIdTable) {
+			if (pointer != 0) {
+				idTable[findIdSlot(pointer - 1)] = pointer;
+			}
+		}
+	}
+
+	private void grow() {
+		int capacity = elements.length + (elements.length >> 1);
+		EObject[] newElements = new EObject[capacity];
+		System.arraycopy(elements, 0, newElements, 0, size);
+		elements = newElements;
+		byte[] newFormats = new byte[capacity];
+		System.arraycopy(formats, 0, newFormats, 0, size);
+		formats = newFormats;
+		long[] newHighs = new long[capacity];
+		System.arraycopy(highs, 0, newHighs, 0, size);
+		highs = newHighs;
+		long[] newLows = new long[capacity];
+		System.arraycopy(lows, 0, newLows, 0, size);
+		lows = newLows;
+		if (strings != null) {
+			String[] newStrings = new String[capacity];
+			System.arraycopy(strings, 0, newStrings, 0, size);
+			strings = newStrings;
+		}
+	}
+
+	private int idHash(int entry) {
+		if (formats[entry] == PackedModelElementId.STRING) {
+			return mix(strings[entry].hashCode());
+		}
+		return PackedModelElementId.hash(highs[entry], lows[entry]);
+	}
+
+	private static int elementHash(EObject element) {
+		return mix(System.identityHashCode(element));
+	}
+
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * The elements of the index.
+	 */
+	private final class ElementSet extends AbstractSet<EObject> {
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object object) {
+			return object instanceof EObject && containsElement((EObject) object);
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			return object instanceof EObject && removeElement((EObject) object);
+		}
+
+		@Override
+		public void clear() {
+			ModelElementIdIndex.this.clear();
+		}
+
+		@Override
+		public Iterator<EObject> iterator() {
+			return new Iterator<EObject>() {
+
+				private int next;
+				private int expectedModCount = modCount;
+				private boolean removable;
+
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				public EObject next() {
+					if (modCount != expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+					if (next >= size) {
+						throw new NoSuchElementException();
+					}
+					removable = true;
+					return elements[next++];
+				}
+
+				public void remove() {
+					if (!removable) {
+						throw new IllegalStateException();
+					}
+					if (modCount != expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+					// the last entry is moved into the gap, so it is returned next
+					removeEntry(--next);
+					expectedModCount = modCount;
+					removable = false;
+				}
+			};
+		}
+	}
+}
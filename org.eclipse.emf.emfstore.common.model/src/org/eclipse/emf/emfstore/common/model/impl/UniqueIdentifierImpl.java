@@ -44,20 +44,29 @@ public abstract class UniqueIdentifierImpl extends EObjectImpl implements Unique
 	 * The cached value of the '{@link #getId() <em>Id</em>}' attribute.
 	 * <!-- begin-user-doc --> <!-- end-user-doc -->
 	 * @see #getId()
-	 * @generated
+	 * @generated NOT
 	 * @ordered
 	 */
-	protected String id = ID_EDEFAULT;
+	protected volatile String id = ID_EDEFAULT;
 
 	// begin of custom code
 	/**
-	 * Constructor. <!-- begin-user-doc --> <!-- end-user-doc -->
+	 * Constructor. <!-- begin-user-doc --> The id is generated on its first access, since most identifiers get the id
+	 * of an existing one assigned right after their creation, e.g. by a copy or a load. Reflective access, e.g. by
+	 * saving or copying, accesses the id as well, so an identifier is never saved or copied without it.
+	 * <!-- end-user-doc -->
 	 * 
 	 * @generated NOT
 	 */
 	protected UniqueIdentifierImpl() {
 		super();
-		this.id = EcoreUtil.generateUUID();
+		this.id = null;
+	}
+
+	private synchronized void generateId() {
+		if (id == null) {
+			id = EcoreUtil.generateUUID();
+		}
 	}
 
 	// end of custom code
@@ -73,9 +82,12 @@ public abstract class UniqueIdentifierImpl extends EObjectImpl implements Unique
 
 	/**
 	 * <!-- begin-user-doc --> <!-- end-user-doc -->
-	 * @generated
+	 * @generated NOT
 	 */
 	public String getId() {
+		if (id == null) {
+			generateId();
+		}
 		return id;
 	}
 
@@ -133,13 +145,15 @@ public abstract class UniqueIdentifierImpl extends EObjectImpl implements Unique
 
 	/**
 	 * <!-- begin-user-doc --> <!-- end-user-doc -->
-	 * @generated
+	 * @generated NOT
 	 */
 	@Override
 	public boolean eIsSet(int featureID) {
 		switch (featureID) {
 		case ModelPackage.UNIQUE_IDENTIFIER__ID:
-			return ID_EDEFAULT == null ? id != null : !ID_EDEFAULT.equals(id);
+			// generates the id, otherwise it would neither be saved nor copied
+			String currentId = getId();
+			return ID_EDEFAULT == null ? currentId != null : !ID_EDEFAULT.equals(currentId);
 		}
 		return super.eIsSet(featureID);
 	}
@@ -159,7 +173,7 @@ public abstract class UniqueIdentifierImpl extends EObjectImpl implements Unique
 
 		StringBuffer result = new StringBuffer();
 		result.append(" (id: ");
-		result.append(id);
+		result.append(getId());
 		result.append(')');
 		return result.toString();
 	}
@@ -176,9 +190,9 @@ public abstract class UniqueIdentifierImpl extends EObjectImpl implements Unique
 	public boolean equals(Object otherObject) {
 		if (otherObject instanceof UniqueIdentifierImpl) {
 			UniqueIdentifierImpl otherUniqueIdentifier = (UniqueIdentifierImpl) otherObject;
-			return otherUniqueIdentifier.id.equals(this.id);
+			return otherUniqueIdentifier.getId().equals(getId());
 		} else if (otherObject instanceof String) {
-			return id.equals(otherObject);
+			return getId().equals(otherObject);
 		} else {
 			return false;
 		}
@@ -191,7 +205,7 @@ public abstract class UniqueIdentifierImpl extends EObjectImpl implements Unique
 	 */
 	@Override
 	public int hashCode() {
-		return this.id.hashCode();
+		return getId().hashCode();
 	}
 	// end of custom code
 
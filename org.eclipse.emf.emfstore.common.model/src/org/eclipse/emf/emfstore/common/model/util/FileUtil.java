@@ -26,6 +26,11 @@ import java.util.zip.ZipOutputStream;
  */
 public final class FileUtil {
 
+	/**
+	 * Suffix of the backup of a file kept while it is replaced.
+	 */
+	public static final String BACKUP_SUFFIX = ".bak";
+
 	/**
 	 * Private constructor.
 	 */
@@ -94,6 +99,69 @@ public final class FileUtil {
 		outputStream.close();
 	}
 
+	/**
+	 * Replaces a file by another one, usually a temporary file written completely before. A rename replaces the file
+	 * atomically where the file system supports it. Otherwise the previous file is renamed to a backup first, which is
+	 * renamed back if the replacement fails. A crash between both renames leaves the backup, which is restored by
+	 * {@link #restoreBackup(File)}.
+	 * 
+	 * @param source the new file
+	 * @param destination the file to be replaced
+	 * @throws IOException if the file can't be replaced, the previous file is kept then
+	 */
+	public static void replaceFile(File source, File destination) throws IOException {
+		if (source.renameTo(destination)) {
+			return;
+		}
+		File backup = new File(destination.getPath() + BACKUP_SUFFIX);
+		if (backup.exists() && !backup.delete() || destination.exists() && !destination.renameTo(backup)) {
+			throw new IOException("Couldn't replace " + destination.getAbsolutePath() + ".");
+		}
+		if (!source.renameTo(destination)) {
+			backup.renameTo(destination);
+			throw new IOException("Couldn't replace " + destination.getAbsolutePath() + ".");
+		}
+		backup.delete();
+	}
+
+	/**
+	 * Restores the backup of a file left by a crash during {@link #replaceFile(File, File)}. A backup of a file which
+	 * exists is outdated and deleted.
+	 * 
+	 * @param file the file
+	 * @return true if the file has been restored
+	 */
+	public static boolean restoreBackup(File file) {
+		File backup = new File(file.getPath() + BACKUP_SUFFIX);
+		if (!backup.exists()) {
+			return false;
+		} else if (file.exists()) {
+			backup.delete();
+			return false;
+		}
+		return backup.renameTo(file);
+	}
+
+	/**
+	 * Restores the backups of all files in a directory and its subdirectories, see {@link #restoreBackup(File)}.
+	 * 
+	 * @param directory the directory
+	 */
+	public static void restoreBackups(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getPath();
+			if (file.isDirectory()) {
+				restoreBackups(file);
+			} else if (name.endsWith(BACKUP_SUFFIX)) {
+				restoreBackup(new File(name.substring(0, name.length() - BACKUP_SUFFIX.length())));
+			}
+		}
+	}
+
 	/**
 	 * Copy a directory from source to target including its contained files and directories.
 	 * 
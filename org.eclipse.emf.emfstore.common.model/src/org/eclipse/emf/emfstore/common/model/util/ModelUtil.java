@@ -11,6 +11,8 @@
 package org.eclipse.emf.emfstore.common.model.util;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
@@ -356,6 +358,29 @@ public final class ModelUtil {
 	 */
 	public static void eobjectToString(OutputStreamWriter writer, EObject object, boolean overrideContainmentCheck,
 		boolean overrideHrefCheck, boolean overrideProxyCheck) throws SerializationException {
+		eobjectToString(new URIConverter.WriteableOutputStream(writer, "UTF-8"), object, overrideContainmentCheck,
+			overrideHrefCheck, overrideProxyCheck);
+	}
+
+	/**
+	 * Writes an {@link EObject} as UTF-8 encoded XML to the given stream.
+	 * 
+	 * @param stream
+	 *            the stream that will be used as the destination where to write the serialized EObject
+	 * @param object
+	 *            the {@link EObject} that needs to be serialized
+	 * @param overrideContainmentCheck
+	 *            if true, no containment check is performed
+	 * @param overrideHrefCheck
+	 *            checks whether there is a <code>href</code> in the serialized
+	 *            text
+	 * @param overrideProxyCheck
+	 *            if true, proxy check is ignored
+	 * @throws SerializationException
+	 *             if a serialization problem occurs
+	 */
+	public static void eobjectToString(OutputStream stream, EObject object, boolean overrideContainmentCheck,
+		boolean overrideHrefCheck, boolean overrideProxyCheck) throws SerializationException {
 
 		if (object == null) {
 			return;
@@ -373,9 +398,8 @@ public final class ModelUtil {
 			proxyCheck(res);
 		}
 
-		URIConverter.WriteableOutputStream uws = new URIConverter.WriteableOutputStream(writer, "UTF-8");
 		try {
-			res.save(uws, getResourceSaveOptions());
+			res.save(stream, getResourceSaveOptions());
 		} catch (IOException e) {
 			throw new SerializationException(e);
 		}
@@ -388,8 +412,7 @@ public final class ModelUtil {
 			if (isIgnoredDatatype(modelElement)) {
 				continue;
 			}
-			ModelElementId modelElementId = copiedCollection.getModelElementId(modelElement);
-			res.setID(modelElement, modelElementId.getId());
+			res.setID(modelElement, copiedCollection.getModelElementIdString(modelElement));
 		}
 
 		res.getContents().add(copiedCollection);
@@ -491,13 +514,25 @@ public final class ModelUtil {
 	 *             if deserialization fails
 	 */
 	public static EObject stringToEObject(Reader reader) throws SerializationException {
+		return stringToEObject(new URIConverter.ReadableInputStream(reader, "UTF-8"));
+	}
+
+	/**
+	 * Reads an {@link EObject} serialized as XML from the given stream.
+	 * 
+	 * @param stream
+	 *            the stream containing a serialized EObject
+	 * @return the deserialized {@link EObject}
+	 * @throws SerializationException
+	 *             if deserialization fails
+	 */
+	public static EObject stringToEObject(InputStream stream) throws SerializationException {
 
 		XMIResource res = (XMIResource) (new ResourceSetImpl()).createResource(VIRTUAL_URI);
 		((ResourceImpl) res).setIntrinsicIDToEObjectMap(new HashMap<String, EObject>());
-		URIConverter.ReadableInputStream ris = new URIConverter.ReadableInputStream(reader, "UTF-8");
 
 		try {
-			res.load(ris, getResourceLoadOptions());
+			res.load(stream, getResourceLoadOptions());
 		} catch (UnsupportedEncodingException e) {
 			throw new SerializationException(e);
 		} catch (IOException e) {
@@ -872,8 +907,7 @@ public final class ModelUtil {
 	 */
 	public static void setXmiIdsOnResource(Project project, XMIResource xmiResource) {
 		for (EObject modelElement : project.getAllModelElements()) {
-			ModelElementId modelElementId = project.getModelElementId(modelElement);
-			xmiResource.setID(modelElement, modelElementId.getId());
+			xmiResource.setID(modelElement, project.getModelElementIdString(modelElement));
 		}
 	}
 
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.common.model.util;
+
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+
+/**
+ * An immutable, compact representation of the id of a model element, used as key of internal maps instead of the id
+ * string or a {@link ModelElementId}. Ids in the format of {@link EcoreUtil#generateUUID()} and lower case UUIDs in
+ * the format of {@link java.util.UUID} are stored as two longs, the string is only created again if it is needed.
+ * Other ids are kept as strings.
+ */
+public final class PackedModelElementId {
+
+	/**
+	 * Format of an id kept as string.
+	 */
+	public static final byte STRING = 0;
+
+	/**
+	 * Format of an id generated by {@link EcoreUtil#generateUUID()}, an underscore followed by the 128 bits in 22 base
+	 * 64 digits.
+	 */
+	public static final byte BASE64 = 1;
+
+	/**
+	 * Format of a lower case UUID in the format of {@link java.util.UUID#toString()}.
+	 */
+	public static final byte HEX = 2;
+
+	private static final char[] BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+		.toCharArray();
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final int BASE64_LENGTH = 23;
+	private static final int HEX_LENGTH = 36;
+
+	private final byte format;
+	private final long high;
+	private final long low;
+	private final String id;
+
+	private PackedModelElementId(byte format, long high, long low, String id) {
+		this.format = format;
+		this.high = high;
+		this.low = low;
+		this.id = id;
+	}
+
+	/**
+	 * Returns the packed representation of an id.
+	 * 
+	 * @param id the id string
+	 * @return the packed id, or null if the id is null
+	 */
+	public static PackedModelElementId valueOf(String id) {
+		if (id == null) {
+			return null;
+		}
+		if (id.length() == BASE64_LENGTH && id.charAt(0) == '_') {
+			PackedModelElementId packedId = parseBase64(id);
+			if (packedId != null) {
+				return packedId;
+			}
+		} else if (id.length() == HEX_LENGTH) {
+			PackedModelElementId packedId = parseHex(id);
+			if (packedId != null) {
+				return packedId;
+			}
+		}
+		return new PackedModelElementId(STRING, 0, 0, id);
+	}
+
+	/**
+	 * Returns the packed representation of a {@link ModelElementId}.
+	 * 
+	 * @param modelElementId the id
+	 * @return the packed id, or null if the id is null
+	 */
+	public static PackedModelElementId valueOf(ModelElementId modelElementId) {
+		return modelElementId == null ? null : valueOf(modelElementId.getId());
+	}
+
+	/**
+	 * Returns the id packed with the given format.
+	 * 
+	 * @param format {@link #BASE64} or {@link #HEX}
+	 * @param high the upper 64 bits
+	 * @param low the lower 64 bits
+	 * @return the packed id
+	 */
+	public static PackedModelElementId valueOf(byte format, long high, long low) {
+		if (format != BASE64 && format != HEX) {
+			throw new IllegalArgumentException("Format " + format + " isn't packed.");
+		}
+		return new PackedModelElementId(format, high, low, null);
+	}
+
+	/**
+	 * Creates a new id, without creating a {@link ModelElementId}.
+	 * 
+	 * @return the packed new id
+	 */
+	public static PackedModelElementId create() {
+		return valueOf(EcoreUtil.generateUUID());
+	}
+
+	private static PackedModelElementId parseBase64(String id) {
+		long high = 0;
+		long low = 0;
+		for (int i = 1; i < BASE64_LENGTH - 1; i++) {
+			int digit = base64Digit(id.charAt(i));
+			if (digit < 0) {
+				return null;
+			}
+			high = high << 6 | low >>> 58;
+			low = low << 6 | digit;
+		}
+		// the last digit only holds the 2 remaining bits
+		int digit = base64Digit(id.charAt(BASE64_LENGTH - 1));
+		if (digit < 0 || (digit & 0xF) != 0) {
+			return null;
+		}
+		high = high << 2 | low >>> 62;
+		low = low << 2 | digit >>> 4;
+		return new PackedModelElementId(BASE64, high, low, null);
+	}
+
+	private static int base64Digit(char c) {
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		} else if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 26;
+		} else if (c >= '0' && c <= '9') {
+			return c - '0' + 52;
+		} else if (c == '-') {
+			return 62;
+		} else if (c == '_') {
+			return 63;
+		}
+		return -1;
+	}
+
+	private static PackedModelElementId parseHex(String id) {
+		long high = 0;
+		long low = 0;
+		for (int i = 0; i < HEX_LENGTH; i++) {
+			char c = id.charAt(i);
+			if (isHexDash(i)) {
+				if (c != '-') {
+					return null;
+				}
+				continue;
+			}
+			int digit;
+			if (c >= '0' && c <= '9') {
+				digit = c - '0';
+			} else if (c >= 'a' && c <= 'f') {
+				digit = c - 'a' + 10;
+			} else {
+				return null;
+			}
+			high = high << 4 | low >>> 60;
+			low = low << 4 | digit;
+		}
+		return new PackedModelElementId(HEX, high, low, null);
+	}
+
+	private static boolean isHexDash(int index) {
+		return index == 8 || index == 13 || index == 18 || index == 23;
+	}
+
+	/**
+	 * Returns the format of this id.
+	 * 
+	 * @return {@link #STRING}, {@link #BASE64} or {@link #HEX}
+	 */
+	public byte getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the upper 64 bits of a packed id.
+	 * 
+	 * @return the bits, 0 if the id is kept as string
+	 */
+	public long getHigh() {
+		return high;
+	}
+
+	/**
+	 * Returns the lower 64 bits of a packed id.
+	 * 
+	 * @return the bits, 0 if the id is kept as string
+	 */
+	public long getLow() {
+		return low;
+	}
+
+	/**
+	 * Whether the id is stored as two longs.
+	 * 
+	 * @return true, if the id isn't kept as string
+	 */
+	public boolean isPacked() {
+		return format != STRING;
+	}
+
+	/**
+	 * Returns the id string, which is created again for a packed id.
+	 * 
+	 * @return the id string
+	 */
+	public String getId() {
+		switch (format) {
+		case BASE64:
+			return toBase64();
+		case HEX:
+			return toHex();
+		default:
+			return id;
+		}
+	}
+
+	private String toBase64() {
+		char[] chars = new char[BASE64_LENGTH];
+		chars[0] = '_';
+		long h = high;
+		long l = low;
+		chars[BASE64_LENGTH - 1] = BASE64_DIGITS[(int) (l & 0x3) << 4];
+		l = l >>> 2 | h << 62;
+		h = h >>> 2;
+		for (int i = BASE64_LENGTH - 2; i > 0; i--) {
+			chars[i] = BASE64_DIGITS[(int) (l & 0x3F)];
+			l = l >>> 6 | h << 58;
+			h = h >>> 6;
+		}
+		return new String(chars);
+	}
+
+	private String toHex() {
+		char[] chars = new char[HEX_LENGTH];
+		long h = high;
+		long l = low;
+		for (int i = HEX_LENGTH - 1; i >= 0; i--) {
+			if (isHexDash(i)) {
+				chars[i] = '-';
+				continue;
+			}
+			chars[i] = HEX_DIGITS[(int) (l & 0xF)];
+			l = l >>> 4 | h << 60;
+			h = h >>> 4;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Creates a new {@link ModelElementId} with this id.
+	 * 
+	 * @return the {@link ModelElementId}
+	 */
+	public ModelElementId toModelElementId() {
+		return ModelUtil.createModelElementId(getId());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof PackedModelElementId)) {
+			return false;
+		}
+		PackedModelElementId other = (PackedModelElementId) object;
+		if (format == STRING) {
+			return other.format == STRING && id.equals(other.id);
+		}
+		return format == other.format && high == other.high && low == other.low;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		if (format == STRING) {
+			return id.hashCode();
+		}
+		return hash(high, low);
+	}
+
+	/**
+	 * Returns the hash code of a packed id.
+	 * 
+	 * @param high the upper 64 bits
+	 * @param low the lower 64 bits
+	 * @return the hash code
+	 */
+	public static int hash(long high, long low) {
+		long bits = high * 0x9E3779B97F4A7C15L ^ low;
+		bits *= 0xC2B2AE3D27D4EB4FL;
+		return (int) (bits ^ bits >>> 32);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return getId();
+	}
+}
@@ -10,22 +10,299 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.common;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.util.InternalEList;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
 
+/**
+ * The resource used for all EMFStore files. It is saved as XMI by default or in the binary format of the
+ * {@link BinaryResourceImpl} if {@link #OPTION_BINARY} is set. The format is detected on loading, so both formats can
+ * be mixed. In the binary format the IDs of the resource are appended to the contents and strings containing a UUID
+ * as generated by EcoreUtil, e.g. model element ids, are written as 128 bit values. The binary format is read and
+ * written on the calling thread. Only if its recursion overflows the stack, it is repeated on a shared thread with a
+ * large stack.
+ */
 public class EMFStoreResource extends XMIResourceImpl {
 
+	/**
+	 * Save option to write the binary format instead of XMI.
+	 */
+	public static final String OPTION_BINARY = "EMFSTORE_BINARY";
+
+	// the signature written by the BinaryResourceImpl
+	private static final byte[] BINARY_SIGNATURE = { (byte) 0x89, 'e', 'm', 'f' };
+	private static final String BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+	private static final int UUID_LENGTH = 23;
+	private static final byte STRING = 0;
+	private static final byte UUID = 1;
+	// the binary format writes referenced objects on first use, so deep reference chains need a deep stack
+	private static final long BINARY_STACK_SIZE = 256 * 1024 * 1024;
+	private static final long BINARY_THREAD_KEEP_ALIVE = 60;
+
+	// at most one thread with a large stack, only started for resources overflowing the stack of the calling thread
+	private static final ExecutorService BINARY_EXECUTOR = new ThreadPoolExecutor(0, 1, BINARY_THREAD_KEEP_ALIVE,
+		TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(null, runnable, "EMFStore binary resource", BINARY_STACK_SIZE);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
 	public EMFStoreResource(URI uri) {
 		super(uri);
 		this.setIntrinsicIDToEObjectMap(new HashMap<String, EObject>());
 	}
-	
+
 	public void setIdToEObjectMap(Map<String, EObject> idToEObjectMap, Map<EObject, String> eObjectToIdMap) {
 		this.idToEObjectMap = idToEObjectMap;
 		this.eObjectToIDMap = eObjectToIdMap;
 	}
+
+	@Override
+	public void doSave(final OutputStream outputStream, final Map<?, ?> options) throws IOException {
+		if (options == null || !Boolean.TRUE.equals(options.get(OPTION_BINARY))) {
+			super.doSave(outputStream, options);
+			return;
+		}
+		// the output is buffered, so an attempt overflowing the stack doesn't leave a partial resource behind
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		runBinaryTask(new BinaryTask() {
+			public void run() throws IOException {
+				buffer.reset();
+				CompactOutputStream output = new CompactOutputStream(buffer, options);
+				output.saveResource(EMFStoreResource.this);
+				for (EObject eObject : getProperContents()) {
+					output.writeSegmentedString(getID(eObject));
+				}
+				output.flush();
+			}
+		});
+		buffer.writeTo(outputStream);
+	}
+
+	@Override
+	public void doLoad(InputStream inputStream, final Map<?, ?> options) throws IOException {
+		final InputStream input = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+		byte[] signature = new byte[BINARY_SIGNATURE.length];
+		input.mark(signature.length);
+		int length = 0;
+		while (length < signature.length) {
+			int read = input.read(signature, length, signature.length - length);
+			if (read < 0) {
+				break;
+			}
+			length += read;
+		}
+		input.reset();
+		if (!Arrays.equals(signature, BINARY_SIGNATURE)) {
+			super.doLoad(input, options);
+			return;
+		}
+		// keep the whole input, so an attempt overflowing the stack can be repeated
+		input.mark(Integer.MAX_VALUE);
+		runBinaryTask(new BinaryTask() {
+			public void run() throws IOException {
+				input.reset();
+				getContents().clear();
+				getIntrinsicIDToEObjectMap().clear();
+				CompactInputStream eObjectInput = new CompactInputStream(input, options);
+				eObjectInput.loadResource(EMFStoreResource.this);
+				for (EObject eObject : getProperContents()) {
+					String id = eObjectInput.readSegmentedString();
+					if (id != null) {
+						setID(eObject, id);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs the given task on the calling thread. If the recursion of the {@link BinaryResourceImpl} overflows its
+	 * stack, the task is run again in the thread of the {@link #BINARY_EXECUTOR} and the calling thread waits for it to
+	 * finish.
+	 */
+	private static void runBinaryTask(final BinaryTask task) throws IOException {
+		try {
+			task.run();
+			return;
+		} catch (StackOverflowError e) {
+			// run again with a larger stack
+		}
+		Future<?> future = BINARY_EXECUTOR.submit(new Callable<Object>() {
+			public Object call() throws IOException {
+				task.run();
+				return null;
+			}
+		});
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					future.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable failure = e.getCause();
+			if (failure instanceof IOException) {
+				throw (IOException) failure;
+			} else if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+			throw new IllegalStateException(failure);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns all objects directly contained in this resource in a stable order, without resolving proxies. Objects
+	 * contained in other resources are left out, since their IDs are stored there.
+	 */
+	private List<EObject> getProperContents() {
+		List<EObject> result = new ArrayList<EObject>();
+		for (EObject root : getContents()) {
+			collectProperContents(root, result);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void collectProperContents(EObject eObject, List<EObject> result) {
+		result.add(eObject);
+		Iterator<EObject> iterator = ((InternalEList<EObject>) eObject.eContents()).basicIterator();
+		while (iterator.hasNext()) {
+			InternalEObject child = (InternalEObject) iterator.next();
+			if (!child.eIsProxy() && child.eDirectResource() == null) {
+				collectProperContents(child, result);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a UUID as generated by EcoreUtil, i.e. an underscore followed by 22 base64 digits.
+	 * 
+	 * @return the 128 bits of the UUID or null if the string isn't such a UUID
+	 */
+	private static long[] decodeUUID(String value) {
+		if (value.length() != UUID_LENGTH || value.charAt(0) != '_') {
+			return null;
+		}
+		long[] result = new long[2];
+		int bits = 0;
+		for (int i = 1; i < UUID_LENGTH; i++) {
+			int digit = BASE64_DIGITS.indexOf(value.charAt(i));
+			if (digit < 0) {
+				return null;
+			}
+			for (int bit = 5; bit >= 0; bit--, bits++) {
+				if ((digit >> bit & 1) == 0) {
+					continue;
+				}
+				// the 4 bits beyond 128 are always zero for a valid UUID
+				if (bits >= 128) {
+					return null;
+				}
+				result[bits / 64] |= 1L << (63 - bits % 64);
+			}
+		}
+		return result;
+	}
+
+	private static String encodeUUID(long mostSignificantBits, long leastSignificantBits) {
+		char[] buffer = new char[UUID_LENGTH];
+		buffer[0] = '_';
+		long[] value = { mostSignificantBits, leastSignificantBits };
+		int bits = 0;
+		for (int i = 1; i < UUID_LENGTH; i++) {
+			int digit = 0;
+			for (int bit = 0; bit < 6; bit++, bits++) {
+				digit <<= 1;
+				if (bits < 128 && (value[bits / 64] >>> (63 - bits % 64) & 1) != 0) {
+					digit |= 1;
+				}
+			}
+			buffer[i] = BASE64_DIGITS.charAt(digit);
+		}
+		return new String(buffer);
+	}
+
+	/**
+	 * Reading or writing the binary format.
+	 */
+	private interface BinaryTask {
+		void run() throws IOException;
+	}
+
+	/**
+	 * Binary output writing UUIDs as two longs.
+	 */
+	private static final class CompactOutputStream extends BinaryResourceImpl.EObjectOutputStream {
+
+		private CompactOutputStream(OutputStream outputStream, Map<?, ?> options) throws IOException {
+			super(outputStream, options);
+		}
+
+		@Override
+		public void writeSegmentedString(String value) throws IOException {
+			long[] uuid = (value == null) ? null : decodeUUID(value);
+			if (uuid == null) {
+				writeByte(STRING);
+				super.writeSegmentedString(value);
+			} else {
+				writeByte(UUID);
+				writeLong(uuid[0]);
+				writeLong(uuid[1]);
+			}
+		}
+	}
+
+	/**
+	 * Binary input reading the UUIDs written by the {@link CompactOutputStream}.
+	 */
+	private static final class CompactInputStream extends BinaryResourceImpl.EObjectInputStream {
+
+		private CompactInputStream(InputStream inputStream, Map<?, ?> options) throws IOException {
+			super(inputStream, options);
+		}
+
+		@Override
+		public String readSegmentedString() throws IOException {
+			if (readByte() == UUID) {
+				return encodeUUID(readLong(), readLong());
+			}
+			return super.readSegmentedString();
+		}
+	}
 }
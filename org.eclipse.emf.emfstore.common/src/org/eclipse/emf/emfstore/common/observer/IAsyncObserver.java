@@ -0,0 +1,20 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.common.observer;
+
+/**
+ * Marker for observers which are notified asynchronously by the {@link ObserverBus}. Their calls are queued and
+ * delivered in order by a separate thread, the notifying thread doesn't wait for them. The results of such observers
+ * are not available through {@link ObserverCall}, exceptions are logged. Use it for observers which are slow or
+ * notified very often and whose results aren't needed.
+ */
+public interface IAsyncObserver {
+}
@@ -11,16 +11,19 @@
 package org.eclipse.emf.emfstore.common.observer;
 
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import org.eclipse.emf.emfstore.common.Activator;
 import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionElement;
 import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionPoint;
 import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionPointException;
@@ -37,6 +40,9 @@ import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionPointException;
  * which then calls all registered observers.
  * The proxy can also be casted into {@link ObserverCall}, which allows to access all results by the different
  * observers.
+ * There is one proxy per observer interface, which is created on the first notification. The observers are called
+ * directly by the notifying thread, except {@link IAsyncObserver}s, which are called by a separate thread of the bus.
+ * Observers may be registered, unregistered and notified concurrently.
  * 
  * 
  * Example code:
@@ -99,28 +105,44 @@ public class ObserverBus {
 		return SingletonHolder.INSTANCE;
 	}
 	
-	private HashMap<Class<? extends IObserver>, List<IObserver>> observerMap;
+	private static final IObserver[] NO_OBSERVERS = new IObserver[0];
+
+	// observer arrays are replaced on every change, so they can be iterated without locking
+	private final ConcurrentMap<Class<? extends IObserver>, IObserver[]> observerMap;
+	private final ConcurrentMap<Class<? extends IObserver>, IObserver> proxies;
+	private ExecutorService asyncExecutor;
 
 	/**
 	 * Default constructor.
 	 */
 	public ObserverBus() {
-		observerMap = new HashMap<Class<? extends IObserver>, List<IObserver>>();
+		observerMap = new ConcurrentHashMap<Class<? extends IObserver>, IObserver[]>();
+		proxies = new ConcurrentHashMap<Class<? extends IObserver>, IObserver>();
 		collectionExtensionPoints();
 	}
 
 	/**
-	 * This method allows you to notify all observers.
+	 * This method allows you to notify all observers. The returned proxy is shared, the results accessible through
+	 * {@link ObserverCall} are those of the last call by the current thread.
 	 * 
 	 * @param <T> class of observer
 	 * @param clazz class of observer
 	 * @return call object
 	 */
+	@SuppressWarnings("unchecked")
 	public <T extends IObserver> T notify(Class<T> clazz) {
 		if (clazz == null) {
 			return null;
 		}
-		return (T) createProxy(clazz);
+		IObserver proxy = proxies.get(clazz);
+		if (proxy == null) {
+			proxy = createProxy(clazz);
+			IObserver existingProxy = proxies.putIfAbsent(clazz, proxy);
+			if (existingProxy != null) {
+				proxy = existingProxy;
+			}
+		}
+		return (T) proxy;
 	}
 
 	/**
@@ -169,38 +191,68 @@ public class ObserverBus {
 		}
 	}
 
-	private void addObserver(IObserver observer, Class<? extends IObserver> iface) {
-		List<IObserver> observers = initObserverList(iface);
-		observers.add(observer);
+	private synchronized void addObserver(IObserver observer, Class<? extends IObserver> iface) {
+		IObserver[] observers = getObserverByClass(iface);
+		IObserver[] newObservers = new IObserver[observers.length + 1];
+		System.arraycopy(observers, 0, newObservers, 0, observers.length);
+		newObservers[observers.length] = observer;
+		observerMap.put(iface, newObservers);
 	}
 
-	private void removeObserver(IObserver observer, Class<? extends IObserver> iface) {
-		List<IObserver> observers = initObserverList(iface);
-		observers.remove(observer);
-	}
-
-	private List<IObserver> initObserverList(Class<? extends IObserver> iface) {
-		List<IObserver> list = observerMap.get(iface);
-		if (list == null) {
-			list = new ArrayList<IObserver>();
-			observerMap.put(iface, list);
+	private synchronized void removeObserver(IObserver observer, Class<? extends IObserver> iface) {
+		IObserver[] observers = getObserverByClass(iface);
+		for (int i = 0; i < observers.length; i++) {
+			if (observers[i].equals(observer)) {
+				IObserver[] newObservers = new IObserver[observers.length - 1];
+				System.arraycopy(observers, 0, newObservers, 0, i);
+				System.arraycopy(observers, i + 1, newObservers, i, observers.length - i - 1);
+				observerMap.put(iface, newObservers);
+				return;
+			}
 		}
-		return list;
 	}
 
-	private List<IObserver> getObserverByClass(Class<IObserver> clazz) {
-		List<IObserver> list = observerMap.get(clazz);
-		if (list == null) {
-			list = Collections.emptyList();
+	private IObserver[] getObserverByClass(Class<? extends IObserver> clazz) {
+		IObserver[] observers = observerMap.get(clazz);
+		if (observers == null) {
+			return NO_OBSERVERS;
 		}
-		return Collections.unmodifiableList(list);
+		return observers;
 	}
 
-	@SuppressWarnings("unchecked")
-	private <T extends IObserver> T createProxy(Class<T> clazz) {
-		ProxyHandler handler = new ProxyHandler((Class<IObserver>) clazz);
-		return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz, ObserverCall.class }, handler);
+	private IObserver createProxy(Class<? extends IObserver> clazz) {
+		ProxyHandler handler = new ProxyHandler(clazz);
+		return (IObserver) Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz, ObserverCall.class },
+			handler);
+	}
 
+	private void notifyAsync(final IObserver observer, final Method method, final Object[] args) {
+		ExecutorService executor;
+		synchronized (this) {
+			if (asyncExecutor == null) {
+				asyncExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "ObserverBus");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+			executor = asyncExecutor;
+		}
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					method.invoke(observer, args);
+					// BEGIN SUPRESS CATCH EXCEPTION
+				} catch (Exception e) {
+					// END SUPRESS CATCH EXCEPTION
+					if (Activator.getDefault() != null) {
+						Activator.getDefault().logException("Asynchronous observer call failed.", e);
+					}
+				}
+			}
+		});
 	}
 
 	/**
@@ -210,57 +262,161 @@ public class ObserverBus {
 	 */
 	private final class ProxyHandler implements InvocationHandler, ObserverCall {
 
-		private Class<IObserver> clazz;
-		private List<ObserverCall.Result> lastResults;
+		private final Class<? extends IObserver> clazz;
+		private final ThreadLocal<CallRecords> callRecords;
 
-		public ProxyHandler(Class<IObserver> clazz) {
+		public ProxyHandler(Class<? extends IObserver> clazz) {
 			this.clazz = clazz;
-			this.lastResults = new ArrayList<ObserverCall.Result>();
+			this.callRecords = new ThreadLocal<CallRecords>() {
+				@Override
+				protected CallRecords initialValue() {
+					return new CallRecords();
+				}
+			};
 		}
 
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			// fork for calls to ObserverCall.class
-			if (ObserverCall.class.equals(method.getDeclaringClass())) {
-				return accessObserverCall(method, args);
+			// fork for calls to ObserverCall.class and Object.class
+			Class<?> declaringClass = method.getDeclaringClass();
+			if (ObserverCall.class.equals(declaringClass)) {
+				return method.invoke(this, args);
+			} else if (Object.class.equals(declaringClass)) {
+				return invokeObjectMethod(proxy, method, args);
 			}
-
-			List<IObserver> observers = getObserverByClass(clazz);
-
-			// return default value if no observers are registered
-			if (observers.size() == 0) {
-				lastResults = new ArrayList<ObserverCall.Result>();
-				return Result.getDefaultValue(method);
+			if (!method.isAccessible()) {
+				// skips the access check on every call
+				method.setAccessible(true);
 			}
 
-			lastResults = notifiyObservers(observers, method, args);
-			return lastResults.get(0).getResultOrDefaultValue();
+			IObserver[] observers = getObserverByClass(clazz);
+			CallRecords records = callRecords.get();
+			CallRecord record = records.start(method, observers.length);
+			try {
+				notifiyObservers(record, observers, method, args);
+			} finally {
+				records.finish(record);
+			}
+			return record.getFirstResultOrDefaultValue();
 		}
 
-		private Object accessObserverCall(Method method, Object[] args) throws IllegalArgumentException,
-			IllegalAccessException, InvocationTargetException {
-			return method.invoke(this, args);
-
+		private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+			if ("equals".equals(method.getName())) {
+				return proxy == args[0];
+			} else if ("hashCode".equals(method.getName())) {
+				return System.identityHashCode(proxy);
+			}
+			return "ObserverBus proxy for " + clazz.getName();
 		}
 
-		private List<ObserverCall.Result> notifiyObservers(List<IObserver> observers, Method method, Object[] args) {
-			List<ObserverCall.Result> results = new ArrayList<ObserverCall.Result>(observers.size());
+		private void notifiyObservers(CallRecord record, IObserver[] observers, Method method, Object[] args) {
 			for (IObserver observer : observers) {
+				if (observer instanceof IAsyncObserver) {
+					notifyAsync(observer, method, args);
+					continue;
+				}
 				try {
-					results.add(new Result(observer, method, method.invoke(observer, args)));
+					record.add(observer, method.invoke(observer, args), null);
 				} catch (Throwable e) {
-					results.add(new Result(observer, e, method));
+					record.add(observer, null, e);
 				}
 			}
-			return results;
 		}
 
 		public List<Result> getObserverCallResults() {
-			return lastResults;
+			return callRecords.get().getLastResults();
 		}
 
 		// END SUPRESS CATCH EXCEPTION
 	}
 
+	/**
+	 * The calls of one thread through one proxy. Two records are reused alternately, one for the running call and one
+	 * holding the results of the last call, so a call doesn't allocate anything. Only a call made by an observer
+	 * during another call gets a new record.
+	 */
+	private static final class CallRecords {
+		private CallRecord last;
+		private CallRecord free;
+
+		private CallRecord start(Method method, int observerCount) {
+			CallRecord record = free;
+			free = null;
+			if (record == null) {
+				record = new CallRecord();
+			}
+			record.start(method, observerCount);
+			return record;
+		}
+
+		private void finish(CallRecord record) {
+			if (last != null) {
+				free = last;
+			}
+			last = record;
+		}
+
+		private List<ObserverCall.Result> getLastResults() {
+			if (last == null) {
+				return new ArrayList<ObserverCall.Result>();
+			}
+			return last.toResults();
+		}
+	}
+
+	/**
+	 * The results of a call to the synchronous observers.
+	 */
+	private static final class CallRecord {
+		private Method method;
+		private IObserver[] observers = NO_OBSERVERS;
+		private Object[] results = new Object[0];
+		private Throwable[] exceptions = new Throwable[0];
+		private int size;
+
+		private void start(Method method, int observerCount) {
+			this.method = method;
+			// releases the observers and results of the previous call
+			for (int i = 0; i < size; i++) {
+				observers[i] = null;
+				results[i] = null;
+				exceptions[i] = null;
+			}
+			size = 0;
+			if (observers.length < observerCount) {
+				observers = new IObserver[observerCount];
+				results = new Object[observerCount];
+				exceptions = new Throwable[observerCount];
+			}
+		}
+
+		private void add(IObserver observer, Object result, Throwable exception) {
+			observers[size] = observer;
+			results[size] = result;
+			exceptions[size] = exception;
+			size++;
+		}
+
+		private Object getFirstResultOrDefaultValue() {
+			if (size == 0 || results[0] == null) {
+				// no observers are registered, the first one failed or returned null
+				return ObserverCall.Result.getDefaultValue(method);
+			}
+			return results[0];
+		}
+
+		private List<ObserverCall.Result> toResults() {
+			List<ObserverCall.Result> resultList = new ArrayList<ObserverCall.Result>(size);
+			for (int i = 0; i < size; i++) {
+				if (exceptions[i] != null) {
+					resultList.add(new ObserverCall.Result(observers[i], exceptions[i], method));
+				} else {
+					resultList.add(new ObserverCall.Result(observers[i], method, results[i]));
+				}
+			}
+			return resultList;
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private Class<? extends IObserver>[] getObserverInterfaces(IObserver observer) {
 		HashSet<Class<? extends IObserver>> observerInterfacsFound = new HashSet<Class<? extends IObserver>>();
@@ -143,6 +143,16 @@ public interface AbstractOperation extends IdentifiableElement {
 	 */
 	void apply(IdEObjectCollection project);
 
+	/**
+	 * Apply an operation to the given project like {@link #apply(IdEObjectCollection)}, but move the model elements
+	 * created by the operation into the project instead of copying them. This operation is left without its created
+	 * model elements and must not be used afterwards, so only apply a copy of an operation that is discarded anyway.
+	 * 
+	 * @param project
+	 *            the project
+	 */
+	void applyAndDiscard(IdEObjectCollection project);
+
 	/**
 	 * Reverse the operation. The reversed operation is build such that applying
 	 * this operation and then the reversed operation to a project does not
@@ -17,8 +17,10 @@ import java.util.Set;
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.common.notify.NotificationChain;
 import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.impl.ENotificationImpl;
+import org.eclipse.emf.emfstore.common.model.IdEObjectCollection;
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
 import org.eclipse.emf.emfstore.common.model.impl.IdentifiableElementImpl;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
@@ -26,6 +28,7 @@ import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOpera
 import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationId;
 import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsFactory;
 import org.eclipse.emf.emfstore.server.model.versioning.operations.OperationsPackage;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.util.ModelElementIdSet;
 
 /**
  * <!-- begin-user-doc --> An implementation of the model object '<em><b>Abstract Operation</b></em>'. <!-- end-user-doc
@@ -59,6 +62,20 @@ public abstract class AbstractOperationImpl extends IdentifiableElementImpl impl
 	 */
 	protected ModelElementId modelElementId;
 
+	/**
+	 * The cached ids of all involved model elements.
+	 * 
+	 * @generated NOT
+	 */
+	private ModelElementIdSet allInvolvedModelElements;
+
+	/**
+	 * The cached ids of the other involved model elements.
+	 * 
+	 * @generated NOT
+	 */
+	private ModelElementIdSet otherInvolvedModelElements;
+
 	/**
 	 * The default value of the '{@link #isAccepted() <em>Accepted</em>}' attribute.
 	 * <!-- begin-user-doc --> <!--
@@ -273,6 +290,16 @@ public abstract class AbstractOperationImpl extends IdentifiableElementImpl impl
 		abstractOperation.setClientDate(new Date());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @generated NOT
+	 */
+	public void applyAndDiscard(IdEObjectCollection project) {
+		// only operations that create model elements need to copy them
+		apply(project);
+	}
+
 	// end of custom code
 
 	/**
@@ -387,26 +414,71 @@ public abstract class AbstractOperationImpl extends IdentifiableElementImpl impl
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * {@inheritDoc} The set is cached and read-only, it is cleared whenever this operation or one of its parent
+	 * operations changes.
 	 * 
 	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation#getAllInvolvedModelElements()
 	 */
 	public Set<ModelElementId> getAllInvolvedModelElements() {
-		Set<ModelElementId> result = new HashSet<ModelElementId>();
-		if (getModelElementId() != null) {
-			result.add(getModelElementId());
+		if (allInvolvedModelElements == null) {
+			Set<ModelElementId> result = new HashSet<ModelElementId>(getOtherInvolvedModelElements());
+			if (getModelElementId() != null) {
+				result.add(getModelElementId());
+			}
+			allInvolvedModelElements = ModelElementIdSet.valueOf(result);
 		}
-		result.addAll(getOtherInvolvedModelElements());
-		return result;
+		return allInvolvedModelElements;
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * {@inheritDoc} The set is cached and read-only, subclasses collect the ids in
+	 * {@link #collectOtherInvolvedModelElements()}.
 	 * 
 	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation#getOtherInvolvedModelElements()
 	 */
 	public Set<ModelElementId> getOtherInvolvedModelElements() {
+		if (otherInvolvedModelElements == null) {
+			otherInvolvedModelElements = ModelElementIdSet.valueOf(collectOtherInvolvedModelElements());
+		}
+		return otherInvolvedModelElements;
+	}
+
+	/**
+	 * Collects the model elements that are involved in the operation other than the element the operation is
+	 * directly operating on.
+	 * 
+	 * @return a new set of model element ids
+	 */
+	protected Set<ModelElementId> collectOtherInvolvedModelElements() {
 		return new HashSet<ModelElementId>();
 	}
 
+	/**
+	 * Notifications are required as long as involved model elements are cached, since they clear the caches.
+	 * 
+	 * @see org.eclipse.emf.common.notify.impl.BasicNotifierImpl#eNotificationRequired()
+	 */
+	@Override
+	public boolean eNotificationRequired() {
+		return allInvolvedModelElements != null || otherInvolvedModelElements != null
+			|| super.eNotificationRequired();
+	}
+
+	/**
+	 * {@inheritDoc} Clears the cached involved model elements of this operation and of the operations containing it.
+	 * The ids themselves are not expected to change.
+	 * 
+	 * @see org.eclipse.emf.common.notify.impl.BasicNotifierImpl#eNotify(org.eclipse.emf.common.notify.Notification)
+	 */
+	@Override
+	public void eNotify(Notification notification) {
+		EObject operation = this;
+		while (operation instanceof AbstractOperationImpl) {
+			((AbstractOperationImpl) operation).allInvolvedModelElements = null;
+			((AbstractOperationImpl) operation).otherInvolvedModelElements = null;
+			operation = ((AbstractOperationImpl) operation).eInternalContainer();
+		}
+		super.eNotify(notification);
+	}
+
 } // AbstractOperationImpl
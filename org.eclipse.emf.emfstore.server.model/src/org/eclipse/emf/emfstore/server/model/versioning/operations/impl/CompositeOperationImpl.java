@@ -59,10 +59,10 @@ public class CompositeOperationImpl extends AbstractOperationImpl implements Com
 	/**
 	 * {@inheritDoc}
 	 * 
-	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#getOtherInvolvedModelElements()
+	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#collectOtherInvolvedModelElements()
 	 */
 	@Override
-	public Set<ModelElementId> getOtherInvolvedModelElements() {
+	protected Set<ModelElementId> collectOtherInvolvedModelElements() {
 		Set<ModelElementId> result = new HashSet<ModelElementId>();
 		for (AbstractOperation operation : getSubOperations()) {
 			Set<ModelElementId> allInvolvedModelElements = operation.getAllInvolvedModelElements();
@@ -466,6 +466,13 @@ public class CompositeOperationImpl extends AbstractOperationImpl implements Com
 		}
 	}
 
+	@Override
+	public void applyAndDiscard(IdEObjectCollection project) {
+		for (AbstractOperation abstractOperation : getSubOperations()) {
+			abstractOperation.applyAndDiscard(project);
+		}
+	}
+
 	@Override
 	public AbstractOperation reverse() {
 		CompositeOperation compositeOperation = OperationsFactory.eINSTANCE.createCompositeOperation();
@@ -12,8 +12,10 @@ package org.eclipse.emf.emfstore.server.model.versioning.operations.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.emf.common.notify.Notification;
@@ -128,6 +130,29 @@ public class CreateDeleteOperationImpl extends AbstractOperationImpl implements
 		}
 	}
 
+	@Override
+	public void applyAndDiscard(IdEObjectCollection project) {
+		if (isDelete() || project.contains(getModelElementId())) {
+			apply(project);
+			return;
+		}
+
+		// the created model element and the ids of its children are moved into the project instead of being copied
+		EObject element = getModelElement();
+		Map<EObject, ModelElementId> eObjectToIdMap = new HashMap<EObject, ModelElementId>(getEObjectToIdMap().size());
+		for (Map.Entry<EObject, ModelElementId> entry : getEObjectToIdMap()) {
+			if (!ModelUtil.isIgnoredDatatype(entry.getKey())) {
+				eObjectToIdMap.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		project.addModelElement(element, eObjectToIdMap);
+
+		for (ReferenceOperation operation : getSubOperations()) {
+			operation.apply(project);
+		}
+	}
+
 	@Override
 	public AbstractOperation reverse() {
 		// TODO: see comment in checkValidity
@@ -489,10 +514,10 @@ public class CreateDeleteOperationImpl extends AbstractOperationImpl implements
 	}
 
 	/**
-	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#getOtherInvolvedModelElements()
+	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#collectOtherInvolvedModelElements()
 	 */
 	@Override
-	public Set<ModelElementId> getOtherInvolvedModelElements() {
+	protected Set<ModelElementId> collectOtherInvolvedModelElements() {
 		Set<ModelElementId> result = new HashSet<ModelElementId>();
 		for (ReferenceOperation operation : getSubOperations()) {
 			result.addAll(operation.getAllInvolvedModelElements());
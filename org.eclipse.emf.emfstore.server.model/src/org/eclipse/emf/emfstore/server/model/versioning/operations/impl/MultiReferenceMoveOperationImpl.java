@@ -396,10 +396,10 @@ public class MultiReferenceMoveOperationImpl extends FeatureOperationImpl implem
 	}
 
 	/**
-	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#getOtherInvolvedModelElements()
+	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#collectOtherInvolvedModelElements()
 	 */
 	@Override
-	public Set<ModelElementId> getOtherInvolvedModelElements() {
+	protected Set<ModelElementId> collectOtherInvolvedModelElements() {
 		Set<ModelElementId> result = new HashSet<ModelElementId>();
 		result.add(getReferencedModelElementId());
 		return result;
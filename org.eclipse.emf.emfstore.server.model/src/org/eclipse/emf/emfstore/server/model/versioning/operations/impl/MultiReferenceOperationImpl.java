@@ -377,10 +377,10 @@ public class MultiReferenceOperationImpl extends ReferenceOperationImpl implemen
 	/**
 	 * {@inheritDoc}
 	 * 
-	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation#getOtherInvolvedModelElements()
+	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#collectOtherInvolvedModelElements()
 	 */
 	@Override
-	public Set<ModelElementId> getOtherInvolvedModelElements() {
+	protected Set<ModelElementId> collectOtherInvolvedModelElements() {
 		Set<ModelElementId> set = new HashSet<ModelElementId>();
 		set.addAll(getReferencedModelElements());
 		return set;
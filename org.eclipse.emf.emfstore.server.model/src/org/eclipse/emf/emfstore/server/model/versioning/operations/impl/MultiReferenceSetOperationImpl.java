@@ -450,7 +450,7 @@ public class MultiReferenceSetOperationImpl extends ReferenceOperationImpl imple
 	}
 
 	@Override
-	public Set<ModelElementId> getOtherInvolvedModelElements() {
+	protected Set<ModelElementId> collectOtherInvolvedModelElements() {
 		HashSet<ModelElementId> result = new HashSet<ModelElementId>();
 		result.add(getNewValue());
 		result.add(getOldValue());
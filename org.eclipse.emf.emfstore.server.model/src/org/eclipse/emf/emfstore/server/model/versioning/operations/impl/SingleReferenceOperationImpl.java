@@ -385,10 +385,10 @@ public class SingleReferenceOperationImpl extends ReferenceOperationImpl impleme
 	/**
 	 * {@inheritDoc}
 	 * 
-	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.ReferenceOperation#getOtherInvolvedModelElements()
+	 * @see org.eclipse.emf.emfstore.server.model.versioning.operations.impl.AbstractOperationImpl#collectOtherInvolvedModelElements()
 	 */
 	@Override
-	public Set<ModelElementId> getOtherInvolvedModelElements() {
+	protected Set<ModelElementId> collectOtherInvolvedModelElements() {
 		HashSet<ModelElementId> result = new HashSet<ModelElementId>();
 		ModelElementId newValue = getNewValue();
 		if (newValue != null) {
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.model.versioning.operations.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+
+/**
+ * An immutable set of model element ids, stored as an array sorted by the id strings. It is used to cache the model
+ * elements involved in an operation, which are read much more often than they change.
+ */
+public final class ModelElementIdSet extends AbstractSet<ModelElementId> {
+
+	/**
+	 * The empty set.
+	 */
+	public static final ModelElementIdSet EMPTY = new ModelElementIdSet(new ModelElementId[0]);
+
+	private static final Comparator<ModelElementId> ID_ORDER = new Comparator<ModelElementId>() {
+		public int compare(ModelElementId id1, ModelElementId id2) {
+			// null is allowed as element and sorted first
+			if (id1 == null) {
+				return id2 == null ? 0 : -1;
+			} else if (id2 == null) {
+				return 1;
+			}
+			return id1.getId().compareTo(id2.getId());
+		}
+	};
+
+	private final ModelElementId[] ids;
+
+	private ModelElementIdSet(ModelElementId[] ids) {
+		this.ids = ids;
+	}
+
+	/**
+	 * Returns a set of the given ids, duplicates are removed.
+	 * 
+	 * @param ids the ids
+	 * @return the immutable set
+	 */
+	public static ModelElementIdSet valueOf(Collection<ModelElementId> ids) {
+		if (ids.isEmpty()) {
+			return EMPTY;
+		}
+		if (ids instanceof ModelElementIdSet) {
+			return (ModelElementIdSet) ids;
+		}
+		ModelElementId[] sorted = ids.toArray(new ModelElementId[ids.size()]);
+		Arrays.sort(sorted, ID_ORDER);
+		int size = 1;
+		for (int i = 1; i < sorted.length; i++) {
+			if (ID_ORDER.compare(sorted[size - 1], sorted[i]) != 0) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		if (size < sorted.length) {
+			ModelElementId[] unique = new ModelElementId[size];
+			System.arraycopy(sorted, 0, unique, 0, size);
+			sorted = unique;
+		}
+		return new ModelElementIdSet(sorted);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.util.AbstractCollection#contains(java.lang.Object)
+	 */
+	@Override
+	public boolean contains(Object object) {
+		if (object != null && !(object instanceof ModelElementId)) {
+			return false;
+		}
+		return Arrays.binarySearch(ids, (ModelElementId) object, ID_ORDER) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.util.AbstractCollection#iterator()
+	 */
+	@Override
+	public Iterator<ModelElementId> iterator() {
+		return new Iterator<ModelElementId>() {
+			private int next;
+
+			public boolean hasNext() {
+				return next < ids.length;
+			}
+
+			public ModelElementId next() {
+				if (next >= ids.length) {
+					throw new NoSuchElementException();
+				}
+				return ids[next++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("The set is read-only.");
+			}
+		};
+	}
+}
@@ -0,0 +1,715 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.model.versioning.operations.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.emfstore.common.model.IdEObjectCollection;
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.ContainmentType;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CreateDeleteOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.FeatureOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiAttributeMoveOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiAttributeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiAttributeSetOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceMoveOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceSetOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.ReferenceOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.UnkownFeatureException;
+
+/**
+ * Transforms operations so they can be applied on top of operations which have been made concurrently on the same
+ * base state. An update can then apply the incoming operations directly instead of reverting the local operations,
+ * applying the incoming ones and applying the local ones again.
+ * 
+ * A transformation is only done if its result is exactly the one of the revert and replay. Both sides may only share
+ * list features changed by index based operations. The indexes of the incoming operations on such a list are adjusted
+ * to the local changes, then the list is simulated in both orders and the transformation is rejected if the results
+ * differ. Creating or deleting elements involved on the other side, changing the container of the same element or
+ * changing any other common feature, directly or as the opposite of a reference, always leads to a rejection.
+ */
+public final class OperationTransformer {
+
+	/**
+	 * Private constructor.
+	 */
+	private OperationTransformer() {
+		// do nothing
+	}
+
+	/**
+	 * Adjusts the indexes of incoming operations so they can be applied to a collection after the local operations,
+	 * with the same result as applying the local operations after the incoming ones.
+	 * 
+	 * @param collection the collection in its current state, i.e. the base state with the local operations applied
+	 * @param localOperations the local operations in the order they have been applied
+	 * @param operations the incoming operations based on the same base state, the operations are adjusted in place
+	 * @return true if the adjusted operations can be applied to the collection, false if the local operations have to
+	 *         be reverted before. In this case the operations are left unchanged, so they can be applied after the
+	 *         revert.
+	 */
+	public static boolean transform(IdEObjectCollection collection, List<AbstractOperation> localOperations,
+		List<AbstractOperation> operations) {
+		if (localOperations.isEmpty() || operations.isEmpty()) {
+			return true;
+		}
+		SavedIndexes savedIndexes = null;
+		try {
+			Footprint local = new Footprint(localOperations);
+			Footprint incoming = new Footprint(operations);
+			if (!local.supported || !incoming.supported || local.interferesWith(incoming)
+				|| incoming.interferesWith(local)) {
+				return false;
+			}
+			savedIndexes = new SavedIndexes(incoming.lists.values());
+			for (Map.Entry<List<String>, List<FeatureOperation>> entry : incoming.lists.entrySet()) {
+				List<FeatureOperation> localListOperations = local.lists.get(entry.getKey());
+				if (localListOperations != null
+					&& !transformList(collection, localListOperations, entry.getValue(), incoming.created)) {
+					savedIndexes.restore();
+					return false;
+				}
+			}
+			return true;
+			// BEGIN SUPRESS CATCH EXCEPTION
+		} catch (RuntimeException e) {
+			ModelUtil.logWarning("Operations couldn't be transformed, the local operations are reverted instead.", e);
+			if (savedIndexes != null) {
+				savedIndexes.restore();
+			}
+			return false;
+		}
+		// END SUPRESS CATCH EXCEPTION
+	}
+
+	private static boolean transformList(IdEObjectCollection collection, List<FeatureOperation> localOperations,
+		List<FeatureOperation> operations, Set<String> created) {
+		FeatureOperation first = localOperations.get(0);
+		EObject element = collection.getModelElement(first.getModelElementId());
+		if (element == null) {
+			return false;
+		}
+		EStructuralFeature feature;
+		try {
+			feature = first.getFeature(element);
+		} catch (UnkownFeatureException e) {
+			return false;
+		}
+		if (!feature.isMany()) {
+			return false;
+		}
+		SimulatedList list = new SimulatedList(collection, feature, created);
+		for (FeatureOperation operation : localOperations) {
+			if (!list.accepts(operation)) {
+				return false;
+			}
+		}
+		for (FeatureOperation operation : operations) {
+			if (!list.accepts(operation)) {
+				return false;
+			}
+		}
+
+		List<Object> current = list.read(element);
+		if (current == null) {
+			return false;
+		}
+		// the base state is derived from the current one, applying the local operations again has to restore it
+		List<Object> base = new ArrayList<Object>(current);
+		for (int i = localOperations.size() - 1; i >= 0; i--) {
+			if (!list.apply((FeatureOperation) localOperations.get(i).reverse(), base)) {
+				return false;
+			}
+		}
+		List<Object> local = new ArrayList<Object>(base);
+		if (!list.applyAll(localOperations, local) || !list.haveEqualValues(local, current)) {
+			return false;
+		}
+
+		// the incoming operations are applied to the base state and, transformed, to the local state
+		List<Object> incoming = base;
+		for (FeatureOperation operation : operations) {
+			if (!list.transform(operation, incoming, local)) {
+				return false;
+			}
+		}
+		List<Object> replayed = new ArrayList<Object>(incoming);
+		return list.applyAll(localOperations, replayed) && list.haveEqualValues(replayed, local);
+	}
+
+	private static List<String> key(ModelElementId modelElementId, String featureName) {
+		return Arrays.asList(modelElementId == null ? null : modelElementId.getId(), featureName);
+	}
+
+	private static void addIds(Set<String> ids, Collection<ModelElementId> modelElementIds) {
+		for (ModelElementId modelElementId : modelElementIds) {
+			ids.add(modelElementId.getId());
+		}
+	}
+
+	private static boolean intersect(Set<String> first, Set<String> second) {
+		for (String id : first) {
+			if (second.contains(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isListOperation(AbstractOperation operation) {
+		return operation instanceof MultiReferenceOperation || operation instanceof MultiReferenceMoveOperation
+			|| operation instanceof MultiReferenceSetOperation || operation instanceof MultiAttributeOperation
+			|| operation instanceof MultiAttributeMoveOperation || operation instanceof MultiAttributeSetOperation;
+	}
+
+	/**
+	 * The elements and features touched by a list of operations.
+	 */
+	private static final class Footprint {
+
+		// list features changed by index based operations, by element id and feature name
+		private final Map<List<String>, List<FeatureOperation>> lists;
+		// all other features changed, directly or as opposite of a reference
+		private final Set<List<String>> features;
+		private final Set<String> created;
+		private final Set<String> createdOrDeleted;
+		// elements whose container is changed
+		private final Set<String> moved;
+		private final Set<String> involved;
+		private boolean supported;
+
+		private Footprint(List<AbstractOperation> operations) {
+			lists = new LinkedHashMap<List<String>, List<FeatureOperation>>();
+			features = new HashSet<List<String>>();
+			created = new HashSet<String>();
+			createdOrDeleted = new HashSet<String>();
+			moved = new HashSet<String>();
+			involved = new HashSet<String>();
+			supported = true;
+			for (AbstractOperation operation : operations) {
+				add(operation);
+			}
+		}
+
+		private void add(AbstractOperation operation) {
+			if (operation instanceof CompositeOperation) {
+				for (AbstractOperation subOperation : ((CompositeOperation) operation).getSubOperations()) {
+					add(subOperation);
+				}
+				return;
+			}
+			if (operation instanceof CreateDeleteOperation) {
+				CreateDeleteOperation createDeleteOperation = (CreateDeleteOperation) operation;
+				Set<String> ids = new HashSet<String>();
+				ids.add(createDeleteOperation.getModelElementId().getId());
+				addIds(ids, createDeleteOperation.getEObjectToIdMap().values());
+				createdOrDeleted.addAll(ids);
+				if (!createDeleteOperation.isDelete()) {
+					created.addAll(ids);
+				}
+				involved.add(createDeleteOperation.getModelElementId().getId());
+				for (ReferenceOperation subOperation : createDeleteOperation.getSubOperations()) {
+					add(subOperation);
+				}
+				return;
+			}
+			if (!(operation instanceof FeatureOperation)) {
+				supported = false;
+				return;
+			}
+			FeatureOperation featureOperation = (FeatureOperation) operation;
+			addIds(involved, featureOperation.getAllInvolvedModelElements());
+			List<String> key = key(featureOperation.getModelElementId(), featureOperation.getFeatureName());
+			if (isListOperation(featureOperation)) {
+				List<FeatureOperation> listOperations = lists.get(key);
+				if (listOperations == null) {
+					listOperations = new ArrayList<FeatureOperation>();
+					lists.put(key, listOperations);
+				}
+				listOperations.add(featureOperation);
+			} else {
+				features.add(key);
+			}
+			if (featureOperation instanceof ReferenceOperation) {
+				ReferenceOperation referenceOperation = (ReferenceOperation) featureOperation;
+				if (referenceOperation.isBidirectional()) {
+					for (ModelElementId referencedId : referenceOperation.getOtherInvolvedModelElements()) {
+						features.add(key(referencedId, referenceOperation.getOppositeFeatureName()));
+					}
+				}
+				if (referenceOperation.getContainmentType() == ContainmentType.CONTAINMENT) {
+					addIds(moved, referenceOperation.getOtherInvolvedModelElements());
+				} else if (referenceOperation.getContainmentType() == ContainmentType.CONTAINER) {
+					moved.add(referenceOperation.getModelElementId().getId());
+				}
+			}
+		}
+
+		private boolean interferesWith(Footprint other) {
+			if (intersect(createdOrDeleted, other.involved) || intersect(moved, other.moved)) {
+				return true;
+			}
+			for (List<String> key : features) {
+				if (other.features.contains(key) || other.lists.containsKey(key)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Simulates index based operations on a list feature. The entries of reference lists are the ids of the referenced
+	 * elements, which are unique. The entries of attribute lists are {@link Slot}s, so equal values can be told apart.
+	 * Operations the simulation can't reproduce exactly make it fail.
+	 */
+	private static final class SimulatedList {
+
+		private final IdEObjectCollection collection;
+		private final EStructuralFeature feature;
+		private final boolean references;
+		private final Set<String> created;
+
+		private SimulatedList(IdEObjectCollection collection, EStructuralFeature feature, Set<String> created) {
+			this.collection = collection;
+			this.feature = feature;
+			this.created = created;
+			references = feature instanceof EReference;
+		}
+
+		private boolean accepts(FeatureOperation operation) {
+			boolean referenceOperation = operation instanceof MultiReferenceOperation
+				|| operation instanceof MultiReferenceMoveOperation || operation instanceof MultiReferenceSetOperation;
+			return referenceOperation == references;
+		}
+
+		private List<Object> read(EObject element) {
+			List<Object> entries = new ArrayList<Object>();
+			for (Object value : (List<?>) element.eGet(feature)) {
+				if (references) {
+					ModelElementId modelElementId = collection.getModelElementId((EObject) value);
+					if (modelElementId == null) {
+						return null;
+					}
+					entries.add(modelElementId.getId());
+				} else {
+					entries.add(new Slot(value));
+				}
+			}
+			return entries;
+		}
+
+		private boolean haveEqualValues(List<Object> first, List<Object> second) {
+			if (first.size() != second.size()) {
+				return false;
+			}
+			for (int i = 0; i < first.size(); i++) {
+				if (!equal(value(first.get(i)), value(second.get(i)))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean applyAll(List<FeatureOperation> operations, List<Object> list) {
+			for (FeatureOperation operation : operations) {
+				if (!apply(operation, list)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// mirrors AbstractOperation#apply for the list operations
+		private boolean apply(FeatureOperation operation, List<Object> list) {
+			if (operation instanceof MultiReferenceOperation) {
+				MultiReferenceOperation referenceOperation = (MultiReferenceOperation) operation;
+				List<String> ids = resolve(referenceOperation.getReferencedModelElements());
+				if (ids == null) {
+					return false;
+				}
+				if (referenceOperation.isAdd()) {
+					addReferences(list, referenceOperation.getIndex(), ids);
+				} else {
+					list.removeAll(ids);
+				}
+			} else if (operation instanceof MultiReferenceMoveOperation) {
+				MultiReferenceMoveOperation moveOperation = (MultiReferenceMoveOperation) operation;
+				String id = resolve(moveOperation.getReferencedModelElementId());
+				if (id == null) {
+					return false;
+				}
+				int newIndex = moveOperation.getNewIndex();
+				if (newIndex >= 0 && newIndex < list.size() && list.remove(id)) {
+					list.add(newIndex, id);
+				}
+			} else if (operation instanceof MultiReferenceSetOperation) {
+				MultiReferenceSetOperation setOperation = (MultiReferenceSetOperation) operation;
+				return setReference(list, setOperation);
+			} else if (operation instanceof MultiAttributeOperation) {
+				MultiAttributeOperation attributeOperation = (MultiAttributeOperation) operation;
+				EList<Object> values = attributeOperation.getReferencedValues();
+				EList<Integer> indexes = attributeOperation.getIndexes();
+				if (values.size() != indexes.size()) {
+					return true;
+				}
+				if (attributeOperation.isAdd()) {
+					for (int i = 0; i < values.size(); i++) {
+						if (!addValue(list, indexes.get(i), new Slot(values.get(i)))) {
+							return false;
+						}
+					}
+				} else {
+					for (int i = indexes.size() - 1; i >= 0; i--) {
+						int index = indexes.get(i);
+						if (index >= 0 && list.size() > index) {
+							list.remove(index);
+						}
+					}
+				}
+			} else if (operation instanceof MultiAttributeMoveOperation) {
+				MultiAttributeMoveOperation moveOperation = (MultiAttributeMoveOperation) operation;
+				int oldIndex = moveOperation.getOldIndex();
+				int newIndex = moveOperation.getNewIndex();
+				if (oldIndex >= 0 && newIndex >= 0 && list.size() > oldIndex && list.size() > newIndex) {
+					list.add(newIndex, list.remove(oldIndex));
+				}
+			} else {
+				MultiAttributeSetOperation setOperation = (MultiAttributeSetOperation) operation;
+				int index = setOperation.getIndex();
+				if (index >= 0 && index < list.size()) {
+					return setValue(list, index, new Slot(setOperation.getNewValue()));
+				}
+			}
+			return true;
+		}
+
+		// applies an incoming operation to the base list and, with adjusted indexes, to the local list
+		private boolean transform(FeatureOperation operation, List<Object> base, List<Object> local) {
+			if (operation instanceof MultiReferenceOperation) {
+				MultiReferenceOperation referenceOperation = (MultiReferenceOperation) operation;
+				List<String> ids = resolve(referenceOperation.getReferencedModelElements());
+				if (ids == null) {
+					return false;
+				}
+				if (referenceOperation.isAdd()) {
+					int index = referenceOperation.getIndex();
+					int localIndex = local.size();
+					if (index > -1 && index < base.size()) {
+						localIndex = anchor(base, index, local);
+					}
+					addReferences(base, index, ids);
+					referenceOperation.setIndex(localIndex);
+					addReferences(local, localIndex, ids);
+				} else {
+					base.removeAll(ids);
+					local.removeAll(ids);
+				}
+			} else if (operation instanceof MultiReferenceMoveOperation) {
+				MultiReferenceMoveOperation moveOperation = (MultiReferenceMoveOperation) operation;
+				String id = resolve(moveOperation.getReferencedModelElementId());
+				if (id == null) {
+					return false;
+				}
+				int newIndex = moveOperation.getNewIndex();
+				if (newIndex < 0 || newIndex >= base.size() || !base.contains(id)) {
+					moveOperation.setNewIndex(-1);
+					return true;
+				}
+				base.remove(id);
+				base.add(newIndex, id);
+				int oldIndex = local.indexOf(id);
+				int localIndex = move(base, newIndex, local, oldIndex);
+				if (localIndex == -1) {
+					return false;
+				}
+				moveOperation.setOldIndex(oldIndex);
+				moveOperation.setNewIndex(localIndex);
+			} else if (operation instanceof MultiReferenceSetOperation) {
+				MultiReferenceSetOperation setOperation = (MultiReferenceSetOperation) operation;
+				int localIndex = local.indexOf(resolve(setOperation.getOldValue()));
+				if (!setReference(base, setOperation) || !setReference(local, setOperation)) {
+					return false;
+				}
+				if (localIndex != -1) {
+					setOperation.setIndex(localIndex);
+				}
+			} else if (operation instanceof MultiAttributeOperation) {
+				return transformAttributes((MultiAttributeOperation) operation, base, local);
+			} else if (operation instanceof MultiAttributeMoveOperation) {
+				MultiAttributeMoveOperation moveOperation = (MultiAttributeMoveOperation) operation;
+				int oldIndex = moveOperation.getOldIndex();
+				int newIndex = moveOperation.getNewIndex();
+				if (oldIndex < 0 || newIndex < 0 || base.size() <= oldIndex || base.size() <= newIndex) {
+					moveOperation.setOldIndex(-1);
+					moveOperation.setNewIndex(-1);
+					return true;
+				}
+				Object slot = base.remove(oldIndex);
+				base.add(newIndex, slot);
+				int localOldIndex = local.indexOf(slot);
+				int localIndex = move(base, newIndex, local, localOldIndex);
+				if (localIndex == -1) {
+					return false;
+				}
+				moveOperation.setOldIndex(localOldIndex);
+				moveOperation.setNewIndex(localIndex);
+			} else {
+				MultiAttributeSetOperation setOperation = (MultiAttributeSetOperation) operation;
+				int index = setOperation.getIndex();
+				if (index < 0 || index >= base.size()) {
+					setOperation.setIndex(-1);
+					return true;
+				}
+				int localIndex = local.indexOf(base.get(index));
+				Slot slot = new Slot(setOperation.getNewValue());
+				if (localIndex == -1 || !setValue(base, index, slot) || !setValue(local, localIndex, slot)) {
+					return false;
+				}
+				setOperation.setIndex(localIndex);
+			}
+			return true;
+		}
+
+		private boolean transformAttributes(MultiAttributeOperation operation, List<Object> base, List<Object> local) {
+			EList<Object> values = operation.getReferencedValues();
+			EList<Integer> indexes = operation.getIndexes();
+			if (values.size() != indexes.size()) {
+				return true;
+			}
+			int[] localIndexes = new int[indexes.size()];
+			if (operation.isAdd()) {
+				for (int i = 0; i < values.size(); i++) {
+					int index = indexes.get(i);
+					localIndexes[i] = -1;
+					if (index > -1 && base.size() >= index) {
+						localIndexes[i] = anchor(base, index, local);
+					}
+					Slot slot = new Slot(values.get(i));
+					if (!addValue(base, index, slot) || !addValue(local, localIndexes[i], slot)) {
+						return false;
+					}
+				}
+			} else {
+				for (int i = indexes.size() - 1; i >= 0; i--) {
+					int index = indexes.get(i);
+					localIndexes[i] = -1;
+					if (index >= 0 && base.size() > index) {
+						localIndexes[i] = local.indexOf(base.remove(index));
+						if (localIndexes[i] == -1) {
+							return false;
+						}
+						local.remove(localIndexes[i]);
+					}
+				}
+			}
+			for (int i = 0; i < localIndexes.length; i++) {
+				indexes.set(i, localIndexes[i]);
+			}
+			return true;
+		}
+
+		// moves an entry of the local list before the entry following it in the base list, returns the new index
+		private static int move(List<Object> base, int baseIndex, List<Object> local, int localIndex) {
+			if (localIndex == -1) {
+				return -1;
+			}
+			Object entry = local.remove(localIndex);
+			int newIndex = anchor(base, baseIndex + 1, local);
+			local.add(newIndex, entry);
+			return newIndex;
+		}
+
+		// the local index of the first entry of the base list from the given index on which is in the local list
+		private static int anchor(List<Object> base, int index, List<Object> local) {
+			for (int i = index; i < base.size(); i++) {
+				int localIndex = local.indexOf(base.get(i));
+				if (localIndex != -1) {
+					return localIndex;
+				}
+			}
+			return local.size();
+		}
+
+		private static void addReferences(List<Object> list, int index, List<String> ids) {
+			if (index < list.size() && index > -1) {
+				int i = index;
+				for (String id : ids) {
+					if (i < list.size()) {
+						// adds the element or moves it if it is contained already
+						list.remove(id);
+						list.add(i, id);
+					} else if (!list.contains(id)) {
+						list.add(id);
+					}
+					i++;
+				}
+			} else {
+				for (String id : ids) {
+					if (!list.contains(id)) {
+						list.add(id);
+					}
+				}
+			}
+		}
+
+		private boolean setReference(List<Object> list, MultiReferenceSetOperation operation) {
+			String oldId = resolve(operation.getOldValue());
+			String newId = resolve(operation.getNewValue());
+			if (oldId == null || newId == null) {
+				return false;
+			}
+			int index = list.indexOf(oldId);
+			if (index == -1) {
+				return true;
+			}
+			list.remove(index);
+			if (list.contains(newId)) {
+				// violates the uniqueness of the list
+				return false;
+			}
+			list.add(index, newId);
+			return true;
+		}
+
+		private boolean addValue(List<Object> list, int index, Slot slot) {
+			boolean duplicate = feature.isUnique() && containsValue(list, slot.value);
+			if (index > -1 && list.size() >= index) {
+				if (duplicate) {
+					// violates the uniqueness of the list
+					return false;
+				}
+				list.add(index, slot);
+			} else if (!duplicate) {
+				list.add(slot);
+			}
+			return true;
+		}
+
+		private boolean setValue(List<Object> list, int index, Slot slot) {
+			if (feature.isUnique()) {
+				for (int i = 0; i < list.size(); i++) {
+					if (i != index && equal(value(list.get(i)), slot.value)) {
+						return false;
+					}
+				}
+			}
+			list.set(index, slot);
+			return true;
+		}
+
+		private static boolean containsValue(List<Object> list, Object value) {
+			for (Object entry : list) {
+				if (equal(value(entry), value)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private List<String> resolve(List<ModelElementId> modelElementIds) {
+			List<String> ids = new ArrayList<String>(modelElementIds.size());
+			for (ModelElementId modelElementId : modelElementIds) {
+				String id = resolve(modelElementId);
+				if (id == null) {
+					return null;
+				}
+				ids.add(id);
+			}
+			return ids;
+		}
+
+		// elements which don't exist when the operation is applied are ignored by it, they are not simulated
+		private String resolve(ModelElementId modelElementId) {
+			if (modelElementId == null) {
+				return null;
+			}
+			String id = modelElementId.getId();
+			if (collection.getModelElement(modelElementId) == null && !created.contains(id)) {
+				return null;
+			}
+			return id;
+		}
+
+		private static Object value(Object entry) {
+			return entry instanceof Slot ? ((Slot) entry).value : entry;
+		}
+
+		private static boolean equal(Object first, Object second) {
+			return first == null ? second == null : first.equals(second);
+		}
+	}
+
+	/**
+	 * An entry of a simulated attribute list.
+	 */
+	private static final class Slot {
+
+		private final Object value;
+
+		private Slot(Object value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The indexes of list operations as they were before the transformation, so a rejected transformation can be
+	 * undone.
+	 */
+	private static final class SavedIndexes {
+
+		private final List<FeatureOperation> operations;
+		private final List<EAttribute> attributes;
+		private final List<Object> values;
+
+		private SavedIndexes(Collection<List<FeatureOperation>> operationLists) {
+			operations = new ArrayList<FeatureOperation>();
+			attributes = new ArrayList<EAttribute>();
+			values = new ArrayList<Object>();
+			for (List<FeatureOperation> listOperations : operationLists) {
+				for (FeatureOperation operation : listOperations) {
+					for (EAttribute attribute : operation.eClass().getEAllAttributes()) {
+						if (attribute.getEAttributeType() != EcorePackage.Literals.EINT) {
+							continue;
+						}
+						Object value = operation.eGet(attribute);
+						operations.add(operation);
+						attributes.add(attribute);
+						values.add(attribute.isMany() ? new ArrayList<Object>((List<?>) value) : value);
+					}
+				}
+			}
+		}
+
+		private void restore() {
+			for (int i = 0; i < operations.size(); i++) {
+				operations.get(i).eSet(attributes.get(i), values.get(i));
+			}
+		}
+	}
+}
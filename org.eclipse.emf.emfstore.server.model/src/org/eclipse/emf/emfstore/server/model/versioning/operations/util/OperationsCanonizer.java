@@ -10,10 +10,16 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.server.model.versioning.operations.util;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
@@ -26,6 +32,9 @@ import org.eclipse.emf.emfstore.server.model.versioning.operations.CreateDeleteO
  * Canonizes a list of operations. Removes all operations that are not necessary to achieve the same result when the
  * list of operations is applied to a project. Contract: project.apply(opList) = project.apply(cannonizedOpList)
  * 
+ * Each folding step passes over the operations once, finding the operations to fold into by a hash index on the model
+ * element id (and feature). Folded operations are only marked, the list is compacted once at the end.
+ * 
  * @author koegel
  */
 public final class OperationsCanonizer {
@@ -44,12 +53,14 @@ public final class OperationsCanonizer {
 	 */
 	public static void canonize(List<AbstractOperation> operations) {
 
+		AbstractOperation[] ops = operations.toArray(new AbstractOperation[operations.size()]);
+		boolean[] removed = new boolean[ops.length];
 		try {
-			foldComposites(operations);
-			foldAttributes(operations);
-			foldAttributesIntoCreates(operations);
-			foldAttributesIntoDeletes(operations);
-			foldCreatesAndDeletes(operations);
+			foldComposites(ops, removed);
+			foldAttributes(ops, removed);
+			foldAttributesIntoCreates(ops, removed);
+			foldAttributesIntoDeletes(ops, removed);
+			foldCreatesAndDeletes(ops, removed);
 
 			// BEGIN SUPRESS CATCH EXCEPTION
 		} catch (RuntimeException e) {
@@ -57,169 +68,192 @@ public final class OperationsCanonizer {
 		}
 		// END SUPRESS CATCH EXCEPTION
 
+		// operations folded before an exception are removed nevertheless
+		compact(operations, removed);
 	}
 
-	// neighbouring create and delete will be removed
-	private static void foldCreatesAndDeletes(List<AbstractOperation> operations) {
-
-		for (int i = 0; i < operations.size() - 1; i++) {
-
-			// look for a create operation
-			AbstractOperation opLeft = operations.get(i);
-			if (!(opLeft instanceof CreateDeleteOperation)) {
-				continue;
+	private static void compact(List<AbstractOperation> operations, boolean[] removed) {
+		if (operations instanceof EList) {
+			// the remaining operations must not be detached from their container, so the removed ones are removed
+			// one by one, starting at the end
+			for (int i = removed.length - 1; i >= 0; i--) {
+				if (removed[i]) {
+					operations.remove(i);
+				}
 			}
-			CreateDeleteOperation createOp = (CreateDeleteOperation) opLeft;
-
-			if (createOp.isDelete()) {
-				continue;
+			return;
+		}
+		List<AbstractOperation> remaining = new ArrayList<AbstractOperation>(operations.size());
+		for (int i = 0; i < removed.length; i++) {
+			if (!removed[i]) {
+				remaining.add(operations.get(i));
 			}
+		}
+		if (remaining.size() < operations.size()) {
+			operations.clear();
+			operations.addAll(remaining);
+		}
+	}
 
-			// ok, we got one, see if the next one is a matching delete
-			AbstractOperation opRight = operations.get(i + 1);
-			if (!(opRight instanceof CreateDeleteOperation)) {
+	// neighbouring create and delete will be removed
+	private static void foldCreatesAndDeletes(AbstractOperation[] ops, boolean[] removed) {
+
+		// doubly linked list of the remaining operations
+		int[] next = new int[ops.length];
+		int[] previous = new int[ops.length];
+		int first = -1;
+		int last = -1;
+		int size = 0;
+		for (int i = 0; i < ops.length; i++) {
+			if (removed[i]) {
 				continue;
 			}
-			CreateDeleteOperation deleteOp = (CreateDeleteOperation) opRight;
-
-			if (!deleteOp.isDelete()) {
-				continue;
+			previous[i] = last;
+			next[i] = -1;
+			if (last == -1) {
+				first = i;
+			} else {
+				next[last] = i;
 			}
+			last = i;
+			size++;
+		}
 
-			// ok, we got a create followed by a delete, if they have matching ids, remove them
+		int position = 0;
+		int current = first;
+		while (position < size - 1) {
 
-			if (createOp.getModelElementId().equals(deleteOp.getModelElementId())) {
-				// remove both
-				operations.remove(i + 1);
-				operations.remove(i);
-				i = Math.max(0, i - 2); // reexamine the preceeding index
+			int following = next[current];
+			if (!isCreate(ops[current]) || !isDelete(ops[following])
+				|| !ops[current].getModelElementId().equals(ops[following].getModelElementId())) {
+				current = following;
+				position++;
+				continue;
+			}
 
+			// remove both
+			removed[current] = true;
+			removed[following] = true;
+			size -= 2;
+			int before = previous[current];
+			int after = next[following];
+			if (before == -1) {
+				first = after;
+			} else {
+				next[before] = after;
+			}
+			if (after != -1) {
+				previous[after] = before;
 			}
 
+			// reexamine the preceeding index, the list behaves like the index based loop it replaces: next index is
+			// max(0, position - 2) + 1
+			if (position >= 2) {
+				position--;
+				current = before;
+			} else {
+				position = 1;
+				current = first == -1 ? -1 : next[first];
+			}
 		}
-
 	}
 
-	private static void foldAttributesIntoCreates(List<AbstractOperation> operations) {
+	private static void foldAttributesIntoCreates(AbstractOperation[] ops, boolean[] removed) {
 
-		// look for suitable create operation
-		for (int i = 0; i < operations.size() - 1; i++) {
+		// the first create operation of each element, until a composite operation changing an attribute of the element
+		Map<String, CreateDeleteOperation> creates = new HashMap<String, CreateDeleteOperation>();
 
-			AbstractOperation opLeft = operations.get(i);
-			if (!(opLeft instanceof CreateDeleteOperation)) {
-				continue;
-			}
-			CreateDeleteOperation createOp = (CreateDeleteOperation) opLeft;
+		for (int i = 0; i < ops.length; i++) {
 
-			if (createOp.isDelete()) {
+			if (removed[i]) {
 				continue;
 			}
+			AbstractOperation op = ops[i];
 
-			// found valid create operation, now looking for attribute operations for
-			// the new object
-			for (int j = i + 1; j < operations.size(); j++) {
-
-				AbstractOperation opRight = operations.get(j);
-
-				if (opRight instanceof AttributeOperation
-					&& opLeft.getModelElementId().equals(opRight.getModelElementId())) {
+			if (isCreate(op)) {
+				String id = op.getModelElementId().getId();
+				if (!creates.containsKey(id)) {
+					creates.put(id, (CreateDeleteOperation) op);
+				}
 
-					AttributeOperation attOp = (AttributeOperation) opRight;
+			} else if (op instanceof AttributeOperation) {
+				CreateDeleteOperation createOp = creates.get(getId(op));
+				if (createOp != null) {
+					AttributeOperation attOp = (AttributeOperation) op;
 					// found an attribute change for the new object
 					// now merge it into the created object and discard the attribute operation
 					EStructuralFeature feature = createOp.getModelElement().eClass()
 						.getEStructuralFeature(attOp.getFeatureName());
 					createOp.getModelElement().eSet(feature, attOp.getNewValue());
-
-					operations.remove(j); // remove attribute operation
-					j--; // reexamine the index after removal
-
+					removed[i] = true;
 				}
 
-				// stop if a composite operation occurs, that contains an attribute operation on created object
-				if (opRight instanceof CompositeOperation) {
-
-					if (containsAttributeChangeTo((CompositeOperation) opRight, createOp.getModelElementId())) {
-						break;
-					}
-				}
+			} else if (op instanceof CompositeOperation) {
+				// stop at a composite operation, that contains an attribute operation on created object
+				creates.keySet().removeAll(getAttributeChanges((CompositeOperation) op));
 			}
 		}
 	}
 
-	private static void foldAttributesIntoDeletes(List<AbstractOperation> operations) {
+	private static void foldAttributesIntoDeletes(AbstractOperation[] ops, boolean[] removed) {
 
-		// look for suitable delete operation
-		for (int i = operations.size() - 1; i > 0 && i < operations.size(); i--) {
+		// the last delete operation of each element, until a composite operation changing an attribute of the element
+		Map<String, CreateDeleteOperation> deletes = new HashMap<String, CreateDeleteOperation>();
 
-			AbstractOperation opRight = operations.get(i);
-			if (!(opRight instanceof CreateDeleteOperation)) {
-				continue;
-			}
-			CreateDeleteOperation deleteOp = (CreateDeleteOperation) opRight;
+		for (int i = ops.length - 1; i >= 0; i--) {
 
-			if (!deleteOp.isDelete()) {
+			if (removed[i]) {
 				continue;
 			}
+			AbstractOperation op = ops[i];
 
-			// found valid delete operation, now looking for attribute operations for
-			// the object
-			for (int j = i - 1; j >= 0; j--) {
-
-				AbstractOperation opLeft = operations.get(j);
-
-				if (opLeft instanceof AttributeOperation
-					&& opRight.getModelElementId().equals(opLeft.getModelElementId())) {
+			if (isDelete(op)) {
+				String id = op.getModelElementId().getId();
+				if (!deletes.containsKey(id)) {
+					deletes.put(id, (CreateDeleteOperation) op);
+				}
 
-					AttributeOperation attOp = (AttributeOperation) opLeft;
+			} else if (op instanceof AttributeOperation) {
+				CreateDeleteOperation deleteOp = deletes.get(getId(op));
+				if (deleteOp != null) {
+					AttributeOperation attOp = (AttributeOperation) op;
 					// found an attribute change for the object, that is deleted
 					// now merge it into the deleted object and discard the attribute operation
 					EStructuralFeature feature = deleteOp.getModelElement().eClass()
 						.getEStructuralFeature(attOp.getFeatureName());
 					deleteOp.getModelElement().eSet(feature, attOp.getOldValue());
-
-					operations.remove(j); // remove attribute operation
-					i--; // keep main loop consistent
-
-				}
-
-				// stop if a composite operation occurs, that contains an attribute operation on created object
-				if (opLeft instanceof CompositeOperation) {
-
-					if (containsAttributeChangeTo((CompositeOperation) opLeft, deleteOp.getModelElementId())) {
-						break;
-					}
-
+					removed[i] = true;
 				}
 
+			} else if (op instanceof CompositeOperation) {
+				// stop at a composite operation, that contains an attribute operation on deleted object
+				deletes.keySet().removeAll(getAttributeChanges((CompositeOperation) op));
 			}
-
 		}
-
 	}
 
-	private static boolean containsAttributeChangeTo(CompositeOperation comp, ModelElementId modelElementId) {
+	private static Set<String> getAttributeChanges(CompositeOperation comp) {
 
+		Set<String> result = new HashSet<String>();
 		for (AbstractOperation op : comp.getSubOperations()) {
 
-			if (op instanceof AttributeOperation && modelElementId.equals(op.getModelElementId())) {
-				return true;
+			if (op instanceof AttributeOperation && op.getModelElementId() != null) {
+				result.add(op.getModelElementId().getId());
 			}
 
 		}
 
-		return false;
+		return result;
 	}
 
-	private static void foldComposites(List<AbstractOperation> operations) {
+	private static void foldComposites(AbstractOperation[] ops, boolean[] removed) {
 
-		List<CompositeOperation> emptyComposites = new LinkedList<CompositeOperation>();
-		for (AbstractOperation op : operations) {
+		for (int i = 0; i < ops.length; i++) {
 
-			if (!(op instanceof CompositeOperation)) {
+			if (!(ops[i] instanceof CompositeOperation)) {
 				continue;
 			}
-			CompositeOperation comp = (CompositeOperation) op;
+			CompositeOperation comp = (CompositeOperation) ops[i];
 
 			// safeguard preparation: if the main operation of the composite has been canonized away,
 			// the canonization is reverted. This generates more operations,
@@ -228,12 +262,11 @@ public final class OperationsCanonizer {
 
 			if (comp.getMainOperation() != null) {
 				operationCopy = ModelUtil.clone(comp);
-				// operationCopy = ModelUtil.eObjectToString(comp);
 			}
 
 			OperationsCanonizer.canonize(comp.getSubOperations());
 			if (comp.getSubOperations().size() == 0) {
-				emptyComposites.add(comp);
+				removed[i] = true;
 			}
 			// safeguard implementation: restore original composite operation if the main operation has been canonized
 			// away
@@ -245,49 +278,70 @@ public final class OperationsCanonizer {
 				comp.setMainOperation(restored.getMainOperation());
 			}
 		}
-		operations.removeAll(emptyComposites);
 	}
 
-	private static void foldAttributes(List<AbstractOperation> operations) {
+	private static void foldAttributes(AbstractOperation[] ops, boolean[] removed) {
+
+		// the first attribute operation of each element and feature since the last create, delete or composite
+		// operation, later operations are merged into it
+		Map<List<String>, Integer> firstChanges = new HashMap<List<String>, Integer>();
+		boolean[] merged = new boolean[ops.length];
+		int last = -1;
 
-		for (int i = 0; i < operations.size() - 1; i++) {
+		for (int i = 0; i < ops.length; i++) {
 
-			AbstractOperation opLeft = operations.get(i);
-			if (!(opLeft instanceof AttributeOperation)) {
+			if (removed[i]) {
 				continue;
 			}
-			AttributeOperation attOpLeft = (AttributeOperation) opLeft;
-
-			for (int j = i + 1; j < operations.size(); j++) {
-
-				AbstractOperation opRight = operations.get(j);
-
-				if (opRight instanceof AttributeOperation
-					&& opLeft.getModelElementId().equals(opRight.getModelElementId())) {
-
-					AttributeOperation attOpRight = (AttributeOperation) opRight;
-					if (attOpLeft.getFeatureName().equals(attOpRight.getFeatureName())) {
-						// merge opLeft and opRight in opLeft
-						attOpLeft.setNewValue(attOpRight.getNewValue());
-						operations.remove(j); // remove opRight
-						j--; // reexamine the index after removal
-					}
-
+			AbstractOperation op = ops[i];
+
+			if (op instanceof CreateDeleteOperation || op instanceof CompositeOperation) {
+				firstChanges.clear();
+			} else if (op instanceof AttributeOperation) {
+				AttributeOperation attOp = (AttributeOperation) op;
+				List<String> key = Arrays.asList(getId(attOp), attOp.getFeatureName());
+				Integer first = firstChanges.get(key);
+				if (first == null) {
+					firstChanges.put(key, i);
+				} else {
+					// merge the later operation in the first one
+					((AttributeOperation) ops[first]).setNewValue(attOp.getNewValue());
+					merged[first] = true;
+					removed[i] = true;
+					continue;
 				}
+			}
+			last = i;
+		}
 
-				if (opRight instanceof CreateDeleteOperation || opRight instanceof CompositeOperation) {
-					break;
-				}
+		for (int i = 0; i < ops.length; i++) {
 
+			if (removed[i] || !(ops[i] instanceof AttributeOperation)) {
+				continue;
 			}
-			// if the remaining leftOp is a noop, remove it altogether
-			if ((attOpLeft.getNewValue() == null && attOpLeft.getOldValue() == null)
-				|| (attOpLeft.getNewValue() != null && attOpLeft.getNewValue().equals(attOpLeft.getOldValue()))) {
-				operations.remove(i);
-				i--; // reexamine the index after removal
+			// the last operation is only checked if later operations have been merged into it
+			if (i == last && !merged[i]) {
+				break;
+			}
+			// if the remaining operation is a noop, remove it altogether
+			AttributeOperation attOp = (AttributeOperation) ops[i];
+			if ((attOp.getNewValue() == null && attOp.getOldValue() == null)
+				|| (attOp.getNewValue() != null && attOp.getNewValue().equals(attOp.getOldValue()))) {
+				removed[i] = true;
 			}
-
 		}
+	}
+
+	private static boolean isCreate(AbstractOperation op) {
+		return op instanceof CreateDeleteOperation && !((CreateDeleteOperation) op).isDelete();
+	}
+
+	private static boolean isDelete(AbstractOperation op) {
+		return op instanceof CreateDeleteOperation && ((CreateDeleteOperation) op).isDelete();
+	}
 
+	private static String getId(AbstractOperation op) {
+		ModelElementId modelElementId = op.getModelElementId();
+		return modelElementId == null ? null : modelElementId.getId();
 	}
 }
@@ -38,7 +38,7 @@ public class CleanMemoryTask extends TimerTask {
 	private static final boolean LOG_UNLOADING = false;
 
 	/**
-	 * Time the memory task pauses in order to let others acquire the monitor instance.
+	 * Time the memory task pauses in order to let others acquire the serverspace lock.
 	 */
 	private static final Integer PREEMPTION_INTERVAL = 100;
 
@@ -68,7 +68,7 @@ public class CleanMemoryTask extends TimerTask {
 	public void run() {
 		while (unloadSomethingIfRequired()) {
 			try {
-				// enable other participants to acquire the monitor in order to
+				// enable other participants to acquire the serverspace lock in order to
 				// perform synchronized tasks
 				Thread.sleep(PREEMPTION_INTERVAL);
 			} catch (InterruptedException e) {
@@ -78,7 +78,9 @@ public class CleanMemoryTask extends TimerTask {
 	}
 
 	private boolean unloadSomethingIfRequired() {
-		synchronized (MonitorProvider.getInstance().getMonitor()) {
+		// unloading proxifies elements of arbitrary projects, so no project operation may run meanwhile
+		MonitorProvider.getInstance().getServerSpaceLock().writeLock().lock();
+		try {
 			for (Resource res : resourceSet.getResources()) {
 				if (res.isLoaded()) {
 
@@ -113,6 +115,8 @@ public class CleanMemoryTask extends TimerTask {
 				}
 			}
 			return false;
+		} finally {
+			MonitorProvider.getInstance().getServerSpaceLock().writeLock().unlock();
 		}
 	}
 
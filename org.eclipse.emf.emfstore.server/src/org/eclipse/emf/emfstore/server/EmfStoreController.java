@@ -19,6 +19,7 @@ import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Timer;
@@ -31,7 +32,6 @@ import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.emfstore.common.ResourceFactoryRegistry;
 import org.eclipse.emf.emfstore.common.model.util.FileUtil;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
@@ -41,7 +41,12 @@ import org.eclipse.emf.emfstore.server.connection.xmlrpc.XmlRpcAdminConnectionHa
 import org.eclipse.emf.emfstore.server.connection.xmlrpc.XmlRpcConnectionHandler;
 import org.eclipse.emf.emfstore.server.core.AdminEmfStoreImpl;
 import org.eclipse.emf.emfstore.server.core.EmfStoreImpl;
+import org.eclipse.emf.emfstore.server.core.helper.AttachmentStore;
+import org.eclipse.emf.emfstore.server.core.helper.CheckpointWriter;
 import org.eclipse.emf.emfstore.server.core.helper.HistoryCache;
+import org.eclipse.emf.emfstore.server.core.helper.ProjectStateCache;
+import org.eclipse.emf.emfstore.server.core.helper.ResourceHelper;
+import org.eclipse.emf.emfstore.server.core.helper.SynchronizedResourceSet;
 import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.StorageException;
 import org.eclipse.emf.emfstore.server.model.ModelFactory;
@@ -51,7 +56,9 @@ import org.eclipse.emf.emfstore.server.model.accesscontrol.AccesscontrolFactory;
 import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.RolesFactory;
 import org.eclipse.emf.emfstore.server.startup.EmfStoreValidator;
 import org.eclipse.emf.emfstore.server.startup.ExtensionManager;
+import org.eclipse.emf.emfstore.server.startup.LazyProjectLoader;
 import org.eclipse.emf.emfstore.server.startup.MigrationManager;
+import org.eclipse.emf.emfstore.server.storage.ResourceSetStorage;
 import org.eclipse.emf.emfstore.server.storage.ResourceStorage;
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
@@ -79,6 +86,12 @@ public class EmfStoreController implements IApplication, Runnable {
 	private ServerSpace serverSpace;
 	private Resource resource;
 	private HistoryCache historyCache;
+	private AttachmentStore attachmentStore;
+	private ProjectStateCache projectStateCache;
+	private CheckpointWriter checkpointWriter;
+	private ResourceStorage storage;
+	private boolean lazyStartup;
+	private LazyProjectLoader projectLoader;
 
 	/**
 	 * {@inheritDoc}
@@ -118,13 +131,24 @@ public class EmfStoreController implements IApplication, Runnable {
 			"Default es.properties file was copied to config folder.");
 
 		properties = initProperties();
+		lazyStartup = Boolean.parseBoolean(properties.getProperty(ServerConfiguration.LAZY_STARTUP,
+			ServerConfiguration.LAZY_STARTUP_DEFAULT));
 
 		new MigrationManager().migrateModel();
 		this.serverSpace = initServerSpace();
 
+		checkpointWriter = new CheckpointWriter(new ResourceHelper(serverSpace));
+
 		handleStartupListener();
 
-		historyCache = initHistoryCache();
+		if (lazyStartup) {
+			historyCache = new HistoryCache();
+			projectLoader = initProjectLoader();
+		} else {
+			historyCache = initHistoryCache();
+		}
+		projectStateCache = initProjectStateCache();
+		attachmentStore = new AttachmentStore(new File(ServerConfiguration.getServerHome()));
 
 		accessControl = initAccessControl(serverSpace);
 		emfStore = new EmfStoreImpl(serverSpace, accessControl);
@@ -136,6 +160,11 @@ public class EmfStoreController implements IApplication, Runnable {
 
 		connectionHandlers = initConnectionHandlers();
 
+		if (projectLoader != null) {
+			projectLoader.start(getIntProperty(ServerConfiguration.LAZY_STARTUP_WARMUP_THREADS,
+				ServerConfiguration.LAZY_STARTUP_WARMUP_THREADS_DEFAULT));
+		}
+
 		if (Boolean.parseBoolean(ServerConfiguration.getProperties().getProperty(
 			ServerConfiguration.PERFORM_CLEAN_MEMORY_TASK, ServerConfiguration.PERFORM_CLEAN_MEMORY_TASK_DEFAULT))) {
 			new Timer().schedule(new CleanMemoryTask(serverSpace.eResource().getResourceSet()),
@@ -206,6 +235,37 @@ public class EmfStoreController implements IApplication, Runnable {
 		return cache;
 	}
 
+	private LazyProjectLoader initProjectLoader() {
+		int validationLevel = 0;
+		if (isValidationEnabled()) {
+			validationLevel = getValidationLevel();
+		}
+		ModelUtil.logInfo("Projects are loaded lazily.");
+		return new LazyProjectLoader(serverSpace, checkpointWriter, historyCache, validationLevel,
+			getValidationExcludedProjects());
+	}
+
+	private ProjectStateCache initProjectStateCache() {
+		int size = getIntProperty(ServerConfiguration.PROJECTSTATE_CACHE_SIZE,
+			ServerConfiguration.PROJECTSTATE_CACHE_SIZE_DEFAULT);
+		int checkpointRequests = getIntProperty(ServerConfiguration.PROJECTSTATE_CHECKPOINT_REQUESTS,
+			ServerConfiguration.PROJECTSTATE_CHECKPOINT_REQUESTS_DEFAULT);
+		return new ProjectStateCache(size, checkpointRequests);
+	}
+
+	private int getIntProperty(String property, String defaultValue) {
+		try {
+			int value = Integer.parseInt(ServerConfiguration.getProperties().getProperty(property, defaultValue));
+			if (value >= 0) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+			// fall through
+		}
+		ModelUtil.logWarning("Couldn't read property: " + property + " , set to " + defaultValue);
+		return Integer.parseInt(defaultValue);
+	}
+
 	private Set<ConnectionHandler<? extends EmfStoreInterface>> initConnectionHandlers() throws FatalEmfStoreException {
 		Set<ConnectionHandler<? extends EmfStoreInterface>> connectionHandlers = new HashSet<ConnectionHandler<? extends EmfStoreInterface>>();
 
@@ -230,20 +290,65 @@ public class EmfStoreController implements IApplication, Runnable {
 		return historyCache;
 	}
 
+	/**
+	 * Returns the store of the attachment contents.
+	 * 
+	 * @return the attachment store
+	 */
+	public AttachmentStore getAttachmentStore() {
+		return attachmentStore;
+	}
+
+	/**
+	 * Returns the cache of recalculated project states.
+	 * 
+	 * @return the project state cache.
+	 */
+	public ProjectStateCache getProjectStateCache() {
+		return projectStateCache;
+	}
+
+	/**
+	 * Returns the writer for project states changed in place.
+	 * 
+	 * @return the checkpoint writer.
+	 */
+	public CheckpointWriter getCheckpointWriter() {
+		return checkpointWriter;
+	}
+
+	/**
+	 * Returns the loader of the projects if the server has been started lazily.
+	 * 
+	 * @return the project loader or null if all projects have been loaded on startup
+	 */
+	public LazyProjectLoader getProjectLoader() {
+		return projectLoader;
+	}
+
 	private ServerSpace initServerSpace() throws FatalEmfStoreException {
-		ResourceStorage storage = initStorage();
+		storage = initStorage();
 		URI resourceUri = storage.init(properties);
-		ResourceSet resourceSet = new ResourceSetImpl();
+		ResourceSet resourceSet = new SynchronizedResourceSet();
 		resourceSet.setResourceFactoryRegistry(new ResourceFactoryRegistry());
+		if (storage instanceof ResourceSetStorage) {
+			((ResourceSetStorage) storage).initResourceSet(resourceSet);
+		}
 		resourceSet.getLoadOptions().putAll(ModelUtil.getResourceLoadOptions());
 		resource = resourceSet.createResource(resourceUri);
 		try {
 			resource.load(ModelUtil.getResourceLoadOptions());
 
-			if (properties.getProperty(ServerConfiguration.VALIDATE_SERVERSPACE_ON_SERVERSTART, "true").equals("true")) {
-				ModelUtil.logInfo("Validating serverspace ...");
-				validateServerSpace(resource);
-				ModelUtil.logInfo("Validation complete.");
+			// a lazy startup recovers and validates each project when it is loaded
+			if (!lazyStartup) {
+				// project states changed in place may not have been written before the last shutdown
+				recoverProjectStates(resource);
+
+				if (isValidationEnabled()) {
+					ModelUtil.logInfo("Validating serverspace ...");
+					validateServerSpace(resource);
+					ModelUtil.logInfo("Validation complete.");
+				}
 			}
 		} catch (IOException e) {
 			throw new FatalEmfStoreException(StorageException.NOLOAD, e);
@@ -278,26 +383,48 @@ public class EmfStoreController implements IApplication, Runnable {
 		return result;
 	}
 
+	private void recoverProjectStates(Resource resource) throws FatalEmfStoreException {
+		for (EObject object : resource.getContents()) {
+			if (object instanceof ServerSpace) {
+				ServerSpace space = (ServerSpace) object;
+				new CheckpointWriter(new ResourceHelper(space)).recoverProjectStates(space.getProjects());
+			}
+		}
+	}
+
 	private void validateServerSpace(Resource resource) throws FatalEmfStoreException {
 		EList<EObject> contents = resource.getContents();
 		for (EObject object : contents) {
 			if (object instanceof ServerSpace) {
 				EmfStoreValidator emfStoreValidator = new EmfStoreValidator((ServerSpace) object);
-				String[] excludedProjects = ServerConfiguration.getSplittedProperty(
-					ServerConfiguration.VALIDATION_PROJECT_EXCLUDE,
-					ServerConfiguration.VALIDATION_PROJECT_EXCLUDE_DEFAULT);
-				emfStoreValidator.setExcludedProjects(Arrays.asList(excludedProjects));
-				try {
-					String level = ServerConfiguration.getProperties().getProperty(
-						ServerConfiguration.VALIDATION_LEVEL, ServerConfiguration.VALIDATION_LEVEL_DEFAULT);
-					emfStoreValidator.validate(Integer.parseInt(level));
-				} catch (NumberFormatException e) {
-					emfStoreValidator.validate(Integer.parseInt(ServerConfiguration.VALIDATION_LEVEL_DEFAULT));
-				}
+				emfStoreValidator.setExcludedProjects(getValidationExcludedProjects());
+				emfStoreValidator.setThreads(getIntProperty(ServerConfiguration.VALIDATION_THREADS,
+					ServerConfiguration.VALIDATION_THREADS_DEFAULT));
+				emfStoreValidator.validate(getValidationLevel());
 			}
 		}
 	}
 
+	private boolean isValidationEnabled() {
+		return properties.getProperty(ServerConfiguration.VALIDATE_SERVERSPACE_ON_SERVERSTART, "true").equals("true");
+	}
+
+	private int getValidationLevel() {
+		try {
+			String level = ServerConfiguration.getProperties().getProperty(ServerConfiguration.VALIDATION_LEVEL,
+				ServerConfiguration.VALIDATION_LEVEL_DEFAULT);
+			return Integer.parseInt(level);
+		} catch (NumberFormatException e) {
+			return Integer.parseInt(ServerConfiguration.VALIDATION_LEVEL_DEFAULT);
+		}
+	}
+
+	private List<String> getValidationExcludedProjects() {
+		String[] excludedProjects = ServerConfiguration.getSplittedProperty(
+			ServerConfiguration.VALIDATION_PROJECT_EXCLUDE, ServerConfiguration.VALIDATION_PROJECT_EXCLUDE_DEFAULT);
+		return Arrays.asList(excludedProjects);
+	}
+
 	/**
 	 * Return the singleton instance of EmfStoreControler.
 	 * 
@@ -394,6 +521,14 @@ public class EmfStoreController implements IApplication, Runnable {
 		for (ConnectionHandler<? extends EmfStoreInterface> handler : connectionHandlers) {
 			handler.stop(false);
 		}
+		if (projectLoader != null) {
+			projectLoader.stop();
+		}
+		checkpointWriter.flush();
+		historyCache.flush();
+		if (storage instanceof ResourceSetStorage) {
+			((ResourceSetStorage) storage).close();
+		}
 		ModelUtil.logInfo("Server was stopped.");
 		instance = null;
 		wakeForTermination();
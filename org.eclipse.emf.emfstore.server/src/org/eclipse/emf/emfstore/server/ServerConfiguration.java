@@ -48,6 +48,21 @@ public final class ServerConfiguration {
 	 */
 	public static final String RESOURCE_STORAGE_DEFAULT = "org.eclipse.emf.emfstore.server.storage.XMLStorage";
 
+	/**
+	 * Resource storage appending versions and change packages to a segmented log per project.
+	 */
+	public static final String RESOURCE_STORAGE_LOG = "org.eclipse.emf.emfstore.server.storage.LogStorage";
+
+	/**
+	 * Property for the size in megabytes after which a log of the {@link #RESOURCE_STORAGE_LOG} starts a new segment.
+	 */
+	public static final String LOG_STORAGE_SEGMENT_SIZE = "emfstore.persistence.resourceStorage.log.segmentsize";
+
+	/**
+	 * Default value for {@link #LOG_STORAGE_SEGMENT_SIZE}.
+	 */
+	public static final String LOG_STORAGE_SEGMENT_SIZE_DEFAULT = "16";
+
 	/**
 	 * RMI encryption property, possible values are true and false.
 	 */
@@ -68,6 +83,16 @@ public final class ServerConfiguration {
 	 */
 	public static final String XML_RPC_PORT_DEFAULT = "8080";
 
+	/**
+	 * Option for offering compressed transfer of EObjects to XML RPC clients.
+	 */
+	public static final String XML_RPC_COMPRESSION = "emfstore.connection.xmlrpc.compression";
+
+	/**
+	 * Default for compressed transfer of EObjects.
+	 */
+	public static final String XML_RPC_COMPRESSION_DEFAULT = "true";
+
 	/**
 	 * Default name of server keystore file.
 	 */
@@ -149,6 +174,52 @@ public final class ServerConfiguration {
 	 */
 	public static final String PROJECTSPACE_VERSION_PERSISTENCE_DEFAULT = PROJECTSTATE_VERSION_PERSISTENCE_EVERYXVERSIONS;
 
+	/**
+	 * Property for the number of recalculated project states of versions without a stored project state, which are
+	 * kept in memory.
+	 */
+	public static final String PROJECTSTATE_CACHE_SIZE = "emfstore.persistence.version.projectstate.cachesize";
+
+	/**
+	 * Default value for the number of cached project states.
+	 */
+	public static final String PROJECTSTATE_CACHE_SIZE_DEFAULT = "10";
+
+	/**
+	 * Property for the number of recalculations of a version after which its project state is stored, regardless of
+	 * the projectstate persistence policy. Use 0 to never store additional project states.
+	 */
+	public static final String PROJECTSTATE_CHECKPOINT_REQUESTS = "emfstore.persistence.version.projectstate.checkpointrequests";
+
+	/**
+	 * Default value for the number of recalculations before a project state is stored.
+	 */
+	public static final String PROJECTSTATE_CHECKPOINT_REQUESTS_DEFAULT = "3";
+
+	/**
+	 * Property for committing in place. If enabled, a commit applies the changes directly to the project state of the
+	 * head version instead of a copy, unless the persistence policy keeps the project state of the previous version.
+	 * The project state file is written in the background, until then the state is recovered from the last written
+	 * state and the changes.
+	 */
+	public static final String PROJECTSTATE_COMMIT_INPLACE = "emfstore.persistence.version.projectstate.inplace";
+
+	/**
+	 * Default value for committing in place.
+	 */
+	public static final String PROJECTSTATE_COMMIT_INPLACE_DEFAULT = FALSE;
+
+	/**
+	 * Property for saving versions, change packages, project states and project histories in a binary format instead
+	 * of XMI.
+	 */
+	public static final String PERSISTENCE_BINARY = "emfstore.persistence.binary";
+
+	/**
+	 * Default value for {@link #PERSISTENCE_BINARY}.
+	 */
+	public static final String PERSISTENCE_BINARY_DEFAULT = FALSE;
+
 	/**
 	 * Property for timeout time of a user session.
 	 */
@@ -266,6 +337,48 @@ public final class ServerConfiguration {
 	 */
 	public static final String VALIDATION_PROJECT_EXCLUDE_DEFAULT = "";
 
+	/**
+	 * Property for the number of threads validating the projects on startup, 0 uses one thread per processor.
+	 */
+	public static final String VALIDATION_THREADS = "emfstore.validation.threads";
+
+	/**
+	 * Default value for {@link #VALIDATION_THREADS}.
+	 */
+	public static final String VALIDATION_THREADS_DEFAULT = "0";
+
+	/**
+	 * Property for starting the server without loading the projects first. Projects are recovered, validated and
+	 * indexed on first access or by the warm-up threads.
+	 */
+	public static final String LAZY_STARTUP = "emfstore.startup.lazy";
+
+	/**
+	 * Default value for {@link #LAZY_STARTUP}.
+	 */
+	public static final String LAZY_STARTUP_DEFAULT = FALSE;
+
+	/**
+	 * Property for the number of threads loading the projects in the background if {@link #LAZY_STARTUP} is enabled.
+	 */
+	public static final String LAZY_STARTUP_WARMUP_THREADS = "emfstore.startup.lazy.warmupthreads";
+
+	/**
+	 * Default value for {@link #LAZY_STARTUP_WARMUP_THREADS}.
+	 */
+	public static final String LAZY_STARTUP_WARMUP_THREADS_DEFAULT = "1";
+
+	/**
+	 * Property for the maximum size of the chunks attachments are transferred in. Clients request a chunk size, larger
+	 * requests are reduced to this size.
+	 */
+	public static final String FILETRANSFER_MAX_CHUNK_SIZE = "emfstore.filetransfer.chunksize.max";
+
+	/**
+	 * Default value for {@link #FILETRANSFER_MAX_CHUNK_SIZE}.
+	 */
+	public static final String FILETRANSFER_MAX_CHUNK_SIZE_DEFAULT = "4194304";
+
 	/**
 	 * Property for loading startup listeners from extension point.
 	 */
@@ -11,10 +11,11 @@
 package org.eclipse.emf.emfstore.server.accesscontrol;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.emfstore.common.extensionpoint.ExtensionElement;
@@ -37,7 +38,6 @@ import org.eclipse.emf.emfstore.server.model.accesscontrol.ACOrgUnit;
 import org.eclipse.emf.emfstore.server.model.accesscontrol.ACOrgUnitId;
 import org.eclipse.emf.emfstore.server.model.accesscontrol.ACUser;
 import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.Role;
-import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.ServerAdmin;
 
 /**
  * A simple implementation of Authentication and Authorization Control.
@@ -50,6 +50,7 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 	private Map<SessionId, ACUserContainer> sessionUserMap;
 	private ServerSpace serverSpace;
 	private AbstractAuthenticationControl authenticationControl;
+	private PermissionIndex permissionIndex;
 
 	/**
 	 * Default constructor.
@@ -60,8 +61,9 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 	 *             an exception
 	 */
 	public AccessControlImpl(ServerSpace serverSpace) throws FatalEmfStoreException {
-		this.sessionUserMap = new HashMap<SessionId, ACUserContainer>();
+		this.sessionUserMap = new ConcurrentHashMap<SessionId, ACUserContainer>();
 		this.serverSpace = serverSpace;
+		this.permissionIndex = new PermissionIndex(serverSpace);
 
 		authenticationControl = getAuthenticationFactory().createAuthenticationControl();
 	}
@@ -122,7 +124,9 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 		Boolean ignoreCase = Boolean.parseBoolean(ServerConfiguration.getProperties().getProperty(
 			ServerConfiguration.AUTHENTICATION_MATCH_USERS_IGNORE_CASE, "false"));
 
-		synchronized (MonitorProvider.getInstance().getMonitor()) {
+		Lock lock = MonitorProvider.getInstance().getServerSpaceLock().readLock();
+		lock.lock();
+		try {
 			for (ACUser user : serverSpace.getUsers()) {
 				if (ignoreCase) {
 					if (user.getName().equalsIgnoreCase(username)) {
@@ -135,6 +139,8 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 				}
 			}
 			throw new AccessControlException();
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -159,11 +165,8 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 		throws AccessControlException {
 		checkSession(sessionId);
 		ACUser user = getUser(sessionId);
-		List<Role> roles = new ArrayList<Role>();
-		roles.addAll(user.getRoles());
-		roles.addAll(getRolesFromGroups(user));
 		// MK: remove access control simplification
-		if (!canWrite(roles, projectId, null)) {
+		if (!permissionIndex.hasPermissions(user, projectId, PermissionIndex.WRITE)) {
 			throw new AccessControlException();
 			// for (ModelElement modelElement : modelElements) {
 			// if (!canWrite(roles, projectId, modelElement)) {
@@ -172,85 +175,18 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 		}
 	}
 
-	/**
-	 * Check if the given list of roles can write to the model element in the
-	 * project.
-	 * 
-	 * @param roles
-	 *            a list of roles
-	 * @param projectId
-	 *            a project id
-	 * @param modelElement
-	 *            a model element
-	 * @return true if one of the roles can write
-	 * @throws AccessControlException
-	 */
-	private boolean canWrite(List<Role> roles, ProjectId projectId, EObject modelElement) throws AccessControlException {
-		for (Role role : roles) {
-			if (role.canModify(projectId, modelElement) || role.canCreate(projectId, modelElement)
-				|| role.canDelete(projectId, modelElement)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Check if the given list of roles can read the model element in the
-	 * project.
-	 * 
-	 * @param roles
-	 *            a list of roles
-	 * @param projectId
-	 *            a project id
-	 * @param modelElement
-	 *            a model element
-	 * @return true if one of the roles can read
-	 * @throws AccessControlException
-	 */
-	private boolean canRead(List<Role> roles, ProjectId projectId, EObject modelElement) throws AccessControlException {
-		for (Role role : roles) {
-			if (role.canRead(projectId, modelElement)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private List<Role> getRolesFromGroups(ACOrgUnit orgUnit) {
-		ArrayList<Role> roles = new ArrayList<Role>();
-		for (ACGroup group : getGroups(orgUnit)) {
-			roles.addAll(group.getRoles());
-		}
-		return roles;
-	}
-
-	private List<ACGroup> getGroups(ACOrgUnit orgUnit) {
-		synchronized (MonitorProvider.getInstance().getMonitor()) {
-			ArrayList<ACGroup> groups = new ArrayList<ACGroup>();
-			for (ACGroup group : serverSpace.getGroups()) {
-				if (group.getMembers().contains(orgUnit)) {
-					groups.add(group);
-					for (ACGroup g : getGroups(group)) {
-						if (groups.contains(g)) {
-							continue;
-						}
-						groups.add(g);
-					}
-				}
-			}
-			return groups;
-		}
-	}
-
 	private ACUser getUser(ACOrgUnitId orgUnitId) throws AccessControlException {
-		synchronized (MonitorProvider.getInstance().getMonitor()) {
+		Lock lock = MonitorProvider.getInstance().getServerSpaceLock().readLock();
+		lock.lock();
+		try {
 			for (ACUser user : serverSpace.getUsers()) {
 				if (user.getId().equals(orgUnitId)) {
 					return user;
 				}
 			}
 			throw new AccessControlException("Given User doesn't exist.");
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -264,11 +200,8 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 		throws AccessControlException {
 		checkSession(sessionId);
 		ACUser user = getUser(sessionId);
-		List<Role> roles = new ArrayList<Role>();
-		roles.addAll(user.getRoles());
-		roles.addAll(getRolesFromGroups(user));
 		// MK: remove access control simplification
-		if (!canRead(roles, projectId, null)) {
+		if (!permissionIndex.hasPermissions(user, projectId, PermissionIndex.READ)) {
 			throw new AccessControlException();
 			// for (ModelElement modelElement : modelElements) {
 			// if (!canRead(roles, projectId, modelElement)) {
@@ -286,15 +219,9 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 	public void checkProjectAdminAccess(SessionId sessionId, ProjectId projectId) throws AccessControlException {
 		checkSession(sessionId);
 		ACUser user = getUser(sessionId);
-		List<Role> roles = new ArrayList<Role>();
-		roles.addAll(user.getRoles());
-		roles.addAll(getRolesFromGroups(user));
-		for (Role role : roles) {
-			if (role.canAdministrate(projectId)) {
-				return;
-			}
+		if (!permissionIndex.hasPermissions(user, projectId, PermissionIndex.ADMINISTRATE)) {
+			throw new AccessControlException();
 		}
-		throw new AccessControlException();
 	}
 
 	/**
@@ -305,16 +232,32 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 	public void checkServerAdminAccess(SessionId sessionId) throws AccessControlException {
 		checkSession(sessionId);
 		ACUser user = getUser(sessionId);
-		List<Role> roles = new ArrayList<Role>();
-		roles.addAll(user.getRoles());
-		roles.addAll(getRolesFromGroups(user));
-		for (Role role : roles) {
-			if (role instanceof ServerAdmin) {
-				return;
+		if (!permissionIndex.isServerAdmin(user)) {
+			throw new AccessControlException();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<ProjectId> filterReadableProjects(SessionId sessionId, List<ProjectId> projectIds)
+		throws AccessControlException {
+		checkSession(sessionId);
+		ACUser user = getUser(sessionId);
+		List<ProjectId> result = new ArrayList<ProjectId>();
+		for (ProjectId projectId : projectIds) {
+			if (permissionIndex.hasPermissions(user, projectId, PermissionIndex.READ)) {
+				result.add(projectId);
 			}
 		}
-		throw new AccessControlException();
+		return result;
+	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void invalidatePermissions() {
+		permissionIndex.invalidate();
 	}
 
 	/**
@@ -336,11 +279,11 @@ public class AccessControlImpl implements AuthenticationControl, AuthorizationCo
 
 	private ACUser copyAndResolveUser(ACUser tmpUser) {
 		ACUser user = ModelUtil.clone(tmpUser);
-		for (Role role : getRolesFromGroups(tmpUser)) {
+		for (Role role : permissionIndex.getRolesFromGroups(tmpUser)) {
 			user.getRoles().add(ModelUtil.clone(role));
 		}
 
-		for (ACGroup group : getGroups(tmpUser)) {
+		for (ACGroup group : permissionIndex.getGroups(tmpUser)) {
 			if (user.getEffectiveGroups().contains(group)) {
 				continue;
 			}
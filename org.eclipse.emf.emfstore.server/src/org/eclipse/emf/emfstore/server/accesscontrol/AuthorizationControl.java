@@ -10,6 +10,7 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.server.accesscontrol;
 
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.emf.ecore.EObject;
@@ -73,6 +74,22 @@ public interface AuthorizationControl {
 	void checkWriteAccess(SessionId sessionId, ProjectId projectId, Set<EObject> modelElements)
 		throws AccessControlException;
 
+	/**
+	 * Returns the projects the session may read. The session is checked once for all projects.
+	 * 
+	 * @param sessionId session id
+	 * @param projectIds the projects to check
+	 * @return the readable projects in the given order
+	 * @throws AccessControlException if the session is invalid
+	 */
+	List<ProjectId> filterReadableProjects(SessionId sessionId, List<ProjectId> projectIds)
+		throws AccessControlException;
+
+	/**
+	 * Discards the permissions resolved from users, groups and roles. Has to be called whenever one of them is changed.
+	 */
+	void invalidatePermissions();
+
 	/**
 	 * This method looks up the session id on the server and returns the relating user. Please notice that the returned
 	 * user also contains roles which are not contained in the original user. These extra roles come from the user's
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.accesscontrol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+import org.eclipse.emf.emfstore.server.core.MonitorProvider;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+import org.eclipse.emf.emfstore.server.model.ServerSpace;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.ACGroup;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.ACOrgUnit;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.ACUser;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.Role;
+import org.eclipse.emf.emfstore.server.model.accesscontrol.roles.ServerAdmin;
+
+/**
+ * Index of the effective permissions of the users. For every user the groups it belongs to, directly or through other
+ * groups, and the resulting roles are resolved once. The permissions of a user in a project are derived from these
+ * roles on the first check and kept afterwards. The index has to be invalidated whenever users, groups or roles are
+ * changed, it is then rebuilt on demand.
+ */
+public class PermissionIndex {
+
+	/**
+	 * Permission to read a project.
+	 */
+	public static final int READ = 1;
+
+	/**
+	 * Permission to create, modify or delete the elements of a project.
+	 */
+	public static final int WRITE = 2;
+
+	/**
+	 * Permission to administrate a project.
+	 */
+	public static final int ADMINISTRATE = 4;
+
+	private final ServerSpace serverSpace;
+	private volatile Generation generation;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param serverSpace the serverspace containing users and groups
+	 */
+	public PermissionIndex(ServerSpace serverSpace) {
+		this.serverSpace = serverSpace;
+		generation = new Generation();
+	}
+
+	/**
+	 * Discards all resolved permissions. Has to be called after users, groups or roles have been changed.
+	 */
+	public void invalidate() {
+		generation = new Generation();
+	}
+
+	/**
+	 * Returns whether the user has all of the given permissions in the project.
+	 * 
+	 * @param user the user
+	 * @param projectId the project id
+	 * @param permissions the permissions, a combination of {@link #READ}, {@link #WRITE} and {@link #ADMINISTRATE}
+	 * @return true if the user has the permissions
+	 */
+	public boolean hasPermissions(ACUser user, ProjectId projectId, int permissions) {
+		return (getEntry(user).getPermissions(projectId) & permissions) == permissions;
+	}
+
+	/**
+	 * Returns whether the user is a server admin, by a role of its own or of one of its groups.
+	 * 
+	 * @param user the user
+	 * @return true if the user is a server admin
+	 */
+	public boolean isServerAdmin(ACUser user) {
+		return getEntry(user).serverAdmin;
+	}
+
+	/**
+	 * Returns the groups the user belongs to, directly or through other groups.
+	 * 
+	 * @param user the user
+	 * @return the groups
+	 */
+	public List<ACGroup> getGroups(ACUser user) {
+		return getEntry(user).groups;
+	}
+
+	/**
+	 * Returns the roles of the groups the user belongs to, without the roles of the user itself.
+	 * 
+	 * @param user the user
+	 * @return the roles
+	 */
+	public List<Role> getRolesFromGroups(ACUser user) {
+		return getEntry(user).groupRoles;
+	}
+
+	private Entry getEntry(ACUser user) {
+		Generation current = generation;
+		Entry entry = current.entries.get(user);
+		if (entry == null) {
+			Lock lock = MonitorProvider.getInstance().getServerSpaceLock().readLock();
+			lock.lock();
+			try {
+				entry = new Entry(user, resolveGroups(current, user));
+			} finally {
+				lock.unlock();
+			}
+			// an entry built while the index was invalidated is only stored in the discarded generation
+			Entry existing = current.entries.putIfAbsent(user, entry);
+			if (existing != null) {
+				entry = existing;
+			}
+		}
+		return entry;
+	}
+
+	private List<ACGroup> resolveGroups(Generation current, ACOrgUnit orgUnit) {
+		Set<ACGroup> result = new LinkedHashSet<ACGroup>();
+		collectGroups(current.getMemberships(serverSpace), orgUnit, result);
+		return Collections.unmodifiableList(new ArrayList<ACGroup>(result));
+	}
+
+	private static void collectGroups(Map<ACOrgUnit, List<ACGroup>> memberships, ACOrgUnit orgUnit,
+		Set<ACGroup> result) {
+		List<ACGroup> groups = memberships.get(orgUnit);
+		if (groups == null) {
+			return;
+		}
+		for (ACGroup group : groups) {
+			if (result.add(group)) {
+				collectGroups(memberships, group, result);
+			}
+		}
+	}
+
+	/**
+	 * The resolved permissions between two invalidations.
+	 */
+	private static final class Generation {
+		private final ConcurrentHashMap<ACUser, Entry> entries = new ConcurrentHashMap<ACUser, Entry>();
+		// direct groups of each org unit, built once by the first lookup, never modified afterwards
+		private volatile Map<ACOrgUnit, List<ACGroup>> memberships;
+
+		// the caller has to hold the serverspace read lock, which several lookups may hold at once
+		private Map<ACOrgUnit, List<ACGroup>> getMemberships(ServerSpace serverSpace) {
+			Map<ACOrgUnit, List<ACGroup>> result = memberships;
+			if (result != null) {
+				return result;
+			}
+			synchronized (this) {
+				if (memberships == null) {
+					result = new HashMap<ACOrgUnit, List<ACGroup>>();
+					for (ACGroup group : serverSpace.getGroups()) {
+						for (ACOrgUnit member : group.getMembers()) {
+							List<ACGroup> groups = result.get(member);
+							if (groups == null) {
+								groups = new ArrayList<ACGroup>(1);
+								result.put(member, groups);
+							}
+							groups.add(group);
+						}
+					}
+					memberships = result;
+				}
+				return memberships;
+			}
+		}
+	}
+
+	/**
+	 * The resolved groups and roles of a user and its permissions per project.
+	 */
+	private static final class Entry {
+		private final List<ACGroup> groups;
+		private final List<Role> groupRoles;
+		private final Role[] roles;
+		private final boolean serverAdmin;
+		private final ConcurrentHashMap<String, Integer> projectPermissions;
+
+		private Entry(ACUser user, List<ACGroup> groups) {
+			this.groups = groups;
+			List<Role> rolesFromGroups = new ArrayList<Role>();
+			for (ACGroup group : groups) {
+				rolesFromGroups.addAll(group.getRoles());
+			}
+			groupRoles = Collections.unmodifiableList(rolesFromGroups);
+			List<Role> allRoles = new ArrayList<Role>(user.getRoles());
+			allRoles.addAll(rolesFromGroups);
+			roles = allRoles.toArray(new Role[allRoles.size()]);
+			boolean admin = false;
+			for (Role role : roles) {
+				admin |= role instanceof ServerAdmin;
+			}
+			serverAdmin = admin;
+			projectPermissions = new ConcurrentHashMap<String, Integer>();
+		}
+
+		private int getPermissions(ProjectId projectId) {
+			Integer permissions = projectPermissions.get(projectId.getId());
+			if (permissions == null) {
+				permissions = resolvePermissions(projectId);
+				projectPermissions.put(projectId.getId(), permissions);
+			}
+			return permissions;
+		}
+
+		private int resolvePermissions(ProjectId projectId) {
+			int permissions = 0;
+			for (Role role : roles) {
+				if (role.canRead(projectId, null)) {
+					permissions |= READ;
+				}
+				if (role.canModify(projectId, null) || role.canCreate(projectId, null)
+					|| role.canDelete(projectId, null)) {
+					permissions |= WRITE;
+				}
+				if (role.canAdministrate(projectId)) {
+					permissions |= ADMINISTRATE;
+				}
+			}
+			return permissions;
+		}
+	}
+}
@@ -10,6 +10,7 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.server.conflictDetection;
 
+import java.util.Collections;
 import java.util.Set;
 
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
@@ -31,7 +32,7 @@ public class ByModelElementConflictDetectionStrategy implements ConflictDetectio
 	public boolean doConflict(AbstractOperation operationA, AbstractOperation operationB) {
 		Set<ModelElementId> allInvolvedModelElementsA = operationA.getAllInvolvedModelElements();
 		Set<ModelElementId> allInvolvedModelElementsB = operationB.getAllInvolvedModelElements();
-		return allInvolvedModelElementsA.removeAll(allInvolvedModelElementsB);
+		return !Collections.disjoint(allInvolvedModelElementsA, allInvolvedModelElementsB);
 	}
 
 	/**
@@ -20,13 +20,19 @@ import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
 import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
 
 /**
- * Detects conflicts with a given {@link ConflictDetectionStrategy}.
+ * Detects conflicts with a given {@link ConflictDetectionStrategy}. In indexed mode, operations are only compared to
+ * the operations of the other side that touch at least one common model element (see {@link OperationIndex}) instead
+ * of all of them. This yields the same results as long as the strategy only reports conflicts between operations that
+ * share a model element, which holds for the {@link IndexSensitiveConflictDetectionStrategy}. The operations requiring
+ * a conflicting operation are retrieved from an {@link OperationDependencyGraph} that is built once per list of
+ * operations.
  * 
  * @author koegel
  */
 public class ConflictDetector {
 
 	private ConflictDetectionStrategy conflictDetectionStrategy;
+	private final boolean indexed;
 
 	/**
 	 * Constructor. Uses default conflict detection strategy
@@ -43,7 +49,28 @@ public class ConflictDetector {
 	 * @param conflictDetectionStrategy the detection strategy to use
 	 */
 	public ConflictDetector(ConflictDetectionStrategy conflictDetectionStrategy) {
+		this(conflictDetectionStrategy, false);
+	}
+
+	/**
+	 * Constructor with a given strategy and mode.
+	 * 
+	 * @param conflictDetectionStrategy the detection strategy to use
+	 * @param indexed true if operations should only be compared to operations touching common model elements. Only
+	 *            use with strategies that never report conflicts between operations without a common model element.
+	 */
+	public ConflictDetector(ConflictDetectionStrategy conflictDetectionStrategy, boolean indexed) {
 		this.conflictDetectionStrategy = conflictDetectionStrategy;
+		this.indexed = indexed;
+	}
+
+	/**
+	 * Returns whether this detector runs in indexed mode.
+	 * 
+	 * @return true if indexed
+	 */
+	public boolean isIndexed() {
+		return indexed;
 	}
 
 	/**
@@ -54,6 +81,9 @@ public class ConflictDetector {
 	 * @return true if the two packages conflict
 	 */
 	public boolean doConflict(ChangePackage changePackageA, ChangePackage changePackageB) {
+		if (indexed) {
+			return doConflict(new OperationIndex(changePackageA.getOperations()), changePackageB);
+		}
 		for (AbstractOperation operation : changePackageA.getOperations()) {
 			for (AbstractOperation otherOperation : changePackageB.getOperations()) {
 				if (doConflict(operation, otherOperation)) {
@@ -83,14 +113,63 @@ public class ConflictDetector {
 	 * @return true if the change package conflicts with any package in the list
 	 */
 	public boolean doConflict(ChangePackage changePackage, List<ChangePackage> changePackageList) {
+		// build the index only once for all change packages in the list
+		OperationIndex index = null;
+		if (indexed) {
+			index = new OperationIndex(changePackage.getOperations());
+		}
 		for (ChangePackage b : changePackageList) {
-			if (doConflict(changePackage, b)) {
+			if (index != null ? doConflict(index, b) : doConflict(changePackage, b)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determine if any change package of a list conflicts with a change package. The operations of the list are passed
+	 * to the strategy first, like in {@link #doConflict(ChangePackage, ChangePackage)} called for each package of the
+	 * list. In indexed mode the index of the single change package is built only once.
+	 * 
+	 * @param changePackageList a list of change packages
+	 * @param changePackage a change package
+	 * @return true if any package in the list conflicts with the change package
+	 */
+	public boolean doConflict(List<ChangePackage> changePackageList, ChangePackage changePackage) {
+		OperationIndex index = null;
+		if (indexed) {
+			index = new OperationIndex(changePackage.getOperations());
+		}
+		for (ChangePackage a : changePackageList) {
+			if (index != null ? doConflict(a, index) : doConflict(a, changePackage)) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	private boolean doConflict(ChangePackage changePackage, OperationIndex otherIndex) {
+		for (AbstractOperation operation : changePackage.getOperations()) {
+			for (AbstractOperation otherOperation : otherIndex.getCandidates(operation)) {
+				if (doConflict(operation, otherOperation)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean doConflict(OperationIndex index, ChangePackage changePackage) {
+		for (AbstractOperation otherOperation : changePackage.getOperations()) {
+			for (AbstractOperation operation : index.getCandidates(otherOperation)) {
+				if (doConflict(operation, otherOperation)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Retrieve all operations in other ops that are conflicting with operations in ops. If any operation is in both
 	 * lists, it is not considered to be conflicting.
@@ -100,12 +179,23 @@ public class ConflictDetector {
 	 * @return A set of conflicting operations which is a subset of otherOps.
 	 */
 	public Set<AbstractOperation> getConflicting(List<AbstractOperation> ops, List<AbstractOperation> otherOps) {
+		OperationIndex otherIndex = null;
+		if (indexed) {
+			otherIndex = new OperationIndex(otherOps);
+		}
+		return getConflicting(ops, otherOps, otherIndex, null);
+	}
+
+	private Set<AbstractOperation> getConflicting(List<AbstractOperation> ops, List<AbstractOperation> otherOps,
+		OperationIndex otherIndex, OperationDependencyGraph otherGraph) {
 		// the operations that are conflicting
 		Set<AbstractOperation> conflicting = new HashSet<AbstractOperation>();
+		// the graph is only needed if there are conflicts at all
+		OperationDependencyGraph graph = otherGraph;
 
 		// check each operation in ops against otherOps
 		for (AbstractOperation position : ops) {
-			for (AbstractOperation other : otherOps) {
+			for (AbstractOperation other : getCandidates(position, otherOps, otherIndex)) {
 				if (conflicting.contains(other)) {
 					// a conflict has already been registered
 					continue;
@@ -114,7 +204,10 @@ public class ConflictDetector {
 				// list of conflicting ops along with all ops that
 				// require other ops
 				if (conflictDetectionStrategy.doConflict(position, other)) {
-					conflicting.addAll(getRequiring(otherOps, other));
+					if (graph == null) {
+						graph = createDependencyGraph(otherOps);
+					}
+					conflicting.addAll(graph.getRequiring(other));
 					conflicting.add(other);
 				}
 			}
@@ -141,9 +234,16 @@ public class ConflictDetector {
 		// works with only one strategy, as of now, hardcoding it
 		IndexSensitiveConflictDetectionStrategy indexSensitiveStrategy = new IndexSensitiveConflictDetectionStrategy();
 
+		// index integrity conflicts only occur on the same model element
+		OperationIndex otherIndex = null;
+		if (indexed) {
+			otherIndex = new OperationIndex(otherOps);
+		}
+		OperationDependencyGraph graph = null;
+
 		// check each operation in ops against otherOps
 		for (AbstractOperation position : ops) {
-			for (AbstractOperation other : otherOps) {
+			for (AbstractOperation other : getCandidates(position, otherOps, otherIndex)) {
 				if (conflicting.contains(other)) {
 					// a conflict has already been registered
 					continue;
@@ -153,7 +253,10 @@ public class ConflictDetector {
 				// require other ops
 
 				if (indexSensitiveStrategy.doConflictIndexIntegrity(position, other)) {
-					conflicting.addAll(getRequiring(otherOps, other));
+					if (graph == null) {
+						graph = createDependencyGraph(otherOps);
+					}
+					conflicting.addAll(graph.getRequiring(other));
 					conflicting.add(other);
 				}
 			}
@@ -164,6 +267,14 @@ public class ConflictDetector {
 		return conflicting;
 	}
 
+	private List<AbstractOperation> getCandidates(AbstractOperation operation, List<AbstractOperation> otherOps,
+		OperationIndex otherIndex) {
+		if (otherIndex == null) {
+			return otherOps;
+		}
+		return otherIndex.getCandidates(operation);
+	}
+
 	/**
 	 * Retrieve all operations in ops that are required by op. The operation <code>op</code> must be part of
 	 * <code>ops</code>.
@@ -176,6 +287,10 @@ public class ConflictDetector {
 	 */
 	public List<AbstractOperation> getRequired(List<AbstractOperation> ops, AbstractOperation op)
 		throws IllegalArgumentException {
+		if (indexed) {
+			return createDependencyGraph(ops).getRequired(op);
+		}
+
 		// sanity check
 		if (!ops.contains(op)) {
 			throw new IllegalArgumentException("the ops list dos not contain op");
@@ -212,6 +327,10 @@ public class ConflictDetector {
 	 * @return A list of operations that require op which is a subset of ops.
 	 */
 	public List<AbstractOperation> getRequiring(List<AbstractOperation> ops, AbstractOperation op) {
+		if (indexed) {
+			return createDependencyGraph(ops).getRequiring(op);
+		}
+
 		// sanity check
 		if (!ops.contains(op)) {
 			throw new IllegalArgumentException("the ops list dos not contain op");
@@ -224,12 +343,9 @@ public class ConflictDetector {
 		List<AbstractOperation> requiring = new ArrayList<AbstractOperation>();
 		requiring.add(op);
 
-		for (AbstractOperation current : ops) {
-			// if the current op is before op, it can not require it
-			if (ops.indexOf(current) <= opIdx) {
-				continue;
-			}
-			// else check if it requires any of the already requiring ops
+		// operations before op can not require it
+		for (AbstractOperation current : ops.subList(opIdx + 1, ops.size())) {
+			// check if it requires any of the already requiring ops
 			for (AbstractOperation req : requiring) {
 				if (conflictDetectionStrategy.isRequired(req, current)) {
 					requiring.add(current);
@@ -242,6 +358,17 @@ public class ConflictDetector {
 		return requiring;
 	}
 
+	/**
+	 * Builds the dependency graph of a list of operations. Use the graph to retrieve the required or requiring
+	 * operations of several operations of the same list.
+	 * 
+	 * @param ops A time ordered (ascending) list of operations.
+	 * @return the dependency graph
+	 */
+	public OperationDependencyGraph createDependencyGraph(List<AbstractOperation> ops) {
+		return new OperationDependencyGraph(ops, conflictDetectionStrategy, indexed);
+	}
+
 	/**
 	 * Return all operations that are involved in a conflict of the two lists.
 	 * 
@@ -251,13 +378,21 @@ public class ConflictDetector {
 	 */
 	public Set<AbstractOperation> getAllConflictInvolvedOperations(List<AbstractOperation> operationListA,
 		List<AbstractOperation> operationListB) {
+		OperationIndex indexA = null;
+		OperationIndex indexB = null;
+		if (indexed) {
+			indexA = new OperationIndex(operationListA);
+			indexB = new OperationIndex(operationListB);
+		}
+		OperationDependencyGraph graphA = createDependencyGraph(operationListA);
+		OperationDependencyGraph graphB = createDependencyGraph(operationListB);
 		Set<AbstractOperation> result = new HashSet<AbstractOperation>();
 		for (AbstractOperation operationA : operationListA) {
 			if (result.contains(operationA)) {
 				continue;
 			}
-			List<AbstractOperation> reqAoperations = getRequiring(operationListA, operationA);
-			Set<AbstractOperation> conflicting = getConflicting(reqAoperations, operationListB);
+			List<AbstractOperation> reqAoperations = graphA.getRequiring(operationA);
+			Set<AbstractOperation> conflicting = getConflicting(reqAoperations, operationListB, indexB, graphB);
 			if (conflicting.size() > 0) {
 				result.addAll(conflicting);
 				result.add(operationA);
@@ -267,8 +402,8 @@ public class ConflictDetector {
 			if (result.contains(operationB)) {
 				continue;
 			}
-			List<AbstractOperation> reqAoperations = getRequiring(operationListB, operationB);
-			Set<AbstractOperation> conflicting = getConflicting(reqAoperations, operationListA);
+			List<AbstractOperation> reqAoperations = graphB.getRequiring(operationB);
+			Set<AbstractOperation> conflicting = getConflicting(reqAoperations, operationListA, indexA, graphA);
 			if (conflicting.size() > 0) {
 				result.addAll(conflicting);
 				result.add(operationB);
@@ -633,13 +633,13 @@ public class IndexSensitiveConflictDetectionStrategy implements ConflictDetectio
 				// make sure that some of the added things are different
 				if (opA.getIndex() == opB.getIndex()) {
 					for (ModelElementId mA : opA.getOtherInvolvedModelElements()) {
-						if (!containsId(opB.getOtherInvolvedModelElements(), mA)) {
+						if (!opB.getOtherInvolvedModelElements().contains(mA)) {
 							return true;
 						}
 					}
 					for (ModelElementId mB : opB.getOtherInvolvedModelElements()) {
 						// if all were the same, this would be identical operations, thus no index conflict
-						if (!containsId(opA.getOtherInvolvedModelElements(), mB)) {
+						if (!opA.getOtherInvolvedModelElements().contains(mB)) {
 							return true;
 						}
 					}
@@ -653,7 +653,7 @@ public class IndexSensitiveConflictDetectionStrategy implements ConflictDetectio
 			if (opA.isAdd() != opB.isAdd()) {
 
 				for (ModelElementId mA : opA.getOtherInvolvedModelElements()) {
-					if (!containsId(opB.getOtherInvolvedModelElements(), mA)) {
+					if (!opB.getOtherInvolvedModelElements().contains(mA)) {
 						if (opB.getReferencedModelElements().size() == 1
 							&& opA.getReferencedModelElements().size() == 1) {
 							if (opA.isAdd()) {
@@ -668,7 +668,7 @@ public class IndexSensitiveConflictDetectionStrategy implements ConflictDetectio
 					}
 				}
 				for (ModelElementId mB : opB.getOtherInvolvedModelElements()) {
-					if (!containsId(opA.getOtherInvolvedModelElements(), mB)) {
+					if (!opA.getOtherInvolvedModelElements().contains(mB)) {
 						if (opB.getReferencedModelElements().size() == 1
 							&& opA.getReferencedModelElements().size() == 1) {
 							if (opA.isAdd()) {
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.conflictDetection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CreateDeleteOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.MultiReferenceOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.SingleReferenceOperation;
+
+/**
+ * Graph of the direct requirements between the operations of a time ordered list as defined by
+ * {@link ConflictDetectionStrategy#isRequired(AbstractOperation, AbstractOperation)}. The graph is built once, the
+ * transitive required and requiring operations of any operation are then retrieved by walking the graph.
+ * 
+ * In indexed mode an operation is only checked against earlier operations that create or reference one of the model
+ * elements it involves, following the requirement rules of the {@link IndexSensitiveConflictDetectionStrategy}.
+ * Otherwise it is checked against all earlier operations.
+ */
+public class OperationDependencyGraph {
+
+	private final List<AbstractOperation> operations;
+	private final Map<AbstractOperation, Integer> positions;
+	private final List<List<Integer>> requiredBy;
+	private final List<List<Integer>> requires;
+
+	/**
+	 * Builds the graph for the given operations.
+	 * 
+	 * @param operations a time ordered (ascending) list of operations
+	 * @param conflictDetectionStrategy the strategy defining the requirements
+	 * @param indexed true if operations should only be checked against operations creating or referencing a common
+	 *            model element
+	 */
+	public OperationDependencyGraph(List<AbstractOperation> operations,
+		ConflictDetectionStrategy conflictDetectionStrategy, boolean indexed) {
+		this.operations = operations;
+		int size = operations.size();
+		positions = new HashMap<AbstractOperation, Integer>(size * 2);
+		requiredBy = new ArrayList<List<Integer>>(size);
+		requires = new ArrayList<List<Integer>>(size);
+		for (int i = 0; i < size; i++) {
+			requiredBy.add(new ArrayList<Integer>(0));
+			requires.add(new ArrayList<Integer>(0));
+		}
+
+		Map<ModelElementId, List<Integer>> providers = new HashMap<ModelElementId, List<Integer>>();
+		// marks the operations already checked for the current operation
+		int[] checked = new int[size];
+		Arrays.fill(checked, -1);
+
+		for (int j = 0; j < size; j++) {
+			AbstractOperation operation = operations.get(j);
+			if (!positions.containsKey(operation)) {
+				positions.put(operation, j);
+			}
+			if (indexed) {
+				for (ModelElementId key : operation.getAllInvolvedModelElements()) {
+					List<Integer> bucket = providers.get(key);
+					if (bucket == null) {
+						continue;
+					}
+					for (Integer i : bucket) {
+						if (checked[i] != j) {
+							checked[i] = j;
+							addIfRequired(conflictDetectionStrategy, i, j);
+						}
+					}
+				}
+				for (ModelElementId key : getProvidedKeys(operation)) {
+					List<Integer> bucket = providers.get(key);
+					if (bucket == null) {
+						bucket = new ArrayList<Integer>(2);
+						providers.put(key, bucket);
+					}
+					bucket.add(j);
+				}
+			} else {
+				for (int i = 0; i < j; i++) {
+					addIfRequired(conflictDetectionStrategy, i, j);
+				}
+			}
+		}
+	}
+
+	private void addIfRequired(ConflictDetectionStrategy conflictDetectionStrategy, int required, int requiring) {
+		if (conflictDetectionStrategy.isRequired(operations.get(required), operations.get(requiring))) {
+			requiredBy.get(required).add(requiring);
+			requires.get(requiring).add(required);
+		}
+	}
+
+	/**
+	 * Returns the model elements an operation can be required for, i.e. the elements it creates or references.
+	 * 
+	 * @param operation the operation
+	 * @return set of model element ids
+	 */
+	public static Set<ModelElementId> getProvidedKeys(AbstractOperation operation) {
+		Set<ModelElementId> keys = new HashSet<ModelElementId>();
+		collectProvidedKeys(operation, keys);
+		return keys;
+	}
+
+	private static void collectProvidedKeys(AbstractOperation operation, Set<ModelElementId> keys) {
+		if (operation instanceof CompositeOperation) {
+			for (AbstractOperation subOperation : ((CompositeOperation) operation).getSubOperations()) {
+				collectProvidedKeys(subOperation, keys);
+			}
+		} else if (operation instanceof CreateDeleteOperation) {
+			if (!((CreateDeleteOperation) operation).isDelete()) {
+				keys.add(operation.getModelElementId());
+			}
+		} else if (operation instanceof MultiReferenceOperation) {
+			keys.addAll(((MultiReferenceOperation) operation).getReferencedModelElements());
+		} else if (operation instanceof SingleReferenceOperation) {
+			keys.add(operation.getModelElementId());
+		}
+	}
+
+	/**
+	 * Returns the operations of the graph.
+	 * 
+	 * @return the time ordered list of operations
+	 */
+	public List<AbstractOperation> getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Returns whether the graph contains the given operation.
+	 * 
+	 * @param operation the operation
+	 * @return true if the operation is part of the graph
+	 */
+	public boolean contains(AbstractOperation operation) {
+		return positions.containsKey(operation);
+	}
+
+	/**
+	 * Retrieve all operations that are (transitively) required by the given operation.
+	 * 
+	 * @param operation an operation of the graph
+	 * @return a time ordered list of the required operations, not containing the operation itself
+	 * @throws IllegalArgumentException if the operation is not part of the graph
+	 */
+	public List<AbstractOperation> getRequired(AbstractOperation operation) throws IllegalArgumentException {
+		return collect(operation, requires);
+	}
+
+	/**
+	 * Retrieve all operations that (transitively) require the given operation.
+	 * 
+	 * @param operation an operation of the graph
+	 * @return a time ordered list of the requiring operations, not containing the operation itself
+	 * @throws IllegalArgumentException if the operation is not part of the graph
+	 */
+	public List<AbstractOperation> getRequiring(AbstractOperation operation) throws IllegalArgumentException {
+		return collect(operation, requiredBy);
+	}
+
+	private List<AbstractOperation> collect(AbstractOperation operation, List<List<Integer>> edges) {
+		Integer start = positions.get(operation);
+		if (start == null) {
+			throw new IllegalArgumentException("the ops list dos not contain op");
+		}
+		TreeSet<Integer> visited = new TreeSet<Integer>();
+		List<Integer> stack = new ArrayList<Integer>();
+		stack.add(start);
+		while (!stack.isEmpty()) {
+			Integer current = stack.remove(stack.size() - 1);
+			for (Integer next : edges.get(current)) {
+				if (visited.add(next)) {
+					stack.add(next);
+				}
+			}
+		}
+		List<AbstractOperation> result = new ArrayList<AbstractOperation>(visited.size());
+		for (Integer position : visited) {
+			result.add(operations.get(position));
+		}
+		return result;
+	}
+}
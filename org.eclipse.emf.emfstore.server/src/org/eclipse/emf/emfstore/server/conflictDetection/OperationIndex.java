@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.conflictDetection;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.CreateDeleteOperation;
+
+/**
+ * Index of a list of operations by the model elements they touch. Two operations can only conflict if they have at
+ * least one model element in common, so the index delivers the candidates a given operation has to be checked against
+ * instead of the whole list.
+ */
+public class OperationIndex {
+
+	private final List<AbstractOperation> operations;
+	private final Map<ModelElementId, List<Integer>> positions;
+
+	/**
+	 * Builds the index for the given operations.
+	 * 
+	 * @param operations a time ordered list of operations
+	 */
+	public OperationIndex(List<AbstractOperation> operations) {
+		this.operations = operations;
+		this.positions = new HashMap<ModelElementId, List<Integer>>();
+		int position = 0;
+		for (AbstractOperation operation : operations) {
+			for (ModelElementId key : getIndexKeys(operation)) {
+				List<Integer> bucket = positions.get(key);
+				if (bucket == null) {
+					bucket = new ArrayList<Integer>(2);
+					positions.put(key, bucket);
+				}
+				bucket.add(position);
+			}
+			position++;
+		}
+	}
+
+	/**
+	 * Returns the indexed operations.
+	 * 
+	 * @return the list of operations
+	 */
+	public List<AbstractOperation> getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Returns all indexed operations that have at least one model element in common with the given operation, in the
+	 * order of the indexed list.
+	 * 
+	 * @param operation the operation
+	 * @return list of candidate operations
+	 */
+	public List<AbstractOperation> getCandidates(AbstractOperation operation) {
+		BitSet hits = new BitSet(operations.size());
+		for (ModelElementId key : getIndexKeys(operation)) {
+			List<Integer> bucket = positions.get(key);
+			if (bucket != null) {
+				for (Integer position : bucket) {
+					hits.set(position);
+				}
+			}
+		}
+		List<AbstractOperation> result = new ArrayList<AbstractOperation>(hits.cardinality());
+		for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+			result.add(operations.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the model elements an operation is indexed by. Besides the involved model elements this includes all
+	 * elements of a deleted containment tree, since changing any of them conflicts with the delete.
+	 * 
+	 * @param operation the operation
+	 * @return set of model element ids
+	 */
+	public static Set<ModelElementId> getIndexKeys(AbstractOperation operation) {
+		Set<ModelElementId> keys = new HashSet<ModelElementId>();
+		collectIndexKeys(operation, keys);
+		return keys;
+	}
+
+	private static void collectIndexKeys(AbstractOperation operation, Set<ModelElementId> keys) {
+		keys.addAll(operation.getAllInvolvedModelElements());
+		if (operation instanceof CompositeOperation) {
+			for (AbstractOperation subOperation : ((CompositeOperation) operation).getSubOperations()) {
+				collectIndexKeys(subOperation, keys);
+			}
+		} else if (operation instanceof CreateDeleteOperation) {
+			CreateDeleteOperation createDeleteOperation = (CreateDeleteOperation) operation;
+			keys.addAll(createDeleteOperation.getEObjectToIdMap().values());
+			for (AbstractOperation subOperation : createDeleteOperation.getSubOperations()) {
+				collectIndexKeys(subOperation, keys);
+			}
+		}
+	}
+}
@@ -16,6 +16,7 @@ import java.util.List;
 import org.eclipse.emf.emfstore.common.model.EMFStoreProperty;
 import org.eclipse.emf.emfstore.common.model.Project;
 import org.eclipse.emf.emfstore.server.EmfStore;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
 import org.eclipse.emf.emfstore.server.accesscontrol.AuthenticationControl;
 import org.eclipse.emf.emfstore.server.exceptions.AccessControlException;
 import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
@@ -220,4 +221,15 @@ public class XmlRpcEmfStoreImpl implements EmfStore, AuthenticationControl {
 	public List<EMFStoreProperty> getEMFProperties(SessionId sessionId, ProjectId projectId) throws EmfStoreException {
 		return getEmfStore().getEMFProperties(sessionId, projectId);
 	}
+
+	/**
+	 * Returns whether the server accepts and answers with compressed EObjects. Older servers don't provide this method,
+	 * so clients have to treat a failing call as false.
+	 * 
+	 * @return true if compression is supported
+	 */
+	public boolean isCompressionSupported() {
+		return Boolean.parseBoolean(ServerConfiguration.getProperties().getProperty(
+			ServerConfiguration.XML_RPC_COMPRESSION, ServerConfiguration.XML_RPC_COMPRESSION_DEFAULT).trim());
+	}
 }
@@ -14,6 +14,8 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import org.apache.ws.commons.util.Base64;
 import org.apache.ws.commons.util.Base64.Encoder;
@@ -28,7 +30,8 @@ import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
 /**
- * Serializer for EObjects.
+ * Serializer for EObjects. If compressing, the XML of the EObject is deflated on its way into the Base64 encoder and
+ * written within a {@link #COMPRESSED_EOBJECT_TAG}, which has to be negotiated with the receiver beforehand.
  * 
  * @author emueller
  */
@@ -38,37 +41,100 @@ public class EObjectSerializer extends TypeSerializerImpl {
 	 * EObject Tag for parsing.
 	 */
 	public static final String EOBJECT_TAG = "EObject";
+
+	/**
+	 * Tag of deflated EObjects for parsing.
+	 */
+	public static final String COMPRESSED_EOBJECT_TAG = "CompressedEObject";
+
 	private static final String EX_EOBJECT_TAG = "ex:" + EOBJECT_TAG;
+	private static final String EX_COMPRESSED_EOBJECT_TAG = "ex:" + COMPRESSED_EOBJECT_TAG;
+	private static final int BUFFER_SIZE = 8192;
+	private static final String ENCODING = "UTF-8";
+
+	private final boolean compressing;
+
+	/**
+	 * Default constructor, writing uncompressed EObjects.
+	 */
+	public EObjectSerializer() {
+		this(false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param compressing whether the EObjects are deflated
+	 */
+	public EObjectSerializer(boolean compressing) {
+		this.compressing = compressing;
+	}
+
+	/**
+	 * Returns whether the EObjects are deflated.
+	 * 
+	 * @return true if compressing
+	 */
+	public boolean isCompressing() {
+		return compressing;
+	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void write(ContentHandler pHandler, Object pObject) throws SAXException {
+		String localName = compressing ? COMPRESSED_EOBJECT_TAG : EOBJECT_TAG;
+		String qName = compressing ? EX_COMPRESSED_EOBJECT_TAG : EX_EOBJECT_TAG;
 		pHandler.startElement("", VALUE_TAG, VALUE_TAG, ZERO_ATTRIBUTES);
-		pHandler.startElement("", EOBJECT_TAG, EX_EOBJECT_TAG, ZERO_ATTRIBUTES);
+		pHandler.startElement("", localName, qName, ZERO_ATTRIBUTES);
 		char[] buffer = new char[1024];
 		Encoder encoder = new Base64.SAXEncoder(buffer, 0, null, pHandler);
 		try {
 			OutputStream ostream = new EncoderOutputStream(encoder);
-			BufferedOutputStream bos = new BufferedOutputStream(ostream);
-			OutputStreamWriter writer = new OutputStreamWriter(bos);
-			try {
-				if (pObject instanceof ChangePackage || pObject instanceof Project) {
-					ModelUtil.eobjectToString(writer, (EObject) pObject, true, true, true);
-				} else {
-					bos.write(ModelUtil.eObjectToString((EObject) pObject).getBytes());
-				}
-			} catch (SerializationException e) {
-				throw new SAXException("Couldn't serialize EObject", e);
-			} finally {
-				bos.close();
+			if (compressing) {
+				writeCompressed(ostream, (EObject) pObject);
+			} else {
+				writeUncompressed(ostream, (EObject) pObject);
 			}
+		} catch (SerializationException e) {
+			throw new SAXException("Couldn't serialize EObject", e);
 		} catch (Base64.SAXIOException e) {
 			throw e.getSAXException();
 		} catch (IOException e) {
 			throw new SAXException(e);
 		}
-		pHandler.endElement("", EOBJECT_TAG, EX_EOBJECT_TAG);
+		pHandler.endElement("", localName, qName);
 		pHandler.endElement("", VALUE_TAG, VALUE_TAG);
 	}
+
+	private void writeUncompressed(OutputStream ostream, EObject eObject) throws IOException, SerializationException {
+		BufferedOutputStream bos = new BufferedOutputStream(ostream);
+		OutputStreamWriter writer = new OutputStreamWriter(bos);
+		try {
+			if (eObject instanceof ChangePackage || eObject instanceof Project) {
+				ModelUtil.eobjectToString(writer, eObject, true, true, true);
+			} else {
+				bos.write(ModelUtil.eObjectToString(eObject).getBytes());
+			}
+		} finally {
+			bos.close();
+		}
+	}
+
+	private void writeCompressed(OutputStream ostream, EObject eObject) throws IOException, SerializationException {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		DeflaterOutputStream dos = new DeflaterOutputStream(new BufferedOutputStream(ostream, BUFFER_SIZE), deflater,
+			BUFFER_SIZE);
+		try {
+			// large objects are written directly from their resource
+			if (eObject instanceof ChangePackage || eObject instanceof Project) {
+				ModelUtil.eobjectToString(dos, eObject, true, true, true);
+			} else {
+				dos.write(ModelUtil.eObjectToString(eObject).getBytes(ENCODING));
+			}
+		} finally {
+			dos.close();
+			deflater.end();
+		}
+	}
 }
@@ -10,6 +10,10 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.server.connection.xmlrpc.util;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import org.apache.ws.commons.util.NamespaceContextImpl;
 import org.apache.xmlrpc.common.TypeFactoryImpl;
 import org.apache.xmlrpc.common.XmlRpcController;
@@ -20,12 +24,18 @@ import org.eclipse.emf.ecore.EObject;
 import org.xml.sax.SAXException;
 
 /**
- * Type Factory for XML RPC Transportation.
+ * Type Factory for XML RPC Transportation. EObjects are compressed if the factory is set to compressing, which the
+ * client does after negotiating compression with the server, or if the request being answered contained compressed
+ * EObjects, so that the server answers compressed only to clients which support it.
  * 
  * @author wesendon
  */
 public class EObjectTypeFactory extends TypeFactoryImpl {
 
+	private final Map<XmlRpcStreamConfig, Boolean> compressingConfigs = Collections
+		.synchronizedMap(new WeakHashMap<XmlRpcStreamConfig, Boolean>());
+	private boolean compressing;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -44,6 +54,9 @@ public class EObjectTypeFactory extends TypeFactoryImpl {
 		String pLocalName) {
 		if (EObjectSerializer.EOBJECT_TAG.equals(pLocalName)) {
 			return new EObjectTypeParser();
+		} else if (EObjectSerializer.COMPRESSED_EOBJECT_TAG.equals(pLocalName)) {
+			compressingConfigs.put(pConfig, Boolean.TRUE);
+			return new EObjectTypeParser(true);
 		} else {
 			return super.getParser(pConfig, pContext, pURI, pLocalName);
 		}
@@ -55,10 +68,28 @@ public class EObjectTypeFactory extends TypeFactoryImpl {
 	@Override
 	public TypeSerializer getSerializer(XmlRpcStreamConfig pConfig, Object pObject) throws SAXException {
 		if (pObject instanceof EObject) {
-			return new EObjectSerializer();
+			return new EObjectSerializer(compressing || compressingConfigs.containsKey(pConfig));
 		} else {
 			return super.getSerializer(pConfig, pObject);
 		}
 	}
 
+	/**
+	 * Sets whether all EObjects are written compressed. This may only be enabled if the receiver supports it.
+	 * 
+	 * @param compressing true to compress all EObjects
+	 */
+	public void setCompressing(boolean compressing) {
+		this.compressing = compressing;
+	}
+
+	/**
+	 * Returns whether all EObjects are written compressed.
+	 * 
+	 * @return true if all EObjects are compressed
+	 */
+	public boolean isCompressing() {
+		return compressing;
+	}
+
 }
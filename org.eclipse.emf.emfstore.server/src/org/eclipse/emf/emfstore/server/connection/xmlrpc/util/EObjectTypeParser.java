@@ -13,7 +13,10 @@ package org.eclipse.emf.emfstore.server.connection.xmlrpc.util;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.parser.ByteArrayParser;
@@ -21,17 +24,41 @@ import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
 import org.eclipse.emf.emfstore.common.model.util.SerializationException;
 
 /**
- * Parser for EObjects.
+ * Parser for EObjects. Compressed EObjects are only buffered in their deflated form and inflated while the XML is
+ * parsed.
  * 
  * @author emueller
  */
 public class EObjectTypeParser extends ByteArrayParser {
 
+	private static final int BUFFER_SIZE = 8192;
+
+	private final boolean compressed;
+
+	/**
+	 * Default constructor, parsing uncompressed EObjects.
+	 */
+	public EObjectTypeParser() {
+		this(false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param compressed whether the EObjects are deflated
+	 */
+	public EObjectTypeParser(boolean compressed) {
+		this.compressed = compressed;
+	}
+
 	@Override
 	public Object getResult() throws XmlRpcException {
 		try {
 			byte[] res = (byte[]) super.getResult();
 			ByteArrayInputStream bais = new ByteArrayInputStream(res);
+			if (compressed) {
+				return parseCompressed(bais);
+			}
 			BufferedReader reader = new BufferedReader(new InputStreamReader(bais));
 			try {
 				return ModelUtil.stringToEObject(reader);
@@ -44,4 +71,17 @@ public class EObjectTypeParser extends ByteArrayParser {
 			throw new XmlRpcException("Failed to read result object: " + e.getMessage(), e);
 		}
 	}
+
+	private Object parseCompressed(InputStream stream) throws XmlRpcException, IOException {
+		Inflater inflater = new Inflater();
+		InflaterInputStream iis = new InflaterInputStream(stream, inflater, BUFFER_SIZE);
+		try {
+			return ModelUtil.stringToEObject(iis);
+		} catch (SerializationException e) {
+			throw new XmlRpcException("Couldn't parse EObject", e);
+		} finally {
+			iis.close();
+			inflater.end();
+		}
+	}
 }
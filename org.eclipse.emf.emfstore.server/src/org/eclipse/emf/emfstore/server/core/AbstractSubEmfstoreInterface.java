@@ -12,9 +12,12 @@ package org.eclipse.emf.emfstore.server.core;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.server.EmfStoreController;
 import org.eclipse.emf.emfstore.server.accesscontrol.AuthorizationControl;
 import org.eclipse.emf.emfstore.server.core.helper.ResourceHelper;
 import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
+import org.eclipse.emf.emfstore.server.exceptions.StorageException;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
 import org.eclipse.emf.emfstore.server.model.ServerSpace;
 
 /**
@@ -84,7 +87,9 @@ public abstract class AbstractSubEmfstoreInterface {
 	}
 
 	/**
-	 * Returns the serverspace. Please always use a monitor ({@link #getMonitor()}) when operating on the serverspace.
+	 * Returns the serverspace. Please always use a lock ({@link #acquireReadLock(ProjectId)},
+	 * {@link #acquireWriteLock(ProjectId)}, {@link #acquireServerSpaceLock()}) or a monitor ({@link #getMonitor()}) when
+	 * operating on the serverspace.
 	 * 
 	 * @return serverspace
 	 */
@@ -101,6 +106,81 @@ public abstract class AbstractSubEmfstoreInterface {
 		return parentInterface.getMonitor();
 	}
 
+	/**
+	 * Acquires the read lock of the given project. Reads of different projects and concurrent reads of the same
+	 * project do not block each other. Has to be released with {@link #releaseReadLock(ProjectId)}.
+	 * 
+	 * @param projectId the project id
+	 * @throws StorageException if the project couldn't be loaded after a lazy startup
+	 */
+	protected void acquireReadLock(ProjectId projectId) throws StorageException {
+		awaitProject(projectId);
+		MonitorProvider.getInstance().getServerSpaceLock().readLock().lock();
+		MonitorProvider.getInstance().getProjectLock(projectId).readLock().lock();
+	}
+
+	/**
+	 * Waits until the given project has been loaded, if the server has been started lazily. Must be called before
+	 * locking the project.
+	 * 
+	 * @param projectId the project id
+	 * @throws StorageException if the project couldn't be loaded
+	 */
+	private void awaitProject(ProjectId projectId) throws StorageException {
+		EmfStoreController controller = EmfStoreController.getInstance();
+		if (controller != null && controller.getProjectLoader() != null) {
+			controller.getProjectLoader().awaitProject(projectId);
+		}
+	}
+
+	/**
+	 * Releases the read lock of the given project.
+	 * 
+	 * @param projectId the project id
+	 */
+	protected void releaseReadLock(ProjectId projectId) {
+		MonitorProvider.getInstance().getProjectLock(projectId).readLock().unlock();
+		MonitorProvider.getInstance().getServerSpaceLock().readLock().unlock();
+	}
+
+	/**
+	 * Acquires the write lock of the given project, which excludes all other operations on this project only. Has to
+	 * be released with {@link #releaseWriteLock(ProjectId)}.
+	 * 
+	 * @param projectId the project id
+	 * @throws StorageException if the project couldn't be loaded after a lazy startup
+	 */
+	protected void acquireWriteLock(ProjectId projectId) throws StorageException {
+		awaitProject(projectId);
+		MonitorProvider.getInstance().getServerSpaceLock().readLock().lock();
+		MonitorProvider.getInstance().getProjectLock(projectId).writeLock().lock();
+	}
+
+	/**
+	 * Releases the write lock of the given project.
+	 * 
+	 * @param projectId the project id
+	 */
+	protected void releaseWriteLock(ProjectId projectId) {
+		MonitorProvider.getInstance().getProjectLock(projectId).writeLock().unlock();
+		MonitorProvider.getInstance().getServerSpaceLock().readLock().unlock();
+	}
+
+	/**
+	 * Acquires the global serverspace lock, which excludes all other project operations. Use it when adding or
+	 * removing projects. Has to be released with {@link #releaseServerSpaceLock()}.
+	 */
+	protected void acquireServerSpaceLock() {
+		MonitorProvider.getInstance().getServerSpaceLock().writeLock().lock();
+	}
+
+	/**
+	 * Releases the global serverspace lock.
+	 */
+	protected void releaseServerSpaceLock() {
+		MonitorProvider.getInstance().getServerSpaceLock().writeLock().unlock();
+	}
+
 	/**
 	 * Returns the authorizationControl.
 	 * 
@@ -555,6 +555,8 @@ public class AdminEmfStoreImpl extends AbstractEmfstoreInterface implements Admi
 	}
 
 	private void save() throws EmfStoreException {
+		// every change of users, groups or roles is saved
+		getAuthorizationControl().invalidatePermissions();
 		try {
 			getServerSpace().save();
 		} catch (IOException e) {
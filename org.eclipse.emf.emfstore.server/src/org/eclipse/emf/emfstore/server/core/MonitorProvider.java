@@ -11,9 +11,18 @@
 package org.eclipse.emf.emfstore.server.core;
 
 import java.util.HashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.emf.emfstore.server.model.ProjectId;
 
 /**
  * Holds the monitor objects for synchronizing the access on the serverspace. It's implemented as a singleton.
+ * <p>
+ * Besides the plain monitors, the provider manages a read/write lock for the serverspace and one read/write lock per
+ * project. Operations on a single project acquire the serverspace lock for reading and the project lock for reading
+ * or writing, while operations that add or remove projects or unload resources acquire the serverspace lock for
+ * writing. Always acquire the serverspace lock before a project lock.
  * 
  * @author wesendon
  */
@@ -39,6 +48,8 @@ public final class MonitorProvider {
 
 	private Object monitor;
 	private HashMap<String, Object> monitors;
+	private final ReadWriteLock serverSpaceLock;
+	private final HashMap<String, ReadWriteLock> projectLocks;
 
 	/**
 	 * Private constructor.
@@ -47,6 +58,8 @@ public final class MonitorProvider {
 		monitors = new HashMap<String, Object>();
 		monitor = new Object();
 		monitors.put(MAIN_MONITOR, monitor);
+		serverSpaceLock = new ReentrantReadWriteLock();
+		projectLocks = new HashMap<String, ReadWriteLock>();
 	}
 
 	/**
@@ -86,4 +99,41 @@ public final class MonitorProvider {
 			return (monitors.remove(namespace) != null);
 		}
 	}
+
+	/**
+	 * Returns the lock guarding the serverspace as a whole. The read lock has to be held while operating on a single
+	 * project, the write lock while adding or removing projects or unloading resources.
+	 * 
+	 * @return the serverspace lock
+	 */
+	public ReadWriteLock getServerSpaceLock() {
+		return serverSpaceLock;
+	}
+
+	/**
+	 * Returns the lock of the given project. The lock is created on first request.
+	 * 
+	 * @param projectId the project id
+	 * @return the project lock
+	 */
+	public synchronized ReadWriteLock getProjectLock(ProjectId projectId) {
+		String key = projectId == null ? null : projectId.getId();
+		ReadWriteLock lock = projectLocks.get(key);
+		if (lock == null) {
+			lock = new ReentrantReadWriteLock();
+			projectLocks.put(key, lock);
+		}
+		return lock;
+	}
+
+	/**
+	 * Removes the lock of the given project. Must only be called while holding the write lock of the serverspace.
+	 * 
+	 * @param projectId the project id
+	 * @return true if a lock was removed
+	 */
+	public synchronized boolean removeProjectLock(ProjectId projectId) {
+		String key = projectId == null ? null : projectId.getId();
+		return (projectLocks.remove(key) != null);
+	}
 }
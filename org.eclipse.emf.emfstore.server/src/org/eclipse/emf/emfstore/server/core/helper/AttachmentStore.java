@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.core.helper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
+import org.eclipse.emf.emfstore.server.core.subinterfaces.FileTransferSubInterfaceImpl;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+
+/**
+ * Server-wide store of the attachment contents. Each content is stored once, named by its SHA-256 hash, no matter how
+ * many files of how many projects have this content. A project refers to a content by a small reference file in its
+ * attachment folder, named by the file identifier and containing the hash. The number of references to each content
+ * is counted, a content is deleted as soon as it isn't referenced anymore. The counts aren't stored but computed from
+ * the reference files on startup.
+ * 
+ * A content is only identified by a hash sent by a client if the project already refers to it. Otherwise a client
+ * could link the content of another project by guessing or learning its hash.
+ * 
+ * Attachments uploaded before the store existed are still read from the attachment folder of their project.
+ */
+public class AttachmentStore {
+
+	/**
+	 * Name of the folder of the store within the server home.
+	 */
+	public static final String STORE_FOLDER = "attachments";
+
+	/**
+	 * Suffix of the reference files.
+	 */
+	public static final String REFERENCE_SUFFIX = ".ref";
+
+	private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+	private final File serverHome;
+	private final File storeFolder;
+	private final File tempFolder;
+
+	// guarded by this
+	private final Map<String, Integer> referenceCounts;
+
+	// reference counts of each project by project id, guarded by this
+	private final Map<String, Map<String, Integer>> projectReferenceCounts;
+
+	/**
+	 * Default constructor. Counts the references of all projects in the server home.
+	 * 
+	 * @param serverHome the server home
+	 */
+	public AttachmentStore(File serverHome) {
+		this.serverHome = serverHome;
+		storeFolder = new File(serverHome, STORE_FOLDER);
+		tempFolder = new File(storeFolder, FileTransferSubInterfaceImpl.TEMP_FOLDER);
+		tempFolder.mkdirs();
+		referenceCounts = new HashMap<String, Integer>();
+		projectReferenceCounts = new HashMap<String, Map<String, Integer>>();
+		File[] projectFolders = serverHome.listFiles();
+		if (projectFolders == null) {
+			return;
+		}
+		for (File projectFolder : projectFolders) {
+			String name = projectFolder.getName();
+			if (!name.startsWith(ServerConfiguration.FILE_PREFIX_PROJECTFOLDER)) {
+				continue;
+			}
+			String projectId = name.substring(ServerConfiguration.FILE_PREFIX_PROJECTFOLDER.length());
+			for (File reference : getReferences(projectFolder)) {
+				String hash = readReference(reference);
+				if (hash != null) {
+					increment(projectId, hash);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the folder for files being uploaded. Files in this folder can be moved into the store without copying
+	 * them.
+	 * 
+	 * @return the temp folder
+	 */
+	public File getTempFolder() {
+		return tempFolder;
+	}
+
+	/**
+	 * Returns the file containing the content of an attachment.
+	 * 
+	 * @param projectId the project
+	 * @param fileIdentifier the identifier of the attachment
+	 * @return the file or null if the project has no such attachment
+	 */
+	public synchronized File getFile(ProjectId projectId, String fileIdentifier) {
+		File reference = getReferenceFile(projectId, fileIdentifier);
+		if (reference.exists()) {
+			String hash = readReference(reference);
+			if (hash != null && getContentFile(hash).exists()) {
+				return getContentFile(hash);
+			}
+			return null;
+		}
+		File legacyFile = new File(getAttachmentFolder(projectId), fileIdentifier);
+		return legacyFile.exists() ? legacyFile : null;
+	}
+
+	/**
+	 * Adds an attachment with a content which another attachment of the same project already refers to.
+	 * 
+	 * @param projectId the project
+	 * @param fileIdentifier the identifier of the attachment
+	 * @param hash the hash of the content, as sent by the client
+	 * @return true if the attachment has been added, false if the project doesn't refer to the content
+	 * @throws IOException if the reference can't be written
+	 */
+	public synchronized boolean addReference(ProjectId projectId, String fileIdentifier, String hash)
+		throws IOException {
+		Map<String, Integer> projectCounts = projectReferenceCounts.get(projectId.getId());
+		if (!HASH_PATTERN.matcher(hash).matches() || projectCounts == null || !projectCounts.containsKey(hash)
+			|| !getContentFile(hash).exists()) {
+			return false;
+		}
+		writeReference(projectId, fileIdentifier, hash);
+		return true;
+	}
+
+	/**
+	 * Adds an attachment. The file is moved into the store, or deleted if the store already contains its content.
+	 * 
+	 * @param projectId the project
+	 * @param fileIdentifier the identifier of the attachment
+	 * @param file the file, preferably in the {@link #getTempFolder() temp folder}
+	 * @param hash the hash of the file content, computed by the server
+	 * @throws IOException if the file can't be moved, the reference can't be written or the project has been removed
+	 */
+	public synchronized void store(ProjectId projectId, String fileIdentifier, File file, String hash)
+		throws IOException {
+		if (!getProjectFolder(projectId).isDirectory()) {
+			file.delete();
+			throw new IOException("The project " + projectId.getId() + " has been removed.");
+		}
+		File contentFile = getContentFile(hash);
+		if (contentFile.exists()) {
+			file.delete();
+		} else {
+			contentFile.getParentFile().mkdirs();
+			if (!file.renameTo(contentFile)) {
+				// the file is on another file system
+				FileUtil.copyFile(file, contentFile);
+				file.delete();
+			}
+		}
+		writeReference(projectId, fileIdentifier, hash);
+	}
+
+	/**
+	 * Removes all attachments of a project, deletes the contents which aren't referenced anymore and deletes the
+	 * project folder. Both happen under the lock of the store, so an upload finished concurrently can't leave a
+	 * reference behind.
+	 * 
+	 * @param projectId the project
+	 * @throws IOException if the project folder can't be deleted
+	 */
+	public synchronized void removeProject(ProjectId projectId) throws IOException {
+		File projectFolder = getProjectFolder(projectId);
+		for (File reference : getReferences(projectFolder)) {
+			String hash = readReference(reference);
+			if (reference.delete() && hash != null) {
+				decrement(projectId.getId(), hash);
+			}
+		}
+		projectReferenceCounts.remove(projectId.getId());
+		// uploads which haven't been finished
+		File[] tempFiles = tempFolder.listFiles();
+		if (tempFiles != null) {
+			String prefix = getTempFilePrefix(projectId);
+			for (File tempFile : tempFiles) {
+				if (tempFile.getName().startsWith(prefix)) {
+					tempFile.delete();
+				}
+			}
+		}
+		if (projectFolder.exists()) {
+			FileUtil.deleteFolder(projectFolder);
+		}
+	}
+
+	/**
+	 * Returns the file an upload is written to until it's complete.
+	 * 
+	 * @param projectId the project
+	 * @param fileIdentifier the identifier of the attachment
+	 * @return the temp file
+	 */
+	public File getTempFile(ProjectId projectId, String fileIdentifier) {
+		return new File(tempFolder, getTempFilePrefix(projectId) + fileIdentifier);
+	}
+
+	/**
+	 * Returns the number of references to a content.
+	 * 
+	 * @param hash the hash of the content
+	 * @return the number of references
+	 */
+	public synchronized int getReferenceCount(String hash) {
+		Integer count = referenceCounts.get(hash);
+		return count == null ? 0 : count;
+	}
+
+	private void writeReference(ProjectId projectId, String fileIdentifier, String hash) throws IOException {
+		File reference = getReferenceFile(projectId, fileIdentifier);
+		String oldHash = reference.exists() ? readReference(reference) : null;
+		if (hash.equals(oldHash)) {
+			return;
+		}
+		reference.getParentFile().mkdirs();
+		File tmpReference = new File(reference.getPath() + ".tmp");
+		Writer writer = new FileWriter(tmpReference);
+		try {
+			writer.write(hash);
+		} finally {
+			writer.close();
+		}
+		FileUtil.replaceFile(tmpReference, reference);
+		increment(projectId.getId(), hash);
+		if (oldHash != null) {
+			decrement(projectId.getId(), oldHash);
+		}
+		// the content replaces an attachment uploaded before the store existed
+		new File(getAttachmentFolder(projectId), fileIdentifier).delete();
+	}
+
+	private String readReference(File reference) {
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(reference));
+			try {
+				String hash = reader.readLine();
+				return hash == null ? null : hash.trim();
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			ModelUtil.logWarning("Couldn't read attachment reference " + reference, e);
+			return null;
+		}
+	}
+
+	private void increment(String projectId, String hash) {
+		referenceCounts.put(hash, getReferenceCount(hash) + 1);
+		Map<String, Integer> projectCounts = projectReferenceCounts.get(projectId);
+		if (projectCounts == null) {
+			projectCounts = new HashMap<String, Integer>();
+			projectReferenceCounts.put(projectId, projectCounts);
+		}
+		Integer projectCount = projectCounts.get(hash);
+		projectCounts.put(hash, projectCount == null ? 1 : projectCount + 1);
+	}
+
+	private void decrement(String projectId, String hash) {
+		Map<String, Integer> projectCounts = projectReferenceCounts.get(projectId);
+		if (projectCounts != null) {
+			Integer projectCount = projectCounts.remove(hash);
+			if (projectCount != null && projectCount > 1) {
+				projectCounts.put(hash, projectCount - 1);
+			}
+		}
+		int count = getReferenceCount(hash) - 1;
+		if (count > 0) {
+			referenceCounts.put(hash, count);
+			return;
+		}
+		referenceCounts.remove(hash);
+		File contentFile = getContentFile(hash);
+		if (contentFile.exists() && !contentFile.delete()) {
+			ModelUtil.logWarning("Couldn't delete unreferenced attachment " + contentFile);
+		}
+	}
+
+	private File[] getReferences(File projectFolder) {
+		File attachmentFolder = new File(projectFolder, FileTransferSubInterfaceImpl.ATTACHMENT_FOLDER);
+		File[] backups = attachmentFolder.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.getName().endsWith(REFERENCE_SUFFIX + FileUtil.BACKUP_SUFFIX);
+			}
+		});
+		if (backups != null) {
+			// references whose replacement has been interrupted by a crash
+			for (File backup : backups) {
+				String path = backup.getPath();
+				FileUtil.restoreBackup(new File(path.substring(0, path.length() - FileUtil.BACKUP_SUFFIX.length())));
+			}
+		}
+		File[] references = attachmentFolder.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().endsWith(REFERENCE_SUFFIX);
+			}
+		});
+		return references == null ? new File[0] : references;
+	}
+
+	private File getContentFile(String hash) {
+		// spread the contents over several folders
+		return new File(new File(storeFolder, hash.substring(0, 2)), hash);
+	}
+
+	private File getReferenceFile(ProjectId projectId, String fileIdentifier) {
+		return new File(getAttachmentFolder(projectId), fileIdentifier + REFERENCE_SUFFIX);
+	}
+
+	private File getAttachmentFolder(ProjectId projectId) {
+		return new File(getProjectFolder(projectId), FileTransferSubInterfaceImpl.ATTACHMENT_FOLDER);
+	}
+
+	private File getProjectFolder(ProjectId projectId) {
+		return new File(serverHome, ServerConfiguration.FILE_PREFIX_PROJECTFOLDER + projectId.getId());
+	}
+
+	private static String getTempFilePrefix(ProjectId projectId) {
+		return projectId.getId() + FileTransferSubInterfaceImpl.FILE_NAME_DELIMITER;
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.core.helper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.core.MonitorProvider;
+import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
+import org.eclipse.emf.emfstore.server.model.ProjectHistory;
+import org.eclipse.emf.emfstore.server.model.versioning.Version;
+import org.eclipse.emf.emfstore.server.model.versioning.VersioningPackage;
+
+/**
+ * Writes the project state of the head version in the background, if it was changed in place by commits. Until then
+ * the file of the head project state contains the state of an earlier version, which is encoded in the file name. The
+ * head project state is recovered by applying the change packages of all versions since then.
+ */
+public class CheckpointWriter {
+
+	/**
+	 * The period of time in milliseconds between the last commit and writing the checkpoint.
+	 */
+	private static final long CHECKPOINT_DELAY = 30 * 1000;
+
+	private final ResourceHelper resourceHelper;
+	private final Map<ProjectHistory, TimerTask> pending;
+	private Timer timer;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param resourceHelper the resource helper of the serverspace
+	 */
+	public CheckpointWriter(ResourceHelper resourceHelper) {
+		this.resourceHelper = resourceHelper;
+		this.pending = new LinkedHashMap<ProjectHistory, TimerTask>();
+	}
+
+	/**
+	 * Schedules writing the head project state of a project. Each commit postpones a pending checkpoint, so several
+	 * commits in a row lead to a single checkpoint.
+	 * 
+	 * @param projectHistory the project
+	 */
+	public void scheduleCheckpoint(final ProjectHistory projectHistory) {
+		synchronized (pending) {
+			TimerTask previous = pending.remove(projectHistory);
+			if (previous != null) {
+				previous.cancel();
+			}
+			if (timer == null) {
+				timer = new Timer("EMFStore checkpoint writer", true);
+			}
+			TimerTask task = new TimerTask() {
+				@Override
+				public void run() {
+					synchronized (pending) {
+						if (pending.get(projectHistory) != this) {
+							return;
+						}
+						pending.remove(projectHistory);
+					}
+					writeCheckpointLocked(projectHistory);
+				}
+			};
+			pending.put(projectHistory, task);
+			timer.schedule(task, CHECKPOINT_DELAY);
+		}
+	}
+
+	/**
+	 * Writes all pending checkpoints immediately, e.g. on server shutdown.
+	 */
+	public void flush() {
+		List<ProjectHistory> projects;
+		synchronized (pending) {
+			projects = new ArrayList<ProjectHistory>(pending.keySet());
+			pending.clear();
+			if (timer != null) {
+				timer.cancel();
+				timer = null;
+			}
+		}
+		for (ProjectHistory projectHistory : projects) {
+			writeCheckpointLocked(projectHistory);
+		}
+	}
+
+	private void writeCheckpointLocked(ProjectHistory projectHistory) {
+		// moving the head state to another file must neither interfere with commits nor with readers loading it
+		ReadWriteLock serverSpaceLock = MonitorProvider.getInstance().getServerSpaceLock();
+		serverSpaceLock.readLock().lock();
+		try {
+			ReadWriteLock projectLock = MonitorProvider.getInstance().getProjectLock(projectHistory.getProjectId());
+			projectLock.writeLock().lock();
+			try {
+				writeCheckpoint(projectHistory);
+			} finally {
+				projectLock.writeLock().unlock();
+			}
+		} catch (FatalEmfStoreException e) {
+			ModelUtil.logWarning("Couldn't write project state checkpoint of project "
+				+ projectHistory.getProjectId().getId(), e);
+		} finally {
+			serverSpaceLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the head project state of a project into the file of the head version, if it doesn't already reside
+	 * there. A commit that keeps the project state of the head version has to call this before, otherwise the head
+	 * version would keep referring to the file of an earlier version. The caller has to hold the write lock of the
+	 * project, since the head project state is moved to another file.
+	 * 
+	 * @param projectHistory the project
+	 * @throws FatalEmfStoreException if saving fails
+	 */
+	public void writeCheckpoint(ProjectHistory projectHistory) throws FatalEmfStoreException {
+		// deleted meanwhile
+		if (projectHistory.eContainer() == null) {
+			return;
+		}
+		Version head = projectHistory.getLastVersion();
+		Project projectState = head.getProjectState();
+		int headVersion = head.getPrimarySpec().getIdentifier();
+		if (projectState == null || projectState.eResource() == null
+			|| resourceHelper.getProjectStateVersion(projectState.eResource().getURI()) == headVersion) {
+			return;
+		}
+
+		Resource resource = projectState.eResource();
+		URI oldURI = resource.getURI();
+		resource.setURI(resourceHelper.getProjectStateURI(projectHistory.getProjectId(), headVersion));
+		try {
+			resourceHelper.saveWithProject(projectState, projectState);
+			resourceHelper.save(head);
+		} catch (FatalEmfStoreException e) {
+			resource.setURI(oldURI);
+			throw e;
+		}
+		// the version refers to the new file now
+		new File(oldURI.toFileString()).delete();
+	}
+
+	/**
+	 * Recovers the head project states that haven't been written since the last commits, e.g. after a crash. Must be
+	 * called on startup before the serverspace is accessed otherwise.
+	 * 
+	 * @param projects all projects of the serverspace
+	 * @throws FatalEmfStoreException if a recovered state can't be saved
+	 */
+	public void recoverProjectStates(List<ProjectHistory> projects) throws FatalEmfStoreException {
+		for (ProjectHistory projectHistory : projects) {
+			Version head = projectHistory.getLastVersion();
+			if (head == null) {
+				continue;
+			}
+			// check the file name without loading the state
+			EObject projectState = (EObject) head.eGet(VersioningPackage.eINSTANCE.getVersion_ProjectState(), false);
+			if (projectState == null) {
+				continue;
+			}
+			URI uri = projectState.eIsProxy() ? ((InternalEObject) projectState).eProxyURI() : projectState
+				.eResource().getURI();
+			int checkpointVersion = resourceHelper.getProjectStateVersion(uri);
+			if (checkpointVersion < 0 || checkpointVersion >= head.getPrimarySpec().getIdentifier()) {
+				continue;
+			}
+			ModelUtil.logInfo("Recovering project state of project " + projectHistory.getProjectId().getId()
+				+ " from version " + checkpointVersion + " ...");
+			applyChanges(projectHistory, head.getProjectState(), checkpointVersion, head);
+			writeCheckpoint(projectHistory);
+		}
+	}
+
+	/**
+	 * Reloads the project state of a version from the last written checkpoint and applies the change packages of all
+	 * versions since then. This is used if a project state changed in place has to be rolled back. The caller has to
+	 * hold the write lock of the project.
+	 * 
+	 * @param projectState the broken project state, which is discarded
+	 * @param version the version to recover the project state for
+	 */
+	public void reloadProjectState(Project projectState, Version version) {
+		Resource resource = projectState.eResource();
+		URI uri = resource.getURI();
+		ResourceSet resourceSet = resource.getResourceSet();
+		resource.unload();
+		synchronized (resourceSet) {
+			resourceSet.getResources().remove(resource);
+		}
+		Project reloaded = (Project) resourceSet.getResource(uri, true).getContents().get(0);
+		ProjectHistory projectHistory = (ProjectHistory) version.eContainer();
+		applyChanges(projectHistory, reloaded, resourceHelper.getProjectStateVersion(uri), version);
+		version.setProjectState(reloaded);
+	}
+
+	private void applyChanges(ProjectHistory projectHistory, Project projectState, int checkpointVersion,
+		Version target) {
+		Version version = projectHistory.getVersions().get(checkpointVersion);
+		while (version != target) {
+			version = version.getNextVersion();
+			version.getChanges().apply(projectState);
+		}
+	}
+}
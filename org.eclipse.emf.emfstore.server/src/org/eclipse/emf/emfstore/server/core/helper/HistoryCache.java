@@ -10,16 +10,21 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.server.core.helper;
 
-import java.util.Comparator;
-import java.util.HashMap;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
 import org.eclipse.emf.emfstore.server.model.ProjectHistory;
 import org.eclipse.emf.emfstore.server.model.ProjectId;
 import org.eclipse.emf.emfstore.server.model.versioning.ChangePackage;
@@ -28,19 +33,26 @@ import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOpera
 
 /**
  * This cache maps modelelements on verions, where these modelelements where changed. This is needed for the getHistory
- * method. WARNING: Newly created projects will be added to cache as soon as the server is restarted. Fix this.
+ * method. The versions are kept in a {@link HistoryIndex} per project, which is written to the project folder on
+ * shutdown. On startup only the versions created after the index was written are read, projects without an index are
+ * indexed from their change packages.
  * 
  * @author wesendon
  */
 public class HistoryCache {
 
-	private HashMap<ProjectId, HashMap<ModelElementId, TreeSet<Version>>> historyCache;
+	/**
+	 * Name of the file containing the index within the project folder.
+	 */
+	public static final String INDEX_FILE = "historyIndex.idx";
+
+	private final Map<String, HistoryIndex> indexes;
 
 	/**
 	 * Default constructor.
 	 */
 	public HistoryCache() {
-		historyCache = new HashMap<ProjectId, HashMap<ModelElementId, TreeSet<Version>>>();
+		indexes = new ConcurrentHashMap<String, HistoryIndex>();
 	}
 
 	/**
@@ -50,17 +62,11 @@ public class HistoryCache {
 	 */
 	public void initCache(List<ProjectHistory> projects) {
 		for (ProjectHistory project : projects) {
-			EList<Version> projectVersions = project.getVersions();
-			if (projectVersions.size() > 0) {
-				HashMap<ModelElementId, TreeSet<Version>> initialHashMap = buildInitialHashMap(projectVersions.get(0));
-				for (Version version : projectVersions) {
-					// System.out.println("Checking version: " + version.getPrimarySpec().getIdentifier());
-					addChangePackageToCache(initialHashMap, version);
-				}
-				historyCache.put(project.getProjectId(), initialHashMap);
+			HistoryIndex index = getIndex(project);
+			if (index.isDirty()) {
+				writeIndex(project.getProjectId(), index);
 			}
 		}
-		// printMap();
 	}
 
 	/**
@@ -70,104 +76,125 @@ public class HistoryCache {
 	 * @param version the version
 	 */
 	public void addVersionToCache(ProjectId projectId, Version version) {
-		HashMap<ModelElementId, TreeSet<Version>> hashMap = historyCache.get(projectId);
-		if (hashMap != null & version != null) {
-			addChangePackageToCache(hashMap, version);
+		if (version != null && version.eContainer() instanceof ProjectHistory) {
+			// indexes all versions up to the new one
+			getIndex((ProjectHistory) version.eContainer());
 		}
 	}
 
-	private void addChangePackageToCache(HashMap<ModelElementId, TreeSet<Version>> hashMap, Version version) {
-		ChangePackage changes = version.getChanges();
-		if (changes != null) {
-			EList<AbstractOperation> operations = changes.getOperations();
-			extractOperations(hashMap, version, operations);
-		}
+	/**
+	 * Returns the identifiers of the versions where the specified ME was touched in the specified project, the newest
+	 * version first.
+	 * 
+	 * @param projectHistory the project
+	 * @param modelElementId modelelement id
+	 * @return version identifiers
+	 */
+	public int[] getChangesForModelElement(ProjectHistory projectHistory, ModelElementId modelElementId) {
+		return getIndex(projectHistory).getVersions(modelElementId.getId());
 	}
 
-	private void extractOperations(HashMap<ModelElementId, TreeSet<Version>> hashMap, Version version,
-		EList<AbstractOperation> operations) {
-		for (AbstractOperation abstractOperation : operations) {
-			for (ModelElementId elementId : abstractOperation.getAllInvolvedModelElements()) {
-				addModelElement(hashMap, version, elementId);
-			}
-		}
+	/**
+	 * Removes the index of a deleted project.
+	 * 
+	 * @param projectId the project id
+	 */
+	public void removeProject(ProjectId projectId) {
+		indexes.remove(projectId.getId());
 	}
 
-	private void addModelElement(HashMap<ModelElementId, TreeSet<Version>> hashMap, Version version, ModelElementId id) {
-		// System.out.println(id.getId() + " ---> " + version.getPrimarySpec().getIdentifier());
-		TreeSet<Version> set = hashMap.get(id);
-		if (set == null) {
-			set = getTreeSet();
-			hashMap.put(id, set);
+	/**
+	 * Writes the indexes changed since they were read.
+	 */
+	public void flush() {
+		for (Map.Entry<String, HistoryIndex> entry : indexes.entrySet()) {
+			if (entry.getValue().isDirty()) {
+				writeIndex(getIndexFile(entry.getKey()), entry.getValue());
+			}
 		}
-		set.add(version);
 	}
 
-	private HashMap<ModelElementId, TreeSet<Version>> buildInitialHashMap(Version version) {
-		Set<EObject> allModelElements = version.getProjectState().getAllModelElements();
-		HashMap<ModelElementId, TreeSet<Version>> hashMap = new HashMap<ModelElementId, TreeSet<Version>>(
-			(int) (allModelElements.size() * 1.15) + 1);
-		for (EObject element : allModelElements) {
-			hashMap.put(ModelUtil.getProject(element).getModelElementId(element), initVersionSet(version));
+	private HistoryIndex getIndex(ProjectHistory projectHistory) {
+		String key = projectHistory.getProjectId().getId();
+		HistoryIndex index = indexes.get(key);
+		if (index == null) {
+			synchronized (indexes) {
+				index = indexes.get(key);
+				if (index == null) {
+					index = readIndex(getIndexFile(key));
+					if (index.getLastVersion() >= projectHistory.getVersions().size()) {
+						// the index doesn't belong to the stored versions
+						index = new HistoryIndex();
+					}
+					indexes.put(key, index);
+				}
+			}
 		}
-		return hashMap;
-	}
-
-	private TreeSet<Version> initVersionSet(Version version) {
-		TreeSet<Version> versionList = getTreeSet();
-		versionList.add(version);
-		return versionList;
+		synchronized (index) {
+			EList<Version> versions = projectHistory.getVersions();
+			for (int i = index.getLastVersion() + 1; i < versions.size(); i++) {
+				addVersion(index, versions.get(i));
+			}
+		}
+		return index;
 	}
 
-	/**
-	 * Returns versions where the specified ME was touched in the specified project.
-	 * 
-	 * @param projectId project id
-	 * @param modelElementId modelelement id
-	 * @return set of versions
-	 */
-	public TreeSet<Version> getChangesForModelElement(ProjectId projectId, ModelElementId modelElementId) {
-		HashMap<ModelElementId, TreeSet<Version>> map = historyCache.get(projectId);
-		if (map == null) {
-			return getTreeSet();
+	private void addVersion(HistoryIndex index, Version version) {
+		int identifier = version.getPrimarySpec().getIdentifier();
+		Set<String> elementIds = new LinkedHashSet<String>();
+		if (identifier == 0) {
+			// the elements of the initial project state count as changed in the first version
+			Project projectState = version.getProjectState();
+			if (projectState != null) {
+				for (EObject element : projectState.getAllModelElements()) {
+					String elementId = projectState.getModelElementIdString(element);
+					if (elementId != null) {
+						elementIds.add(elementId);
+					}
+				}
+			}
 		}
-		TreeSet<Version> hashSet = map.get(modelElementId);
-		if (hashSet == null) {
-			return getTreeSet();
+		ChangePackage changes = version.getChanges();
+		if (changes != null) {
+			for (AbstractOperation operation : changes.getOperations()) {
+				for (ModelElementId elementId : operation.getAllInvolvedModelElements()) {
+					elementIds.add(elementId.getId());
+				}
+			}
 		}
-		return hashSet;
+		index.addVersion(identifier, elementIds);
 	}
 
-	private TreeSet<Version> getTreeSet() {
-		return new TreeSet<Version>(new Comparator<Version>() {
-			public int compare(Version o1, Version o2) {
-				if (o1.getPrimarySpec().getIdentifier() == o2.getPrimarySpec().getIdentifier()) {
-					return 0;
-				}
-				if (o1.getPrimarySpec().getIdentifier() < o2.getPrimarySpec().getIdentifier()) {
-					return 1;
-				} else {
-					return -1;
-				}
+	private HistoryIndex readIndex(File file) {
+		FileUtil.restoreBackup(file);
+		if (file.exists()) {
+			try {
+				return HistoryIndex.read(file);
+			} catch (IOException e) {
+				ModelUtil.logWarning("Couldn't read history index " + file + ", rebuilding it.", e);
 			}
+		}
+		return new HistoryIndex();
+	}
 
-		});
+	private void writeIndex(ProjectId projectId, HistoryIndex index) {
+		writeIndex(getIndexFile(projectId.getId()), index);
 	}
 
-	/**
-	 * Debug method.
-	 */
-	public void printMap() {
-		for (ProjectId projectId : historyCache.keySet()) {
-			System.out.println("PROJECT: " + projectId.getId());
-			HashMap<ModelElementId, TreeSet<Version>> map = historyCache.get(projectId);
-			for (ModelElementId meId : map.keySet()) {
-				System.out.print("\tME: " + meId.getId() + " ");
-				for (Version version : map.get(meId)) {
-					System.out.print(version.getPrimarySpec().getIdentifier() + ", ");
-				}
-				System.out.println("");
-			}
+	private void writeIndex(File file, HistoryIndex index) {
+		if (!file.getParentFile().exists()) {
+			// project has been deleted meanwhile
+			return;
+		}
+		try {
+			index.write(file);
+		} catch (IOException e) {
+			ModelUtil.logWarning("Couldn't write history index " + file, e);
 		}
 	}
+
+	private File getIndexFile(String projectId) {
+		return new File(ServerConfiguration.getServerHome() + ServerConfiguration.FILE_PREFIX_PROJECTFOLDER + projectId
+			+ File.separatorChar + INDEX_FILE);
+	}
 }
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.core.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+
+/**
+ * Index of the versions in which the model elements of a project were changed. Model element ids are mapped to a
+ * number, which refers to an ascending array of version identifiers. The index holds no references to EMF objects and
+ * can be written to a file, so it doesn't have to be rebuilt from the change packages on startup.
+ */
+public class HistoryIndex {
+
+	private static final int MAGIC = 0x45534849;
+	private static final int FORMAT_VERSION = 1;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Map<String, Integer> elementNumbers;
+	private int[][] versions;
+	private int[] counts;
+	private int size;
+	private int lastVersion;
+	private boolean dirty;
+
+	/**
+	 * Creates an empty index.
+	 */
+	public HistoryIndex() {
+		this(INITIAL_CAPACITY);
+	}
+
+	private HistoryIndex(int capacity) {
+		elementNumbers = new HashMap<String, Integer>(capacity * 4 / 3 + 1);
+		versions = new int[capacity][];
+		counts = new int[capacity];
+		lastVersion = -1;
+	}
+
+	/**
+	 * Returns the identifier of the last version added to the index.
+	 * 
+	 * @return the identifier or -1 if the index is empty
+	 */
+	public synchronized int getLastVersion() {
+		return lastVersion;
+	}
+
+	/**
+	 * Returns whether the index was changed since it has been read or written.
+	 * 
+	 * @return true if the index was changed
+	 */
+	public synchronized boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Adds the model elements changed in a version. Versions have to be added in ascending order, but the elements of a
+	 * version may be added in several calls.
+	 * 
+	 * @param version the version identifier
+	 * @param elementIds the ids of the changed model elements
+	 */
+	public synchronized void addVersion(int version, Collection<String> elementIds) {
+		if (version < lastVersion) {
+			throw new IllegalArgumentException("Version " + version + " is older than the last indexed version "
+				+ lastVersion);
+		}
+		for (String elementId : elementIds) {
+			int number = getOrCreateNumber(elementId);
+			int count = counts[number];
+			int[] elementVersions = versions[number];
+			if (count > 0 && elementVersions[count - 1] == version) {
+				continue;
+			}
+			if (elementVersions == null) {
+				elementVersions = new int[2];
+				versions[number] = elementVersions;
+			} else if (count == elementVersions.length) {
+				int[] grown = new int[count + (count >> 1) + 1];
+				System.arraycopy(elementVersions, 0, grown, 0, count);
+				elementVersions = grown;
+				versions[number] = elementVersions;
+			}
+			elementVersions[count] = version;
+			counts[number] = count + 1;
+		}
+		lastVersion = version;
+		dirty = true;
+	}
+
+	private int getOrCreateNumber(String elementId) {
+		Integer number = elementNumbers.get(elementId);
+		if (number != null) {
+			return number;
+		}
+		if (size == versions.length) {
+			int capacity = size + (size >> 1) + 1;
+			int[][] grownVersions = new int[capacity][];
+			System.arraycopy(versions, 0, grownVersions, 0, size);
+			versions = grownVersions;
+			int[] grownCounts = new int[capacity];
+			System.arraycopy(counts, 0, grownCounts, 0, size);
+			counts = grownCounts;
+		}
+		elementNumbers.put(elementId, size);
+		return size++;
+	}
+
+	/**
+	 * Returns the versions in which a model element was changed, the newest version first.
+	 * 
+	 * @param elementId the model element id
+	 * @return the version identifiers, empty if the element is unknown
+	 */
+	public synchronized int[] getVersions(String elementId) {
+		Integer number = elementNumbers.get(elementId);
+		if (number == null) {
+			return new int[0];
+		}
+		int count = counts[number];
+		int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = versions[number][count - 1 - i];
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the index to a file. The file is replaced only after the index has been written completely.
+	 * 
+	 * @param file the file
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void write(File file) throws IOException {
+		File tmpFile = new File(file.getPath() + ".tmp");
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			output.writeInt(lastVersion);
+			output.writeInt(size);
+			String[] elementIds = new String[size];
+			for (Map.Entry<String, Integer> entry : elementNumbers.entrySet()) {
+				elementIds[entry.getValue()] = entry.getKey();
+			}
+			for (int number = 0; number < size; number++) {
+				output.writeUTF(elementIds[number]);
+				writeVarInt(output, counts[number]);
+				// versions are ascending, so the deltas are small
+				int previous = 0;
+				for (int i = 0; i < counts[number]; i++) {
+					writeVarInt(output, versions[number][i] - previous);
+					previous = versions[number][i];
+				}
+			}
+		} finally {
+			output.close();
+		}
+		FileUtil.replaceFile(tmpFile, file);
+		dirty = false;
+	}
+
+	/**
+	 * Reads an index written by {@link #write(File)}.
+	 * 
+	 * @param file the file
+	 * @return the index
+	 * @throws IOException if the file can't be read or is corrupt
+	 */
+	public static HistoryIndex read(File file) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+				throw new IOException("Unknown format of history index " + file);
+			}
+			int lastVersion = input.readInt();
+			int size = input.readInt();
+			if (size < 0) {
+				throw new IOException("Corrupt history index " + file);
+			}
+			HistoryIndex index = new HistoryIndex(Math.max(size, INITIAL_CAPACITY));
+			for (int number = 0; number < size; number++) {
+				index.elementNumbers.put(input.readUTF(), number);
+				int count = readVarInt(input);
+				int[] elementVersions = new int[count];
+				int previous = 0;
+				for (int i = 0; i < count; i++) {
+					previous += readVarInt(input);
+					elementVersions[i] = previous;
+				}
+				index.versions[number] = elementVersions;
+				index.counts[number] = count;
+			}
+			index.size = size;
+			index.lastVersion = lastVersion;
+			return index;
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			output.writeByte((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		output.writeByte(remaining);
+	}
+
+	private static int readVarInt(DataInputStream input) throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = input.readUnsignedByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Corrupt history index");
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.core.helper;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.emf.emfstore.common.model.Project;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+
+/**
+ * This cache keeps the most recently recalculated project states of versions without a stored project state, so
+ * requesting the same or a subsequent version again doesn't require to recalculate it from the last stored project
+ * state. Additionally it counts the recalculations of every version, which is used to decide whether a version is
+ * requested often enough to store its project state as a checkpoint.
+ * 
+ * The cached project states are shared and must not be modified.
+ */
+public class ProjectStateCache {
+
+	private final int checkpointRequests;
+	private final LinkedHashMap<String, Project> projectStates;
+	private final HashMap<String, Integer> recalculations;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param maxSize the maximum number of cached project states, 0 disables the cache
+	 * @param checkpointRequests the number of recalculations of a version after which its project state should be
+	 *            stored, 0 disables checkpoints
+	 */
+	public ProjectStateCache(final int maxSize, int checkpointRequests) {
+		this.checkpointRequests = checkpointRequests;
+		this.recalculations = new HashMap<String, Integer>();
+		// access ordered, so the least recently used state is evicted first
+		this.projectStates = new LinkedHashMap<String, Project>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Project> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached project state of a version.
+	 * 
+	 * @param projectId the project id
+	 * @param version the version identifier
+	 * @return the project state or null if it isn't cached
+	 */
+	public synchronized Project getProjectState(ProjectId projectId, int version) {
+		Project projectState = projectStates.get(getKey(projectId, version));
+		if (projectState != null && projectState.eIsProxy()) {
+			projectStates.remove(getKey(projectId, version));
+			return null;
+		}
+		return projectState;
+	}
+
+	/**
+	 * Adds a recalculated project state to the cache.
+	 * 
+	 * @param projectId the project id
+	 * @param version the version identifier
+	 * @param projectState the project state
+	 */
+	public synchronized void addProjectState(ProjectId projectId, int version, Project projectState) {
+		projectStates.put(getKey(projectId, version), projectState);
+	}
+
+	/**
+	 * Removes the project state of a version from the cache, e.g. because it has been stored.
+	 * 
+	 * @param projectId the project id
+	 * @param version the version identifier
+	 */
+	public synchronized void removeProjectState(ProjectId projectId, int version) {
+		projectStates.remove(getKey(projectId, version));
+		recalculations.remove(getKey(projectId, version));
+	}
+
+	/**
+	 * Counts a recalculation of the project state of a version.
+	 * 
+	 * @param projectId the project id
+	 * @param version the version identifier
+	 * @return true if the version has been recalculated often enough to store a checkpoint
+	 */
+	public synchronized boolean countRecalculation(ProjectId projectId, int version) {
+		if (checkpointRequests == 0) {
+			return false;
+		}
+		String key = getKey(projectId, version);
+		Integer count = recalculations.get(key);
+		count = (count == null) ? 1 : count + 1;
+		recalculations.put(key, count);
+		return count >= checkpointRequests;
+	}
+
+	/**
+	 * Removes all entries of a project, e.g. if the project is deleted.
+	 * 
+	 * @param projectId the project id
+	 */
+	public synchronized void removeProject(ProjectId projectId) {
+		String prefix = projectId.getId() + "@";
+		for (Iterator<String> iterator = projectStates.keySet().iterator(); iterator.hasNext();) {
+			if (iterator.next().startsWith(prefix)) {
+				iterator.remove();
+			}
+		}
+		for (Iterator<String> iterator = recalculations.keySet().iterator(); iterator.hasNext();) {
+			if (iterator.next().startsWith(prefix)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private String getKey(ProjectId projectId, int version) {
+		return projectId.getId() + "@" + version;
+	}
+}
@@ -12,13 +12,16 @@ package org.eclipse.emf.emfstore.server.core.helper;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.eclipse.emf.emfstore.common.EMFStoreResource;
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
 import org.eclipse.emf.emfstore.common.model.Project;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
@@ -43,6 +46,7 @@ import org.eclipse.emf.emfstore.server.model.versioning.operations.impl.CreateDe
 public class ResourceHelper {
 
 	private final ServerSpace serverSpace;
+	private final Map<Object, Object> saveOptions;
 
 	/**
 	 * Default constructor.
@@ -54,6 +58,11 @@ public class ResourceHelper {
 	 */
 	public ResourceHelper(ServerSpace serverSpace) throws FatalEmfStoreException {
 		this.serverSpace = serverSpace;
+		this.saveOptions = new HashMap<Object, Object>(ModelUtil.getResourceSaveOptions());
+		if (Boolean.parseBoolean(ServerConfiguration.getProperties().getProperty(
+			ServerConfiguration.PERSISTENCE_BINARY, ServerConfiguration.PERSISTENCE_BINARY_DEFAULT))) {
+			saveOptions.put(EMFStoreResource.OPTION_BINARY, Boolean.TRUE);
+		}
 	}
 
 	/**
@@ -165,7 +174,10 @@ public class ResourceHelper {
 			projectResource.unload();
 		}
 
-		projectResource.getResourceSet().getResources().remove(projectResource);
+		ResourceSet resourceSet = projectResource.getResourceSet();
+		synchronized (resourceSet) {
+			resourceSet.getResources().remove(projectResource);
+		}
 	}
 
 	/**
@@ -215,6 +227,40 @@ public class ResourceHelper {
 			+ File.separatorChar;
 	}
 
+	/**
+	 * Returns the URI of the file containing the projectstate of a version.
+	 * 
+	 * @param projectId
+	 *            the project id
+	 * @param versionNumber
+	 *            the version identifier
+	 * @return the URI
+	 */
+	public URI getProjectStateURI(ProjectId projectId, int versionNumber) {
+		return URI.createFileURI(getProjectFolder(projectId) + getProjectFile(versionNumber));
+	}
+
+	/**
+	 * Returns the version of a projectstate file, which is encoded in its name.
+	 * 
+	 * @param uri
+	 *            the URI of a projectstate file
+	 * @return the version identifier or -1 if the URI doesn't denote a projectstate file
+	 */
+	public int getProjectStateVersion(URI uri) {
+		String name = uri.lastSegment();
+		if (name == null || !name.startsWith(ServerConfiguration.FILE_PREFIX_PROJECTSTATE)
+			|| !name.endsWith(ServerConfiguration.FILE_EXTENSION_PROJECTSTATE)) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(name.substring(ServerConfiguration.FILE_PREFIX_PROJECTSTATE.length(), name.length()
+				- ServerConfiguration.FILE_EXTENSION_PROJECTSTATE.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
 	private String getProjectFile(int versionNumber) {
 		return ServerConfiguration.FILE_PREFIX_PROJECTSTATE + versionNumber
 			+ ServerConfiguration.FILE_EXTENSION_PROJECTSTATE;
@@ -238,8 +284,7 @@ public class ResourceHelper {
 		if (resource instanceof XMIResource) {
 			XMIResource xmiResource = (XMIResource) resource;
 			for (EObject modelElement : project.getAllModelElements()) {
-				ModelElementId modelElementId = project.getModelElementId(modelElement);
-				xmiResource.setID(modelElement, modelElementId.getId());
+				xmiResource.setID(modelElement, project.getModelElementIdString(modelElement));
 			}
 		}
 
@@ -264,8 +309,7 @@ public class ResourceHelper {
 		if (resource instanceof XMIResource) {
 			XMIResource xmiResource = (XMIResource) resource;
 			for (EObject modelElement : project.getAllModelElements()) {
-				ModelElementId modelElementId = project.getModelElementId(modelElement);
-				xmiResource.setID(modelElement, modelElementId.getId());
+				xmiResource.setID(modelElement, project.getModelElementIdString(modelElement));
 			}
 		}
 
@@ -282,7 +326,7 @@ public class ResourceHelper {
 	 */
 	public void save(EObject object) throws FatalEmfStoreException {
 		try {
-			object.eResource().save(ModelUtil.getResourceSaveOptions());
+			object.eResource().save(saveOptions);
 			// BEGIN SUPRESS CATCH EXCEPTION
 		} catch (Exception e) {
 			throw new FatalEmfStoreException(StorageException.NOSAVE, e);
@@ -297,17 +341,19 @@ public class ResourceHelper {
 	 *             in case of failure
 	 */
 	public void saveAll() throws FatalEmfStoreException {
-		for (Resource res : serverSpace.eResource().getResourceSet().getResources()) {
-			if (res.isLoaded() && res.isModified()) {
-				try {
-					res.save(ModelUtil.getResourceSaveOptions());
-					// BEGIN SUPRESS CATCH EXCEPTION
-				} catch (Exception e) {
-					throw new FatalEmfStoreException(StorageException.NOSAVE, e);
+		ResourceSet resourceSet = serverSpace.eResource().getResourceSet();
+		synchronized (resourceSet) {
+			for (Resource res : resourceSet.getResources()) {
+				if (res.isLoaded() && res.isModified()) {
+					try {
+						res.save(ModelUtil.getResourceSaveOptions());
+						// BEGIN SUPRESS CATCH EXCEPTION
+					} catch (Exception e) {
+						throw new FatalEmfStoreException(StorageException.NOSAVE, e);
+					}
+					// END SUPRESS CATCH EXCEPTION
 				}
-				// END SUPRESS CATCH EXCEPTION
 			}
 		}
-
 	}
 }
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.core.helper;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+
+/**
+ * Resource set of the serverspace. Since several projects may be read and written in parallel, resolving a proxy or
+ * creating a resource for one project must not corrupt the list of resources another project is loading into. All
+ * operations that add resources are therefore synchronized on the resource set. Proxies are resolved with
+ * {@link #getEObject(URI, boolean)}, which is synchronized as a whole, so looking up the object in the resource, which
+ * fills its ID maps, is serialized as well. Code iterating or removing resources has to synchronize on the resource set
+ * or hold the write lock of the serverspace.
+ */
+public class SynchronizedResourceSet extends ResourceSetImpl {
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.ResourceSetImpl#getResource(org.eclipse.emf.common.util.URI, boolean)
+	 */
+	@Override
+	public synchronized Resource getResource(URI uri, boolean loadOnDemand) {
+		return super.getResource(uri, loadOnDemand);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.ResourceSetImpl#getEObject(org.eclipse.emf.common.util.URI, boolean)
+	 */
+	@Override
+	public synchronized EObject getEObject(URI uri, boolean loadOnDemand) {
+		return super.getEObject(uri, loadOnDemand);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.ResourceSetImpl#createResource(org.eclipse.emf.common.util.URI)
+	 */
+	@Override
+	public synchronized Resource createResource(URI uri) {
+		return super.createResource(uri);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.ResourceSetImpl#createResource(org.eclipse.emf.common.util.URI,
+	 *      java.lang.String)
+	 */
+	@Override
+	public synchronized Resource createResource(URI uri, String contentType) {
+		return super.createResource(uri, contentType);
+	}
+}
@@ -11,14 +11,20 @@
 package org.eclipse.emf.emfstore.server.core.subinterfaces;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.EmfStoreController;
 import org.eclipse.emf.emfstore.server.ServerConfiguration;
 import org.eclipse.emf.emfstore.server.core.AbstractEmfstoreInterface;
 import org.eclipse.emf.emfstore.server.core.AbstractSubEmfstoreInterface;
-import org.eclipse.emf.emfstore.server.core.MonitorProvider;
+import org.eclipse.emf.emfstore.server.core.helper.AttachmentStore;
 import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.FileNotOnServerException;
 import org.eclipse.emf.emfstore.server.exceptions.FileTransferException;
@@ -28,16 +34,18 @@ import org.eclipse.emf.emfstore.server.filetransfer.FileTransferInformation;
 import org.eclipse.emf.emfstore.server.model.ProjectId;
 
 /**
- * The file transfer subinterface.
+ * The file transfer subinterface. Chunks of different files and of the same file are written concurrently, the state
+ * of each running upload is kept until all of its chunks have been received. An upload interrupted by the client can
+ * therefore be resumed, the server reports the chunks it already has. Completed uploads are moved to the
+ * {@link AttachmentStore}, an upload of a content which the project already refers to is completed without
+ * transferring any chunk. Uploads which haven't been continued for {@link #UPLOAD_TIMEOUT} are discarded.
  * 
  * @author pfeifferc
  */
 public class FileTransferSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 
-	private static final String FILELOAD = "filetransfer";
-
 	/**
-	 * tmp folder for file uploads to server.
+	 * tmp folder for file uploads to server, within the attachment store.
 	 */
 	public static final String TEMP_FOLDER = "tmp";
 
@@ -51,16 +59,45 @@ public class FileTransferSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	public static final String FILE_NAME_DELIMITER = "_";
 
+	/**
+	 * The period of time in milliseconds after which an upload without any further chunk is discarded.
+	 */
+	public static final long UPLOAD_TIMEOUT = 24 * 60 * 60 * 1000L;
+
+	private static final long EXPIRY_INTERVAL = 60 * 60 * 1000L;
+
+	private final int maxChunkSize;
+
+	// running uploads by project and file identifier, guarded by itself
+	private final Map<String, UploadState> uploads;
+	private long lastExpiry;
+
 	/**
 	 * @param parentInterface the parent interface
 	 * @throws FatalEmfStoreException if any fatal error occurs
 	 */
 	public FileTransferSubInterfaceImpl(AbstractEmfstoreInterface parentInterface) throws FatalEmfStoreException {
 		super(parentInterface);
+		uploads = new HashMap<String, UploadState>();
+		lastExpiry = System.currentTimeMillis();
+		maxChunkSize = Math.max(FilePartitionerUtil.getChunkSize(), readMaxChunkSize());
+	}
+
+	private static int readMaxChunkSize() {
+		String value = ServerConfiguration.getProperties().getProperty(ServerConfiguration.FILETRANSFER_MAX_CHUNK_SIZE,
+			ServerConfiguration.FILETRANSFER_MAX_CHUNK_SIZE_DEFAULT);
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			ModelUtil.logWarning("Couldn't read property: " + ServerConfiguration.FILETRANSFER_MAX_CHUNK_SIZE
+				+ " , set to " + ServerConfiguration.FILETRANSFER_MAX_CHUNK_SIZE_DEFAULT);
+			return Integer.parseInt(ServerConfiguration.FILETRANSFER_MAX_CHUNK_SIZE_DEFAULT);
+		}
 	}
 
 	/**
-	 * Reads a chunk from the file linked to the fileInformation.
+	 * Reads a chunk from the file linked to the fileInformation. The chunk size requested by the client is reduced to
+	 * the configured maximum, the file information of the returned chunk contains the size actually used.
 	 * 
 	 * @param projectId project attachment folder
 	 * @param fileInformation file information object
@@ -70,22 +107,19 @@ public class FileTransferSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	public FileChunk readChunk(ProjectId projectId, FileTransferInformation fileInformation)
 		throws FileTransferException {
 
-		// check if folders exist, otherwise create
-		createDirectories(projectId);
 		// try to localize file that is to be downloaded
-		File file;
-		try {
-			file = findFile(fileInformation, projectId);
-		} catch (FileNotFoundException e) {
+		File file = getAttachmentStore().getFile(projectId, constructFileName(fileInformation));
+		if (file == null) {
 			throw new FileNotOnServerException(projectId, fileInformation.getFileIdentifier());
 		}
-
+		negotiateChunkSize(fileInformation);
 		return FilePartitionerUtil.readChunk(file, fileInformation);
 	}
 
 	/**
 	 * Writes a chunk to the file linked to the fileInformation in the fileChunk. If the data in the file chunk is null,
-	 * this is treated as a request for a file version.
+	 * this is treated as a request for the state of the upload: the returned information contains the chunk size to be
+	 * used, the chunks which have already been received and whether the file is complete on the server.
 	 * 
 	 * @param fileChunk contains data and information about the file attachment, file version and chunk number
 	 * @param projectId project id
@@ -93,87 +127,214 @@ public class FileTransferSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * @throws FileTransferException if any error occurs writing to the file
 	 */
 	public FileTransferInformation writeChunk(FileChunk fileChunk, ProjectId projectId) throws FileTransferException {
-		synchronized (MonitorProvider.getInstance().getMonitor(FILELOAD)) {
-			// check if folders exist, otherwise create
-			createDirectories(projectId);
-			FileTransferInformation fileInfo = fileChunk.getFileInformation();
+		FileTransferInformation fileInfo = fileChunk.getFileInformation();
+		negotiateChunkSize(fileInfo);
+		File tmpFile = getAttachmentStore().getTempFile(projectId, constructFileName(fileInfo));
+		String key = projectId.getId() + File.separator + constructFileName(fileInfo);
 
-			// retrieve location for the temp file
-			File tmpFile;
-			try {
-				if (fileChunk.getChunkNumber() == 0) {
-					tmpFile = getTempFile(fileInfo, projectId);
-				} else {
-					tmpFile = findFileInTemp(fileInfo, projectId);
-				}
-			} catch (FileNotFoundException e) {
-				throw new FileTransferException(
-					"The file has either been removed from the server or is not accessible!", e);
+		if (fileChunk.getData() == null) {
+			return getUploadStatus(key, projectId, fileInfo, tmpFile);
+		}
+
+		UploadState state = getUploadState(key, fileInfo, tmpFile);
+		if (fileChunk.getChunkNumber() >= state.chunkCount) {
+			throw new FileTransferException("Chunk " + fileChunk.getChunkNumber() + " exceeds the size of the file!");
+		}
+		// chunks are written concurrently, each to its own region of the file, but not while the file is deleted
+		state.fileLock.readLock().lock();
+		try {
+			if (state.discarded) {
+				throw new FileTransferException("The upload of " + constructFileName(fileInfo)
+					+ " has been restarted or has expired, please upload it again!");
+			}
+			// the file of a finished upload has been moved already
+			if (!state.finished) {
+				FilePartitionerUtil.writeChunk(tmpFile, fileChunk);
+			}
+		} finally {
+			state.fileLock.readLock().unlock();
+		}
+		synchronized (state) {
+			if (state.finished) {
+				fileInfo.setComplete(true);
+				return fileInfo;
+			}
+			state.received.set(fileChunk.getChunkNumber());
+			boolean complete;
+			if (state.fileSize == FileTransferInformation.UNKOWN_SIZE) {
+				// older clients send the chunks in order and might not know the size
+				complete = fileChunk.isLast();
+			} else {
+				complete = state.received.cardinality() == state.chunkCount;
 			}
-			// file reslicer for reslicing temp file
-			FilePartitionerUtil.writeChunk(tmpFile, fileChunk);
-			// move file from temp folder to attachment folder if last file chunk is received
-			if (fileChunk.isLast()) {
-				try {
-					// retrieve final location for file
-					File attachmentFile = getCachedFile(fileInfo, projectId);
-
-					FileUtil.copyFile(tmpFile, attachmentFile);
-					tmpFile.delete();
-				} catch (IOException e) {
-					throw new FileTransferException("Could not move file to final destination!", e);
+			if (complete) {
+				finishUpload(key, state, projectId, fileInfo, tmpFile);
+				fileInfo.setComplete(true);
+			}
+		}
+		return fileInfo;
+	}
+
+	private void negotiateChunkSize(FileTransferInformation fileInfo) {
+		fileInfo.setChunkSize(Math.min(fileInfo.getChunkSize(), maxChunkSize));
+	}
+
+	private FileTransferInformation getUploadStatus(String key, ProjectId projectId, FileTransferInformation fileInfo,
+		File tmpFile) throws FileTransferException {
+		UploadState state;
+		synchronized (uploads) {
+			state = uploads.get(key);
+		}
+		if (state == null) {
+			String fileName = constructFileName(fileInfo);
+			try {
+				if (getAttachmentStore().getFile(projectId, fileName) != null
+					|| fileInfo.getContentHash() != null
+					&& getAttachmentStore().addReference(projectId, fileName, fileInfo.getContentHash())) {
+					fileInfo.setComplete(true);
+					return fileInfo;
 				}
+			} catch (IOException e) {
+				throw new FileTransferException("Could not store the file!", e);
 			}
-			return fileInfo;
 		}
+		state = getUploadState(key, fileInfo, tmpFile);
+		synchronized (state) {
+			fileInfo.setComplete(state.finished);
+			fileInfo.setTransferredChunks((BitSet) state.received.clone());
+		}
+		return fileInfo;
 	}
 
-	/**
-	 * Creates the file attachment and temporary file attachment folders.
-	 */
-	private void createDirectories(ProjectId projectId) {
-		File createFolders = new File(getProjectAttachmentTempFolder(projectId));
-		if (!createFolders.exists()) {
-			createFolders.mkdirs();
+	private UploadState getUploadState(String key, FileTransferInformation fileInfo, File tmpFile) {
+		UploadState state;
+		UploadState replaced;
+		synchronized (uploads) {
+			discardExpiredUploads();
+			state = uploads.get(key);
+			if (state != null && state.matches(fileInfo)) {
+				state.lastAccess = System.currentTimeMillis();
+				return state;
+			}
+			// a new upload or the file has changed since the upload was interrupted, no chunk of the new upload is
+			// written before the file of the previous one is deleted
+			replaced = state;
+			state = new UploadState(fileInfo, tmpFile);
+			state.fileLock.writeLock().lock();
+			uploads.put(key, state);
 		}
+		try {
+			if (replaced != null) {
+				discard(replaced);
+			}
+			tmpFile.delete();
+		} finally {
+			state.fileLock.writeLock().unlock();
+		}
+		return state;
 	}
 
-	private File findFileInTemp(FileTransferInformation fileInfo, ProjectId projectId) throws FileNotFoundException {
-		File file = getTempFile(fileInfo, projectId);
-		if (file.exists()) {
-			return file;
+	// has to be called holding the monitor of the uploads, so a new upload of the same file can't start before the
+	// file of the expired one is deleted, which doesn't wait since no chunk of it is written anymore
+	private void discardExpiredUploads() {
+		long now = System.currentTimeMillis();
+		if (now - lastExpiry < EXPIRY_INTERVAL) {
+			return;
+		}
+		lastExpiry = now;
+		for (Iterator<UploadState> iterator = uploads.values().iterator(); iterator.hasNext();) {
+			UploadState state = iterator.next();
+			if (now - state.lastAccess > UPLOAD_TIMEOUT) {
+				iterator.remove();
+				discard(state);
+			}
 		}
-		throw new FileNotFoundException("Could not locate the specified file (" + fileInfo.getFileIdentifier()
-			+ ") in the temp folder.");
 	}
 
-	private File findFile(FileTransferInformation fileInfo, ProjectId projectId) throws FileNotFoundException {
-		File file = getCachedFile(fileInfo, projectId);
-		if (file.exists()) {
-			return file;
+	// waits for the running chunk writes, later ones fail
+	private void discard(UploadState state) {
+		state.fileLock.writeLock().lock();
+		try {
+			state.discarded = true;
+			state.tmpFile.delete();
+		} finally {
+			state.fileLock.writeLock().unlock();
 		}
-		throw new FileNotFoundException("File " + fileInfo.getFileIdentifier()
-			+ " could not be located in the cache folder.");
 	}
 
-	private File getTempFile(FileTransferInformation fileInfo, ProjectId projectId) {
-		return new File(getProjectAttachmentTempFolder(projectId) + File.separator + constructFileName(fileInfo));
+	private void finishUpload(String key, UploadState state, ProjectId projectId, FileTransferInformation fileInfo,
+		File tmpFile) throws FileTransferException {
+		// repeated chunks must not be written while the file is checked and moved
+		state.fileLock.writeLock().lock();
+		try {
+			String hash = FilePartitionerUtil.computeHash(tmpFile);
+			if (state.contentHash != null && !state.contentHash.equals(hash)) {
+				state.received.clear();
+				tmpFile.delete();
+				throw new FileTransferException("The uploaded file " + constructFileName(fileInfo)
+					+ " is corrupt, please upload it again!");
+			}
+			try {
+				getAttachmentStore().store(projectId, constructFileName(fileInfo), tmpFile, hash);
+			} catch (IOException e) {
+				throw new FileTransferException("Could not move file to final destination!", e);
+			}
+			state.finished = true;
+		} finally {
+			state.fileLock.writeLock().unlock();
+			synchronized (uploads) {
+				if (uploads.get(key) == state) {
+					uploads.remove(key);
+				}
+			}
+		}
 	}
 
-	private File getCachedFile(FileTransferInformation fileInfo, ProjectId projectId) {
-		return new File(getProjectAttachmentFolder(projectId) + File.separator + constructFileName(fileInfo));
+	private AttachmentStore getAttachmentStore() {
+		return EmfStoreController.getInstance().getAttachmentStore();
 	}
 
 	private String constructFileName(FileTransferInformation fileInfo) {
 		return fileInfo.getFileIdentifier().getIdentifier();
 	}
 
-	private String getProjectAttachmentFolder(ProjectId projectId) {
-		return ServerConfiguration.getServerHome() + ServerConfiguration.FILE_PREFIX_PROJECTFOLDER + projectId.getId()
-			+ File.separator + ATTACHMENT_FOLDER;
-	}
+	/**
+	 * State of a running upload.
+	 */
+	private static final class UploadState {
+		private final int chunkSize;
+		private final int fileSize;
+		private final int chunkCount;
+		private final String contentHash;
+		private final BitSet received;
+		private final File tmpFile;
+		// read by the chunk writes, written by deleting or moving the file
+		private final ReadWriteLock fileLock;
+		// guarded by the monitor of the state and the write lock
+		private boolean finished;
+		// guarded by the write lock
+		private boolean discarded;
+		private volatile long lastAccess;
+
+		private UploadState(FileTransferInformation fileInfo, File tmpFile) {
+			chunkSize = fileInfo.getChunkSize();
+			fileSize = fileInfo.getFileSize();
+			if (fileSize == FileTransferInformation.UNKOWN_SIZE) {
+				chunkCount = Integer.MAX_VALUE;
+			} else {
+				chunkCount = FilePartitionerUtil.getNumberOfChunks(fileSize, chunkSize);
+			}
+			contentHash = fileInfo.getContentHash();
+			received = new BitSet();
+			this.tmpFile = tmpFile;
+			fileLock = new ReentrantReadWriteLock();
+			lastAccess = System.currentTimeMillis();
+		}
 
-	private String getProjectAttachmentTempFolder(ProjectId projectId) {
-		return getProjectAttachmentFolder(projectId) + File.separator + TEMP_FOLDER;
+		private boolean matches(FileTransferInformation fileInfo) {
+			return chunkSize == fileInfo.getChunkSize() && fileSize == fileInfo.getFileSize()
+				&& (contentHash == null ? fileInfo.getContentHash() == null : contentHash.equals(fileInfo
+					.getContentHash()));
+		}
 	}
 }
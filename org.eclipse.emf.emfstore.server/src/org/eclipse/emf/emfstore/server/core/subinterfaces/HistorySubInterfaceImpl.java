@@ -16,7 +16,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
 
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
@@ -29,6 +28,7 @@ import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.InvalidInputException;
 import org.eclipse.emf.emfstore.server.exceptions.StorageException;
+import org.eclipse.emf.emfstore.server.model.ProjectHistory;
 import org.eclipse.emf.emfstore.server.model.ProjectId;
 import org.eclipse.emf.emfstore.server.model.versioning.HistoryInfo;
 import org.eclipse.emf.emfstore.server.model.versioning.HistoryQuery;
@@ -63,7 +63,8 @@ public class HistorySubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * {@inheritDoc}
 	 */
 	public List<HistoryInfo> getHistoryInfo(ProjectId projectId, HistoryQuery historyQuery) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireReadLock(projectId);
+		try {
 			// if modelelements are added to the query, only history infos which
 			// are related to these modelelements will
 			// be returned.
@@ -77,6 +78,8 @@ public class HistorySubInterfaceImpl extends AbstractSubEmfstoreInterface {
 				}
 				return result;
 			}
+		} finally {
+			releaseReadLock(projectId);
 		}
 	}
 
@@ -85,7 +88,8 @@ public class HistorySubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	public void addTag(ProjectId projectId, PrimaryVersionSpec versionSpec, TagVersionSpec tag)
 		throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireWriteLock(projectId);
+		try {
 			Version version = getSubInterface(VersionSubInterfaceImpl.class).getVersion(projectId, versionSpec);
 			version.getTagSpecs().add(tag);
 			try {
@@ -93,6 +97,8 @@ public class HistorySubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			} catch (FatalEmfStoreException e) {
 				throw new StorageException(StorageException.NOSAVE);
 			}
+		} finally {
+			releaseWriteLock(projectId);
 		}
 	}
 
@@ -101,7 +107,8 @@ public class HistorySubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	public void removeTag(ProjectId projectId, PrimaryVersionSpec versionSpec, TagVersionSpec tag)
 		throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireWriteLock(projectId);
+		try {
 			Version version = getSubInterface(VersionSubInterfaceImpl.class).getVersion(projectId, versionSpec);
 			Iterator<TagVersionSpec> iterator = version.getTagSpecs().iterator();
 			while (iterator.hasNext()) {
@@ -114,6 +121,8 @@ public class HistorySubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			} catch (FatalEmfStoreException e) {
 				throw new StorageException(StorageException.NOSAVE);
 			}
+		} finally {
+			releaseWriteLock(projectId);
 		}
 	}
 
@@ -122,15 +131,18 @@ public class HistorySubInterfaceImpl extends AbstractSubEmfstoreInterface {
 		HistoryCache historyCache = EmfStoreController.getInstance().getHistoryCache();
 		// TODO only the first modelelement is included in the request.
 		ModelElementId modelElementId = moList.get(0);
-		TreeSet<Version> elements = historyCache.getChangesForModelElement(projectId, modelElementId);
-		ArrayList<Version> versions = new ArrayList<Version>(elements);
-		if (versions.size() == 0) {
+		ProjectHistory projectHistory = getSubInterface(ProjectSubInterfaceImpl.class).getProject(projectId);
+		int[] identifiers = historyCache.getChangesForModelElement(projectHistory, modelElementId);
+		if (identifiers.length == 0) {
 			return new ArrayList<HistoryInfo>();
 		}
 		// only the last 20 or less versions are considered
-		int historyCount = Math.min(versions.size(), 20);
-		List<HistoryInfo> historyInfos = getHistoryInfo(versions.subList(0, historyCount), projectId,
-			includeChangePackage);
+		int historyCount = Math.min(identifiers.length, 20);
+		List<Version> versions = new ArrayList<Version>(historyCount);
+		for (int i = 0; i < historyCount; i++) {
+			versions.add(projectHistory.getVersions().get(identifiers[i]));
+		}
+		List<HistoryInfo> historyInfos = getHistoryInfo(versions, projectId, includeChangePackage);
 		// filter operations to selected model element
 
 		for (HistoryInfo historyInfo : historyInfos) {
@@ -10,17 +10,21 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.server.core.subinterfaces;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.emf.emfstore.common.model.Project;
-import org.eclipse.emf.emfstore.common.model.util.FileUtil;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.EmfStoreController;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
 import org.eclipse.emf.emfstore.server.core.AbstractEmfstoreInterface;
 import org.eclipse.emf.emfstore.server.core.AbstractSubEmfstoreInterface;
+import org.eclipse.emf.emfstore.server.core.MonitorProvider;
+import org.eclipse.emf.emfstore.server.core.helper.ProjectStateCache;
 import org.eclipse.emf.emfstore.server.exceptions.AccessControlException;
 import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
@@ -37,6 +41,8 @@ import org.eclipse.emf.emfstore.server.model.versioning.PrimaryVersionSpec;
 import org.eclipse.emf.emfstore.server.model.versioning.Version;
 import org.eclipse.emf.emfstore.server.model.versioning.VersionSpec;
 import org.eclipse.emf.emfstore.server.model.versioning.VersioningFactory;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
+import org.eclipse.emf.emfstore.server.model.versioning.operations.AttributeOperation;
 
 /**
  * This subinterfaces implements all project related functionality for the
@@ -89,30 +95,143 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * {@inheritDoc}
 	 */
 	public Project getProject(ProjectId projectId, VersionSpec versionSpec) throws EmfStoreException {
+		PrimaryVersionSpec resolvedVersion;
+		Project projectState;
+		boolean checkpoint;
 
-		synchronized (getMonitor()) {
-			PrimaryVersionSpec resolvedVersion = getSubInterface(VersionSubInterfaceImpl.class).resolveVersionSpec(
-				projectId, versionSpec);
+		acquireReadLock(projectId);
+		try {
+			resolvedVersion = getSubInterface(VersionSubInterfaceImpl.class).resolveVersionSpec(projectId,
+				versionSpec);
 			Version version = getSubInterface(VersionSubInterfaceImpl.class).getVersion(projectId, resolvedVersion);
-			if (version.getProjectState() == null) {
-				while (version.getProjectState() == null && version.getPreviousVersion() != null) {
-					version = version.getPreviousVersion();
-				}
-				if (version.getProjectState() == null) {
-					// TODO: nicer exception.
-					// is this null check necessary anyway? (there were problems
-					// in past, because
-					// the xml files were inconsistent.
-					throw new EmfStoreException("Couldn't find project state.");
-				}
-				Project projectState = ModelUtil.clone(version.getProjectState());
-				for (Version next = version.getNextVersion(); next != null
-					&& next.getPrimarySpec().compareTo(resolvedVersion) < 1; next = next.getNextVersion()) {
-					next.getChanges().apply(projectState);
-				}
+			if (version.getProjectState() != null && !isChangedInPlace(version)) {
+				return version.getProjectState();
+			}
+			ProjectStateCache projectStateCache = getProjectStateCache();
+			projectState = projectStateCache.getProjectState(projectId, resolvedVersion.getIdentifier());
+			if (projectState != null) {
+				return projectState;
+			}
+			if (version.getProjectState() != null) {
+				// hand out a copy of the head state, since the next commit changes it
+				projectState = ModelUtil.clone(version.getProjectState());
+				projectStateCache.addProjectState(projectId, resolvedVersion.getIdentifier(), projectState);
 				return projectState;
 			}
-			return version.getProjectState();
+
+			// start from the nearest stored or cached project state
+			Project baseState = null;
+			while (baseState == null && version.getPreviousVersion() != null) {
+				version = version.getPreviousVersion();
+				baseState = version.getProjectState();
+				if (baseState == null) {
+					baseState = projectStateCache.getProjectState(projectId, version.getPrimarySpec().getIdentifier());
+				}
+			}
+			if (baseState == null) {
+				// TODO: nicer exception.
+				// is this null check necessary anyway? (there were problems
+				// in past, because
+				// the xml files were inconsistent.
+				throw new EmfStoreException("Couldn't find project state.");
+			}
+			projectState = ModelUtil.clone(baseState);
+			applyChanges(projectState, version.getNextVersion(), resolvedVersion);
+
+			projectStateCache.addProjectState(projectId, resolvedVersion.getIdentifier(), projectState);
+			checkpoint = projectStateCache.countRecalculation(projectId, resolvedVersion.getIdentifier());
+		} finally {
+			releaseReadLock(projectId);
+		}
+
+		if (checkpoint) {
+			createCheckpoint(projectId, resolvedVersion, projectState);
+		}
+		return projectState;
+	}
+
+	private boolean isChangedInPlace(Version version) {
+		return version.getNextVersion() == null
+			&& Boolean.parseBoolean(ServerConfiguration.getProperties().getProperty(
+				ServerConfiguration.PROJECTSTATE_COMMIT_INPLACE,
+				ServerConfiguration.PROJECTSTATE_COMMIT_INPLACE_DEFAULT));
+	}
+
+	private ProjectStateCache getProjectStateCache() {
+		return EmfStoreController.getInstance().getProjectStateCache();
+	}
+
+	/**
+	 * Applies the changes of all versions from the given version up to the target version in one pass. An attribute
+	 * operation directly followed by an operation setting the same attribute is skipped, since it would be overwritten
+	 * anyway.
+	 * 
+	 * @param projectState
+	 *            the project state to apply the changes to
+	 * @param from
+	 *            the first version whose changes are applied
+	 * @param to
+	 *            the last version whose changes are applied
+	 */
+	private void applyChanges(Project projectState, Version from, PrimaryVersionSpec to) {
+		List<AbstractOperation> operations = new ArrayList<AbstractOperation>();
+		for (Version next = from; next != null && next.getPrimarySpec().compareTo(to) < 1; next = next
+			.getNextVersion()) {
+			operations.addAll(next.getChanges().getOperations());
+		}
+		int size = operations.size();
+		for (int i = 0; i < size; i++) {
+			AbstractOperation operation = operations.get(i);
+			if (i + 1 < size && isOverwritten(operation, operations.get(i + 1))) {
+				continue;
+			}
+			operation.apply(projectState);
+		}
+	}
+
+	private boolean isOverwritten(AbstractOperation operation, AbstractOperation nextOperation) {
+		if (!(operation instanceof AttributeOperation) || !(nextOperation instanceof AttributeOperation)) {
+			return false;
+		}
+		return operation.getModelElementId().equals(nextOperation.getModelElementId())
+			&& ((AttributeOperation) operation).getFeatureName().equals(
+				((AttributeOperation) nextOperation).getFeatureName());
+	}
+
+	/**
+	 * Stores the project state of a frequently requested version, so it hasn't to be recalculated anymore. A failing
+	 * checkpoint is not critical, since the project state can be recalculated anyway.
+	 * 
+	 * @param projectId
+	 *            project id
+	 * @param versionSpec
+	 *            the version
+	 * @param projectState
+	 *            the recalculated project state, which is shared and therefore copied
+	 * @throws EmfStoreException
+	 *             if the version can't be found
+	 */
+	private void createCheckpoint(ProjectId projectId, PrimaryVersionSpec versionSpec, Project projectState)
+		throws EmfStoreException {
+		acquireWriteLock(projectId);
+		try {
+			Version version = getSubInterface(VersionSubInterfaceImpl.class).getVersion(projectId, versionSpec);
+			if (version.getProjectState() != null) {
+				return;
+			}
+			Project checkpoint = ModelUtil.clone(projectState);
+			version.setProjectState(checkpoint);
+			try {
+				getResourceHelper().createResourceForProject(checkpoint, versionSpec, projectId);
+				save(version);
+			} catch (FatalEmfStoreException e) {
+				version.setProjectState(null);
+				ModelUtil.logWarning("Couldn't store project state of version " + versionSpec.getIdentifier(), e);
+				return;
+			}
+			getProjectStateCache().removeProjectState(projectId, versionSpec.getIdentifier());
+		} finally {
+			releaseWriteLock(projectId);
 		}
 	}
 
@@ -123,17 +242,39 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * @throws AccessControlException
 	 */
 	public List<ProjectInfo> getProjectList(SessionId sessionId) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		// the serverspace read lock keeps the list of projects stable, while each project is only locked for as long
+		// as its info is created. The project infos don't need the projects to be loaded completely, so the list
+		// doesn't wait for a lazy startup.
+		MonitorProvider.getInstance().getServerSpaceLock().readLock().lock();
+		try {
+			List<ProjectId> projectIds = new ArrayList<ProjectId>();
+			for (ProjectHistory projectHistory : getServerSpace().getProjects()) {
+				projectIds.add(projectHistory.getProjectId());
+			}
+			Set<ProjectId> readableProjects;
+			try {
+				readableProjects = new HashSet<ProjectId>(getAuthorizationControl().filterReadableProjects(sessionId,
+					projectIds));
+			} catch (AccessControlException e) {
+				// if this exception occurs, no project is added to list
+				return new ArrayList<ProjectInfo>();
+			}
 			List<ProjectInfo> result = new ArrayList<ProjectInfo>();
 			for (ProjectHistory projectHistory : getServerSpace().getProjects()) {
+				ProjectId projectId = projectHistory.getProjectId();
+				if (!readableProjects.contains(projectId)) {
+					continue;
+				}
+				MonitorProvider.getInstance().getProjectLock(projectId).readLock().lock();
 				try {
-					getAuthorizationControl().checkReadAccess(sessionId, projectHistory.getProjectId(), null);
 					result.add(createProjectInfo(projectHistory));
-				} catch (AccessControlException e) {
-					// if this exception occurs, project won't be added to list
+				} finally {
+					MonitorProvider.getInstance().getProjectLock(projectId).readLock().unlock();
 				}
 			}
 			return result;
+		} finally {
+			MonitorProvider.getInstance().getServerSpaceLock().readLock().unlock();
 		}
 	}
 
@@ -141,7 +282,8 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * {@inheritDoc}
 	 */
 	public ProjectInfo createProject(String name, String description, LogMessage logMessage) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireServerSpaceLock();
+		try {
 			ProjectHistory projectHistory = null;
 			try {
 				logMessage.setDate(new Date());
@@ -151,6 +293,8 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 				throw new StorageException(StorageException.NOSAVE);
 			}
 			return createProjectInfo(projectHistory);
+		} finally {
+			releaseServerSpaceLock();
 		}
 	}
 
@@ -159,7 +303,8 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	public ProjectInfo createProject(String name, String description, LogMessage logMessage, Project project)
 		throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireServerSpaceLock();
+		try {
 			ProjectHistory projectHistory = null;
 			try {
 				logMessage.setDate(new Date());
@@ -169,6 +314,8 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			}
 
 			return createProjectInfo(projectHistory);
+		} finally {
+			releaseServerSpaceLock();
 		}
 	}
 
@@ -194,10 +341,14 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	protected void deleteProject(ProjectId projectId, boolean deleteFiles, boolean throwInvalidIdException)
 		throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireServerSpaceLock();
+		try {
 			try {
 				ProjectHistory project = getProject(projectId);
 				getServerSpace().getProjects().remove(project);
+				MonitorProvider.getInstance().removeProjectLock(projectId);
+				getProjectStateCache().removeProject(projectId);
+				EmfStoreController.getInstance().getHistoryCache().removeProject(projectId);
 				try {
 					save(getServerSpace());
 				} catch (FatalEmfStoreException e) {
@@ -226,15 +377,17 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			} finally {
 				// delete project files
 				if (deleteFiles) {
-					File projectFolder = new File(getResourceHelper().getProjectFolder(projectId));
+					// releases the attachment contents only referenced by this project and deletes its folder
 					try {
-						FileUtil.deleteFolder(projectFolder);
+						EmfStoreController.getInstance().getAttachmentStore().removeProject(projectId);
 					} catch (IOException e) {
 						ModelUtil.logException(
 							"Project files couldn't be deleted, but it was deleted from containment tree.", e);
 					}
 				}
 			}
+		} finally {
+			releaseServerSpaceLock();
 		}
 	}
 
@@ -242,7 +395,8 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * {@inheritDoc}
 	 */
 	public ProjectId importProjectHistoryToServer(ProjectHistory projectHistory) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireServerSpaceLock();
+		try {
 			ProjectHistory projectOrNull = getProjectOrNull(projectHistory.getProjectId());
 			if (projectOrNull != null) {
 				// if project with same id exists, create a new id.
@@ -271,6 +425,8 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 				throw new StorageException(StorageException.NOSAVE);
 			}
 			return ModelUtil.clone(projectHistory.getProjectId());
+		} finally {
+			releaseServerSpaceLock();
 		}
 	}
 
@@ -278,8 +434,11 @@ public class ProjectSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * {@inheritDoc}
 	 */
 	public ProjectHistory exportProjectHistoryFromServer(ProjectId projectId) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireReadLock(projectId);
+		try {
 			return ModelUtil.clone(getProject(projectId));
+		} finally {
+			releaseReadLock(projectId);
 		}
 	}
 
@@ -12,6 +12,7 @@ package org.eclipse.emf.emfstore.server.core.subinterfaces;
 
 import org.eclipse.emf.emfstore.server.core.AbstractEmfstoreInterface;
 import org.eclipse.emf.emfstore.server.core.AbstractSubEmfstoreInterface;
+import org.eclipse.emf.emfstore.server.core.MonitorProvider;
 import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
 import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
 import org.eclipse.emf.emfstore.server.model.SessionId;
@@ -40,7 +41,8 @@ public class UserSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 * {@inheritDoc}
 	 */
 	public ACUser resolveUser(SessionId sessionId, ACOrgUnitId id) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		MonitorProvider.getInstance().getServerSpaceLock().readLock().lock();
+		try {
 			ACUser requestingUser = getAuthorizationControl().resolveUser(sessionId);
 			if (id == null) {
 				return requestingUser;
@@ -51,6 +53,8 @@ public class UserSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			}
 			getAuthorizationControl().checkServerAdminAccess(sessionId);
 			return user;
+		} finally {
+			MonitorProvider.getInstance().getServerSpaceLock().readLock().unlock();
 		}
 	}
 }
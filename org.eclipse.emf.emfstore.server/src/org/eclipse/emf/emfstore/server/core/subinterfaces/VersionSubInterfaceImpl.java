@@ -24,6 +24,7 @@ import org.eclipse.emf.emfstore.server.EmfStoreController;
 import org.eclipse.emf.emfstore.server.ServerConfiguration;
 import org.eclipse.emf.emfstore.server.core.AbstractEmfstoreInterface;
 import org.eclipse.emf.emfstore.server.core.AbstractSubEmfstoreInterface;
+import org.eclipse.emf.emfstore.server.core.helper.CheckpointWriter;
 import org.eclipse.emf.emfstore.server.core.helper.HistoryCache;
 import org.eclipse.emf.emfstore.server.exceptions.BaseVersionOutdatedException;
 import org.eclipse.emf.emfstore.server.exceptions.EmfStoreException;
@@ -52,6 +53,7 @@ import org.eclipse.emf.emfstore.server.model.versioning.VersioningFactory;
 public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 
 	private HistoryCache historyCache;
+	private CheckpointWriter checkpointWriter;
 
 	/**
 	 * Default constructor.
@@ -76,6 +78,7 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	public void initSubInterface() throws FatalEmfStoreException {
 		super.initSubInterface();
 		historyCache = EmfStoreController.getInstance().getHistoryCache();
+		checkpointWriter = EmfStoreController.getInstance().getCheckpointWriter();
 	}
 
 	/**
@@ -91,7 +94,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 *             if versionSpec can't be resolved or other failure
 	 */
 	public PrimaryVersionSpec resolveVersionSpec(ProjectId projectId, VersionSpec versionSpec) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireReadLock(projectId);
+		try {
 			ProjectHistory projectHistory = getSubInterface(ProjectSubInterfaceImpl.class).getProject(projectId);
 			// PrimaryVersionSpec
 			if (versionSpec instanceof PrimaryVersionSpec && 0 <= ((PrimaryVersionSpec) versionSpec).getIdentifier()
@@ -130,6 +134,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			} else {
 				throw new InvalidVersionSpecException();
 			}
+		} finally {
+			releaseReadLock(projectId);
 		}
 	}
 
@@ -140,7 +146,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	public PrimaryVersionSpec createVersion(ProjectId projectId, PrimaryVersionSpec baseVersionSpec,
 		ChangePackage changePackage, LogMessage logMessage, ACUser user) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireWriteLock(projectId);
+		try {
 
 			long currentTimeMillis = System.currentTimeMillis();
 
@@ -160,8 +167,17 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 
 			Version previousHeadVersion = versions.get(versions.size() - 1);
 
-			Project newProjectState = ((ProjectImpl) previousHeadVersion.getProjectState()).copy();
-			changePackage.apply(newProjectState);
+			// the previous version loses its project state anyway, so it can be changed in place
+			boolean inPlace = isCommitInPlace(previousHeadVersion);
+			Project newProjectState;
+			if (inPlace) {
+				newProjectState = previousHeadVersion.getProjectState();
+				applyInPlace(changePackage, newProjectState, previousHeadVersion);
+			} else {
+				writePendingCheckpoint(projectHistory);
+				newProjectState = ((ProjectImpl) previousHeadVersion.getProjectState()).copy();
+				changePackage.apply(newProjectState);
+			}
 
 			newVersion.setProjectState(newProjectState);
 			newVersion.setChanges(changePackage);
@@ -177,8 +193,10 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			// try to save
 			try {
 				try {
-					getResourceHelper().createResourceForProject(newProjectState, newVersion.getPrimarySpec(),
-						projectHistory.getProjectId());
+					if (!inPlace) {
+						getResourceHelper().createResourceForProject(newProjectState, newVersion.getPrimarySpec(),
+							projectHistory.getProjectId());
+					}
 					getResourceHelper().createResourceForChangePackage(changePackage, newVersion.getPrimarySpec(),
 						projectId);
 					getResourceHelper().createResourceForVersion(newVersion, projectHistory.getProjectId());
@@ -186,6 +204,9 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 					// try to roll back
 					previousHeadVersion.setNextVersion(null);
 					versions.remove(newVersion);
+					if (inPlace) {
+						checkpointWriter.reloadProjectState(newProjectState, previousHeadVersion);
+					}
 					// TODO: OW: why do we need to save here, can we remove? do
 					// test!!
 					save(previousHeadVersion);
@@ -193,10 +214,15 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 					throw new StorageException(StorageException.NOSAVE, e);
 				}
 
-				// delete projectstate from last revision depending on
-				// persistence
-				// policy
-				handleOldProjectState(projectId, previousHeadVersion);
+				if (inPlace) {
+					// the project state is written in the background
+					checkpointWriter.scheduleCheckpoint(projectHistory);
+				} else {
+					// delete projectstate from last revision depending on
+					// persistence
+					// policy
+					handleOldProjectState(projectId, previousHeadVersion);
+				}
 
 				save(previousHeadVersion);
 				save(projectHistory);
@@ -211,6 +237,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 
 			ModelUtil.logInfo("Total time for commit: " + (System.currentTimeMillis() - currentTimeMillis));
 			return newVersionSpec;
+		} finally {
+			releaseWriteLock(projectId);
 		}
 	}
 
@@ -219,7 +247,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	public PrimaryVersionSpec createVersionForProject(ProjectId projectId, PrimaryVersionSpec baseVersionSpec,
 		ChangePackage changePackage, LogMessage logMessage) throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireWriteLock(projectId);
+		try {
 
 			long currentTimeMillis = System.currentTimeMillis();
 
@@ -239,9 +268,17 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 
 			Version previousHeadVersion = versions.get(versions.size() - 1);
 
-			Project newProjectState = ModelUtil.clone(previousHeadVersion.getProjectState());
-
-			changePackage.apply(newProjectState);
+			// the previous version loses its project state anyway, so it can be changed in place
+			boolean inPlace = isCommitInPlace(previousHeadVersion);
+			Project newProjectState;
+			if (inPlace) {
+				newProjectState = previousHeadVersion.getProjectState();
+				applyInPlace(changePackage, newProjectState, previousHeadVersion);
+			} else {
+				writePendingCheckpoint(projectHistory);
+				newProjectState = ModelUtil.clone(previousHeadVersion.getProjectState());
+				changePackage.apply(newProjectState);
+			}
 
 			newVersion.setProjectState(newProjectState);
 			newVersion.setChanges(changePackage);
@@ -256,8 +293,10 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			// try to save
 			try {
 				try {
-					getResourceHelper().createResourceForProject(newProjectState, newVersion.getPrimarySpec(),
-						projectHistory.getProjectId());
+					if (!inPlace) {
+						getResourceHelper().createResourceForProject(newProjectState, newVersion.getPrimarySpec(),
+							projectHistory.getProjectId());
+					}
 					getResourceHelper().createResourceForChangePackage(changePackage, newVersion.getPrimarySpec(),
 						projectId);
 					getResourceHelper().createResourceForVersion(newVersion, projectHistory.getProjectId());
@@ -265,16 +304,24 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 					// try to roll back
 					previousHeadVersion.setNextVersion(null);
 					versions.remove(newVersion);
+					if (inPlace) {
+						checkpointWriter.reloadProjectState(newProjectState, previousHeadVersion);
+					}
 					// OW: why do we need to save here, can we remove? do test!!
 					save(previousHeadVersion);
 					save(projectHistory);
 					throw new StorageException(StorageException.NOSAVE);
 				}
 
-				// delete projectstate from last revision depending on
-				// persistence
-				// policy
-				handleOldProjectState(projectId, previousHeadVersion);
+				if (inPlace) {
+					// the project state is written in the background
+					checkpointWriter.scheduleCheckpoint(projectHistory);
+				} else {
+					// delete projectstate from last revision depending on
+					// persistence
+					// policy
+					handleOldProjectState(projectId, previousHeadVersion);
+				}
 
 				save(previousHeadVersion);
 				save(projectHistory);
@@ -289,6 +336,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 
 			ModelUtil.logInfo("Total time for commit: " + (System.currentTimeMillis() - currentTimeMillis));
 			return newVersionSpec;
+		} finally {
+			releaseWriteLock(projectId);
 		}
 	}
 
@@ -301,6 +350,19 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 *            last head version
 	 */
 	private void handleOldProjectState(ProjectId projectId, Version previousHeadVersion) {
+		if (!keepsProjectState(previousHeadVersion)) {
+			getResourceHelper().deleteProjectState(previousHeadVersion, projectId);
+		}
+	}
+
+	/**
+	 * Checks whether the projectstate of the last revision is kept depending on persistence policy.
+	 * 
+	 * @param previousHeadVersion
+	 *            last head version
+	 * @return true if the projectstate is kept
+	 */
+	private boolean keepsProjectState(Version previousHeadVersion) {
 		String property = ServerConfiguration.getProperties().getProperty(
 			ServerConfiguration.PROJECTSTATE_VERSION_PERSISTENCE,
 			ServerConfiguration.PROJECTSPACE_VERSION_PERSISTENCE_DEFAULT);
@@ -313,12 +375,58 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 
 			// always save projecstate of first version
 			int lastVersion = previousHeadVersion.getPrimarySpec().getIdentifier();
-			if (lastVersion != 0 && lastVersion % x != 0) {
-				getResourceHelper().deleteProjectState(previousHeadVersion, projectId);
-			}
+			return lastVersion == 0 || lastVersion % x == 0;
+		}
+		return false;
+	}
 
-		} else {
-			getResourceHelper().deleteProjectState(previousHeadVersion, projectId);
+	/**
+	 * Checks whether a commit changes the projectstate of the last revision in place.
+	 * 
+	 * @param previousHeadVersion
+	 *            last head version
+	 * @return true if the projectstate is changed in place
+	 */
+	private boolean isCommitInPlace(Version previousHeadVersion) {
+		return Boolean.parseBoolean(ServerConfiguration.getProperties().getProperty(
+			ServerConfiguration.PROJECTSTATE_COMMIT_INPLACE, ServerConfiguration.PROJECTSTATE_COMMIT_INPLACE_DEFAULT))
+			&& !keepsProjectState(previousHeadVersion);
+	}
+
+	/**
+	 * Writes the projectstate of the last revision into its own file, if it was changed in place by earlier commits and
+	 * its checkpoint is still pending. A commit that keeps the projectstate of the last revision must not leave it in
+	 * the file of an earlier revision.
+	 * 
+	 * @param projectHistory
+	 *            the project
+	 * @throws StorageException
+	 *             if the projectstate can't be saved
+	 */
+	private void writePendingCheckpoint(ProjectHistory projectHistory) throws StorageException {
+		try {
+			checkpointWriter.writeCheckpoint(projectHistory);
+		} catch (FatalEmfStoreException e) {
+			throw new StorageException(StorageException.NOSAVE, e);
+		}
+	}
+
+	/**
+	 * Applies a change package in place. If that fails, the partially changed projectstate is recovered.
+	 * 
+	 * @param changePackage
+	 *            the changes
+	 * @param projectState
+	 *            the projectstate of the last revision
+	 * @param previousHeadVersion
+	 *            last head version
+	 */
+	private void applyInPlace(ChangePackage changePackage, Project projectState, Version previousHeadVersion) {
+		try {
+			changePackage.apply(projectState);
+		} catch (RuntimeException e) {
+			checkpointWriter.reloadProjectState(projectState, previousHeadVersion);
+			throw e;
 		}
 	}
 
@@ -327,7 +435,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 	 */
 	public List<ChangePackage> getChanges(ProjectId projectId, VersionSpec source, VersionSpec target)
 		throws EmfStoreException {
-		synchronized (getMonitor()) {
+		acquireReadLock(projectId);
+		try {
 			PrimaryVersionSpec resolvedSource = resolveVersionSpec(projectId, source);
 			PrimaryVersionSpec resolvedTarget = resolveVersionSpec(projectId, target);
 
@@ -376,6 +485,8 @@ public class VersionSubInterfaceImpl extends AbstractSubEmfstoreInterface {
 			}
 
 			return result;
+		} finally {
+			releaseReadLock(projectId);
 		}
 	}
 
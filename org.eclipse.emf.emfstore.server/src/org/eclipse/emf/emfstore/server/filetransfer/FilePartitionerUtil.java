@@ -11,23 +11,30 @@
 package org.eclipse.emf.emfstore.server.filetransfer;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.eclipse.emf.emfstore.server.exceptions.FileTransferException;
 
 /**
- * File transfer utility class.
+ * File transfer utility class. Chunks are read and written at their position in the file, so several chunks of the
+ * same file may be transferred at once.
  * 
  * @author pfeifferc
  */
 public final class FilePartitionerUtil {
 
-	// chunk size. consider that changing this value means that old file transfers will fail.
+	// default chunk size, used by transfers which don't specify a size. changing this value breaks older clients.
 	private static final int CHUNK_SIZE = 100000;
 
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final int HASH_BUFFER_SIZE = 65536;
+
 	// error messages
 	private static final String COULD_NOT_FIND_THE_FILE = "Could not find the file!";
 	private static final String COULD_NOT_READ_THE_FILE = "Could not read the file!";
@@ -37,20 +44,26 @@ public final class FilePartitionerUtil {
 	}
 
 	/**
-	 * Writes a file chunk to a file.
+	 * Writes a file chunk to a file at the position given by its chunk number and the chunk size of its file
+	 * information.
 	 * 
 	 * @param file file to be written to
 	 * @param fileChunk file chunk
 	 * @throws FileTransferException if any error occurs writing to the file.
 	 */
-	public static synchronized void writeChunk(File file, FileChunk fileChunk) throws FileTransferException {
+	public static void writeChunk(File file, FileChunk fileChunk) throws FileTransferException {
 		try {
-			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rws");
-			// skips to the position where the file chunk should be written
-			randomAccessFile.skipBytes(fileChunk.getChunkNumber() * CHUNK_SIZE);
-			randomAccessFile.write(fileChunk.getData());
-			// make sure everything is written instantly
-			randomAccessFile.close();
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				ByteBuffer buffer = ByteBuffer.wrap(fileChunk.getData());
+				long position = getPosition(fileChunk.getFileInformation());
+				while (buffer.hasRemaining()) {
+					position += channel.write(buffer, position);
+				}
+			} finally {
+				randomAccessFile.close();
+			}
 		} catch (FileNotFoundException e) {
 			throw new FileTransferException(COULD_NOT_FIND_THE_FILE, e);
 		} catch (IOException e) {
@@ -66,48 +79,62 @@ public final class FilePartitionerUtil {
 	 * @return fileChunk
 	 * @throws FileTransferException if any error occurs reading the file
 	 */
-	public static synchronized FileChunk readChunk(File file, FileTransferInformation fileInformation)
+	public static FileChunk readChunk(File file, FileTransferInformation fileInformation)
 		throws FileTransferException {
-		boolean end = false;
-		byte[] data;
 		try {
-			FileInputStream fileInputStream = new FileInputStream(file);
-			int absoluteSize = fileInputStream.available();
-			// start reading the chunk from the position specified by the chunk number and chunk size
-			fileInputStream.skip(fileInformation.getChunkNumber() * CHUNK_SIZE);
-			int remainingSize = fileInputStream.available();
-			// if the remaining size is chunk size or smaller, set end flag to true, which means this is the last chunk
-			if (remainingSize <= CHUNK_SIZE && remainingSize >= 0) {
-				end = true;
-				data = new byte[remainingSize];
-			} else {
-				data = new byte[CHUNK_SIZE];
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				long absoluteSize = channel.size();
+				// start reading the chunk from the position specified by the chunk number and chunk size
+				long position = getPosition(fileInformation);
+				long remainingSize = Math.max(0, absoluteSize - position);
+				int chunkSize = fileInformation.getChunkSize();
+				// if the remaining size is chunk size or smaller this is the last chunk
+				boolean end = remainingSize <= chunkSize;
+				ByteBuffer buffer = ByteBuffer.allocate(end ? (int) remainingSize : chunkSize);
+				while (buffer.hasRemaining()) {
+					int read = channel.read(buffer, position + buffer.position());
+					if (read < 0) {
+						throw new IOException("Unexpected end of file " + file);
+					}
+				}
+				fileInformation.setFileSize((int) absoluteSize);
+				return new FileChunk(fileInformation, end, buffer.array());
+			} finally {
+				randomAccessFile.close();
 			}
-			fileInputStream.read(data);
-			fileInputStream.getChannel().close();
-			fileInputStream.close();
-			fileInformation.setFileSize(absoluteSize);
-			return new FileChunk(fileInformation, end, data);
+		} catch (FileNotFoundException e) {
+			throw new FileTransferException(COULD_NOT_FIND_THE_FILE, e);
 		} catch (IOException e) {
 			throw new FileTransferException(COULD_NOT_READ_THE_FILE, e);
 		}
 	}
 
+	private static long getPosition(FileTransferInformation fileInformation) {
+		return (long) fileInformation.getChunkNumber() * fileInformation.getChunkSize();
+	}
+
 	/**
-	 * Returns the number of chunks for a given file.
+	 * Returns the number of chunks for a given file, using the default chunk size.
 	 * 
 	 * @param file file
 	 * @return number of chunks
 	 * @throws FileTransferException if any error occurs obtaining the file handle.
 	 */
 	public static int getNumberOfChunks(File file) throws FileTransferException {
-		try {
-			return (int) Math.ceil(new FileInputStream(file).available() / (float) CHUNK_SIZE);
-		} catch (FileNotFoundException e) {
-			throw new FileTransferException(COULD_NOT_FIND_THE_FILE, e);
-		} catch (IOException e) {
-			throw new FileTransferException(COULD_NOT_READ_THE_FILE, e);
-		}
+		return getNumberOfChunks(getFileSize(file), CHUNK_SIZE);
+	}
+
+	/**
+	 * Returns the number of chunks a file is transferred in. An empty file is transferred as one empty chunk.
+	 * 
+	 * @param fileSize the file size
+	 * @param chunkSize the chunk size
+	 * @return number of chunks
+	 */
+	public static int getNumberOfChunks(long fileSize, int chunkSize) {
+		return (int) Math.max(1, (fileSize + chunkSize - 1) / chunkSize);
 	}
 
 	/**
@@ -116,17 +143,53 @@ public final class FilePartitionerUtil {
 	 * @throws FileTransferException if any error occurs reading file size
 	 */
 	public static int getFileSize(File file) throws FileTransferException {
+		if (!file.exists()) {
+			throw new FileTransferException(COULD_NOT_FIND_THE_FILE);
+		}
+		return (int) file.length();
+	}
+
+	/**
+	 * Computes the hash of the content of a file, which identifies files with the same content.
+	 * 
+	 * @param file the file
+	 * @return the SHA-256 hash of the file as hexadecimal string
+	 * @throws FileTransferException if the file can't be read
+	 */
+	public static String computeHash(File file) throws FileTransferException {
+		MessageDigest digest;
 		try {
-			return new FileInputStream(file).available();
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new FileTransferException("Hash algorithm " + HASH_ALGORITHM + " is not available!", e);
+		}
+		try {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+				while (channel.read(buffer) >= 0) {
+					digest.update(buffer.array(), 0, buffer.position());
+					buffer.clear();
+				}
+			} finally {
+				randomAccessFile.close();
+			}
 		} catch (FileNotFoundException e) {
 			throw new FileTransferException(COULD_NOT_FIND_THE_FILE, e);
 		} catch (IOException e) {
 			throw new FileTransferException(COULD_NOT_READ_THE_FILE, e);
 		}
+		StringBuilder hash = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hash.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hash.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hash.toString();
 	}
 
 	/**
-	 * @return the chunk size
+	 * @return the default chunk size
 	 */
 	public static int getChunkSize() {
 		return CHUNK_SIZE;
@@ -11,6 +11,7 @@
 package org.eclipse.emf.emfstore.server.filetransfer;
 
 import java.io.Serializable;
+import java.util.BitSet;
 
 import org.eclipse.emf.emfstore.server.model.FileIdentifier;
 import org.eclipse.emf.emfstore.server.model.ModelFactory;
@@ -35,6 +36,15 @@ public class FileTransferInformation implements Serializable {
 
 	private String fileIdentifier;
 
+	// fields added later are initialized with their defaults when sent by an older version
+	private int chunkSize;
+
+	private String contentHash;
+
+	private BitSet transferredChunks;
+
+	private boolean complete;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -46,6 +56,23 @@ public class FileTransferInformation implements Serializable {
 		this.fileSize = fileSize;
 	}
 
+	/**
+	 * Copy constructor, used to transfer several chunks of the same file at once.
+	 * 
+	 * @param fileInformation the information to copy
+	 */
+	public FileTransferInformation(FileTransferInformation fileInformation) {
+		chunkNumber = fileInformation.chunkNumber;
+		fileSize = fileInformation.fileSize;
+		fileIdentifier = fileInformation.fileIdentifier;
+		chunkSize = fileInformation.chunkSize;
+		contentHash = fileInformation.contentHash;
+		if (fileInformation.transferredChunks != null) {
+			transferredChunks = (BitSet) fileInformation.transferredChunks.clone();
+		}
+		complete = fileInformation.complete;
+	}
+
 	/**
 	 * @return the chunk number
 	 */
@@ -93,6 +120,79 @@ public class FileTransferInformation implements Serializable {
 		this.fileSize = fileSize;
 	}
 
+	/**
+	 * Returns the size of the chunks the file is split into. If no size has been set, the size used by all older
+	 * versions is returned.
+	 * 
+	 * @return the chunk size, in bytes
+	 */
+	public int getChunkSize() {
+		if (chunkSize <= 0) {
+			return FilePartitionerUtil.getChunkSize();
+		}
+		return chunkSize;
+	}
+
+	/**
+	 * Sets the size of the chunks. The client requests a size, the server replies with the size which is actually
+	 * used.
+	 * 
+	 * @param chunkSize the chunk size, in bytes
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return the hash of the file content as computed by {@link FilePartitionerUtil#computeHash(java.io.File)}, null
+	 *         if unknown
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * @param contentHash the hash of the file content
+	 */
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+
+	/**
+	 * Returns the chunks of an interrupted upload the server has already received.
+	 * 
+	 * @return the chunk numbers, never null
+	 */
+	public BitSet getTransferredChunks() {
+		if (transferredChunks == null) {
+			transferredChunks = new BitSet();
+		}
+		return transferredChunks;
+	}
+
+	/**
+	 * @param transferredChunks the chunks which have already been received
+	 */
+	public void setTransferredChunks(BitSet transferredChunks) {
+		this.transferredChunks = transferredChunks;
+	}
+
+	/**
+	 * Whether the file is completely available on the server, so no chunks have to be uploaded.
+	 * 
+	 * @return true if the file is complete
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @param complete whether the file is complete
+	 */
+	public void setComplete(boolean complete) {
+		this.complete = complete;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -105,6 +205,8 @@ public class FileTransferInformation implements Serializable {
 		string.append(chunkNumber);
 		string.append("\nTotal File (ALL chunks) Size: ");
 		string.append(fileSize);
+		string.append("\nChunk Size: ");
+		string.append(getChunkSize());
 		return string.toString();
 	}
 }
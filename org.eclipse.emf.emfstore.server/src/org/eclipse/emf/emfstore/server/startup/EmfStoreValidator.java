@@ -10,11 +10,26 @@
  ******************************************************************************/
 package org.eclipse.emf.emfstore.server.startup;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.eclipse.emf.common.util.BasicEList;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -23,26 +38,42 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.emfstore.common.model.ModelElementId;
 import org.eclipse.emf.emfstore.common.model.Project;
 import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
-import org.eclipse.emf.emfstore.common.model.util.SerializationException;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
 import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
 import org.eclipse.emf.emfstore.server.model.ProjectHistory;
 import org.eclipse.emf.emfstore.server.model.ServerSpace;
 import org.eclipse.emf.emfstore.server.model.versioning.Version;
+import org.eclipse.emf.emfstore.server.model.versioning.VersioningPackage;
 import org.eclipse.emf.emfstore.server.model.versioning.operations.AbstractOperation;
 import org.eclipse.emf.emfstore.server.model.versioning.operations.CompositeOperation;
 
 /**
  * Validates the serverspace in three different ways. First it resolves all proxies, then checks whether all ME have ids
- * and it is checked whether the changes generate the corret projectstate.
+ * and it is checked whether the changes generate the corret projectstate. The projects are validated in parallel, the
+ * last validated version of a project is stored in its folder, so that only the versions created since then are
+ * validated again.
  * 
  * @author wesendon
  */
 public class EmfStoreValidator {
 
+	/**
+	 * Name of the file within the project folder containing the last validated version.
+	 */
+	public static final String MARKER_FILE = "validation.marker";
+
+	private static final int MAGIC = 0x45535656;
+	private static final int FORMAT_VERSION = 1;
+
 	private final ServerSpace serverSpace;
 
 	private List<String> excludedProjects;
 
+	// the single project to validate, null for the whole serverspace
+	private ProjectHistory project;
+
+	private int threads;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -51,6 +82,7 @@ public class EmfStoreValidator {
 	public EmfStoreValidator(ServerSpace serverSpace) {
 		this.serverSpace = serverSpace;
 		excludedProjects = new ArrayList<String>();
+		threads = Runtime.getRuntime().availableProcessors();
 	}
 
 	/**
@@ -82,18 +114,19 @@ public class EmfStoreValidator {
 	 * @throws FatalEmfStoreException in case of failure
 	 */
 	public void validate(int options, boolean throwException) throws FatalEmfStoreException {
-		boolean errors = true;
-		if ((options & RESOLVEALL) == RESOLVEALL) {
-			errors = validateResolveAll() && errors;
-		}
-		if ((options & MODELELEMENTID) == MODELELEMENTID) {
-			errors = validateModelelementId() && errors;
+		List<ProjectHistory> projects = getProjects();
+		start("Validating " + projects.size() + " projects with level " + options + "...");
+		List<String> errors = new ArrayList<String>();
+		if (project == null && (options & RESOLVEALL) == RESOLVEALL) {
+			errors.addAll(validateServerSpaceResolveAll());
 		}
-		if ((options & PROJECTGENERATION) == PROJECTGENERATION) {
-			errors = validateProjectGeneration() && errors;
+		for (List<String> projectErrors : validateProjects(projects, options)) {
+			errors.addAll(projectErrors);
 		}
+		errors(errors);
+		stop();
 
-		if (!errors && throwException) {
+		if (errors.size() > 0 && throwException) {
 			throw new FatalEmfStoreException("Validation failed.");
 		}
 	}
@@ -110,97 +143,306 @@ public class EmfStoreValidator {
 	}
 
 	/**
-	 * {@link #RESOLVEALL}.
+	 * Runs the validation for a single project, see {@link #validate(int, boolean)}. {@link #RESOLVEALL} only resolves
+	 * the given project and its versions.
+	 * 
+	 * @param projectHistory the project
+	 * @param options options
+	 * @param throwException allows you to prevent that an exception is thrown if validation failes
+	 * @throws FatalEmfStoreException in case of failure
 	 */
-	private boolean validateResolveAll() {
-		start("Resolving all elements...");
-		EcoreUtil.resolveAll(serverSpace.eResource().getResourceSet());
-		EList<Diagnostic> errors = new BasicEList<Diagnostic>();
-		EList<Resource> resources = serverSpace.eResource().getResourceSet().getResources();
-		for (Resource currentResource : resources) {
-			errors.addAll(currentResource.getErrors());
+	public void validate(ProjectHistory projectHistory, int options, boolean throwException)
+		throws FatalEmfStoreException {
+		project = projectHistory;
+		try {
+			validate(options, throwException);
+		} finally {
+			project = null;
 		}
-		errors(errors);
-		stop();
-		return errors.size() == 0;
 	}
 
 	/**
-	 * {@link #MODELELEMENTID}.
+	 * Sets the number of threads validating the projects of the serverspace.
+	 * 
+	 * @param threads the number of threads, if 0 one thread per processor is used
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
+
+	private List<List<String>> validateProjects(List<ProjectHistory> projects, final int options)
+		throws FatalEmfStoreException {
+		List<List<String>> errors = new ArrayList<List<String>>(projects.size());
+		if (projects.size() <= 1 || threads <= 1) {
+			for (ProjectHistory projectHistory : projects) {
+				errors.add(validateProject(projectHistory, options));
+			}
+			return errors;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, projects.size()), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "EMFStore validation " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Future<List<String>>> results = new ArrayList<Future<List<String>>>(projects.size());
+			for (final ProjectHistory projectHistory : projects) {
+				results.add(pool.submit(new Callable<List<String>>() {
+					public List<String> call() {
+						return validateProject(projectHistory, options);
+					}
+				}));
+			}
+			for (Future<List<String>> result : results) {
+				errors.add(result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FatalEmfStoreException("Validation has been interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new FatalEmfStoreException("Validation failed.", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		return errors;
+	}
+
+	private List<String> validateProject(ProjectHistory projectHistory, int options) {
+		List<String> errors = new ArrayList<String>();
+		if (isExcluded(projectHistory)) {
+			// excluded projects are still resolved completely
+			if ((options & RESOLVEALL) == RESOLVEALL) {
+				validateResolveAll(projectHistory, 0, errors);
+			}
+			return errors;
+		}
+
+		long time = System.currentTimeMillis();
+		int lastValidated = readMarker(projectHistory, options);
+		int versions = projectHistory.getVersions().size();
+		if (lastValidated >= versions - 1) {
+			return errors;
+		}
+		if ((options & RESOLVEALL) == RESOLVEALL) {
+			validateResolveAll(projectHistory, lastValidated + 1, errors);
+		}
+		if ((options & MODELELEMENTID) == MODELELEMENTID) {
+			validateModelelementId(projectHistory, lastValidated + 1, errors);
+		}
+		if ((options & PROJECTGENERATION) == PROJECTGENERATION) {
+			validateProjectGeneration(projectHistory, lastValidated, errors);
+		}
+		if (errors.isEmpty()) {
+			writeMarker(projectHistory, options, versions - 1);
+		}
+		System.out.println("Checked project: " + projectHistory.getProjectId().getId() + " versions "
+			+ (lastValidated + 1) + " to " + (versions - 1) + " (" + (System.currentTimeMillis() - time) + " ms)");
+		return errors;
+	}
+
+	/**
+	 * Returns a version, its changes and project state are loaded while no other thread loads resources into the
+	 * resource set.
 	 */
-	private boolean validateModelelementId() {
-		start("Checking ModelElementIds...");
+	private Version getVersion(ProjectHistory projectHistory, int index, boolean resolveAll) {
+		synchronized (serverSpace.eResource().getResourceSet()) {
+			Version version = projectHistory.getVersions().get(index);
+			if (resolveAll) {
+				EcoreUtil.resolveAll(version);
+			} else {
+				version.getChanges();
+				version.getProjectState();
+			}
+			return version;
+		}
+	}
+
+	private static boolean hasProjectState(Version version) {
+		// doesn't load the project state
+		return version.eGet(VersioningPackage.Literals.VERSION__PROJECT_STATE, false) != null;
+	}
+
+	/**
+	 * {@link #RESOLVEALL} for the elements of the serverspace other than the projects.
+	 */
+	private List<String> validateServerSpaceResolveAll() {
 		List<String> errors = new ArrayList<String>();
-		for (ProjectHistory projectHistory : serverSpace.getProjects()) {
-			if (isExcluded(projectHistory)) {
-				continue;
+		synchronized (serverSpace.eResource().getResourceSet()) {
+			List<EObject> contents = new ArrayList<EObject>(serverSpace.getUsers());
+			contents.addAll(serverSpace.getGroups());
+			contents.addAll(serverSpace.getOpenSessions());
+			for (EObject content : contents) {
+				EcoreUtil.resolveAll(content);
+			}
+			addErrors(serverSpace.eResource(), errors);
+		}
+		return errors;
+	}
+
+	/**
+	 * {@link #RESOLVEALL}.
+	 */
+	private void validateResolveAll(ProjectHistory projectHistory, int from, List<String> errors) {
+		synchronized (serverSpace.eResource().getResourceSet()) {
+			// the versions are resolved one by one
+			List<EObject> contents = new ArrayList<EObject>(projectHistory.getSharedProperties());
+			if (projectHistory.getProjectId() != null) {
+				contents.add(projectHistory.getProjectId());
+			}
+			for (EObject content : contents) {
+				EcoreUtil.resolveAll(content);
+			}
+			addErrors(projectHistory.eResource(), errors);
+		}
+		for (int i = from; i < projectHistory.getVersions().size(); i++) {
+			Version version = getVersion(projectHistory, i, true);
+			addErrors(version.eResource(), errors);
+			if (version.getChanges() != null) {
+				addErrors(version.getChanges().eResource(), errors);
 			}
-			System.out.println("Checking project: " + projectHistory.getProjectId().getId());
-			for (Version version : projectHistory.getVersions()) {
-				if (version.getChanges() != null) {
-					for (AbstractOperation ao : version.getChanges().getOperations()) {
-						if (!(ao instanceof CompositeOperation)
-							&& (ao.getModelElementId() == null || ao.getModelElementId().getId() == null)) {
-							errors.add("ChangeOperation has no ModelElementId in project: "
-								+ projectHistory.getProjectId() + " version: "
-								+ version.getPrimarySpec().getIdentifier());
-						}
+			if (version.getProjectState() != null) {
+				addErrors(version.getProjectState().eResource(), errors);
+			}
+		}
+	}
+
+	private static void addErrors(Resource resource, List<String> errors) {
+		if (resource == null) {
+			return;
+		}
+		EList<Diagnostic> diagnostics = resource.getErrors();
+		for (Diagnostic diagnostic : diagnostics) {
+			errors.add(diagnostic.toString());
+		}
+	}
+
+	/**
+	 * {@link #MODELELEMENTID}.
+	 */
+	private void validateModelelementId(ProjectHistory projectHistory, int from, List<String> errors) {
+		for (int i = from; i < projectHistory.getVersions().size(); i++) {
+			Version version = getVersion(projectHistory, i, false);
+			if (version.getChanges() != null) {
+				for (AbstractOperation ao : version.getChanges().getOperations()) {
+					if (!(ao instanceof CompositeOperation)
+						&& (ao.getModelElementId() == null || ao.getModelElementId().getId() == null)) {
+						errors.add("ChangeOperation has no ModelElementId in project: " + projectHistory.getProjectId()
+							+ " version: " + version.getPrimarySpec().getIdentifier());
 					}
 				}
-				if (version.getProjectState() != null) {
-					for (EObject me : version.getProjectState().getAllModelElements()) {
-						ModelElementId modelElementId = ModelUtil.getProject(me).getModelElementId(me);
-						if (modelElementId == null || modelElementId.getId() == null) {
-							errors.add("ModelElement has no ModelElementId in project: "
-								+ projectHistory.getProjectId() + " version: "
-								+ version.getPrimarySpec().getIdentifier());
-						}
+			}
+			if (version.getProjectState() != null) {
+				for (EObject me : version.getProjectState().getAllModelElements()) {
+					ModelElementId modelElementId = ModelUtil.getProject(me).getModelElementId(me);
+					if (modelElementId == null || modelElementId.getId() == null) {
+						errors.add("ModelElement has no ModelElementId in project: " + projectHistory.getProjectId()
+							+ " version: " + version.getPrimarySpec().getIdentifier());
 					}
 				}
 			}
 		}
-		errors(errors);
-		stop();
-		return errors.size() == 0;
 	}
 
 	/**
-	 * {@value #PROJECTGENERATION}.
+	 * {@value #PROJECTGENERATION}. The changes are applied starting at the last project state up to the last
+	 * validated version, only the project states of later versions are compared.
 	 */
-	private boolean validateProjectGeneration() {
-		start("Project generation compare ...");
-		List<String> errors = new ArrayList<String>();
-		for (ProjectHistory history : serverSpace.getProjects()) {
-			if (isExcluded(history)) {
+	private void validateProjectGeneration(ProjectHistory history, int lastValidated, List<String> errors) {
+		int from = 0;
+		if (lastValidated >= 0) {
+			from = lastValidated;
+			while (from > 0 && !hasProjectState(getVersion(history, from, false))) {
+				from--;
+			}
+		}
+
+		Project state = null;
+		for (int i = from; i < history.getVersions().size(); i++) {
+			Version version = getVersion(history, i, false);
+			if (state == null) {
+				if (version.getProjectState() != null) {
+					state = ModelUtil.clone(version.getProjectState());
+				}
 				continue;
 			}
-			System.out.println("Checking project: " + history.getProjectId().getId());
-			// history = (ProjectHistory) ModelUtil.clone(history);
-			Project state = null;
 
-			for (Version version : history.getVersions()) {
+			version.getChanges().apply(state, true);
 
-				if (version.getProjectState() != null && state == null) {
+			if (i > lastValidated && version.getProjectState() != null) {
+				String difference = ProjectDigest.compare(version.getProjectState(), state);
+				if (difference != null) {
+					errors.add("project compare of project " + history.getProjectId().getId()
+						+ " not equal in version " + version.getPrimarySpec().getIdentifier() + ": " + difference);
+					// continue with the saved state, an equal calculated state is used further on
 					state = ModelUtil.clone(version.getProjectState());
-				} else {
-
-					version.getChanges().apply(state, true);
-
-					if (version.getProjectState() != null) {
-						int[] compare = linearCompare(version.getProjectState(), state);
-						if (compare[0] == 0) {
-							errors.add("project compare of project " + history.getProjectId().getId()
-								+ " not equal in version " + version.getPrimarySpec().getIdentifier());
-							// debug(history, state, version);
-						}
-						state = ModelUtil.clone(version.getProjectState());
-					}
 				}
 			}
 		}
-		errors(errors);
-		stop();
-		return errors.size() == 0;
+	}
+
+	/**
+	 * Returns the last version validated with the given options, -1 if no version has been validated.
+	 */
+	private static int readMarker(ProjectHistory projectHistory, int options) {
+		File file = getMarkerFile(projectHistory);
+		if (!file.exists()) {
+			return -1;
+		}
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+					throw new IOException("Unknown format of validation marker " + file);
+				}
+				int validatedOptions = input.readInt();
+				int lastValidated = input.readInt();
+				if ((validatedOptions & options) != options || lastValidated >= projectHistory.getVersions().size()) {
+					// validated with fewer options or the marker doesn't belong to the stored versions
+					return -1;
+				}
+				return lastValidated;
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			ModelUtil.logWarning("Couldn't read validation marker " + file + ", validating all versions.", e);
+			return -1;
+		}
+	}
+
+	private static void writeMarker(ProjectHistory projectHistory, int options, int lastValidated) {
+		File file = getMarkerFile(projectHistory);
+		if (!file.getParentFile().exists()) {
+			return;
+		}
+		try {
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(FORMAT_VERSION);
+				output.writeInt(options);
+				output.writeInt(lastValidated);
+			} finally {
+				output.close();
+			}
+		} catch (IOException e) {
+			ModelUtil.logWarning("Couldn't write validation marker " + file, e);
+		}
+	}
+
+	private static File getMarkerFile(ProjectHistory projectHistory) {
+		return new File(ServerConfiguration.getServerHome() + ServerConfiguration.FILE_PREFIX_PROJECTFOLDER
+			+ projectHistory.getProjectId().getId() + File.separatorChar + MARKER_FILE);
 	}
 
 	/**
@@ -214,6 +456,13 @@ public class EmfStoreValidator {
 		}
 	}
 
+	private List<ProjectHistory> getProjects() {
+		if (project != null) {
+			return Collections.singletonList(project);
+		}
+		return new ArrayList<ProjectHistory>(serverSpace.getProjects());
+	}
+
 	private boolean isExcluded(ProjectHistory projectHistory) {
 		return excludedProjects.contains(projectHistory.getProjectId().getId());
 	}
@@ -233,63 +482,4 @@ public class EmfStoreValidator {
 			System.out.println(obj);
 		}
 	}
-
-	private static int[] linearCompare(Project projectA, Project projectB) {
-		int[] result = new int[5];
-		final int areEqual = 0;
-		final int differencePosition = 1;
-		final int character = 2;
-		final int lineNum = 3;
-		final int colNum = 4;
-		result[areEqual] = 1;
-		String stringA = "";
-		String stringB = "";
-
-		try {
-			stringA = ModelUtil.eObjectToString(projectA);
-			stringB = ModelUtil.eObjectToString(projectB);
-		} catch (SerializationException e) {
-			ModelUtil.logException(e);
-			result[areEqual] = 0;
-			return result;
-		}
-
-		int length = Math.min(stringA.length(), stringB.length());
-		for (int index = 0; index < length; index++) {
-			if (stringA.charAt(index) != stringB.charAt(index)) {
-				result[areEqual] = 0;
-				result[differencePosition] = index;
-				result[character] = stringA.charAt(index);
-				int lineNumber = getLineNum(stringA, index);
-				result[lineNum] = lineNumber;
-				result[colNum] = getColNum(stringA, index);
-				break;
-			}
-		}
-		return result;
-	}
-
-	private static int getColNum(String stringA, int index) {
-		int pos = index;
-		int j = 0;
-		for (int i = 0; i < index; i++) {
-			j++;
-			if (stringA.charAt(i) == '\n') {
-				pos -= j;
-				j = 0;
-			}
-		}
-		return pos;
-	}
-
-	private static int getLineNum(String stringA, int index) {
-		int lineNum = 1;
-		for (int i = 0; i < index; i++) {
-			if (stringA.charAt(i) == '\n') {
-				lineNum++;
-			}
-		}
-		return lineNum;
-	}
-
 }
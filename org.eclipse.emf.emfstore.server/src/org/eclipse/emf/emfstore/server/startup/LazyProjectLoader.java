@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.startup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.core.MonitorProvider;
+import org.eclipse.emf.emfstore.server.core.helper.CheckpointWriter;
+import org.eclipse.emf.emfstore.server.core.helper.HistoryCache;
+import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
+import org.eclipse.emf.emfstore.server.exceptions.StorageException;
+import org.eclipse.emf.emfstore.server.model.ProjectHistory;
+import org.eclipse.emf.emfstore.server.model.ProjectId;
+import org.eclipse.emf.emfstore.server.model.ServerSpace;
+
+/**
+ * Prepares the projects of the serverspace after the server has been started, instead of before accepting connections.
+ * A project is prepared by recovering its project states, validating it and initializing its history cache. This
+ * happens either in the background by a pool of warm-up threads or on the first access to the project, whichever comes
+ * first. An access only waits for the project it refers to.
+ */
+public class LazyProjectLoader {
+
+	private final ServerSpace serverSpace;
+	private final CheckpointWriter checkpointWriter;
+	private final HistoryCache historyCache;
+	private final int validationLevel;
+	private final List<String> excludedProjects;
+
+	private final ConcurrentHashMap<String, FutureTask<Object>> tasks;
+	private final AtomicInteger readyProjects;
+	private ExecutorService warmUpPool;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param serverSpace the serverspace
+	 * @param checkpointWriter writer used to recover the project states
+	 * @param historyCache the history cache
+	 * @param validationLevel the validation level as used by {@link EmfStoreValidator}, 0 disables validation
+	 * @param excludedProjects ids of projects excluded from validation
+	 */
+	public LazyProjectLoader(ServerSpace serverSpace, CheckpointWriter checkpointWriter, HistoryCache historyCache,
+		int validationLevel, List<String> excludedProjects) {
+		this.serverSpace = serverSpace;
+		this.checkpointWriter = checkpointWriter;
+		this.historyCache = historyCache;
+		this.validationLevel = validationLevel;
+		this.excludedProjects = excludedProjects;
+		tasks = new ConcurrentHashMap<String, FutureTask<Object>>();
+		readyProjects = new AtomicInteger();
+	}
+
+	/**
+	 * Starts preparing all projects in the background.
+	 * 
+	 * @param threads number of warm-up threads, if 0 projects are only prepared on first access
+	 */
+	public synchronized void start(int threads) {
+		if (threads <= 0 || warmUpPool != null) {
+			return;
+		}
+		warmUpPool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "EMFStore warm-up " + count.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+		final ExecutorService pool = warmUpPool;
+		pool.execute(new Runnable() {
+			public void run() {
+				List<ProjectHistory> projects;
+				ReadWriteLock serverSpaceLock = MonitorProvider.getInstance().getServerSpaceLock();
+				serverSpaceLock.readLock().lock();
+				try {
+					projects = new ArrayList<ProjectHistory>(serverSpace.getProjects());
+				} finally {
+					serverSpaceLock.readLock().unlock();
+				}
+				ModelUtil.logInfo("Warming up " + projects.size() + " projects.");
+				for (ProjectHistory projectHistory : projects) {
+					final FutureTask<Object> task = getTask(projectHistory);
+					pool.execute(new Runnable() {
+						public void run() {
+							// queued projects are skipped after stop
+							if (!pool.isShutdown()) {
+								task.run();
+							}
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the warm-up threads. Projects already being prepared are finished.
+	 */
+	public synchronized void stop() {
+		if (warmUpPool != null) {
+			warmUpPool.shutdown();
+		}
+	}
+
+	/**
+	 * Waits until the given project is prepared, preparing it in the calling thread if this hasn't been started yet.
+	 * Returns immediately if the project doesn't exist or if the calling thread holds the write lock of the
+	 * serverspace, which is needed by the preparation.
+	 * 
+	 * @param projectId the project id
+	 * @throws StorageException if the project couldn't be prepared
+	 */
+	public void awaitProject(ProjectId projectId) throws StorageException {
+		if (projectId == null || isProjectReady(projectId)) {
+			return;
+		}
+		ReadWriteLock serverSpaceLock = MonitorProvider.getInstance().getServerSpaceLock();
+		if (serverSpaceLock instanceof ReentrantReadWriteLock
+			&& ((ReentrantReadWriteLock) serverSpaceLock).isWriteLockedByCurrentThread()) {
+			return;
+		}
+		FutureTask<Object> task = tasks.get(projectId.getId());
+		if (task == null) {
+			ProjectHistory projectHistory = null;
+			serverSpaceLock.readLock().lock();
+			try {
+				for (ProjectHistory project : serverSpace.getProjects()) {
+					if (project.getProjectId().equals(projectId)) {
+						projectHistory = project;
+						break;
+					}
+				}
+			} finally {
+				serverSpaceLock.readLock().unlock();
+			}
+			if (projectHistory == null) {
+				return;
+			}
+			task = getTask(projectHistory);
+		}
+		// does nothing if the task has been started by another thread already
+		task.run();
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					task.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new StorageException("Project " + projectId.getId() + " couldn't be loaded.", e.getCause());
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the given project has been prepared successfully.
+	 * 
+	 * @param projectId the project id
+	 * @return true if the project is ready
+	 */
+	public boolean isProjectReady(ProjectId projectId) {
+		FutureTask<Object> task = tasks.get(projectId.getId());
+		if (task == null || !task.isDone()) {
+			return false;
+		}
+		try {
+			task.get();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of projects which have been prepared successfully.
+	 * 
+	 * @return number of ready projects
+	 */
+	public int getReadyProjectCount() {
+		return readyProjects.get();
+	}
+
+	private FutureTask<Object> getTask(final ProjectHistory projectHistory) {
+		String key = projectHistory.getProjectId().getId();
+		FutureTask<Object> task = tasks.get(key);
+		if (task == null) {
+			FutureTask<Object> newTask = new FutureTask<Object>(new Callable<Object>() {
+				public Object call() throws FatalEmfStoreException {
+					load(projectHistory);
+					return null;
+				}
+			});
+			task = tasks.putIfAbsent(key, newTask);
+			if (task == null) {
+				task = newTask;
+			}
+		}
+		return task;
+	}
+
+	private void load(ProjectHistory projectHistory) throws FatalEmfStoreException {
+		ProjectId projectId = projectHistory.getProjectId();
+		long time = System.currentTimeMillis();
+		ReadWriteLock serverSpaceLock = MonitorProvider.getInstance().getServerSpaceLock();
+		serverSpaceLock.readLock().lock();
+		try {
+			if (!serverSpace.getProjects().contains(projectHistory)) {
+				// project has been deleted meanwhile
+				return;
+			}
+			ReadWriteLock projectLock = MonitorProvider.getInstance().getProjectLock(projectId);
+			projectLock.writeLock().lock();
+			try {
+				checkpointWriter.recoverProjectStates(Collections.singletonList(projectHistory));
+				if (validationLevel > 0) {
+					EmfStoreValidator validator = new EmfStoreValidator(serverSpace);
+					validator.setExcludedProjects(excludedProjects);
+					validator.validate(projectHistory, validationLevel, true);
+				}
+				historyCache.initCache(Collections.singletonList(projectHistory));
+			} finally {
+				projectLock.writeLock().unlock();
+			}
+		} catch (FatalEmfStoreException e) {
+			ModelUtil.logException("Loading project " + projectId.getId() + " failed.", e);
+			throw e;
+		} catch (RuntimeException e) {
+			ModelUtil.logException("Loading project " + projectId.getId() + " failed.", e);
+			throw e;
+		} finally {
+			serverSpaceLock.readLock().unlock();
+		}
+		ModelUtil.logInfo("Project " + projectId.getId() + " is ready (" + (System.currentTimeMillis() - time)
+			+ " ms, " + readyProjects.incrementAndGet() + " projects ready).");
+	}
+}
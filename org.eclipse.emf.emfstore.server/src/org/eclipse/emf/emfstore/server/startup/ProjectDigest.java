@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.startup;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+import org.eclipse.emf.emfstore.common.model.Project;
+
+/**
+ * Compares two project states by digests of the contents of their model elements instead of serializing them. The
+ * digest of a model element covers its class, the values of its serialized attributes and the ids of the elements it
+ * references. Contained elements without an id are part of the digest of their container.
+ */
+public final class ProjectDigest {
+
+	private static final String ALGORITHM = "MD5";
+	private static final String ROOT_ELEMENTS = "modelElements";
+	private static final byte SEPARATOR = 0;
+	private static final byte NULL = 1;
+	private static final byte BEGIN = 2;
+	private static final byte END = 3;
+
+	private final Project project;
+	private final MessageDigest digest;
+
+	private ProjectDigest(Project project) {
+		this.project = project;
+		try {
+			digest = MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available.", e);
+		}
+	}
+
+	// the digest of the root elements is stored with an empty id
+	private static Map<String, byte[]> getDigests(Project project) {
+		ProjectDigest projectDigest = new ProjectDigest(project);
+		Map<String, byte[]> digests = new HashMap<String, byte[]>(project.getAllModelElements().size() * 4 / 3 + 1);
+		for (EObject modelElement : project.getAllModelElements()) {
+			String id = project.getModelElementIdString(modelElement);
+			if (id != null) {
+				digests.put(id, projectDigest.digest(modelElement));
+			}
+		}
+		digests.put("", projectDigest.digestRootElements());
+		return digests;
+	}
+
+	/**
+	 * Compares the model elements of two projects. The digests of the expected project are kept while the elements of
+	 * the actual project are compared one after the other.
+	 * 
+	 * @param expected the expected project
+	 * @param actual the actual project
+	 * @return a description of the first difference or null if the projects are equal
+	 */
+	public static String compare(Project expected, Project actual) {
+		Map<String, byte[]> expectedDigests = getDigests(expected);
+		ProjectDigest actualDigest = new ProjectDigest(actual);
+		if (!Arrays.equals(expectedDigests.remove(""), actualDigest.digestRootElements())) {
+			return "root elements differ";
+		}
+		for (EObject modelElement : actual.getAllModelElements()) {
+			String id = actual.getModelElementIdString(modelElement);
+			if (id == null) {
+				continue;
+			}
+			byte[] expectedDigest = expectedDigests.remove(id);
+			if (expectedDigest == null) {
+				return "model element " + id + " is not expected";
+			} else if (!Arrays.equals(expectedDigest, actualDigest.digest(modelElement))) {
+				return "model element " + id + " differs";
+			}
+		}
+		if (!expectedDigests.isEmpty()) {
+			return "model element " + expectedDigests.keySet().iterator().next() + " is missing";
+		}
+		return null;
+	}
+
+	private byte[] digestRootElements() {
+		update(ROOT_ELEMENTS);
+		for (EObject modelElement : project.getModelElements()) {
+			updateReferenced(modelElement, true);
+		}
+		return digest.digest();
+	}
+
+	private byte[] digest(EObject modelElement) {
+		updateContents(modelElement);
+		return digest.digest();
+	}
+
+	private void updateContents(EObject eObject) {
+		EClass eClass = eObject.eClass();
+		update(eClass.getEPackage().getNsURI());
+		update(eClass.getName());
+		for (EStructuralFeature feature : eClass.getEAllStructuralFeatures()) {
+			if (feature.isTransient() || feature.isDerived() || FeatureMapUtil.isFeatureMap(feature)
+				|| !eObject.eIsSet(feature)) {
+				continue;
+			}
+			update(feature.getName());
+			for (Object value : getValues(eObject, feature)) {
+				if (value == null) {
+					digest.update(NULL);
+				} else if (feature instanceof EAttribute) {
+					update(EcoreUtil.convertToString(((EAttribute) feature).getEAttributeType(), value));
+				} else {
+					updateReferenced((EObject) value, ((EReference) feature).isContainment());
+				}
+			}
+		}
+	}
+
+	private void updateReferenced(EObject referenced, boolean containment) {
+		String id = project.getModelElementIdString(referenced);
+		if (id == null && referenced.eIsProxy()) {
+			// unresolved references are not loaded, the fragment of their URI is the id of the element
+			id = ((InternalEObject) referenced).eProxyURI().fragment();
+		}
+		if (id != null) {
+			update(id);
+		} else if (containment) {
+			// contained elements without id only belong to their container
+			digest.update(BEGIN);
+			updateContents(referenced);
+			digest.update(END);
+		} else {
+			update(referenced.eClass().getName());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> getValues(EObject eObject, EStructuralFeature feature) {
+		Object value = eObject.eGet(feature, false);
+		if (feature.isMany()) {
+			return (List<Object>) value;
+		}
+		return Collections.singletonList(value);
+	}
+
+	private void update(String string) {
+		try {
+			digest.update(string.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(SEPARATOR);
+	}
+}
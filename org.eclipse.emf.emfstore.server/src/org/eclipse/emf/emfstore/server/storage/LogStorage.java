@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.storage;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
+import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
+
+/**
+ * Implementation of a {@link ResourceStorage} that appends the versions, change packages and project history of a
+ * project to a {@link SegmentedLog} in the project folder instead of writing a file for each of them. Only the changes
+ * of the project history are appended with each commit. The serverspace and the project states are still stored as XML
+ * files. Projects stored as single files are migrated to the log on startup.
+ */
+public class LogStorage extends XMLStorage implements ResourceSetStorage {
+
+	private static final long MEGABYTE = 1024 * 1024;
+
+	private LogURIHandler uriHandler;
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.emfstore.server.storage.XMLStorage#init(java.util.Properties)
+	 */
+	@Override
+	public URI init(Properties properties) throws FatalEmfStoreException {
+		URI uri = super.init(properties);
+		String segmentSize = properties.getProperty(ServerConfiguration.LOG_STORAGE_SEGMENT_SIZE,
+			ServerConfiguration.LOG_STORAGE_SEGMENT_SIZE_DEFAULT);
+		try {
+			uriHandler = new LogURIHandler(Integer.parseInt(segmentSize.trim()) * MEGABYTE);
+		} catch (NumberFormatException e) {
+			ModelUtil.logWarning("Couldn't read property: " + ServerConfiguration.LOG_STORAGE_SEGMENT_SIZE
+				+ " , using default.", e);
+			uriHandler = new LogURIHandler(Integer.parseInt(ServerConfiguration.LOG_STORAGE_SEGMENT_SIZE_DEFAULT)
+				* MEGABYTE);
+		}
+		new LogStorageMigrator(uriHandler).migrate(new File(ServerConfiguration.getServerHome()));
+		return uri;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.emfstore.server.storage.ResourceSetStorage#initResourceSet(org.eclipse.emf.ecore.resource.ResourceSet)
+	 */
+	public void initResourceSet(ResourceSet resourceSet) {
+		resourceSet.getURIConverter().getURIHandlers().add(0, uriHandler);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.emfstore.server.storage.ResourceSetStorage#close()
+	 */
+	public void close() {
+		uriHandler.close();
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.storage;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
+import org.eclipse.emf.emfstore.server.exceptions.FatalEmfStoreException;
+
+/**
+ * Moves the version, change package and project history files of all projects into the logs of the
+ * {@link LogStorage}. The files are deleted only after the log has been forced to disk, a migration interrupted by a
+ * crash is simply repeated on the next startup.
+ */
+public class LogStorageMigrator {
+
+	private final LogURIHandler uriHandler;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param uriHandler the handler providing the logs
+	 */
+	public LogStorageMigrator(LogURIHandler uriHandler) {
+		this.uriHandler = uriHandler;
+	}
+
+	/**
+	 * Migrates all project folders of the serverspace, which still contain single files.
+	 * 
+	 * @param serverHome the serverspace directory
+	 * @throws FatalEmfStoreException if a project can't be migrated
+	 */
+	public void migrate(File serverHome) throws FatalEmfStoreException {
+		File[] projectFolders = serverHome.listFiles();
+		if (projectFolders == null) {
+			return;
+		}
+		for (File projectFolder : projectFolders) {
+			if (!projectFolder.isDirectory()
+				|| !projectFolder.getName().startsWith(ServerConfiguration.FILE_PREFIX_PROJECTFOLDER)) {
+				continue;
+			}
+			File[] files = projectFolder.listFiles(new FileFilter() {
+				public boolean accept(File pathname) {
+					return pathname.isFile() && LogURIHandler.isLogged(pathname);
+				}
+			});
+			if (files == null || files.length == 0) {
+				continue;
+			}
+			try {
+				migrate(projectFolder, files);
+			} catch (IOException e) {
+				throw new FatalEmfStoreException("Migration of project at " + projectFolder
+					+ " to the log storage failed!", e);
+			}
+		}
+	}
+
+	private void migrate(File projectFolder, File[] files) throws IOException {
+		ModelUtil.logInfo("Migrating " + files.length + " files of project at " + projectFolder
+			+ " to the log storage...");
+		// versions written together are read together
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File o1, File o2) {
+				int result = getNumber(o1.getName()) - getNumber(o2.getName());
+				return (result != 0) ? result : o1.getName().compareTo(o2.getName());
+			}
+		});
+		SegmentedLog log = uriHandler.getLog(projectFolder);
+		for (File file : files) {
+			uriHandler.write(file, readFile(file));
+		}
+		log.flush();
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
+	private static int getNumber(String fileName) {
+		int end = fileName.lastIndexOf('.');
+		int start = end;
+		while (start > 0 && Character.isDigit(fileName.charAt(start - 1))) {
+			start--;
+		}
+		return (start == end) ? 0 : Integer.parseInt(fileName.substring(start, end));
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		byte[] content = new byte[(int) file.length()];
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try {
+			input.readFully(content);
+		} finally {
+			input.close();
+		}
+		return content;
+	}
+}
@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.impl.URIHandlerImpl;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+import org.eclipse.emf.emfstore.server.ServerConfiguration;
+
+/**
+ * Redirects the version, change package and project history files of all projects to a {@link SegmentedLog} in the
+ * project folder. The files keep their URIs, so resources and cross references are the same as with single files. All
+ * other files are left to the default handlers.
+ * 
+ * The project history is saved with every commit, but only the versions at its end change. So it is stored as a full
+ * record followed by records of the changes since, each consisting of the length of the unchanged prefix and suffix
+ * and the bytes in between. Once the changes add up to the size of the history, a full record is written again. All
+ * records carry the generation of the full record, so changes of an older generation are never applied.
+ */
+public class LogURIHandler extends URIHandlerImpl {
+
+	// separates the name of the project history from the number of a change record
+	private static final String CHANGE_SEPARATOR = "#";
+	// generation of a full record, length of the unchanged prefix and suffix of a change record
+	private static final int CHANGE_HEADER_SIZE = 16;
+
+	private final long segmentSize;
+	private final Map<File, SegmentedLog> logs;
+	private final Map<File, History> histories;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param segmentSize the size in bytes after which a log starts a new segment
+	 */
+	public LogURIHandler(long segmentSize) {
+		this.segmentSize = segmentSize;
+		this.logs = new HashMap<File, SegmentedLog>();
+		this.histories = new HashMap<File, History>();
+	}
+
+	/**
+	 * Returns whether a file is stored in the log of its project.
+	 * 
+	 * @param file the file
+	 * @return true for version, change package and project history files within a project folder
+	 */
+	public static boolean isLogged(File file) {
+		File folder = file.getParentFile();
+		if (folder == null || !folder.getName().startsWith(ServerConfiguration.FILE_PREFIX_PROJECTFOLDER)) {
+			return false;
+		}
+		String name = file.getName();
+		return (name.startsWith(ServerConfiguration.FILE_PREFIX_VERSION) && name
+			.endsWith(ServerConfiguration.FILE_EXTENSION_VERSION))
+			|| (name.startsWith(ServerConfiguration.FILE_PREFIX_CHANGEPACKAGE) && name
+				.endsWith(ServerConfiguration.FILE_EXTENSION_CHANGEPACKAGE)) || isHistory(file);
+	}
+
+	private static boolean isHistory(File file) {
+		return file.getName().endsWith(ServerConfiguration.FILE_EXTENSION_PROJECTHISTORY);
+	}
+
+	/**
+	 * Returns the log of a project folder. The log is opened on first access and reopened if the folder has been
+	 * deleted meanwhile.
+	 * 
+	 * @param folder the project folder
+	 * @return the log
+	 * @throws IOException if the log can't be opened
+	 */
+	public synchronized SegmentedLog getLog(File folder) throws IOException {
+		File key = folder.getAbsoluteFile();
+		SegmentedLog log = logs.get(key);
+		if (log != null && log.isDeleted()) {
+			log.close();
+			log = null;
+		}
+		if (log == null) {
+			log = new SegmentedLog(key, segmentSize);
+			logs.put(key, log);
+		}
+		return log;
+	}
+
+	/**
+	 * Flushes and closes all logs.
+	 */
+	public synchronized void close() {
+		for (SegmentedLog log : logs.values()) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				ModelUtil.logWarning("Couldn't close log " + log.getDirectory(), e);
+			}
+		}
+		logs.clear();
+		synchronized (histories) {
+			histories.clear();
+		}
+	}
+
+	/**
+	 * Writes a file to the log of its project.
+	 * 
+	 * @param file the file, which has to be logged
+	 * @param data the content of the file
+	 * @throws IOException if writing fails
+	 */
+	public void write(File file, byte[] data) throws IOException {
+		SegmentedLog log = getLog(file.getParentFile());
+		if (isHistory(file)) {
+			writeHistory(log, file, data);
+		} else {
+			log.append(file.getName(), data);
+		}
+	}
+
+	private SegmentedLog getLog(URI uri) throws IOException {
+		return getLog(new File(uri.toFileString()).getParentFile());
+	}
+
+	/**
+	 * Returns the project history stored in a log. The history is read only once and kept afterwards to compute the
+	 * changes of the next write.
+	 * 
+	 * @return the history or null if the log doesn't contain it
+	 */
+	private History getHistory(SegmentedLog log, File file) throws IOException {
+		File key = file.getAbsoluteFile();
+		synchronized (histories) {
+			History history = histories.get(key);
+			if (history != null && history.log == log) {
+				return history;
+			}
+			histories.remove(key);
+		}
+		String name = file.getName();
+		byte[] data = log.read(name);
+		if (data == null) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		History history = new History(log, buffer.getLong());
+		history.replace(0, 0, data, Long.SIZE / Byte.SIZE, data.length - Long.SIZE / Byte.SIZE);
+		for (byte[] change = log.read(name + CHANGE_SEPARATOR + 1); change != null; change = log.read(name
+			+ CHANGE_SEPARATOR + (history.changes + 1))) {
+			buffer = ByteBuffer.wrap(change);
+			if (buffer.getLong() != history.generation) {
+				break;
+			}
+			history.replace(buffer.getInt(), buffer.getInt(), change, CHANGE_HEADER_SIZE, change.length
+				- CHANGE_HEADER_SIZE);
+			history.changes++;
+			history.changeBytes += change.length;
+		}
+		synchronized (histories) {
+			histories.put(key, history);
+		}
+		return history;
+	}
+
+	private byte[] readHistory(SegmentedLog log, File file) throws IOException {
+		synchronized (log) {
+			History history = getHistory(log, file);
+			return (history == null) ? null : history.toByteArray();
+		}
+	}
+
+	private void writeHistory(SegmentedLog log, File file, byte[] data) throws IOException {
+		synchronized (log) {
+			String name = file.getName();
+			History history = getHistory(log, file);
+			if (history != null) {
+				int prefix = 0;
+				int maxLength = Math.min(history.length, data.length);
+				while (prefix < maxLength && history.content[prefix] == data[prefix]) {
+					prefix++;
+				}
+				int suffix = 0;
+				while (suffix < maxLength - prefix
+					&& history.content[history.length - suffix - 1] == data[data.length - suffix - 1]) {
+					suffix++;
+				}
+				int changeLength = data.length - prefix - suffix;
+				if (history.changeBytes + changeLength <= history.length) {
+					ByteBuffer buffer = ByteBuffer.allocate(CHANGE_HEADER_SIZE + changeLength);
+					buffer.putLong(history.generation).putInt(prefix).putInt(suffix).put(data, prefix, changeLength);
+					log.append(name + CHANGE_SEPARATOR + (history.changes + 1), buffer.array());
+					history.replace(prefix, suffix, data, prefix, changeLength);
+					history.changes++;
+					history.changeBytes += buffer.capacity();
+					return;
+				}
+			}
+			// the changes of an older generation are ignored, even if deleting them below is interrupted
+			History newHistory = new History(log, (history == null) ? System.currentTimeMillis()
+				: history.generation + 1);
+			ByteBuffer buffer = ByteBuffer.allocate(Long.SIZE / Byte.SIZE + data.length);
+			buffer.putLong(newHistory.generation).put(data);
+			log.append(name, buffer.array());
+			newHistory.replace(0, 0, data, 0, data.length);
+			synchronized (histories) {
+				histories.put(file.getAbsoluteFile(), newHistory);
+			}
+			if (history != null) {
+				deleteChanges(log, name, history.changes);
+			}
+		}
+	}
+
+	private void deleteHistory(SegmentedLog log, File file) throws IOException {
+		synchronized (log) {
+			History history = getHistory(log, file);
+			log.delete(file.getName());
+			synchronized (histories) {
+				histories.remove(file.getAbsoluteFile());
+			}
+			if (history != null) {
+				deleteChanges(log, file.getName(), history.changes);
+			}
+		}
+	}
+
+	private static void deleteChanges(SegmentedLog log, String name, int changes) throws IOException {
+		for (int i = 1; i <= changes; i++) {
+			log.delete(name + CHANGE_SEPARATOR + i);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.URIHandlerImpl#canHandle(org.eclipse.emf.common.util.URI)
+	 */
+	@Override
+	public boolean canHandle(URI uri) {
+		return uri.isFile() && isLogged(new File(uri.toFileString()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.URIHandlerImpl#createInputStream(org.eclipse.emf.common.util.URI,
+	 *      java.util.Map)
+	 */
+	@Override
+	public InputStream createInputStream(URI uri, Map<?, ?> options) throws IOException {
+		File file = new File(uri.toFileString());
+		byte[] data = isHistory(file) ? readHistory(getLog(uri), file) : getLog(uri).read(uri.lastSegment());
+		if (data == null) {
+			throw new FileNotFoundException(uri.toFileString());
+		}
+		return new ByteArrayInputStream(data);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.URIHandlerImpl#createOutputStream(org.eclipse.emf.common.util.URI,
+	 *      java.util.Map)
+	 */
+	@Override
+	public OutputStream createOutputStream(URI uri, Map<?, ?> options) throws IOException {
+		final File file = new File(uri.toFileString());
+		// the record is appended as a whole when the resource has been saved completely
+		return new ByteArrayOutputStream() {
+			private boolean closed;
+
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					LogURIHandler.this.write(file, toByteArray());
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.URIHandlerImpl#delete(org.eclipse.emf.common.util.URI, java.util.Map)
+	 */
+	@Override
+	public void delete(URI uri, Map<?, ?> options) throws IOException {
+		File file = new File(uri.toFileString());
+		if (isHistory(file)) {
+			deleteHistory(getLog(uri), file);
+		} else {
+			getLog(uri).delete(uri.lastSegment());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.eclipse.emf.ecore.resource.impl.URIHandlerImpl#exists(org.eclipse.emf.common.util.URI, java.util.Map)
+	 */
+	@Override
+	public boolean exists(URI uri, Map<?, ?> options) {
+		try {
+			return getLog(uri).contains(uri.lastSegment());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * The content of a project history and the change records appended since its last full record.
+	 */
+	private static final class History {
+		private final SegmentedLog log;
+		private final long generation;
+		private byte[] content;
+		private int length;
+		private int changes;
+		private long changeBytes;
+
+		private History(SegmentedLog log, long generation) {
+			this.log = log;
+			this.generation = generation;
+			this.content = new byte[0];
+		}
+
+		/**
+		 * Replaces everything between the given prefix and suffix by the given bytes.
+		 */
+		private void replace(int prefix, int suffix, byte[] data, int offset, int dataLength) throws IOException {
+			if (prefix < 0 || suffix < 0 || prefix + suffix > length) {
+				throw new IOException("Corrupted change record of project history in " + log.getDirectory());
+			}
+			byte[] tail = new byte[suffix];
+			System.arraycopy(content, length - suffix, tail, 0, suffix);
+			int newLength = prefix + dataLength + suffix;
+			if (newLength > content.length) {
+				byte[] newContent = new byte[Math.max(newLength, content.length * 2)];
+				System.arraycopy(content, 0, newContent, 0, prefix);
+				content = newContent;
+			}
+			System.arraycopy(data, offset, content, prefix, dataLength);
+			System.arraycopy(tail, 0, content, prefix + dataLength, suffix);
+			length = newLength;
+		}
+
+		private byte[] toByteArray() {
+			byte[] result = new byte[length];
+			System.arraycopy(content, 0, result, 0, length);
+			return result;
+		}
+	}
+}
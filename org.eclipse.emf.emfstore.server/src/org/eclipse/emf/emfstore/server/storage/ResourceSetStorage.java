@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.storage;
+
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+/**
+ * A {@link ResourceStorage} that takes part in loading and saving the resources of the serverspace, e.g. by
+ * registering its own URI handlers.
+ */
+public interface ResourceSetStorage extends ResourceStorage {
+
+	/**
+	 * Configures the resource set of the serverspace. Called after {@link #init(java.util.Properties)}.
+	 * 
+	 * @param resourceSet the resource set
+	 */
+	void initResourceSet(ResourceSet resourceSet);
+
+	/**
+	 * Writes everything pending and releases the storage on server shutdown.
+	 */
+	void close();
+}
@@ -0,0 +1,486 @@
+/*******************************************************************************
+ * Copyright (c) 2008-2011 Chair for Applied Software Engineering,
+ * Technische Universitaet Muenchen.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ ******************************************************************************/
+package org.eclipse.emf.emfstore.server.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.eclipse.emf.emfstore.common.model.util.FileUtil;
+import org.eclipse.emf.emfstore.common.model.util.ModelUtil;
+
+/**
+ * An append-only log of named byte arrays, split into segment files of a maximum size. Every record carries a CRC32
+ * checksum, so a record torn by a crash is detected and cut off when the log is opened. Writing a name again or
+ * deleting it appends a new record, the latest record of a name wins.
+ * 
+ * An offset index of all live records is kept in memory and written to an index file whenever a segment is full and
+ * when the log is closed. On opening only the records appended after the index was written have to be scanned. Once
+ * more than half of the oldest segment is superseded, its live records are copied to the end of the log and the
+ * segment is deleted. Segments are only compacted from the oldest one on, so a dropped deletion record can never
+ * uncover an older record of the same name.
+ */
+public class SegmentedLog {
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_EXTENSION = ".log";
+	private static final String INDEX_FILE = "segment.idx";
+	private static final String CHARSET = "UTF-8";
+
+	private static final int RECORD_MAGIC = 0x45534c52;
+	private static final int INDEX_MAGIC = 0x45534c49;
+	// magic, name length, data length and checksum
+	private static final int RECORD_OVERHEAD = 16;
+	private static final int HEADER_SIZE = 12;
+	private static final int DELETED = -1;
+
+	private final File directory;
+	private final long segmentSize;
+	private final Map<String, Entry> index;
+	private final TreeMap<Integer, RandomAccessFile> segments;
+	private int currentSegment;
+	private long currentEnd;
+	private boolean dirty;
+	private boolean compacting;
+
+	/**
+	 * Location of the latest record of a name.
+	 */
+	private static final class Entry {
+		private final int segment;
+		private final long offset;
+		private final int length;
+
+		private Entry(int segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Opens the log in the given directory. The directory is created with the first record.
+	 * 
+	 * @param directory the directory containing the segment files
+	 * @param segmentSize the size in bytes after which a new segment is started
+	 * @throws IOException if the log can't be read
+	 */
+	public SegmentedLog(File directory, long segmentSize) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.index = new HashMap<String, Entry>();
+		this.segments = new TreeMap<Integer, RandomAccessFile>();
+		load();
+	}
+
+	/**
+	 * Returns the directory of the log.
+	 * 
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns whether the segment files of the log have been deleted from outside, e.g. with the folder of a deleted
+	 * project.
+	 * 
+	 * @return true if the log has segments, which don't exist anymore
+	 */
+	public synchronized boolean isDeleted() {
+		return !segments.isEmpty() && !directory.exists();
+	}
+
+	/**
+	 * Returns whether the log contains a name.
+	 * 
+	 * @param name the name
+	 * @return true if the name has been written and not deleted since
+	 */
+	public synchronized boolean contains(String name) {
+		return index.containsKey(name);
+	}
+
+	/**
+	 * Returns the latest data written for a name.
+	 * 
+	 * @param name the name
+	 * @return the data or null if the log doesn't contain the name
+	 * @throws IOException if the record can't be read or is corrupted
+	 */
+	public synchronized byte[] read(String name) throws IOException {
+		Entry entry = index.get(name);
+		if (entry == null) {
+			return null;
+		}
+		RandomAccessFile file = segments.get(entry.segment);
+		byte[] record = new byte[entry.length];
+		file.seek(entry.offset);
+		file.readFully(record);
+		byte[] data = decode(record, null);
+		if (data == null) {
+			throw new IOException("Corrupted record of " + name + " in " + getSegmentFile(entry.segment));
+		}
+		return data;
+	}
+
+	/**
+	 * Appends the data of a name to the log.
+	 * 
+	 * @param name the name
+	 * @param data the data
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void append(String name, byte[] data) throws IOException {
+		write(name, data);
+	}
+
+	/**
+	 * Deletes a name from the log.
+	 * 
+	 * @param name the name
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void delete(String name) throws IOException {
+		if (index.containsKey(name)) {
+			write(name, null);
+		}
+	}
+
+	/**
+	 * Writes the index and forces all appended records to the disk.
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void flush() throws IOException {
+		if (segments.isEmpty()) {
+			return;
+		}
+		segments.get(currentSegment).getFD().sync();
+		if (dirty) {
+			writeIndex();
+		}
+	}
+
+	/**
+	 * Flushes and closes the log.
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			if (!isDeleted()) {
+				flush();
+			}
+		} finally {
+			for (RandomAccessFile file : segments.values()) {
+				file.close();
+			}
+			segments.clear();
+			index.clear();
+		}
+	}
+
+	private void write(String name, byte[] data) throws IOException {
+		byte[] record = encode(name.getBytes(CHARSET), data);
+		boolean rolled = false;
+		if (segments.isEmpty() || (currentEnd > 0 && currentEnd + record.length > segmentSize)) {
+			roll();
+			rolled = true;
+		}
+		RandomAccessFile file = segments.get(currentSegment);
+		file.seek(currentEnd);
+		file.write(record);
+		if (data == null) {
+			index.remove(name);
+		} else {
+			index.put(name, new Entry(currentSegment, currentEnd, record.length));
+		}
+		currentEnd += record.length;
+		dirty = true;
+		if (rolled && !compacting) {
+			compact();
+			writeIndex();
+		}
+	}
+
+	private void roll() throws IOException {
+		if (segments.isEmpty()) {
+			directory.mkdirs();
+			currentSegment = 0;
+		} else {
+			currentSegment++;
+		}
+		segments.put(currentSegment, new RandomAccessFile(getSegmentFile(currentSegment), "rw"));
+		currentEnd = 0;
+	}
+
+	private void compact() throws IOException {
+		compacting = true;
+		try {
+			while (segments.firstKey() != currentSegment) {
+				int oldest = segments.firstKey();
+				RandomAccessFile file = segments.get(oldest);
+				long live = 0;
+				List<String> names = new ArrayList<String>();
+				for (Map.Entry<String, Entry> entry : index.entrySet()) {
+					if (entry.getValue().segment == oldest) {
+						live += entry.getValue().length;
+						names.add(entry.getKey());
+					}
+				}
+				if (live * 2 > file.length()) {
+					return;
+				}
+				for (String name : names) {
+					write(name, read(name));
+				}
+				// the index must not refer to the segment anymore before it is deleted
+				writeIndex();
+				file.close();
+				segments.remove(oldest);
+				getSegmentFile(oldest).delete();
+			}
+		} finally {
+			compacting = false;
+		}
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(directory, SEGMENT_PREFIX + segment + SEGMENT_EXTENSION);
+	}
+
+	private static byte[] encode(byte[] name, byte[] data) {
+		int dataLength = (data == null) ? DELETED : data.length;
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_OVERHEAD + name.length + Math.max(dataLength, 0));
+		buffer.putInt(RECORD_MAGIC).putInt(name.length).putInt(dataLength).put(name);
+		if (data != null) {
+			buffer.put(data);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 4, buffer.position() - 4);
+		buffer.putInt((int) crc.getValue());
+		return buffer.array();
+	}
+
+	/**
+	 * Decodes a record. The name is stored into the given array, if any.
+	 * 
+	 * @return the data, which is empty for a deletion, or null if the record is corrupted
+	 */
+	private static byte[] decode(byte[] record, String[] name) throws UnsupportedEncodingException {
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		if (record.length < RECORD_OVERHEAD || buffer.getInt() != RECORD_MAGIC) {
+			return null;
+		}
+		int nameLength = buffer.getInt();
+		int dataLength = buffer.getInt();
+		if (nameLength < 0 || dataLength < DELETED
+			|| record.length != RECORD_OVERHEAD + nameLength + Math.max(dataLength, 0)) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(record, 4, record.length - 8);
+		buffer.position(record.length - 4);
+		if (buffer.getInt() != (int) crc.getValue()) {
+			return null;
+		}
+		if (name != null) {
+			name[0] = new String(record, HEADER_SIZE, nameLength, CHARSET);
+		}
+		byte[] data = new byte[Math.max(dataLength, 0)];
+		System.arraycopy(record, HEADER_SIZE + nameLength, data, 0, data.length);
+		return data;
+	}
+
+	private void load() throws IOException {
+		TreeMap<Integer, File> files = new TreeMap<Integer, File>();
+		File[] listFiles = directory.listFiles();
+		if (listFiles == null) {
+			return;
+		}
+		for (File file : listFiles) {
+			String fileName = file.getName();
+			if (fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_EXTENSION)) {
+				try {
+					files.put(Integer.parseInt(fileName.substring(SEGMENT_PREFIX.length(), fileName.length()
+						- SEGMENT_EXTENSION.length())), file);
+				} catch (NumberFormatException e) {
+					ModelUtil.logWarning("Ignoring unknown file " + file + " in log.");
+				}
+			}
+		}
+		if (files.isEmpty()) {
+			return;
+		}
+		for (Map.Entry<Integer, File> file : files.entrySet()) {
+			segments.put(file.getKey(), new RandomAccessFile(file.getValue(), "rw"));
+		}
+
+		int startSegment = files.firstKey();
+		long startOffset = 0;
+		long[] resume = readIndex();
+		if (resume != null) {
+			startSegment = (int) resume[0];
+			startOffset = resume[1];
+		} else {
+			index.clear();
+		}
+		for (Integer segment : files.tailMap(startSegment).keySet()) {
+			RandomAccessFile file = segments.get(segment);
+			long end = scan(segment, file, segment == startSegment ? startOffset : 0);
+			if (end < file.length()) {
+				ModelUtil.logWarning("Cutting off " + (file.length() - end) + " corrupted bytes of "
+					+ getSegmentFile(segment) + ".");
+				file.setLength(end);
+			}
+			currentSegment = segment;
+			currentEnd = end;
+		}
+	}
+
+	private long scan(int segment, RandomAccessFile file, long offset) throws IOException {
+		long length = file.length();
+		long position = offset;
+		file.getChannel().position(offset);
+		// not closed, since this would close the segment file
+		DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+		byte[] header = new byte[HEADER_SIZE];
+		String[] name = new String[1];
+		while (length - position >= RECORD_OVERHEAD) {
+			input.readFully(header);
+			ByteBuffer buffer = ByteBuffer.wrap(header);
+			buffer.getInt();
+			long recordLength = (long) RECORD_OVERHEAD + buffer.getInt() + Math.max(buffer.getInt(), 0);
+			if (recordLength < RECORD_OVERHEAD || position + recordLength > length) {
+				break;
+			}
+			byte[] record = new byte[(int) recordLength];
+			System.arraycopy(header, 0, record, 0, HEADER_SIZE);
+			input.readFully(record, HEADER_SIZE, record.length - HEADER_SIZE);
+			byte[] data = decode(record, name);
+			if (data == null) {
+				break;
+			}
+			if (ByteBuffer.wrap(record).getInt(8) == DELETED) {
+				index.remove(name[0]);
+			} else {
+				index.put(name[0], new Entry(segment, position, record.length));
+			}
+			position += recordLength;
+		}
+		return position;
+	}
+
+	/**
+	 * Reads the index file.
+	 * 
+	 * @return the segment and offset up to which the index is valid or null if there is no valid index
+	 */
+	private long[] readIndex() {
+		File indexFile = new File(directory, INDEX_FILE);
+		FileUtil.restoreBackup(indexFile);
+		if (!indexFile.exists()) {
+			return null;
+		}
+		try {
+			byte[] content = new byte[(int) indexFile.length()];
+			DataInputStream input = new DataInputStream(new FileInputStream(indexFile));
+			try {
+				input.readFully(content);
+			} finally {
+				input.close();
+			}
+			CRC32 crc = new CRC32();
+			crc.update(content, 0, content.length - 8);
+			ByteBuffer buffer = ByteBuffer.wrap(content);
+			if (content.length < 28 || buffer.getLong(content.length - 8) != crc.getValue()) {
+				ModelUtil.logWarning("Ignoring corrupted index of log " + directory + ".");
+				return null;
+			}
+			DataInputStream indexInput = new DataInputStream(new ByteArrayInputStream(content, 0,
+				content.length - 8));
+			if (indexInput.readInt() != INDEX_MAGIC) {
+				return null;
+			}
+			int segment = indexInput.readInt();
+			long offset = indexInput.readLong();
+			int size = indexInput.readInt();
+			if (!segments.containsKey(segment) || segments.get(segment).length() < offset) {
+				return null;
+			}
+			for (int i = 0; i < size; i++) {
+				String name = indexInput.readUTF();
+				Entry entry = new Entry(indexInput.readInt(), indexInput.readLong(), indexInput.readInt());
+				if (!segments.containsKey(entry.segment)) {
+					return null;
+				}
+				index.put(name, entry);
+			}
+			return new long[] { segment, offset };
+		} catch (EOFException e) {
+			return null;
+		} catch (IOException e) {
+			ModelUtil.logWarning("Couldn't read index of log " + directory + ".", e);
+			return null;
+		}
+	}
+
+	private void writeIndex() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + index.size() * 40);
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(INDEX_MAGIC);
+		output.writeInt(currentSegment);
+		output.writeLong(currentEnd);
+		output.writeInt(index.size());
+		for (Map.Entry<String, Entry> entry : index.entrySet()) {
+			output.writeUTF(entry.getKey());
+			output.writeInt(entry.getValue().segment);
+			output.writeLong(entry.getValue().offset);
+			output.writeInt(entry.getValue().length);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		output.writeLong(crc.getValue());
+		output.flush();
+
+		// replace the old index only if the new one is complete
+		File indexFile = new File(directory, INDEX_FILE);
+		File tempFile = new File(directory, INDEX_FILE + ".tmp");
+		FileOutputStream fileOutput = new FileOutputStream(tempFile);
+		try {
+			bytes.writeTo(fileOutput);
+			fileOutput.getFD().sync();
+		} finally {
+			fileOutput.close();
+		}
+		FileUtil.replaceFile(tempFile, indexFile);
+		dirty = false;
+	}
+}